@@ -0,0 +1,25 @@
+import React from 'react';
+import { Button } from './Button';
+
+interface LoadMoreButtonProps {
+  nextCursor: string | null; // Cursor of the next page; the button is hidden on the last page
+  loading: boolean;
+  onLoadMore: () => void;
+  className?: string;
+}
+
+// Appends the next page of a list; renders nothing once the last page is loaded.
+const LoadMoreButton: React.FC<LoadMoreButtonProps> = ({ nextCursor, loading, onLoadMore, className }) => {
+  if (!nextCursor) {
+    return null;
+  }
+  return (
+    <div className={className ?? 'text-center mt-4'}>
+      <Button type="button" variant="secondary" size="sm" onClick={onLoadMore} disabled={loading}>
+        {loading ? 'Loading...' : 'Load more'}
+      </Button>
+    </div>
+  );
+};
+
+export { LoadMoreButton };
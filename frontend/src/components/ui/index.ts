@@ -4,6 +4,7 @@ export * from './Checkbox';
 export * from './FormErrorMessage'; // Add FormErrorMessage export
 export * from './Input';
 export * from './Label';
+export * from './LoadMoreButton';
 export * from './Modal';
 export * from './Select';
 export * from './Table';
@@ -1,9 +1,10 @@
 import React, { useState, useEffect } from 'react';
 import { Link, useNavigate } from 'react-router-dom';
 import apiClient from '../../utils/apiClient';
+import { fetchPage } from '../../utils/pagination';
 import { AxiosError } from 'axios';
 import { Button } from '../../components/ui/Button';
-import { Table, TableHeader, TableBody, TableRow, TableHead, TableCell } from '../../components/ui';
+import { Table, TableHeader, TableBody, TableRow, TableHead, TableCell, LoadMoreButton } from '../../components/ui';
 import { linkStyle } from '../../styles/commonStyles';
 import { toast } from 'react-toastify';
 
@@ -15,16 +16,20 @@ interface Action {
 
 const ActionListPage: React.FC = () => {
   const [actions, setActions] = useState<Action[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState<string | null>(null);
   const navigate = useNavigate();
 
-  const fetchActions = async () => {
-    setLoading(true);
+  // Without a cursor loads the first page; with one appends the page following it
+  const fetchActions = async (after: string | null = null) => {
+    if (after) setLoadingMore(true); else setLoading(true);
     setError(null);
     try {
-      const response = await apiClient.get('/actions');
-      setActions(response.data || []);
+      const page = await fetchPage<Action>('/actions', after);
+      setActions(currentActions => after ? [...currentActions, ...page.items] : page.items);
+      setNextCursor(page.nextCursor);
     } catch (err) {
       console.error('Error fetching actions:', err);
       let errorMessage = 'Failed to fetch actions.';
@@ -34,10 +39,11 @@ const ActionListPage: React.FC = () => {
         errorMessage = err.message;
       }
       setError(errorMessage);
-      setActions([]);
+      if (!after) setActions([]);
       toast.error(`Error fetching actions: ${errorMessage}`);
     } finally {
       setLoading(false);
+      setLoadingMore(false);
     }
   };
 
@@ -126,6 +132,7 @@ const ActionListPage: React.FC = () => {
             </Table>
         </div>
       )}
+      {!loading && <LoadMoreButton nextCursor={nextCursor} loading={loadingMore} onLoadMore={() => fetchActions(nextCursor)} />}
     </div>
   );
 };
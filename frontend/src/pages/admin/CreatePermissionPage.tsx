@@ -3,7 +3,8 @@ import { useForm, SubmitHandler } from 'react-hook-form';
 import { useNavigate } from 'react-router-dom';
 import { toast } from 'react-toastify';
 import apiClient from '../../utils/apiClient';
-import { Button, Input, Label, Select, FormErrorMessage } from '../../components/ui'; // Import FormErrorMessage
+import { fetchPage } from '../../utils/pagination';
+import { Button, Input, Label, Select, FormErrorMessage, LoadMoreButton } from '../../components/ui'; // Import FormErrorMessage
 // Removed errorTextStyle import
 
 // Define interfaces for Resource and Action based on expected API response
@@ -30,7 +31,10 @@ const CreatePermissionPage: React.FC = () => {
   const navigate = useNavigate();
   const [resources, setResources] = useState<Resource[]>([]);
   const [actions, setActions] = useState<Action[]>([]);
+  const [resourcesCursor, setResourcesCursor] = useState<string | null>(null);
+  const [actionsCursor, setActionsCursor] = useState<string | null>(null);
   const [isLoadingData, setIsLoadingData] = useState(true);
+  const [loadingMore, setLoadingMore] = useState<'resources' | 'actions' | null>(null);
   const [formError, setFormError] = useState<string | null>(null);
 
   // Fetch resources and actions on component mount
@@ -39,12 +43,14 @@ const CreatePermissionPage: React.FC = () => {
       setIsLoadingData(true);
       setFormError(null);
       try {
-        const [resourcesRes, actionsRes] = await Promise.all([
-          apiClient.get('/resources'),
-          apiClient.get('/actions')
+        const [resourcesPage, actionsPage] = await Promise.all([
+          fetchPage<Resource>('/resources'),
+          fetchPage<Action>('/actions')
         ]);
-        setResources(resourcesRes.data || []);
-        setActions(actionsRes.data || []);
+        setResources(resourcesPage.items);
+        setResourcesCursor(resourcesPage.nextCursor);
+        setActions(actionsPage.items);
+        setActionsCursor(actionsPage.nextCursor);
       } catch (error: any) {
         console.error("Error fetching resources or actions:", error);
         setFormError("Failed to load necessary data. Please try again later.");
@@ -56,6 +62,28 @@ const CreatePermissionPage: React.FC = () => {
     fetchData();
   }, []);
 
+  // Appends the next page of resources or actions to its select
+  const loadMore = async (list: 'resources' | 'actions') => {
+    setLoadingMore(list);
+    setFormError(null);
+    try {
+      if (list === 'resources') {
+        const page = await fetchPage<Resource>('/resources', resourcesCursor);
+        setResources(current => [...current, ...page.items]);
+        setResourcesCursor(page.nextCursor);
+      } else {
+        const page = await fetchPage<Action>('/actions', actionsCursor);
+        setActions(current => [...current, ...page.items]);
+        setActionsCursor(page.nextCursor);
+      }
+    } catch (error: any) {
+      console.error(`Error fetching more ${list}:`, error);
+      setFormError(`Failed to load more ${list}.`);
+    } finally {
+      setLoadingMore(null);
+    }
+  };
+
   const onSubmit: SubmitHandler<PermissionFormData> = async (data) => {
     setFormError(null);
     try {
@@ -108,6 +136,7 @@ const CreatePermissionPage: React.FC = () => {
             options={resources.map(r => ({ value: r.id, label: r.name }))}
             placeholder="-- Select Resource --"
           />
+          <LoadMoreButton nextCursor={resourcesCursor} loading={loadingMore === 'resources'} onLoadMore={() => loadMore('resources')} className="mt-2" />
            <FormErrorMessage>{errors.resourceId?.message}</FormErrorMessage> {/* Use component */}
             {resources.length === 0 && !isLoadingData && <FormErrorMessage>No resources available. Please create resources first.</FormErrorMessage>} {/* Use component */}
         </div>
@@ -124,6 +153,7 @@ const CreatePermissionPage: React.FC = () => {
             options={actions.map(a => ({ value: a.id, label: a.name }))}
             placeholder="-- Select Action --"
           />
+          <LoadMoreButton nextCursor={actionsCursor} loading={loadingMore === 'actions'} onLoadMore={() => loadMore('actions')} className="mt-2" />
            <FormErrorMessage>{errors.actionId?.message}</FormErrorMessage> {/* Use component */}
             {actions.length === 0 && !isLoadingData && <FormErrorMessage>No actions available. Please create actions first.</FormErrorMessage>} {/* Use component */}
         </div>
@@ -2,8 +2,9 @@ import React, { useState, useEffect } from 'react';
 import { Link, useNavigate } from 'react-router-dom';
 import { useForm, SubmitHandler } from 'react-hook-form';
 import apiClient from '../../utils/apiClient';
+import { fetchPage } from '../../utils/pagination';
 import { AxiosError } from 'axios';
-import { Button, Input, Label, Select, FormErrorMessage } from '../../components/ui'; // Import FormErrorMessage
+import { Button, Input, Label, Select, FormErrorMessage, LoadMoreButton } from '../../components/ui'; // Import FormErrorMessage
 import { linkStyle } from '../../styles/commonStyles'; // Remove errorTextStyle import
 
 // Interface for Role data
@@ -25,7 +26,9 @@ type CreateUserFormData = {
 const CreateUserPage: React.FC = () => {
   const [roles, setRoles] = useState<Role[]>([]);
   const [apiError, setApiError] = useState<string | null>(null);
+  const [rolesCursor, setRolesCursor] = useState<string | null>(null);
   const [rolesLoading, setRolesLoading] = useState(true);
+  const [rolesLoadingMore, setRolesLoadingMore] = useState(false);
   const [rolesError, setRolesError] = useState<string | null>(null);
   const navigate = useNavigate();
 
@@ -36,27 +39,30 @@ const CreateUserPage: React.FC = () => {
     formState: { errors, isSubmitting }
   } = useForm<CreateUserFormData>();
 
-  useEffect(() => {
-    const fetchRoles = async () => {
-      setRolesLoading(true);
-      setRolesError(null);
-      try {
-        const response = await apiClient.get('/roles');
-        const fetchedRoles = response.data || [];
-        setRoles(fetchedRoles);
-        if (fetchedRoles.length > 0) {
-           const userRole = fetchedRoles.find((r: Role) => r.name === 'USER');
-           const defaultRoleId = userRole ? userRole.id : fetchedRoles[0].id;
-           setValue('roleId', defaultRoleId);
-        }
-      } catch (err) {
-        console.error('Error fetching roles:', err);
-        setRolesError('Failed to load roles. Cannot create user.');
-        setRoles([]);
-      } finally {
-        setRolesLoading(false);
+  // Without a cursor loads the first page of roles; with one appends the page following it
+  const fetchRoles = async (after: string | null = null) => {
+    if (after) setRolesLoadingMore(true); else setRolesLoading(true);
+    setRolesError(null);
+    try {
+      const page = await fetchPage<Role>('/roles', after);
+      setRoles(currentRoles => after ? [...currentRoles, ...page.items] : page.items);
+      setRolesCursor(page.nextCursor);
+      if (!after && page.items.length > 0) {
+         const userRole = page.items.find((r: Role) => r.name === 'USER');
+         const defaultRoleId = userRole ? userRole.id : page.items[0].id;
+         setValue('roleId', defaultRoleId);
       }
-    };
+    } catch (err) {
+      console.error('Error fetching roles:', err);
+      setRolesError('Failed to load roles. Cannot create user.');
+      if (!after) setRoles([]);
+    } finally {
+      setRolesLoading(false);
+      setRolesLoadingMore(false);
+    }
+  };
+
+  useEffect(() => {
     fetchRoles();
   // eslint-disable-next-line react-hooks/exhaustive-deps
   }, [setValue]);
@@ -155,6 +161,7 @@ const CreateUserPage: React.FC = () => {
             options={roles.map(r => ({ value: r.id, label: r.name }))}
             placeholder={rolesLoading ? 'Loading roles...' : (roles.length === 0 ? 'No roles available' : '-- Select Role --')}
           />
+          <LoadMoreButton nextCursor={rolesCursor} loading={rolesLoadingMore} onLoadMore={() => fetchRoles(rolesCursor)} className="mt-2" />
            <FormErrorMessage>{errors.roleId?.message}</FormErrorMessage> {/* Use component */}
         </div>
 
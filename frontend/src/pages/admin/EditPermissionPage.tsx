@@ -7,20 +7,10 @@ import { Button, Input, Label, Textarea, FormErrorMessage } from '../../componen
 import { linkStyle } from '../../styles/commonStyles'; // Remove errorTextStyle import
 
 // Define interfaces (can be shared or redefined if needed)
-interface Resource {
-  id: number;
-  name: string;
-}
-
-interface Action {
-  id: number;
-  name: string;
-}
-
 interface Permission {
     id: number;
-    resource: Resource;
-    action: Action;
+    resourceName: string;
+    actionName: string;
     description: string | null; // Allow null description
 }
 
@@ -128,7 +118,7 @@ const EditPermissionPage: React.FC = () => {
           <Input
             type="text"
             id="resourceName"
-            value={permission.resource.name}
+            value={permission.resourceName}
             className="bg-gray-100 cursor-not-allowed" // Keep disabled style
             disabled
           />
@@ -141,7 +131,7 @@ const EditPermissionPage: React.FC = () => {
           <Input
             type="text"
             id="actionName"
-            value={permission.action.name}
+            value={permission.actionName}
             className="bg-gray-100 cursor-not-allowed" // Keep disabled style
             disabled
           />
@@ -2,8 +2,9 @@ import React, { useState, useEffect } from 'react';
 import { Link, useNavigate, useParams } from 'react-router-dom';
 import { useForm, SubmitHandler } from 'react-hook-form';
 import apiClient from '../../utils/apiClient';
+import { fetchPage } from '../../utils/pagination';
 import { AxiosError } from 'axios';
-import { Button, Input, Label, Textarea, Checkbox, FormErrorMessage } from '../../components/ui'; // Import FormErrorMessage
+import { Button, Input, Label, Textarea, Checkbox, FormErrorMessage, LoadMoreButton } from '../../components/ui'; // Import FormErrorMessage
 import { linkStyle } from '../../styles/commonStyles'; // Remove errorTextStyle import
 
 // Interfaces
@@ -11,8 +12,8 @@ interface Permission {
   id: string;
   name: string;
   description?: string;
-  resource?: { name: string };
-  action?: { name: string };
+  resourceName?: string;
+  actionName?: string;
 }
 interface Role {
   id: string;
@@ -32,6 +33,8 @@ const EditRolePage: React.FC = () => {
 
   const [roleName, setRoleName] = useState('');
   const [allPermissions, setAllPermissions] = useState<Permission[]>([]);
+  const [permissionsCursor, setPermissionsCursor] = useState<string | null>(null);
+  const [permissionsLoadingMore, setPermissionsLoadingMore] = useState(false);
   const [assignedPermissionIds, setAssignedPermissionIds] = useState<Set<string>>(new Set());
   const [loading, setLoading] = useState(true);
   const [permissionToggleLoading, setPermissionToggleLoading] = useState<Record<string, boolean>>({});
@@ -54,13 +57,12 @@ const EditRolePage: React.FC = () => {
       setLoading(true);
       setApiError(null);
       try {
-        const [roleResponse, permissionsResponse] = await Promise.all([
+        const [roleResponse, permissionsPage] = await Promise.all([
           apiClient.get<Role>(`/roles/${roleId}`),
-          apiClient.get<Permission[]>('/permissions')
+          fetchPage<Permission>('/permissions')
         ]);
 
         const fetchedRole = roleResponse.data;
-        const fetchedPermissions = permissionsResponse.data || [];
 
         if (fetchedRole) {
           setRoleName(fetchedRole.name || '');
@@ -69,7 +71,8 @@ const EditRolePage: React.FC = () => {
         } else {
           throw new Error("Role data not found.");
         }
-        setAllPermissions(fetchedPermissions);
+        setAllPermissions(permissionsPage.items);
+        setPermissionsCursor(permissionsPage.nextCursor);
 
       } catch (err) {
         console.error('Error fetching data for edit:', err);
@@ -87,6 +90,27 @@ const EditRolePage: React.FC = () => {
     fetchData();
   }, [roleId, reset]);
 
+  const loadMorePermissions = async () => {
+    setPermissionsLoadingMore(true);
+    setApiError(null);
+    try {
+      const page = await fetchPage<Permission>('/permissions', permissionsCursor);
+      setAllPermissions(current => [...current, ...page.items]);
+      setPermissionsCursor(page.nextCursor);
+    } catch (err) {
+      console.error('Error fetching permissions:', err);
+      let errorMessage = 'Failed to load more permissions.';
+      if (err instanceof AxiosError) {
+        errorMessage = err.response?.data?.message || err.response?.data?.error || err.message;
+      } else if (err instanceof Error) {
+        errorMessage = err.message;
+      }
+      setApiError(errorMessage);
+    } finally {
+      setPermissionsLoadingMore(false);
+    }
+  };
+
   const onDescriptionSubmit: SubmitHandler<EditRoleFormData> = async (data) => {
      setApiError(null);
      if (!roleId) { setApiError("Role ID is missing."); return; }
@@ -153,7 +177,7 @@ const EditRolePage: React.FC = () => {
   }
 
   const groupedPermissions = allPermissions.reduce((acc, permission) => {
-      const resourceName = permission.resource?.name || 'Other';
+      const resourceName = permission.resourceName || 'Other';
       if (!acc[resourceName]) acc[resourceName] = [];
       acc[resourceName].push(permission);
       return acc;
@@ -212,7 +236,7 @@ const EditRolePage: React.FC = () => {
                 <div key={resourceName} className="border border-gray-200 rounded p-4">
                     <h3 className="text-lg font-medium mb-2 border-b pb-1">{resourceName}</h3>
                     <div className="grid grid-cols-2 sm:grid-cols-3 md:grid-cols-4 gap-2">
-                        {permissions.sort((a,b) => (a.action?.name ?? a.name).localeCompare(b.action?.name ?? b.name)).map((permission) => (
+                        {permissions.sort((a,b) => (a.actionName ?? a.name).localeCompare(b.actionName ?? b.name)).map((permission) => (
                             <div key={permission.id} className="flex items-center space-x-2"> {/* Add spacing */}
                                 <Checkbox // Use Checkbox component
                                     id={`perm-${permission.id}`}
@@ -221,7 +245,7 @@ const EditRolePage: React.FC = () => {
                                     disabled={permissionToggleLoading[permission.id]}
                                 />
                                 <Label htmlFor={`perm-${permission.id}`} className={`text-sm font-normal ${permissionToggleLoading[permission.id] ? 'text-gray-400 cursor-not-allowed' : 'text-gray-700 cursor-pointer'}`}> {/* Adjust label style */}
-                                    {permission.action?.name || permission.name}
+                                    {permission.actionName || permission.name}
                                     {permissionToggleLoading[permission.id] && <em className="ml-2 text-xs">(...)</em>}
                                 </Label>
                             </div>
@@ -230,6 +254,7 @@ const EditRolePage: React.FC = () => {
                 </div>
             ))}
         </div>
+        <LoadMoreButton nextCursor={permissionsCursor} loading={permissionsLoadingMore} onLoadMore={loadMorePermissions} />
       </div>
     </div>
   );
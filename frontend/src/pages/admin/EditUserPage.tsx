@@ -2,8 +2,9 @@ import React, { useState, useEffect } from 'react';
 import { Link, useNavigate, useParams } from 'react-router-dom';
 import { useForm, SubmitHandler } from 'react-hook-form';
 import apiClient from '../../utils/apiClient';
+import { fetchPage } from '../../utils/pagination';
 import { AxiosError } from 'axios';
-import { Button, Input, Label, Select, FormErrorMessage } from '../../components/ui'; // Import FormErrorMessage
+import { Button, Input, Label, Select, FormErrorMessage, LoadMoreButton } from '../../components/ui'; // Import FormErrorMessage
 import { linkStyle } from '../../styles/commonStyles'; // Remove errorTextStyle import
 
 // Interfaces
@@ -26,7 +27,9 @@ const EditUserPage: React.FC = () => {
   const navigate = useNavigate();
 
   const [roles, setRoles] = useState<Role[]>([]);
+  const [rolesCursor, setRolesCursor] = useState<string | null>(null);
   const [loading, setLoading] = useState(true);
+  const [rolesLoadingMore, setRolesLoadingMore] = useState(false);
   const [apiError, setApiError] = useState<string | null>(null);
 
   const {
@@ -46,19 +49,23 @@ const EditUserPage: React.FC = () => {
       setLoading(true);
       setApiError(null);
       try {
-        const [rolesResponse, userResponse] = await Promise.all([
-            apiClient.get('/roles'),
+        const [rolesPage, userResponse] = await Promise.all([
+            fetchPage<Role>('/roles'),
             apiClient.get(`/users/${userId}`)
         ]);
 
-        setRoles(rolesResponse.data || []);
         const fetchedUser = userResponse.data;
 
         if (fetchedUser) {
+          // The user's role may be on a later page; list it anyway so the select can show it
+          const userRoleId = fetchedUser.roleId != null ? String(fetchedUser.roleId) : '';
+          const listed = !userRoleId || rolesPage.items.some(r => String(r.id) === userRoleId);
+          setRoles(listed ? rolesPage.items : [{ id: userRoleId, name: fetchedUser.roleName }, ...rolesPage.items]);
+          setRolesCursor(rolesPage.nextCursor);
           reset({
             fullName: fetchedUser.fullName || '',
             email: fetchedUser.email || '',
-            roleId: fetchedUser.role?.id || '',
+            roleId: userRoleId,
           });
         } else {
           throw new Error("User data not found.");
@@ -79,6 +86,30 @@ const EditUserPage: React.FC = () => {
     fetchData();
   }, [userId, reset]);
 
+  const loadMoreRoles = async () => {
+    setRolesLoadingMore(true);
+    setApiError(null);
+    try {
+      const page = await fetchPage<Role>('/roles', rolesCursor);
+      setRoles(currentRoles => [
+        ...currentRoles,
+        ...page.items.filter(role => !currentRoles.some(r => String(r.id) === String(role.id))),
+      ]);
+      setRolesCursor(page.nextCursor);
+    } catch (err) {
+      console.error('Error fetching roles:', err);
+      let errorMessage = 'Failed to load more roles.';
+      if (err instanceof AxiosError) {
+        errorMessage = err.response?.data?.message || err.response?.data?.error || err.message;
+      } else if (err instanceof Error) {
+        errorMessage = err.message;
+      }
+      setApiError(errorMessage);
+    } finally {
+      setRolesLoadingMore(false);
+    }
+  };
+
   const onSubmit: SubmitHandler<EditUserFormData> = async (data) => {
     setApiError(null);
     if (!userId) { setApiError("User ID is missing."); return; }
@@ -179,6 +210,7 @@ const EditUserPage: React.FC = () => {
             options={roles.map(r => ({ value: r.id, label: r.name }))}
             placeholder="-- Select Role --"
           />
+          <LoadMoreButton nextCursor={rolesCursor} loading={rolesLoadingMore} onLoadMore={loadMoreRoles} className="mt-2" />
            <FormErrorMessage>{errors.roleId?.message}</FormErrorMessage> {/* Use component */}
         </div>
 
@@ -1,9 +1,10 @@
 import React, { useState, useEffect } from 'react';
 import { Link } from 'react-router-dom';
 import apiClient from '../../utils/apiClient';
+import { fetchPage } from '../../utils/pagination';
 import { AxiosError } from 'axios';
 import { Button } from '../../components/ui/Button';
-import { Table, TableHeader, TableBody, TableRow, TableHead, TableCell } from '../../components/ui'; // Import Table components
+import { Table, TableHeader, TableBody, TableRow, TableHead, TableCell, LoadMoreButton } from '../../components/ui'; // Import Table components
 import { linkStyle } from '../../styles/commonStyles'; // Keep needed common styles
 
 // Interface for Permission data
@@ -11,38 +12,44 @@ interface Permission {
   id: string;
   name: string;
   description?: string;
-  resource?: { name: string };
-  action?: { name: string };
+  resourceName?: string;
+  actionName?: string;
 }
 
 // Removed local style constants
 
 const PermissionListPage: React.FC = () => {
   const [permissions, setPermissions] = useState<Permission[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState<string | null>(null);
 
-  useEffect(() => {
-    const fetchPermissions = async () => {
-      setLoading(true);
-      setError(null);
-      try {
-        const response = await apiClient.get('/permissions');
-        setPermissions(response.data || []);
-      } catch (err) {
-        console.error('Error fetching permissions:', err);
-        let errorMessage = 'Failed to fetch permissions.';
-        if (err instanceof AxiosError) {
-          errorMessage = err.response?.data?.message || err.response?.data?.error || err.message;
-        } else if (err instanceof Error) {
-          errorMessage = err.message;
-        }
-        setError(errorMessage);
-        setPermissions([]);
-      } finally {
-        setLoading(false);
+  // Without a cursor loads the first page; with one appends the page following it
+  const fetchPermissions = async (after: string | null = null) => {
+    if (after) setLoadingMore(true); else setLoading(true);
+    setError(null);
+    try {
+      const page = await fetchPage<Permission>('/permissions', after);
+      setPermissions(currentPermissions => after ? [...currentPermissions, ...page.items] : page.items);
+      setNextCursor(page.nextCursor);
+    } catch (err) {
+      console.error('Error fetching permissions:', err);
+      let errorMessage = 'Failed to fetch permissions.';
+      if (err instanceof AxiosError) {
+        errorMessage = err.response?.data?.message || err.response?.data?.error || err.message;
+      } else if (err instanceof Error) {
+        errorMessage = err.message;
       }
-    };
+      setError(errorMessage);
+      if (!after) setPermissions([]);
+    } finally {
+      setLoading(false);
+      setLoadingMore(false);
+    }
+  };
+
+  useEffect(() => {
     fetchPermissions();
   }, []);
 
@@ -101,7 +108,7 @@ const PermissionListPage: React.FC = () => {
                 permissions.map((permission) => (
                     <TableRow key={permission.id}> {/* Use TableRow */}
                     <TableCell className="font-mono text-xs">{permission.id}</TableCell> {/* Use TableCell */}
-                    <TableCell>{permission.name || `${permission.resource?.name}:${permission.action?.name}`}</TableCell>
+                    <TableCell>{permission.name || `${permission.resourceName}:${permission.actionName}`}</TableCell>
                     <TableCell>{permission.description || '-'}</TableCell>
                      {/* Ensure actions don't wrap unnecessarily */}
                     <TableCell className="space-x-2 whitespace-nowrap">
@@ -120,7 +127,7 @@ const PermissionListPage: React.FC = () => {
                             Edit
                         </Link>
                         <Button
-                            onClick={() => handleDelete(permission.id, permission.name || `${permission.resource?.name}:${permission.action?.name}`)}
+                            onClick={() => handleDelete(permission.id, permission.name || `${permission.resourceName}:${permission.actionName}`)}
                             variant="danger"
                             size="sm"
                             title="Delete Permission"
@@ -141,6 +148,7 @@ const PermissionListPage: React.FC = () => {
             </Table>
         </div>
       )}
+      {!loading && <LoadMoreButton nextCursor={nextCursor} loading={loadingMore} onLoadMore={() => fetchPermissions(nextCursor)} />}
     </div>
   );
 };
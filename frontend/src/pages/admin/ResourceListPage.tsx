@@ -1,9 +1,10 @@
 import React, { useState, useEffect } from 'react';
 import { Link, useNavigate } from 'react-router-dom';
 import apiClient from '../../utils/apiClient';
+import { fetchPage } from '../../utils/pagination';
 import { AxiosError } from 'axios';
 import { Button } from '../../components/ui/Button';
-import { Table, TableHeader, TableBody, TableRow, TableHead, TableCell } from '../../components/ui';
+import { Table, TableHeader, TableBody, TableRow, TableHead, TableCell, LoadMoreButton } from '../../components/ui';
 import { linkStyle } from '../../styles/commonStyles';
 import { toast } from 'react-toastify';
 
@@ -15,16 +16,20 @@ interface Resource {
 
 const ResourceListPage: React.FC = () => {
   const [resources, setResources] = useState<Resource[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState<string | null>(null);
   const navigate = useNavigate();
 
-  const fetchResources = async () => {
-    setLoading(true);
+  // Without a cursor loads the first page; with one appends the page following it
+  const fetchResources = async (after: string | null = null) => {
+    if (after) setLoadingMore(true); else setLoading(true);
     setError(null);
     try {
-      const response = await apiClient.get('/resources');
-      setResources(response.data || []);
+      const page = await fetchPage<Resource>('/resources', after);
+      setResources(currentResources => after ? [...currentResources, ...page.items] : page.items);
+      setNextCursor(page.nextCursor);
     } catch (err) {
       console.error('Error fetching resources:', err);
       let errorMessage = 'Failed to fetch resources.';
@@ -34,10 +39,11 @@ const ResourceListPage: React.FC = () => {
         errorMessage = err.message;
       }
       setError(errorMessage);
-      setResources([]);
+      if (!after) setResources([]);
       toast.error(`Error fetching resources: ${errorMessage}`);
     } finally {
       setLoading(false);
+      setLoadingMore(false);
     }
   };
 
@@ -126,6 +132,7 @@ const ResourceListPage: React.FC = () => {
             </Table>
         </div>
       )}
+      {!loading && <LoadMoreButton nextCursor={nextCursor} loading={loadingMore} onLoadMore={() => fetchResources(nextCursor)} />}
     </div>
   );
 };
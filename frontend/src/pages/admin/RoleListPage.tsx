@@ -1,9 +1,10 @@
 import React, { useState, useEffect } from 'react';
 import { Link, useNavigate } from 'react-router-dom';
 import apiClient from '../../utils/apiClient';
+import { fetchPage } from '../../utils/pagination';
 import { AxiosError } from 'axios';
 import { Button } from '../../components/ui/Button';
-import { Table, TableHeader, TableBody, TableRow, TableHead, TableCell } from '../../components/ui'; // Import Table components
+import { Table, TableHeader, TableBody, TableRow, TableHead, TableCell, LoadMoreButton } from '../../components/ui'; // Import Table components
 import { linkStyle } from '../../styles/commonStyles'; // Keep needed common styles
 
 // Interface for Role data
@@ -17,31 +18,37 @@ interface Role {
 
 const RoleListPage: React.FC = () => {
   const [roles, setRoles] = useState<Role[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState<string | null>(null);
   const navigate = useNavigate();
 
-  useEffect(() => {
-    const fetchRoles = async () => {
-      setLoading(true);
-      setError(null);
-      try {
-        const response = await apiClient.get('/roles');
-        setRoles(response.data || []);
-      } catch (err) {
-        console.error('Error fetching roles:', err);
-        let errorMessage = 'Failed to fetch roles.';
-        if (err instanceof AxiosError) {
-          errorMessage = err.response?.data?.message || err.response?.data?.error || err.message;
-        } else if (err instanceof Error) {
-          errorMessage = err.message;
-        }
-        setError(errorMessage);
-        setRoles([]);
-      } finally {
-        setLoading(false);
+  // Without a cursor loads the first page; with one appends the page following it
+  const fetchRoles = async (after: string | null = null) => {
+    if (after) setLoadingMore(true); else setLoading(true);
+    setError(null);
+    try {
+      const page = await fetchPage<Role>('/roles', after);
+      setRoles(currentRoles => after ? [...currentRoles, ...page.items] : page.items);
+      setNextCursor(page.nextCursor);
+    } catch (err) {
+      console.error('Error fetching roles:', err);
+      let errorMessage = 'Failed to fetch roles.';
+      if (err instanceof AxiosError) {
+        errorMessage = err.response?.data?.message || err.response?.data?.error || err.message;
+      } else if (err instanceof Error) {
+        errorMessage = err.message;
       }
-    };
+      setError(errorMessage);
+      if (!after) setRoles([]);
+    } finally {
+      setLoading(false);
+      setLoadingMore(false);
+    }
+  };
+
+  useEffect(() => {
     fetchRoles();
   }, []);
 
@@ -139,6 +146,7 @@ const RoleListPage: React.FC = () => {
             </Table>
         </div>
       )}
+      {!loading && <LoadMoreButton nextCursor={nextCursor} loading={loadingMore} onLoadMore={() => fetchRoles(nextCursor)} />}
     </div>
   );
 };
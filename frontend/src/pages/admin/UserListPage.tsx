@@ -1,9 +1,10 @@
 import React, { useState, useEffect } from 'react';
 import { Link, useNavigate } from 'react-router-dom';
 import apiClient from '../../utils/apiClient';
+import { fetchPage } from '../../utils/pagination';
 import { AxiosError } from 'axios';
 import { Button } from '../../components/ui/Button';
-import { Table, TableHeader, TableBody, TableRow, TableHead, TableCell } from '../../components/ui'; // Import Table components
+import { Table, TableHeader, TableBody, TableRow, TableHead, TableCell, LoadMoreButton } from '../../components/ui'; // Import Table components
 import { linkStyle } from '../../styles/commonStyles'; // Keep needed common styles
 
 interface User {
@@ -19,16 +20,20 @@ interface User {
 
 const UserListPage: React.FC = () => {
   const [users, setUsers] = useState<User[]>([]);
+  const [nextCursor, setNextCursor] = useState<string | null>(null);
   const [loading, setLoading] = useState(true);
+  const [loadingMore, setLoadingMore] = useState(false);
   const [error, setError] = useState<string | null>(null);
   const navigate = useNavigate();
 
-  const fetchUsers = async () => {
-    setLoading(true);
+  // Without a cursor loads the first page; with one appends the page following it
+  const fetchUsers = async (after: string | null = null) => {
+    if (after) setLoadingMore(true); else setLoading(true);
     setError(null);
     try {
-      const response = await apiClient.get('/users');
-      setUsers(response.data || []);
+      const page = await fetchPage<User>('/users', after);
+      setUsers(currentUsers => after ? [...currentUsers, ...page.items] : page.items);
+      setNextCursor(page.nextCursor);
     } catch (err) {
       console.error('Error fetching users:', err);
       let errorMessage = 'Failed to fetch users.';
@@ -38,9 +43,10 @@ const UserListPage: React.FC = () => {
         errorMessage = err.message;
       }
       setError(errorMessage);
-      setUsers([]);
+      if (!after) setUsers([]);
     } finally {
       setLoading(false);
+      setLoadingMore(false);
     }
   };
 
@@ -144,6 +150,7 @@ const UserListPage: React.FC = () => {
             </Table>
         </div>
       )}
+      {!loading && <LoadMoreButton nextCursor={nextCursor} loading={loadingMore} onLoadMore={() => fetchUsers(nextCursor)} />}
     </div>
   );
 };
@@ -3,25 +3,17 @@ import { useParams, useNavigate, Link } from 'react-router-dom';
 import apiClient from '../../utils/apiClient';
 import { toast } from 'react-toastify';
 
-// Interface matching the Permission entity structure from backend
-interface Resource {
-  id: number;
-  name: string;
-}
-
-interface Action {
-  id: number;
-  name: string;
-}
-
+// Interface matching the PermissionDto returned by the backend
 interface PermissionDetails {
   id: number;
-  resource: Resource;
-  action: Action;
+  name: string;
+  resourceId: number;
+  resourceName: string;
+  actionId: number;
+  actionName: string;
   description: string | null;
   createdAt: string; // Assuming ISO string format
   updatedAt: string; // Assuming ISO string format
-  name: string; // Provided by the getName() method in backend entity
 }
 
 const ViewPermissionPage: React.FC = () => {
@@ -123,15 +115,15 @@ const ViewPermissionPage: React.FC = () => {
             </div>
             <div className={rowStyle}>
               <dt className={dtStyle}>Name (Resource:Action)</dt>
-              <dd className={ddStyle}>{permission.name || `${permission.resource?.name}:${permission.action?.name}`}</dd>
+              <dd className={ddStyle}>{permission.name || `${permission.resourceName}:${permission.actionName}`}</dd>
             </div>
              <div className={rowStyle}>
               <dt className={dtStyle}>Resource</dt>
-              <dd className={ddStyle}>{permission.resource?.name} (ID: {permission.resource?.id})</dd>
+              <dd className={ddStyle}>{permission.resourceName} (ID: {permission.resourceId})</dd>
             </div>
              <div className={rowStyle}>
               <dt className={dtStyle}>Action</dt>
-              <dd className={ddStyle}>{permission.action?.name} (ID: {permission.action?.id})</dd>
+              <dd className={ddStyle}>{permission.actionName} (ID: {permission.actionId})</dd>
             </div>
             <div className={rowStyle}>
               <dt className={dtStyle}>Description</dt>
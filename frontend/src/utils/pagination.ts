@@ -0,0 +1,15 @@
+import apiClient from './apiClient';
+
+// Shape of the list endpoints: one page of items and the cursor of the next page, null on the last one
+export interface Page<T> {
+  items: T[];
+  nextCursor: string | null;
+}
+
+// Fetches one page; pass the nextCursor of the previous page as after to get the page following it.
+export async function fetchPage<T>(url: string, after: string | null = null, params: Record<string, string> = {}): Promise<Page<T>> {
+  const response = await apiClient.get<Page<T>>(url, {
+    params: { ...params, ...(after ? { after } : {}) },
+  });
+  return { items: response.data.items || [], nextCursor: response.data.nextCursor };
+}
@@ -1,9 +1,12 @@
 package org.cloven.rbac_sample;
 
+import org.cloven.rbac_sample.tenancy.TenantScopedRepository;
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
 
 @SpringBootApplication
+@EnableJpaRepositories(repositoryBaseClass = TenantScopedRepository.class)
 public class RbacSampleApplication {
 
     public static void main(String[] args) {
@@ -0,0 +1,166 @@
+package org.cloven.rbac_sample.activity;
+
+import jakarta.annotation.PreDestroy;
+import org.cloven.rbac_sample.models.User;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Records when users sign in and when they are last seen on a request, and writes the times to
+ * the users table behind the requests. Recording only touches one stripe of an in-memory map, so
+ * concurrent requests rarely contend; a background flush swaps each stripe for an empty one and
+ * writes what it collected as two JDBC batches. A failed flush puts the entries back for the next
+ * one, and shutdown flushes whatever is left once the web server has drained its requests.
+ *
+ * The columns are written only here: the entity maps them read-only, so saving a user never
+ * overwrites a newer time with the one it was loaded with.
+ */
+@Component
+public class ActivityTracker {
+    private static final Logger logger = LoggerFactory.getLogger(ActivityTracker.class);
+    private static final int STRIPES = 16;
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final long flushIntervalMs;
+    private final Stripe[] stripes = new Stripe[STRIPES];
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "activity-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public ActivityTracker(
+            JdbcTemplate jdbcTemplate,
+            @Value("${app.activity.flush-interval-ms:10000}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.flushIntervalMs = flushIntervalMs;
+        for (int i = 0; i < STRIPES; i++) {
+            stripes[i] = new Stripe();
+        }
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flushQuietly, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flushQuietly();
+    }
+
+    public void recordLogin(User user) {
+        record(user, true);
+    }
+
+    public void recordSeen(User user) {
+        record(user, false);
+    }
+
+    /**
+     * Writes all collected activity now. Called before queries that read the columns.
+     */
+    public synchronized void flush() {
+        Map<Integer, Activity> pending = new HashMap<>();
+        for (Stripe stripe : stripes) {
+            synchronized (stripe) {
+                if (!stripe.pending.isEmpty()) {
+                    pending.putAll(stripe.pending);
+                    stripe.pending = new HashMap<>();
+                }
+            }
+        }
+        if (pending.isEmpty()) {
+            return;
+        }
+
+        List<Activity> logins = new ArrayList<>();
+        for (Activity activity : pending.values()) {
+            if (activity.lastLoginAt != 0) {
+                logins.add(activity);
+            }
+        }
+        try {
+            // Updates keep the later time, in case another node wrote one meanwhile
+            jdbcTemplate.batchUpdate("update users set last_login_at = ? where id = ? and tenant_id = ? "
+                            + "and (last_login_at is null or last_login_at < ?)",
+                    logins, BATCH_SIZE, (statement, activity) -> {
+                        Timestamp lastLoginAt = new Timestamp(activity.lastLoginAt);
+                        statement.setTimestamp(1, lastLoginAt);
+                        statement.setInt(2, activity.userId);
+                        statement.setString(3, activity.tenantId);
+                        statement.setTimestamp(4, lastLoginAt);
+                    });
+            jdbcTemplate.batchUpdate("update users set last_seen_at = ? where id = ? and tenant_id = ? "
+                            + "and (last_seen_at is null or last_seen_at < ?)",
+                    pending.values(), BATCH_SIZE, (statement, activity) -> {
+                        Timestamp lastSeenAt = new Timestamp(activity.lastSeenAt);
+                        statement.setTimestamp(1, lastSeenAt);
+                        statement.setInt(2, activity.userId);
+                        statement.setString(3, activity.tenantId);
+                        statement.setTimestamp(4, lastSeenAt);
+                    });
+        } catch (RuntimeException e) {
+            for (Activity activity : pending.values()) {
+                stripeOf(activity.userId).merge(activity);
+            }
+            throw e;
+        }
+    }
+
+    private void flushQuietly() {
+        try {
+            flush();
+        } catch (RuntimeException e) {
+            logger.warn("Could not write user activity, keeping it for the next attempt: {}", e.getMessage());
+        }
+    }
+
+    private void record(User user, boolean login) {
+        if (user.getId() == null) {
+            return;
+        }
+        long now = System.currentTimeMillis();
+        Activity activity = new Activity(user.getId(), user.getTenantId(), login ? now : 0, now);
+        stripeOf(user.getId()).merge(activity);
+    }
+
+    private Stripe stripeOf(int userId) {
+        return stripes[(userId ^ (userId >>> 16)) & (STRIPES - 1)];
+    }
+
+    private static final class Stripe {
+        private Map<Integer, Activity> pending = new HashMap<>();
+
+        private synchronized void merge(Activity activity) {
+            pending.merge(activity.userId, activity, (current, update) -> new Activity(current.userId,
+                    current.tenantId,
+                    Math.max(current.lastLoginAt, update.lastLoginAt),
+                    Math.max(current.lastSeenAt, update.lastSeenAt)));
+        }
+    }
+
+    private record Activity(int userId, String tenantId, long lastLoginAt, long lastSeenAt) {
+    }
+}
@@ -0,0 +1,183 @@
+package org.cloven.rbac_sample.batching;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.cloven.rbac_sample.tenancy.TenantContext;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Function;
+
+/**
+ * Coalesces concurrent single-key lookups into one {@code IN (...)} query.
+ *
+ * The first lookup of a tenant opens a batch and waits for the batching window; lookups arriving
+ * meanwhile join it, and a batch that reaches the maximum size is dispatched at once. The thread
+ * that dispatches runs the query and completes every waiting lookup. A lookup for a key that is
+ * already in flight waits for that result instead of adding the key again.
+ *
+ * Results are shared between threads, so lookups inside a transaction, which may modify what they
+ * load or need to see their own uncommitted writes, bypass the batch and query directly.
+ */
+public final class BatchLoader<K, V> {
+    private final Function<Collection<K>, Map<K, V>> batchQuery;
+    private final Function<K, Optional<V>> singleQuery;
+    private final int maxBatchSize;
+    private final long windowNanos;
+    private final boolean enabled;
+
+    private final Map<Key<K>, CompletableFuture<V>> inFlight = new ConcurrentHashMap<>();
+    // Open batch per tenant, guarded by this
+    private final Map<String, Batch<K, V>> open = new HashMap<>();
+
+    private final Counter lookups;
+    private final Counter queries;
+    private final Timer latency;
+
+    public BatchLoader(
+            String name,
+            Function<Collection<K>, Map<K, V>> batchQuery,
+            Function<K, Optional<V>> singleQuery,
+            boolean enabled,
+            int maxBatchSize,
+            long windowMicros,
+            MeterRegistry meterRegistry) {
+        this.batchQuery = batchQuery;
+        this.singleQuery = singleQuery;
+        this.enabled = enabled;
+        this.maxBatchSize = maxBatchSize;
+        this.windowNanos = TimeUnit.MICROSECONDS.toNanos(windowMicros);
+        this.lookups = Counter.builder("rbac.batch.lookups").tag("loader", name)
+                .description("Single-key lookups requested from the loader").register(meterRegistry);
+        this.queries = Counter.builder("rbac.batch.queries").tag("loader", name)
+                .description("Database queries issued by the loader").register(meterRegistry);
+        this.latency = Timer.builder("rbac.batch.latency").tag("loader", name)
+                .description("Time a lookup waited for its result").publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+    }
+
+    public Optional<V> load(K key) {
+        lookups.increment();
+        long start = System.nanoTime();
+        try {
+            if (!enabled || TransactionSynchronizationManager.isActualTransactionActive()) {
+                queries.increment();
+                return singleQuery.apply(key);
+            }
+            return Optional.ofNullable(await(enqueue(key)));
+        } finally {
+            latency.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+        }
+    }
+
+    private V await(CompletableFuture<V> result) {
+        try {
+            return result.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            if (e.getCause() instanceof Error cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private CompletableFuture<V> enqueue(K key) {
+        String tenantId = TenantContext.get();
+        Key<K> inFlightKey = new Key<>(tenantId, key);
+        CompletableFuture<V> existing = inFlight.get(inFlightKey);
+        if (existing != null) {
+            return existing;
+        }
+
+        CompletableFuture<V> result;
+        Batch<K, V> batch;
+        boolean leader = false;
+        Batch<K, V> full = null;
+        synchronized (this) {
+            existing = inFlight.get(inFlightKey);
+            if (existing != null) {
+                return existing;
+            }
+            result = new CompletableFuture<>();
+            inFlight.put(inFlightKey, result);
+            batch = open.get(tenantId);
+            if (batch == null) {
+                batch = new Batch<>(tenantId);
+                open.put(tenantId, batch);
+                leader = true;
+            }
+            batch.pending.put(key, result);
+            if (batch.pending.size() >= maxBatchSize) {
+                open.remove(tenantId, batch);
+                batch.closed = true;
+                full = batch;
+            }
+        }
+
+        if (full != null) {
+            dispatch(full);
+        } else if (leader) {
+            LockSupport.parkNanos(windowNanos);
+            boolean dispatch;
+            synchronized (this) {
+                dispatch = !batch.closed;
+                if (dispatch) {
+                    open.remove(tenantId, batch);
+                    batch.closed = true;
+                }
+            }
+            if (dispatch) {
+                dispatch(batch);
+            }
+        }
+        return result;
+    }
+
+    private void dispatch(Batch<K, V> batch) {
+        queries.increment();
+        try {
+            Map<K, V> found = batch.pending.size() == 1
+                    ? singleAsMap(batch.pending.keySet().iterator().next())
+                    : batchQuery.apply(batch.pending.keySet());
+            batch.pending.forEach((key, result) -> {
+                inFlight.remove(new Key<>(batch.tenantId, key), result);
+                result.complete(found.get(key));
+            });
+        } catch (Throwable e) {
+            // Also on errors, or the lookups waiting for the batch would never return
+            batch.pending.forEach((key, result) -> {
+                inFlight.remove(new Key<>(batch.tenantId, key), result);
+                result.completeExceptionally(e);
+            });
+            if (e instanceof Error error) {
+                throw error;
+            }
+        }
+    }
+
+    private Map<K, V> singleAsMap(K key) {
+        return singleQuery.apply(key).map(value -> Map.of(key, value)).orElse(Map.of());
+    }
+
+    private record Key<K>(String tenantId, K key) {
+    }
+
+    private static final class Batch<K, V> {
+        private final String tenantId;
+        private final Map<K, CompletableFuture<V>> pending = new LinkedHashMap<>();
+        private boolean closed;
+
+        private Batch(String tenantId) {
+            this.tenantId = tenantId;
+        }
+    }
+}
@@ -0,0 +1,61 @@
+package org.cloven.rbac_sample.batching;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.cloven.rbac_sample.models.Role;
+import org.cloven.rbac_sample.models.User;
+import org.cloven.rbac_sample.repositories.RoleRepository;
+import org.cloven.rbac_sample.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.Optional;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.StreamSupport;
+
+/**
+ * Batched lookups of users and roles by key, for the read paths that many concurrent requests
+ * hit at once: resolving the principal of a token and fetching a single user or role.
+ */
+@Component
+public class RepositoryLoaders {
+    private final BatchLoader<String, User> usersByEmail;
+    private final BatchLoader<Integer, User> usersById;
+    private final BatchLoader<Integer, Role> rolesById;
+
+    public RepositoryLoaders(
+            UserRepository userRepository,
+            RoleRepository roleRepository,
+            MeterRegistry meterRegistry,
+            @Value("${app.batching.enabled:true}") boolean enabled,
+            @Value("${app.batching.max-batch-size:100}") int maxBatchSize,
+            @Value("${app.batching.window-micros:500}") long windowMicros) {
+        this.usersByEmail = new BatchLoader<>("users-by-email",
+                emails -> userRepository.findAllByEmailIn(emails).stream()
+                        .collect(Collectors.toMap(User::getEmail, Function.identity())),
+                userRepository::findByEmail,
+                enabled, maxBatchSize, windowMicros, meterRegistry);
+        this.usersById = new BatchLoader<>("users-by-id",
+                ids -> userRepository.findAllById(ids).stream()
+                        .collect(Collectors.toMap(User::getId, Function.identity())),
+                userRepository::findById,
+                enabled, maxBatchSize, windowMicros, meterRegistry);
+        this.rolesById = new BatchLoader<>("roles-by-id",
+                ids -> StreamSupport.stream(roleRepository.findAllById(ids).spliterator(), false)
+                        .collect(Collectors.toMap(Role::getId, Function.identity())),
+                roleRepository::findById,
+                enabled, maxBatchSize, windowMicros, meterRegistry);
+    }
+
+    public Optional<User> userByEmail(String email) {
+        return usersByEmail.load(email);
+    }
+
+    public Optional<User> userById(Integer id) {
+        return usersById.load(id);
+    }
+
+    public Optional<Role> roleById(Integer id) {
+        return rolesById.load(id);
+    }
+}
@@ -4,18 +4,24 @@ import org.cloven.rbac_sample.dtos.ActionDto;
 import org.cloven.rbac_sample.dtos.PermissionDto;
 import org.cloven.rbac_sample.dtos.ResourceDto;
 import org.cloven.rbac_sample.dtos.RoleDto;
+import org.cloven.rbac_sample.dtos.RolePermissionsDto;
 import org.cloven.rbac_sample.models.*;
 import org.cloven.rbac_sample.repositories.RoleRepository;
+import org.cloven.rbac_sample.repositories.TenantRepository;
 import org.cloven.rbac_sample.repositories.UserRepository;
+import org.cloven.rbac_sample.routing.RoutingContext;
 import org.cloven.rbac_sample.services.ActionService;
 import org.cloven.rbac_sample.services.PermissionService;
 import org.cloven.rbac_sample.services.ResourceService;
 import org.cloven.rbac_sample.services.RoleService;
+import org.cloven.rbac_sample.tenancy.TenantContext;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Component;
 
+import java.util.List;
+
 @Component
 public class DataLoader implements CommandLineRunner {
 
@@ -26,6 +32,7 @@ public class DataLoader implements CommandLineRunner {
     private final ActionService actionService;
     private final PermissionService permissionService;
     private final RoleService roleService;
+    private final TenantRepository tenantRepository;
 
     @Autowired
     public DataLoader(
@@ -35,7 +42,8 @@ public class DataLoader implements CommandLineRunner {
             ResourceService resourceService,
             ActionService actionService,
             PermissionService permissionService,
-            RoleService roleService) {
+            RoleService roleService,
+            TenantRepository tenantRepository) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
         this.passwordEncoder = passwordEncoder;
@@ -43,6 +51,7 @@ public class DataLoader implements CommandLineRunner {
         this.actionService = actionService;
         this.permissionService = permissionService;
         this.roleService = roleService;
+        this.tenantRepository = tenantRepository;
     }
 
     @Override
@@ -51,12 +60,31 @@ public class DataLoader implements CommandLineRunner {
         if (args.length > 0 && args[0].equals("test")) {
             return;
         }
-        
+
+        RoutingContext.runOnPrimary(() -> {
+            if (!tenantRepository.existsById(TenantContext.DEFAULT_TENANT)) {
+                tenantRepository.save(new Tenant().setId(TenantContext.DEFAULT_TENANT).setName("Default"));
+            }
+        });
+
+        TenantContext.runAs(TenantContext.DEFAULT_TENANT, () -> seed("Admin User", "admin@example.com", "admin123"));
+    }
+
+    /**
+     * Creates the built-in roles, resources, actions and permissions and an administrator in the
+     * current tenant. Anything that already exists is left alone. Existence is checked on the
+     * primary, since a read replica may not have the rows seeded a moment ago.
+     */
+    public void seed(String adminFullName, String adminEmail, String adminPassword) {
+        RoutingContext.runOnPrimary(() -> seedOnPrimary(adminFullName, adminEmail, adminPassword));
+    }
+
+    private void seedOnPrimary(String adminFullName, String adminEmail, String adminPassword) {
         // Create roles if they don't exist
         createRolesIfNotExist();
         
         // Create admin user if it doesn't exist
-        createAdminUserIfNotExist();
+        createAdminUserIfNotExist(adminFullName, adminEmail, adminPassword);
         
         // Create resources
         createResources();
@@ -73,9 +101,9 @@ public class DataLoader implements CommandLineRunner {
     
     private void createRolesIfNotExist() {
         for (RoleEnum roleEnum : RoleEnum.values()) {
-            if (roleRepository.findByName(roleEnum).isEmpty()) {
+            if (roleRepository.findByName(roleEnum.name()).isEmpty()) {
                 RoleDto roleDto = new RoleDto();
-                roleDto.setName(roleEnum);
+                roleDto.setName(roleEnum.name());
                 roleDto.setDescription(getDescriptionForRole(roleEnum));
                 roleService.createRole(roleDto);
                 System.out.println("Created role: " + roleEnum);
@@ -96,19 +124,19 @@ public class DataLoader implements CommandLineRunner {
         }
     }
     
-    private void createAdminUserIfNotExist() {
-        if (!userRepository.existsByEmail("admin@example.com")) {
-            Role adminRole = roleRepository.findByName(RoleEnum.ADMIN)
+    private void createAdminUserIfNotExist(String fullName, String email, String password) {
+        if (!userRepository.existsByEmail(email)) {
+            Role adminRole = roleRepository.findByName(RoleEnum.ADMIN.name())
                     .orElseThrow(() -> new RuntimeException("Admin role not found"));
             
             User adminUser = new User();
-            adminUser.setFullName("Admin User");
-            adminUser.setEmail("admin@example.com");
-            adminUser.setPassword(passwordEncoder.encode("admin123"));
+            adminUser.setFullName(fullName);
+            adminUser.setEmail(email);
+            adminUser.setPassword(passwordEncoder.encode(password));
             adminUser.setRole(adminRole);
             
             userRepository.save(adminUser);
-            System.out.println("Created admin user: admin@example.com");
+            System.out.println("Created admin user: " + email);
         }
     }
     
@@ -178,52 +206,43 @@ public class DataLoader implements CommandLineRunner {
     
     private void assignPermissionsToRoles() {
         // Get roles
-        Role adminRole = roleRepository.findByName(RoleEnum.ADMIN)
+        Role adminRole = roleRepository.findByName(RoleEnum.ADMIN.name())
                 .orElseThrow(() -> new RuntimeException("Admin role not found"));
         
-        Role moderatorRole = roleRepository.findByName(RoleEnum.MODERATOR)
+        Role moderatorRole = roleRepository.findByName(RoleEnum.MODERATOR.name())
                 .orElseThrow(() -> new RuntimeException("Moderator role not found"));
         
-        Role userRole = roleRepository.findByName(RoleEnum.USER)
+        Role userRole = roleRepository.findByName(RoleEnum.USER.name())
                 .orElseThrow(() -> new RuntimeException("User role not found"));
         
+        List<Permission> permissions = permissionService.getAllPermissions();
+        
         // Assign all permissions to admin
-        permissionService.getAllPermissions().forEach(permission -> {
-            try {
-                roleService.assignPermissionToRole(adminRole.getId(), permission.getId());
-                System.out.println("Assigned permission " + permission.getName() + " to ADMIN role");
-            } catch (Exception e) {
-                // Permission already assigned
-            }
-        });
+        grant(adminRole, permissions);
         
         // Assign read and list permissions to moderator for all resources
-        permissionService.getAllPermissions().stream()
+        grant(moderatorRole, permissions.stream()
                 .filter(permission -> 
                         permission.getAction().getName().equals("READ") || 
                         permission.getAction().getName().equals("LIST"))
-                .forEach(permission -> {
-                    try {
-                        roleService.assignPermissionToRole(moderatorRole.getId(), permission.getId());
-                        System.out.println("Assigned permission " + permission.getName() + " to MODERATOR role");
-                    } catch (Exception e) {
-                        // Permission already assigned
-                    }
-                });
+                .toList());
         
         // Assign read and list permissions to user for USER resource only
-        permissionService.getAllPermissions().stream()
+        grant(userRole, permissions.stream()
                 .filter(permission -> 
                         permission.getResource().getName().equals("USER") && 
                         (permission.getAction().getName().equals("READ") || 
                          permission.getAction().getName().equals("LIST")))
-                .forEach(permission -> {
-                    try {
-                        roleService.assignPermissionToRole(userRole.getId(), permission.getId());
-                        System.out.println("Assigned permission " + permission.getName() + " to USER role");
-                    } catch (Exception e) {
-                        // Permission already assigned
-                    }
-                });
+                .toList());
+    }
+    
+    private void grant(Role role, List<Permission> permissions) {
+        // Permissions the role already holds are left alone
+        RolePermissionsDto grants = new RolePermissionsDto();
+        permissions.forEach(permission -> grants.getGrant().add(permission.getId()));
+        int granted = roleService.changePermissions(role.getId(), grants).getGranted();
+        if (granted > 0) {
+            System.out.println("Assigned " + granted + " permissions to " + role.getName() + " role");
+        }
     }
 } 
\ No newline at end of file
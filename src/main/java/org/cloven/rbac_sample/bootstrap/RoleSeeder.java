@@ -4,6 +4,7 @@ import org.cloven.rbac_sample.dtos.RoleDto;
 import org.cloven.rbac_sample.models.Role;
 import org.cloven.rbac_sample.models.RoleEnum;
 import org.cloven.rbac_sample.repositories.RoleRepository;
+import org.cloven.rbac_sample.routing.RoutingContext;
 import org.cloven.rbac_sample.services.RoleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.CommandLineRunner;
@@ -28,6 +29,10 @@ public class RoleSeeder implements CommandLineRunner {
 
     @Override
     public void run(String... args) throws Exception {
+        RoutingContext.runOnPrimary(this::createRolesIfNotExist);
+    }
+
+    private void createRolesIfNotExist() {
         // Create default roles if they don't exist
         List<RoleEnum> roles = Arrays.asList(
                 RoleEnum.ADMIN,
@@ -36,9 +41,9 @@ public class RoleSeeder implements CommandLineRunner {
         );
 
         for (RoleEnum roleEnum : roles) {
-            if (roleRepository.findByName(roleEnum).isEmpty()) {
+            if (roleRepository.findByName(roleEnum.name()).isEmpty()) {
                 RoleDto roleDto = new RoleDto();
-                roleDto.setName(roleEnum);
+                roleDto.setName(roleEnum.name());
                 roleDto.setDescription(getDescriptionForRole(roleEnum));
                 roleService.createRole(roleDto);
                 System.out.println("Created role: " + roleEnum);
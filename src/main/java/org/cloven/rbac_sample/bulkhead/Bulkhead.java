@@ -0,0 +1,16 @@
+package org.cloven.rbac_sample.bulkhead;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Assigns a controller, or a single handler method, to an endpoint class. Handlers without it
+ * count as admin reads for GET requests and admin writes otherwise.
+ */
+@Target({ElementType.TYPE, ElementType.METHOD})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface Bulkhead {
+    EndpointClass value();
+}
@@ -0,0 +1,72 @@
+package org.cloven.rbac_sample.bulkhead;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.cloven.rbac_sample.exceptions.TooManyRequestsException;
+import org.springframework.core.annotation.AnnotatedElementUtils;
+import org.springframework.http.HttpMethod;
+import org.springframework.stereotype.Component;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+
+/**
+ * Admits each request to the application's controllers through the bulkhead of its endpoint
+ * class and releases the slot when the handler is done. A streamed response gives its slot back
+ * once the handler returns, since writing the body no longer runs on the request thread.
+ */
+@Component
+public class BulkheadInterceptor implements AsyncHandlerInterceptor {
+    private static final String ENTERED = BulkheadInterceptor.class.getName() + ".ENTERED";
+    private static final String APPLICATION_PACKAGE = "org.cloven.rbac_sample";
+
+    private final BulkheadRegistry bulkheadRegistry;
+
+    public BulkheadInterceptor(BulkheadRegistry bulkheadRegistry) {
+        this.bulkheadRegistry = bulkheadRegistry;
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)
+                || !handlerMethod.getBeanType().getPackageName().startsWith(APPLICATION_PACKAGE)) {
+            return true;
+        }
+        EndpointClass endpointClass = classify(request, handlerMethod);
+        if (!bulkheadRegistry.tryEnter(endpointClass)) {
+            throw new TooManyRequestsException("Too many concurrent " + endpointClass.key() + " requests",
+                    bulkheadRegistry.retryAfterSeconds(endpointClass));
+        }
+        request.setAttribute(ENTERED, endpointClass);
+        return true;
+    }
+
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        exit(request);
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler, Exception ex) {
+        exit(request);
+    }
+
+    private void exit(HttpServletRequest request) {
+        if (request.getAttribute(ENTERED) instanceof EndpointClass endpointClass) {
+            request.removeAttribute(ENTERED);
+            bulkheadRegistry.exit(endpointClass);
+        }
+    }
+
+    private static EndpointClass classify(HttpServletRequest request, HandlerMethod handlerMethod) {
+        Bulkhead bulkhead = handlerMethod.getMethodAnnotation(Bulkhead.class);
+        if (bulkhead == null) {
+            bulkhead = AnnotatedElementUtils.findMergedAnnotation(handlerMethod.getBeanType(), Bulkhead.class);
+        }
+        if (bulkhead != null) {
+            return bulkhead.value();
+        }
+        return HttpMethod.GET.matches(request.getMethod()) || HttpMethod.HEAD.matches(request.getMethod())
+                ? EndpointClass.ADMIN_READ
+                : EndpointClass.ADMIN_WRITE;
+    }
+}
@@ -0,0 +1,109 @@
+package org.cloven.rbac_sample.bulkhead;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.springframework.core.env.Environment;
+import org.springframework.stereotype.Component;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * One semaphore bulkhead per {@link EndpointClass}. A request takes a slot if one is free,
+ * otherwise waits in a bounded queue for up to the class's maximum wait; a full queue or an
+ * expired wait rejects it. Limits come from app.bulkhead.&lt;class&gt;.max-concurrent,
+ * .max-queue and .max-wait-ms.
+ *
+ * Publishes rbac.bulkhead.active, rbac.bulkhead.queued, rbac.bulkhead.rejected and
+ * rbac.bulkhead.wait, tagged with the class.
+ */
+@Component
+public class BulkheadRegistry {
+    private final Map<EndpointClass, Compartment> compartments = new EnumMap<>(EndpointClass.class);
+
+    public BulkheadRegistry(Environment environment, MeterRegistry meterRegistry) {
+        for (EndpointClass endpointClass : EndpointClass.values()) {
+            String prefix = "app.bulkhead." + endpointClass.key() + ".";
+            compartments.put(endpointClass, new Compartment(endpointClass,
+                    environment.getProperty(prefix + "max-concurrent", Integer.class, endpointClass.defaultMaxConcurrent()),
+                    environment.getProperty(prefix + "max-queue", Integer.class, endpointClass.defaultMaxQueue()),
+                    environment.getProperty(prefix + "max-wait-ms", Long.class, endpointClass.defaultMaxWaitMs()),
+                    meterRegistry));
+        }
+    }
+
+    /**
+     * Takes a slot for a request of the class, waiting if needed. Returns false if the request
+     * has to be rejected.
+     */
+    public boolean tryEnter(EndpointClass endpointClass) {
+        return compartments.get(endpointClass).tryEnter();
+    }
+
+    public void exit(EndpointClass endpointClass) {
+        compartments.get(endpointClass).permits.release();
+    }
+
+    public long retryAfterSeconds(EndpointClass endpointClass) {
+        return Math.max(1, TimeUnit.MILLISECONDS.toSeconds(compartments.get(endpointClass).maxWaitMs));
+    }
+
+    private static final class Compartment {
+        private final int maxConcurrent;
+        private final int maxQueue;
+        private final long maxWaitMs;
+        private final Semaphore permits;
+        private final AtomicInteger queued = new AtomicInteger();
+        private final Counter rejected;
+        private final Timer wait;
+
+        private Compartment(EndpointClass endpointClass, int maxConcurrent, int maxQueue, long maxWaitMs,
+                            MeterRegistry meterRegistry) {
+            this.maxConcurrent = maxConcurrent;
+            this.maxQueue = maxQueue;
+            this.maxWaitMs = maxWaitMs;
+            // Fair, so queued requests are served in arrival order
+            this.permits = new Semaphore(maxConcurrent, true);
+            String tag = endpointClass.key();
+            Gauge.builder("rbac.bulkhead.active", this, c -> c.maxConcurrent - c.permits.availablePermits())
+                    .tag("class", tag).description("Requests holding a slot").register(meterRegistry);
+            Gauge.builder("rbac.bulkhead.queued", queued, AtomicInteger::get)
+                    .tag("class", tag).description("Requests waiting for a slot").register(meterRegistry);
+            this.rejected = Counter.builder("rbac.bulkhead.rejected")
+                    .tag("class", tag).description("Requests rejected with 429").register(meterRegistry);
+            this.wait = Timer.builder("rbac.bulkhead.wait")
+                    .tag("class", tag).description("Time spent waiting for a slot").register(meterRegistry);
+        }
+
+        private boolean tryEnter() {
+            if (permits.tryAcquire()) {
+                return true;
+            }
+            if (queued.incrementAndGet() > maxQueue) {
+                queued.decrementAndGet();
+                rejected.increment();
+                return false;
+            }
+            long start = System.nanoTime();
+            boolean acquired;
+            try {
+                acquired = permits.tryAcquire(maxWaitMs, TimeUnit.MILLISECONDS);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                acquired = false;
+            } finally {
+                queued.decrementAndGet();
+                wait.record(System.nanoTime() - start, TimeUnit.NANOSECONDS);
+            }
+            if (!acquired) {
+                rejected.increment();
+            }
+            return acquired;
+        }
+    }
+}
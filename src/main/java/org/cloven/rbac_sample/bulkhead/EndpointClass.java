@@ -0,0 +1,45 @@
+package org.cloven.rbac_sample.bulkhead;
+
+/**
+ * Classes of endpoints that get separate concurrency limits, so that one class saturating
+ * cannot take the request threads another needs. The defaults favour the hot paths: sign-in
+ * and authorization decisions may use many threads, admin traffic few, and an admin request
+ * waiting for a slot occupies a thread only within a small bounded queue.
+ */
+public enum EndpointClass {
+    AUTH("auth", 64, 128, 500),
+    DECISION("decision", 96, 256, 100),
+    ADMIN_READ("admin-read", 16, 32, 2_000),
+    ADMIN_WRITE("admin-write", 8, 16, 5_000);
+
+    private final String key;
+    private final int defaultMaxConcurrent;
+    private final int defaultMaxQueue;
+    private final long defaultMaxWaitMs;
+
+    EndpointClass(String key, int defaultMaxConcurrent, int defaultMaxQueue, long defaultMaxWaitMs) {
+        this.key = key;
+        this.defaultMaxConcurrent = defaultMaxConcurrent;
+        this.defaultMaxQueue = defaultMaxQueue;
+        this.defaultMaxWaitMs = defaultMaxWaitMs;
+    }
+
+    /**
+     * Name used in the app.bulkhead.&lt;key&gt;.* properties and the metric tags.
+     */
+    public String key() {
+        return key;
+    }
+
+    int defaultMaxConcurrent() {
+        return defaultMaxConcurrent;
+    }
+
+    int defaultMaxQueue() {
+        return defaultMaxQueue;
+    }
+
+    long defaultMaxWaitMs() {
+        return defaultMaxWaitMs;
+    }
+}
@@ -0,0 +1,80 @@
+package org.cloven.rbac_sample.caching;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.persistence.EntityManagerFactory;
+import org.cloven.rbac_sample.models.Role;
+import org.hibernate.Cache;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.CacheRegionStatistics;
+import org.hibernate.stat.Statistics;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * The Hibernate second-level cache of the reference data: resources, actions, permissions and
+ * roles with their granted permissions, and the query cache of their lookups by name.
+ *
+ * Writes through Hibernate keep it current on their own: an entity or collection is invalidated
+ * when it is written, and a cached query once a table it reads is written. JDBC writes go around
+ * Hibernate, so their callers evict what they changed here. The hit ratio of each region is
+ * published as {@code rbac.cache.hit.ratio}.
+ */
+@Component
+public class ReferenceCache {
+    public static final String RESOURCES = "resources";
+    public static final String ACTIONS = "actions";
+    public static final String PERMISSIONS = "permissions";
+    public static final String ROLES = "roles";
+    public static final String ROLE_PERMISSIONS = "role-permissions";
+    public static final String LOOKUPS = "reference-lookups";
+
+    private final SessionFactory sessionFactory;
+
+    public ReferenceCache(EntityManagerFactory entityManagerFactory, MeterRegistry meterRegistry) {
+        this.sessionFactory = entityManagerFactory.unwrap(SessionFactory.class);
+        Statistics statistics = sessionFactory.getStatistics();
+        for (String region : List.of(RESOURCES, ACTIONS, PERMISSIONS, ROLES, ROLE_PERMISSIONS)) {
+            hitRatio(meterRegistry, region, statistics, stats -> stats.getDomainDataRegionStatistics(region));
+        }
+        hitRatio(meterRegistry, LOOKUPS, statistics, stats -> stats.getQueryRegionStatistics(LOOKUPS));
+    }
+
+    private static void hitRatio(MeterRegistry meterRegistry, String region, Statistics statistics,
+            Function<Statistics, CacheRegionStatistics> regionStatistics) {
+        Gauge.builder("rbac.cache.hit.ratio", statistics, stats -> {
+                    CacheRegionStatistics counts = regionStatistics.apply(stats);
+                    long requests = counts.getHitCount() + counts.getMissCount();
+                    return requests == 0 ? Double.NaN : (double) counts.getHitCount() / requests;
+                })
+                .tag("region", region)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Evicts the permissions granted to roles, after role_permissions was written with JDBC: the
+     * cached collections and the cached role lookups, which fetch them. Evicted again after
+     * commit, as a read running in the meantime may cache the old grants.
+     */
+    public void evictGrants() {
+        evictGrantsNow();
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evictGrantsNow();
+                }
+            });
+        }
+    }
+
+    private void evictGrantsNow() {
+        Cache cache = sessionFactory.getCache();
+        cache.evictCollectionData(Role.class.getName() + ".permissions");
+        cache.evictQueryRegion(LOOKUPS);
+    }
+}
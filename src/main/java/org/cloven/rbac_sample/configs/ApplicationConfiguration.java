@@ -1,6 +1,7 @@
 package org.cloven.rbac_sample.configs;
 
 import lombok.RequiredArgsConstructor;
+import org.cloven.rbac_sample.batching.RepositoryLoaders;
 import org.cloven.rbac_sample.repositories.UserRepository;
 import org.cloven.rbac_sample.services.UserService;
 import org.springframework.context.annotation.Bean;
@@ -22,18 +23,21 @@ import com.fasterxml.jackson.datatype.hibernate5.jakarta.Hibernate5JakartaModule
 public class ApplicationConfiguration {
 
     private final UserRepository userRepository;
+    private final RepositoryLoaders repositoryLoaders;
     
     // Remove direct field injection of UserService to break circular dependency
     // private UserService userService;
     
     // Use constructor injection for only the dependencies we need
-    public ApplicationConfiguration(UserRepository userRepository) {
+    public ApplicationConfiguration(UserRepository userRepository, RepositoryLoaders repositoryLoaders) {
         this.userRepository = userRepository;
+        this.repositoryLoaders = repositoryLoaders;
     }
     
     @Bean
     public UserDetailsService userDetailsService() {
-        return username -> userRepository.findByEmail(username)
+        // Token authentication resolves many principals at once; batch their lookups
+        return username -> repositoryLoaders.userByEmail(username)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + username));
     }
     
@@ -1,5 +1,8 @@
 package org.cloven.rbac_sample.controllers;
 
+import org.cloven.rbac_sample.activity.ActivityTracker;
+import org.cloven.rbac_sample.bulkhead.Bulkhead;
+import org.cloven.rbac_sample.bulkhead.EndpointClass;
 import jakarta.validation.Valid;
 import org.cloven.rbac_sample.dtos.LoginDto;
 import org.cloven.rbac_sample.dtos.RegisterUserDto;
@@ -29,21 +32,25 @@ import io.swagger.v3.oas.annotations.tags.Tag;
 @CrossOrigin(origins = "*", maxAge = 3600)
 @RestController
 @RequestMapping("/api/auth")
+@Bulkhead(EndpointClass.AUTH)
 @Tag(name = "Authentication", description = "Authentication management APIs")
 public class AuthController {
     
     private final AuthenticationManager authenticationManager;
     private final UserService userService;
     private final JwtService jwtService;
+    private final ActivityTracker activityTracker;
     
     @Autowired
     public AuthController(
             AuthenticationManager authenticationManager,
             UserService userService,
-            JwtService jwtService) {
+            JwtService jwtService,
+            ActivityTracker activityTracker) {
         this.authenticationManager = authenticationManager;
         this.userService = userService;
         this.jwtService = jwtService;
+        this.activityTracker = activityTracker;
     }
     
     @PostMapping("/signin")
@@ -61,6 +68,7 @@ public class AuthController {
         
         SecurityContextHolder.getContext().setAuthentication(authentication);
         User user = (User) authentication.getPrincipal();
+        activityTracker.recordLogin(user);
         
         String jwt = jwtService.generateToken(user);
         String refreshToken = jwtService.generateRefreshToken(user); // Generate refresh token
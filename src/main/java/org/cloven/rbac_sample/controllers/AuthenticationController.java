@@ -1,5 +1,8 @@
 package org.cloven.rbac_sample.controllers;
 
+import org.cloven.rbac_sample.activity.ActivityTracker;
+import org.cloven.rbac_sample.bulkhead.Bulkhead;
+import org.cloven.rbac_sample.bulkhead.EndpointClass;
 import org.cloven.rbac_sample.dtos.LoginUserDto;
 import org.cloven.rbac_sample.dtos.RegisterUserDto;
 import org.cloven.rbac_sample.dtos.RefreshTokenRequest; // Added import
@@ -16,14 +19,19 @@ import org.springframework.web.bind.annotation.RestController;
 
 @RequestMapping("/auth")
 @RestController
+@Bulkhead(EndpointClass.AUTH)
 public class AuthenticationController {
     private final JwtService jwtService;
 
     private final AuthenticationService authenticationService;
 
-    public AuthenticationController(JwtService jwtService, AuthenticationService authenticationService) {
+    private final ActivityTracker activityTracker;
+
+    public AuthenticationController(JwtService jwtService, AuthenticationService authenticationService,
+                                    ActivityTracker activityTracker) {
         this.jwtService = jwtService;
         this.authenticationService = authenticationService;
+        this.activityTracker = activityTracker;
     }
 
     @PostMapping("/signup")
@@ -36,6 +44,7 @@ public class AuthenticationController {
     @PostMapping("/login")
     public ResponseEntity<LoginResponse> authenticate(@RequestBody LoginUserDto loginUserDto) {
         User authenticatedUser = authenticationService.authenticate(loginUserDto);
+        activityTracker.recordLogin(authenticatedUser);
 
         String jwtToken = jwtService.generateToken(authenticatedUser);
         String refreshToken = jwtService.generateRefreshToken(authenticatedUser); // Generate refresh token
@@ -0,0 +1,116 @@
+package org.cloven.rbac_sample.controllers;
+
+import jakarta.validation.Valid;
+import org.cloven.rbac_sample.dtos.GroupDto;
+import org.cloven.rbac_sample.dtos.GroupMembersDto;
+import org.cloven.rbac_sample.dtos.GroupResponseDto;
+import org.cloven.rbac_sample.responses.ApiResponse;
+import org.cloven.rbac_sample.services.GroupService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/groups")
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Groups", description = "User group management APIs")
+public class GroupController {
+
+    private final GroupService groupService;
+
+    @Autowired
+    public GroupController(GroupService groupService) {
+        this.groupService = groupService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<GroupResponseDto>> getAllGroups() {
+        return ResponseEntity.ok(groupService.getAllGroups());
+    }
+
+    @GetMapping("/{id}")
+    public ResponseEntity<GroupResponseDto> getGroupById(@PathVariable Integer id) {
+        return ResponseEntity.ok(groupService.getGroup(id));
+    }
+
+    @PostMapping
+    public ResponseEntity<GroupResponseDto> createGroup(@Valid @RequestBody GroupDto groupDto) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(groupService.createGroup(groupDto));
+    }
+
+    @PutMapping("/{id}")
+    public ResponseEntity<GroupResponseDto> updateGroup(@PathVariable Integer id, @Valid @RequestBody GroupDto groupDto) {
+        return ResponseEntity.ok(groupService.updateGroup(id, groupDto));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiResponse> deleteGroup(@PathVariable Integer id) {
+        groupService.deleteGroup(id);
+        return ResponseEntity.ok(ApiResponse.success("Group deleted successfully"));
+    }
+
+    @PostMapping("/{id}/subgroups/{childId}")
+    @Operation(
+        summary = "Nest a group",
+        description = "Makes one group a subgroup of another. Members of the subgroup receive the roles of every group above it.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Subgroup added"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "The nesting would create a cycle"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Group not found")
+    })
+    public ResponseEntity<GroupResponseDto> addSubgroup(@PathVariable Integer id, @PathVariable Integer childId) {
+        return ResponseEntity.ok(groupService.addSubgroup(id, childId));
+    }
+
+    @DeleteMapping("/{id}/subgroups/{childId}")
+    public ResponseEntity<GroupResponseDto> removeSubgroup(@PathVariable Integer id, @PathVariable Integer childId) {
+        return ResponseEntity.ok(groupService.removeSubgroup(id, childId));
+    }
+
+    @PostMapping("/{id}/roles/{roleId}")
+    public ResponseEntity<GroupResponseDto> assignRoleToGroup(@PathVariable Integer id, @PathVariable Integer roleId) {
+        return ResponseEntity.ok(groupService.assignRoleToGroup(id, roleId));
+    }
+
+    @DeleteMapping("/{id}/roles/{roleId}")
+    public ResponseEntity<GroupResponseDto> revokeRoleFromGroup(@PathVariable Integer id, @PathVariable Integer roleId) {
+        return ResponseEntity.ok(groupService.revokeRoleFromGroup(id, roleId));
+    }
+
+    @GetMapping("/{id}/members")
+    public ResponseEntity<List<Integer>> getMemberIds(@PathVariable Integer id) {
+        return ResponseEntity.ok(groupService.getMemberIds(id));
+    }
+
+    @PostMapping("/{id}/members")
+    @Operation(
+        summary = "Add members to a group",
+        description = "Adds up to 10000 users to a group in one request. Users who are already members are skipped.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Members added"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid input"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Group or users not found")
+    })
+    public ResponseEntity<GroupResponseDto> addMembers(@PathVariable Integer id, @Valid @RequestBody GroupMembersDto membersDto) {
+        return ResponseEntity.ok(groupService.addMembers(id, membersDto.getUserIds()));
+    }
+
+    @DeleteMapping("/{id}/members/{userId}")
+    public ResponseEntity<ApiResponse> removeMember(@PathVariable Integer id, @PathVariable Integer userId) {
+        groupService.removeMember(id, userId);
+        return ResponseEntity.ok(ApiResponse.success("Member removed successfully"));
+    }
+}
@@ -0,0 +1,61 @@
+package org.cloven.rbac_sample.controllers;
+
+import org.cloven.rbac_sample.bulkhead.Bulkhead;
+import org.cloven.rbac_sample.bulkhead.EndpointClass;
+import org.cloven.rbac_sample.dtos.EffectivePermissionsDto;
+import org.cloven.rbac_sample.models.User;
+import org.cloven.rbac_sample.policy.EffectivePermissionsCache;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.CacheControl;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.core.annotation.AuthenticationPrincipal;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestMapping;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.context.request.WebRequest;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.media.Content;
+import io.swagger.v3.oas.annotations.media.Schema;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+
+@RestController
+@RequestMapping("/api/me")
+@Bulkhead(EndpointClass.DECISION)
+@Tag(name = "Current User", description = "APIs about the signed-in user")
+public class MeController {
+
+    private final EffectivePermissionsCache effectivePermissionsCache;
+
+    @Autowired
+    public MeController(EffectivePermissionsCache effectivePermissionsCache) {
+        this.effectivePermissionsCache = effectivePermissionsCache;
+    }
+
+    @GetMapping("/permissions")
+    @Operation(
+        summary = "Get effective permissions of the current user", 
+        description = "Returns the union of the permissions of the signed-in user's roles. Send the returned ETag in If-None-Match to get a 304 while the roles are unchanged.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Successfully retrieved permissions",
+                content = @Content(mediaType = "application/json",
+                schema = @Schema(implementation = EffectivePermissionsDto.class))),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "304", description = "Permissions unchanged since the given ETag")
+    })
+    public ResponseEntity<byte[]> getMyPermissions(@AuthenticationPrincipal User user, WebRequest request) {
+        EffectivePermissionsCache.Entry entry = effectivePermissionsCache.forUser(user);
+        if (request.checkNotModified(entry.getEtag())) {
+            return null;
+        }
+        return ResponseEntity.ok()
+                .eTag(entry.getEtag())
+                .cacheControl(CacheControl.noCache().cachePrivate())
+                .contentType(MediaType.APPLICATION_JSON)
+                .body(entry.getBody());
+    }
+}
@@ -1,8 +1,10 @@
 package org.cloven.rbac_sample.controllers;
 
 import jakarta.validation.Valid;
+import org.cloven.rbac_sample.dtos.PageDto;
 import org.cloven.rbac_sample.dtos.PermissionDto;
-import org.cloven.rbac_sample.models.Permission;
+import org.cloven.rbac_sample.dtos.UnusedPermissionDto;
+import org.cloven.rbac_sample.paging.KeysetRequest;
 import org.cloven.rbac_sample.responses.ApiResponse;
 import org.cloven.rbac_sample.services.PermissionService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -18,6 +20,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
+import java.time.Instant;
 import java.util.List;
 
 @RestController
@@ -35,17 +38,40 @@ public class PermissionController {
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(
-        summary = "Get all permissions", 
-        description = "Retrieves a list of all permissions in the system",
+        summary = "Get permissions", 
+        description = "Pages through the permissions, filtered by resource name, action name and creation time. Sort by id (default) or createdAt, prefixed with '-' for descending. Pass the returned nextCursor as 'after' to fetch the next page.",
         security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Successfully retrieved permissions"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Unknown sort or cursor made for another sort"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
     })
-    public ResponseEntity<List<Permission>> getAllPermissions() {
-        List<Permission> permissions = permissionService.getAllPermissions();
-        return ResponseEntity.ok(permissions);
+    public ResponseEntity<PageDto<PermissionDto>> getPermissions(
+            @RequestParam(required = false) String resource,
+            @RequestParam(required = false) String action,
+            @RequestParam(required = false) Instant createdAfter,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(permissionService.getPermissions(resource, action, createdAfter,
+                new KeysetRequest(sort, after, size)));
+    }
+    
+    @GetMapping("/unused")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+        summary = "Get unused permissions",
+        description = "Lists the permissions that decided no permission check in the last given number of days, with the roles that still grant them. Permissions created within the period are not listed.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Successfully retrieved unused permissions"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid number of days"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<List<UnusedPermissionDto>> getUnusedPermissions(@RequestParam(defaultValue = "90") int days) {
+        return ResponseEntity.ok(permissionService.getUnusedPermissions(days));
     }
     
     @GetMapping("/{id}")
@@ -60,9 +86,8 @@ public class PermissionController {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Permission not found"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
     })
-    public ResponseEntity<Permission> getPermissionById(@PathVariable Integer id) {
-        Permission permission = permissionService.getPermissionById(id);
-        return ResponseEntity.ok(permission);
+    public ResponseEntity<PermissionDto> getPermissionById(@PathVariable Integer id) {
+        return ResponseEntity.ok(permissionService.getPermission(id));
     }
     
     @PostMapping
@@ -77,8 +102,8 @@ public class PermissionController {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid input"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
     })
-    public ResponseEntity<Permission> createPermission(@Valid @RequestBody PermissionDto permissionDto) {
-        Permission permission = permissionService.createPermission(permissionDto);
+    public ResponseEntity<PermissionDto> createPermission(@Valid @RequestBody PermissionDto permissionDto) {
+        PermissionDto permission = permissionService.createPermission(permissionDto);
         return ResponseEntity.status(HttpStatus.CREATED).body(permission);
     }
 
@@ -95,10 +120,10 @@ public class PermissionController {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Permission not found"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
     })
-    public ResponseEntity<Permission> updatePermissionDescription(
+    public ResponseEntity<PermissionDto> updatePermissionDescription(
             @PathVariable Integer id,
             @Valid @RequestBody String description) { // Directly accept description
-        Permission updatedPermission = permissionService.updatePermissionDescription(id, description);
+        PermissionDto updatedPermission = permissionService.updatePermissionDescription(id, description);
         return ResponseEntity.ok(updatedPermission);
     }
 
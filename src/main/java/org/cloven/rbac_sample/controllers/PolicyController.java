@@ -0,0 +1,55 @@
+package org.cloven.rbac_sample.controllers;
+
+import org.cloven.rbac_sample.dtos.PolicyRollbackResult;
+import org.cloven.rbac_sample.models.PolicyChange;
+import org.cloven.rbac_sample.services.PolicyHistoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/policy")
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Policy History", description = "Policy revisions and rollback")
+public class PolicyController {
+
+    private final PolicyHistoryService policyHistoryService;
+
+    @Autowired
+    public PolicyController(PolicyHistoryService policyHistoryService) {
+        this.policyHistoryService = policyHistoryService;
+    }
+
+    @GetMapping("/revisions")
+    @Operation(
+        summary = "List recent policy revisions",
+        description = "Returns the most recent permission grants and revocations, newest first. Each id is a revision that can be rolled back to.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    public ResponseEntity<List<PolicyChange>> getRevisions(@RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(policyHistoryService.getRecentChanges(Math.min(Math.max(size, 1), 1000)));
+    }
+
+    @PostMapping("/rollback/{revision}")
+    @Operation(
+        summary = "Roll the policy back to a revision",
+        description = "Restores every role's permissions to their state at the revision in a single transaction. The rollback is itself recorded as new revisions, so it can be undone the same way.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Policy rolled back"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Revision not found"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<PolicyRollbackResult> rollback(@PathVariable long revision) {
+        return ResponseEntity.ok(policyHistoryService.rollbackTo(revision));
+    }
+}
@@ -0,0 +1,59 @@
+package org.cloven.rbac_sample.controllers;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.cloven.rbac_sample.dtos.PolicyImportResult;
+import org.cloven.rbac_sample.services.PolicyTransferService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+
+import java.io.IOException;
+
+@RestController
+@RequestMapping("/api/transfer")
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Export and Import", description = "NDJSON backup and migration of the policy and users")
+public class PolicyTransferController {
+    private static final String NDJSON = "application/x-ndjson";
+
+    private final PolicyTransferService policyTransferService;
+
+    @Autowired
+    public PolicyTransferController(PolicyTransferService policyTransferService) {
+        this.policyTransferService = policyTransferService;
+    }
+
+    @GetMapping(value = "/export", produces = NDJSON)
+    @Operation(
+        summary = "Export everything as NDJSON",
+        description = "Streams resources, actions, permissions, roles, role grants, users (with password hashes) and additional user roles, one JSON record per line.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    public void export(HttpServletResponse response) throws IOException {
+        response.setContentType(NDJSON);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"rbac-export.ndjson\"");
+        policyTransferService.exportTo(response.getOutputStream());
+    }
+
+    @PostMapping(value = "/import", consumes = NDJSON)
+    @Operation(
+        summary = "Import an NDJSON export",
+        description = "Creates the records that do not exist yet, committing in chunks. Existing rows are left unchanged, so a failed import can be re-run.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Import finished; see the counts and errors"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<PolicyImportResult> importRecords(HttpServletRequest request) throws IOException {
+        return ResponseEntity.ok(policyTransferService.importFrom(request.getInputStream()));
+    }
+}
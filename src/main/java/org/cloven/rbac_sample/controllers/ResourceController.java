@@ -2,7 +2,9 @@ package org.cloven.rbac_sample.controllers;
 
 import jakarta.validation.Valid;
 import org.cloven.rbac_sample.dtos.ResourceDto;
+import org.cloven.rbac_sample.dtos.PageDto;
 import org.cloven.rbac_sample.models.Resource;
+import org.cloven.rbac_sample.paging.KeysetRequest;
 import org.cloven.rbac_sample.responses.ApiResponse;
 import org.cloven.rbac_sample.services.ResourceService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -11,7 +13,7 @@ import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
 
-import java.util.List;
+import java.time.Instant;
 
 @RestController
 @RequestMapping("/api/resources")
@@ -25,10 +27,18 @@ public class ResourceController {
         this.resourceService = resourceService;
     }
     
+    /**
+     * Pages through the resources, filtered by name prefix and creation time and sorted by id, name or
+     * createdAt ("-" prefix for descending). Pass the returned nextCursor as "after" for the next page.
+     */
     @GetMapping
-    public ResponseEntity<List<Resource>> getAllResources() {
-        List<Resource> resources = resourceService.getAllResources();
-        return ResponseEntity.ok(resources);
+    public ResponseEntity<PageDto<Resource>> getResources(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) Instant createdAfter,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(resourceService.getResources(name, createdAfter, new KeysetRequest(sort, after, size)));
     }
     
     @GetMapping("/{id}")
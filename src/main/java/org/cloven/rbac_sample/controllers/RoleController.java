@@ -1,10 +1,17 @@
 package org.cloven.rbac_sample.controllers;
 
 import jakarta.validation.Valid;
+import org.cloven.rbac_sample.dtos.PageDto;
+import org.cloven.rbac_sample.dtos.PolicySimulationRequest;
+import org.cloven.rbac_sample.dtos.PolicySimulationResult;
 import org.cloven.rbac_sample.dtos.RoleDto;
+import org.cloven.rbac_sample.dtos.RolePermissionChangesDto;
+import org.cloven.rbac_sample.dtos.RolePermissionChangesResult;
+import org.cloven.rbac_sample.dtos.RolePermissionsDto;
 import org.cloven.rbac_sample.dtos.RoleResponseDto;
-import org.cloven.rbac_sample.models.Role;
+import org.cloven.rbac_sample.paging.KeysetRequest;
 import org.cloven.rbac_sample.responses.ApiResponse;
+import org.cloven.rbac_sample.services.PolicySimulationService;
 import org.cloven.rbac_sample.services.RoleService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.http.HttpStatus;
@@ -19,8 +26,7 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
-import java.util.List;
-import java.util.stream.Collectors;
+import java.time.Instant;
 
 @RestController
 @RequestMapping("/api/roles")
@@ -28,29 +34,33 @@ import java.util.stream.Collectors;
 public class RoleController {
     
     private final RoleService roleService;
+    private final PolicySimulationService policySimulationService;
     
     @Autowired
-    public RoleController(RoleService roleService) {
+    public RoleController(RoleService roleService, PolicySimulationService policySimulationService) {
         this.roleService = roleService;
+        this.policySimulationService = policySimulationService;
     }
     
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(
-        summary = "Get all roles", 
-        description = "Retrieves a list of all roles in the system",
+        summary = "Get roles", 
+        description = "Pages through the roles, filtered by name prefix and creation time. Sort by id (default), name or createdAt, prefixed with '-' for descending. Pass the returned nextCursor as 'after' to fetch the next page.",
         security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Successfully retrieved roles"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Unknown sort or cursor made for another sort"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
     })
-    public ResponseEntity<List<RoleResponseDto>> getAllRoles() {
-        List<Role> roles = roleService.getAllRoles();
-        List<RoleResponseDto> roleDtos = roles.stream()
-                .map(RoleResponseDto::fromEntity)
-                .collect(Collectors.toList());
-        return ResponseEntity.ok(roleDtos);
+    public ResponseEntity<PageDto<RoleResponseDto>> getRoles(
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) Instant createdAfter,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(roleService.getRoles(name, createdAfter, new KeysetRequest(sort, after, size)));
     }
     
     @GetMapping("/{id}")
@@ -66,8 +76,7 @@ public class RoleController {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
     })
     public ResponseEntity<RoleResponseDto> getRoleById(@PathVariable Integer id) {
-        Role role = roleService.getRoleById(id);
-        return ResponseEntity.ok(RoleResponseDto.fromEntity(role));
+        return ResponseEntity.ok(roleService.getRole(id));
     }
     
     @PostMapping
@@ -82,14 +91,14 @@ public class RoleController {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid input"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
     })
-    public ResponseEntity<Role> createRole(@Valid @RequestBody RoleDto roleDto) {
-        Role role = roleService.createRole(roleDto);
+    public ResponseEntity<RoleResponseDto> createRole(@Valid @RequestBody RoleDto roleDto) {
+        RoleResponseDto role = roleService.createRole(roleDto);
         return ResponseEntity.status(HttpStatus.CREATED).body(role);
     }
     
     @PutMapping("/{id}")
-    public ResponseEntity<Role> updateRole(@PathVariable Integer id, @Valid @RequestBody RoleDto roleDto) {
-        Role role = roleService.updateRole(id, roleDto);
+    public ResponseEntity<RoleResponseDto> updateRole(@PathVariable Integer id, @Valid @RequestBody RoleDto roleDto) {
+        RoleResponseDto role = roleService.updateRole(id, roleDto);
         return ResponseEntity.ok(role);
     }
     
@@ -111,18 +120,73 @@ public class RoleController {
     }
     
     @PostMapping("/{roleId}/permissions/{permissionId}")
-    public ResponseEntity<Role> assignPermissionToRole(
+    public ResponseEntity<RoleResponseDto> assignPermissionToRole(
             @PathVariable Integer roleId,
             @PathVariable Integer permissionId) {
-        Role role = roleService.assignPermissionToRole(roleId, permissionId);
+        RoleResponseDto role = roleService.assignPermissionToRole(roleId, permissionId);
         return ResponseEntity.ok(role);
     }
     
     @DeleteMapping("/{roleId}/permissions/{permissionId}")
-    public ResponseEntity<Role> revokePermissionFromRole(
+    public ResponseEntity<RoleResponseDto> revokePermissionFromRole(
             @PathVariable Integer roleId,
             @PathVariable Integer permissionId) {
-        Role role = roleService.revokePermissionFromRole(roleId, permissionId);
+        RoleResponseDto role = roleService.revokePermissionFromRole(roleId, permissionId);
         return ResponseEntity.ok(role);
     }
-} 
\ No newline at end of file
+    
+    @PostMapping("/{roleId}/permissions")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+        summary = "Change the permissions of a role in bulk", 
+        description = "Grants and revokes sets of permission ids in one transaction. Permissions already granted, or not held when revoked, are left as they are and counted as unchanged.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Permissions changed"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "A permission both granted and revoked, or too many changes"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Role or permission not found"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<RolePermissionChangesResult> changeRolePermissions(
+            @PathVariable Integer roleId,
+            @Valid @RequestBody RolePermissionsDto permissions) {
+        return ResponseEntity.ok(roleService.changePermissions(roleId, permissions));
+    }
+    
+    @PostMapping("/permissions")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+        summary = "Change role permissions in bulk", 
+        description = "Applies grants and revocations of (role, permission) pairs, in the form accepted by /simulate, in one transaction. Permissions already granted, or not held when revoked, are left as they are and counted as unchanged.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Permissions changed"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "A permission both granted and revoked, or too many changes"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Role or permission not found"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<RolePermissionChangesResult> changePermissions(
+            @Valid @RequestBody RolePermissionChangesDto changes) {
+        return ResponseEntity.ok(roleService.changePermissions(changes));
+    }
+    
+    @PostMapping("/simulate")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+        summary = "Simulate permission changes", 
+        description = "Applies proposed grants and revocations to a copy of the current policy and reports which users would gain or lose which permissions. Nothing is persisted.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Simulation completed"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid input"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Role or permission not found"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<PolicySimulationResult> simulatePermissionChanges(
+            @Valid @RequestBody PolicySimulationRequest request) {
+        return ResponseEntity.ok(policySimulationService.simulate(request));
+    }
+}
\ No newline at end of file
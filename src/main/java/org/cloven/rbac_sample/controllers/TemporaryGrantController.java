@@ -0,0 +1,83 @@
+package org.cloven.rbac_sample.controllers;
+
+import org.cloven.rbac_sample.dtos.TemporaryGrantDto;
+import org.cloven.rbac_sample.models.TemporaryGrant;
+import org.cloven.rbac_sample.responses.ApiResponse;
+import org.cloven.rbac_sample.services.TemporaryGrantService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/temporary-grants")
+@PreAuthorize("hasRole('ADMIN')")
+@Tag(name = "Temporary Grants", description = "Roles and permissions granted until a deadline")
+public class TemporaryGrantController {
+
+    private final TemporaryGrantService temporaryGrantService;
+
+    @Autowired
+    public TemporaryGrantController(TemporaryGrantService temporaryGrantService) {
+        this.temporaryGrantService = temporaryGrantService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<TemporaryGrant>> getActiveGrants() {
+        return ResponseEntity.ok(temporaryGrantService.getActiveGrants());
+    }
+
+    @PostMapping("/users/{userId}/roles/{roleId}")
+    @Operation(
+        summary = "Grant a role to a user temporarily",
+        description = "Gives the user an additional role until expiresAt, or for the given ISO-8601 duration such as PT4H. Granting again moves the deadline.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "201", description = "Role granted"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Missing or past deadline"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "User or role not found"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "The user already holds the role permanently")
+    })
+    public ResponseEntity<TemporaryGrant> grantRoleToUser(
+            @PathVariable Integer userId,
+            @PathVariable Integer roleId,
+            @RequestBody TemporaryGrantDto grantDto) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(temporaryGrantService.grantRoleToUser(userId, roleId, grantDto));
+    }
+
+    @PostMapping("/roles/{roleId}/permissions/{permissionId}")
+    @Operation(
+        summary = "Grant a permission to a role temporarily",
+        description = "Gives the role a permission until expiresAt, or for the given ISO-8601 duration. Granting again moves the deadline.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "201", description = "Permission granted"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Missing or past deadline"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "Role or permission not found"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "The role already holds the permission permanently")
+    })
+    public ResponseEntity<TemporaryGrant> grantPermissionToRole(
+            @PathVariable Integer roleId,
+            @PathVariable Integer permissionId,
+            @RequestBody TemporaryGrantDto grantDto) {
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .body(temporaryGrantService.grantPermissionToRole(roleId, permissionId, grantDto));
+    }
+
+    @DeleteMapping("/{id}")
+    public ResponseEntity<ApiResponse> revokeGrant(@PathVariable Integer id) {
+        temporaryGrantService.revokeGrant(id);
+        return ResponseEntity.ok(ApiResponse.success("Temporary grant revoked"));
+    }
+}
@@ -0,0 +1,53 @@
+package org.cloven.rbac_sample.controllers;
+
+import jakarta.validation.Valid;
+import org.cloven.rbac_sample.dtos.TenantDto;
+import org.cloven.rbac_sample.models.Tenant;
+import org.cloven.rbac_sample.services.TenantService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.security.access.prepost.PreAuthorize;
+import org.springframework.web.bind.annotation.*;
+
+import io.swagger.v3.oas.annotations.Operation;
+import io.swagger.v3.oas.annotations.responses.ApiResponses;
+import io.swagger.v3.oas.annotations.tags.Tag;
+import io.swagger.v3.oas.annotations.security.SecurityRequirement;
+
+import java.util.List;
+
+@RestController
+@RequestMapping("/api/tenants")
+@PreAuthorize("hasRole('ADMIN') and @userSecurity.isDefaultTenant()")
+@Tag(name = "Tenants", description = "Tenant provisioning, for administrators of the default tenant")
+public class TenantController {
+
+    private final TenantService tenantService;
+
+    @Autowired
+    public TenantController(TenantService tenantService) {
+        this.tenantService = tenantService;
+    }
+
+    @GetMapping
+    public ResponseEntity<List<Tenant>> getAllTenants() {
+        return ResponseEntity.ok(tenantService.getAllTenants());
+    }
+
+    @PostMapping
+    @Operation(
+        summary = "Create a tenant",
+        description = "Creates a tenant with the built-in roles, resources, actions and permissions and one administrator. Its users sign in with the X-Tenant-ID header set to the tenant id; their tokens then carry the tenant.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "201", description = "Tenant created"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Invalid tenant id or administrator"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "409", description = "Tenant already exists")
+    })
+    public ResponseEntity<Tenant> createTenant(@Valid @RequestBody TenantDto tenantDto) {
+        return ResponseEntity.status(HttpStatus.CREATED).body(tenantService.createTenant(tenantDto));
+    }
+}
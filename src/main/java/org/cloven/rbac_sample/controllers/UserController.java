@@ -1,17 +1,30 @@
 package org.cloven.rbac_sample.controllers;
 
+import org.cloven.rbac_sample.bulkhead.Bulkhead;
+import org.cloven.rbac_sample.bulkhead.EndpointClass;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import jakarta.validation.Valid;
+import org.cloven.rbac_sample.dtos.PageDto;
+import org.cloven.rbac_sample.dtos.PermissionHoldersDto;
 import org.cloven.rbac_sample.dtos.RegisterUserDto;
 import org.cloven.rbac_sample.dtos.UpdateUserDto;
+import org.cloven.rbac_sample.dtos.UserImportResult;
 import org.cloven.rbac_sample.dtos.UserResponseDto;
 import org.cloven.rbac_sample.models.User;
+import org.cloven.rbac_sample.paging.KeysetRequest;
 import org.cloven.rbac_sample.responses.ApiResponse;
+import org.cloven.rbac_sample.services.UserImportService;
 import org.cloven.rbac_sample.services.UserService;
+import org.cloven.rbac_sample.services.UserStreamService;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.security.access.prepost.PreAuthorize;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import io.swagger.v3.oas.annotations.Operation;
 import io.swagger.v3.oas.annotations.media.Content;
@@ -20,6 +33,13 @@ import io.swagger.v3.oas.annotations.responses.ApiResponses;
 import io.swagger.v3.oas.annotations.tags.Tag;
 import io.swagger.v3.oas.annotations.security.SecurityRequirement;
 
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.OutputStreamWriter;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.Instant;
+import java.util.Iterator;
 import java.util.List;
 import org.springframework.security.core.annotation.AuthenticationPrincipal;
 import org.springframework.security.core.userdetails.UserDetails;
@@ -29,28 +49,72 @@ import java.util.stream.Collectors;
 @RequestMapping("/api/users")
 @Tag(name = "Users", description = "User management APIs")
 public class UserController {
+    private static final String TEXT_CSV = "text/csv";
     
     private final UserService userService;
+    private final UserStreamService userStreamService;
+    private final UserImportService userImportService;
     
     @Autowired
-    public UserController(UserService userService) {
+    public UserController(UserService userService, UserStreamService userStreamService, UserImportService userImportService) {
         this.userService = userService;
+        this.userStreamService = userStreamService;
+        this.userImportService = userImportService;
     }
     
     @GetMapping
     @PreAuthorize("hasRole('ADMIN')")
     @Operation(
-        summary = "Get all users", 
-        description = "Retrieves a list of all users in the system",
+        summary = "Get users", 
+        description = "Pages through the users, filtered by role (primary or additional), full name prefix, email prefix and creation time. Sort by id (default), fullName, email or createdAt, prefixed with '-' for descending. Pass the returned nextCursor as 'after', with the same filters and sort, to fetch the next page.",
         security = @SecurityRequirement(name = "bearerAuth")
     )
     @ApiResponses(value = {
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Successfully retrieved users"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "400", description = "Unknown sort or cursor made for another sort"),
         @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
     })
-    public ResponseEntity<List<UserResponseDto>> getAllUsers() {
-        List<User> users = userService.getAllUsers();
-        List<UserResponseDto> userDtos = users.stream()
+    public ResponseEntity<PageDto<UserResponseDto>> getUsers(
+            @RequestParam(required = false) String role,
+            @RequestParam(required = false) String name,
+            @RequestParam(required = false) String email,
+            @RequestParam(required = false) Instant createdAfter,
+            @RequestParam(required = false) String sort,
+            @RequestParam(required = false) String after,
+            @RequestParam(defaultValue = "50") int size) {
+        return ResponseEntity.ok(userService.getUsers(role, name, email, createdAfter, new KeysetRequest(sort, after, size)));
+    }
+
+    @GetMapping(value = "/stream", produces = {MediaType.APPLICATION_JSON_VALUE, MediaType.APPLICATION_NDJSON_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+        summary = "Stream all users", 
+        description = "Writes every user, ordered by id, while reading them, so the response starts at once and the server holds only a small chunk of users at a time. Returns a JSON array, or newline-delimited JSON when application/x-ndjson is accepted.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    public void streamUsers(
+            @RequestHeader(value = HttpHeaders.ACCEPT, required = false) String accept,
+            HttpServletResponse response) throws IOException {
+        boolean ndjson = accept != null && MediaType.parseMediaTypes(accept).stream()
+                .anyMatch(type -> type.equalsTypeAndSubtype(MediaType.APPLICATION_NDJSON));
+        response.setContentType(ndjson ? MediaType.APPLICATION_NDJSON_VALUE : MediaType.APPLICATION_JSON_VALUE);
+        response.setCharacterEncoding(StandardCharsets.UTF_8.name());
+        userStreamService.writeUsers(response.getOutputStream(), ndjson);
+    }
+    
+    @GetMapping("/inactive")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+        summary = "Get users inactive since a time",
+        description = "Lists the users not seen on any request since the given ISO-8601 instant, such as 2024-01-01T00:00:00Z. Users created before it who have never been seen come first, the others follow, least recently seen first.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Successfully retrieved users"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<List<UserResponseDto>> getInactiveUsers(@RequestParam Instant since) {
+        List<UserResponseDto> userDtos = userService.getInactiveUsers(since).stream()
                 .map(UserResponseDto::fromEntity)
                 .collect(Collectors.toList());
         return ResponseEntity.ok(userDtos);
@@ -99,6 +163,22 @@ public class UserController {
         return ResponseEntity.status(HttpStatus.CREATED).body(user);
     }
     
+    @PostMapping(value = "/import", consumes = {TEXT_CSV, MediaType.APPLICATION_NDJSON_VALUE})
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+        summary = "Import users", 
+        description = "Creates users from CSV, with a header row naming the columns fullName, email, password and role, or from NDJSON with one user per line. The role defaults to USER. Rows are validated and committed in chunks; users whose email is taken are skipped, so a failed import can be re-run.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Import finished; see the counts and the rejected rows"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<UserImportResult> importUsers(HttpServletRequest request) throws IOException {
+        boolean csv = MediaType.parseMediaType(request.getContentType()).isCompatibleWith(MediaType.parseMediaType(TEXT_CSV));
+        return ResponseEntity.ok(userImportService.importFrom(request.getInputStream(), csv));
+    }
+    
     @PutMapping("/{id}")
     @PreAuthorize("hasRole('ADMIN') or @userSecurity.isCurrentUser(#id)")
     public ResponseEntity<User> updateUser(@PathVariable Integer id, @Valid @RequestBody UpdateUserDto updateUserDto) {
@@ -123,7 +203,85 @@ public class UserController {
         return ResponseEntity.ok(ApiResponse.success("User deleted successfully"));
     }
     
+    @PostMapping("/{id}/roles/{roleId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+        summary = "Add role to user", 
+        description = "Gives a user an additional role. The user's permissions become the union of all their roles.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Role added"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "User or role not found"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<UserResponseDto> addRoleToUser(@PathVariable Integer id, @PathVariable Integer roleId) {
+        User user = userService.addRoleToUser(id, roleId);
+        return ResponseEntity.ok(UserResponseDto.fromEntity(user));
+    }
+    
+    @DeleteMapping("/{id}/roles/{roleId}")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+        summary = "Remove role from user", 
+        description = "Removes an additional role from a user. The primary role is changed through the user update instead.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Role removed"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "404", description = "User or role not found"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<UserResponseDto> removeRoleFromUser(@PathVariable Integer id, @PathVariable Integer roleId) {
+        User user = userService.removeRoleFromUser(id, roleId);
+        return ResponseEntity.ok(UserResponseDto.fromEntity(user));
+    }
+    
+    @GetMapping("/with-permission")
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+        summary = "Get users with a permission", 
+        description = "Pages through the users able to perform an action on a resource, ordered by id. Pass the returned nextCursor as 'after' to fetch the next page.",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    @ApiResponses(value = {
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "200", description = "Successfully retrieved users"),
+        @io.swagger.v3.oas.annotations.responses.ApiResponse(responseCode = "403", description = "Access denied")
+    })
+    public ResponseEntity<PermissionHoldersDto> getUsersWithPermission(
+            @RequestParam String resourceName,
+            @RequestParam String actionName,
+            @RequestParam(required = false) Integer after,
+            @RequestParam(defaultValue = "100") int size) {
+        int pageSize = Math.max(1, Math.min(size, 1000));
+        return ResponseEntity.ok(userService.getUsersWithPermission(resourceName, actionName, after, pageSize));
+    }
+    
+    @GetMapping(value = "/with-permission/stream", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    @PreAuthorize("hasRole('ADMIN')")
+    @Operation(
+        summary = "Stream ids of users with a permission", 
+        description = "Streams the ids of all users able to perform an action on a resource as newline-delimited JSON",
+        security = @SecurityRequirement(name = "bearerAuth")
+    )
+    public ResponseEntity<StreamingResponseBody> streamUsersWithPermission(
+            @RequestParam String resourceName,
+            @RequestParam String actionName) {
+        Iterator<Integer> userIds = userService.streamUserIdsWithPermission(resourceName, actionName);
+        StreamingResponseBody body = outputStream -> {
+            Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+            while (userIds.hasNext()) {
+                writer.write("{\"userId\":");
+                writer.write(String.valueOf(userIds.next()));
+                writer.write("}\n");
+            }
+            writer.flush();
+        };
+        return ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON).body(body);
+    }
+    
     @GetMapping("/check-permission")
+    @Bulkhead(EndpointClass.DECISION)
     public ResponseEntity<ApiResponse> checkPermission(
             @RequestParam Integer userId,
             @RequestParam String resourceName,
@@ -0,0 +1,17 @@
+package org.cloven.rbac_sample.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class EffectivePermissionsDto {
+    private List<Integer> roleIds;
+    private List<String> roleNames;
+    private long policyVersion;
+    private List<String> permissions;
+}
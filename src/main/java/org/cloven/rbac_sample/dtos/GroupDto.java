@@ -0,0 +1,14 @@
+package org.cloven.rbac_sample.dtos;
+
+import jakarta.validation.constraints.NotBlank;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class GroupDto {
+    @NotBlank(message = "Name is required")
+    private String name;
+
+    private String description;
+}
@@ -0,0 +1,16 @@
+package org.cloven.rbac_sample.dtos;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class GroupMembersDto {
+    @NotEmpty(message = "At least one user id is required")
+    @Size(max = 10000, message = "At most 10000 users can be added at once")
+    private List<Integer> userIds;
+}
@@ -0,0 +1,36 @@
+package org.cloven.rbac_sample.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.cloven.rbac_sample.models.Group;
+import org.cloven.rbac_sample.models.Role;
+
+import java.util.Date;
+import java.util.List;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class GroupResponseDto {
+    private Integer id;
+    private String name;
+    private String description;
+    private List<String> roles;
+    private List<Integer> subgroupIds;
+    private long memberCount;
+    private Date createdAt;
+    private Date updatedAt;
+
+    public static GroupResponseDto fromEntity(Group group, long memberCount) {
+        return new GroupResponseDto()
+                .setId(group.getId())
+                .setName(group.getName())
+                .setDescription(group.getDescription())
+                .setRoles(group.getRoles().stream().map(Role::getName).sorted().toList())
+                .setSubgroupIds(group.getSubgroups().stream().map(Group::getId).sorted().toList())
+                .setMemberCount(memberCount)
+                .setCreatedAt(group.getCreatedAt())
+                .setUpdatedAt(group.getUpdatedAt());
+    }
+}
@@ -0,0 +1,16 @@
+package org.cloven.rbac_sample.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class PageDto<T> {
+    private List<T> items;
+    // Position after the last item; pass it as "after" with the same filters and sort to fetch the next page. Null on the last page.
+    private String nextCursor;
+}
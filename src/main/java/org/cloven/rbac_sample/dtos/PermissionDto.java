@@ -21,6 +21,23 @@ public class PermissionDto {
     
     public PermissionDto() {
     }
+
+    /**
+     * Used by the repository projections.
+     */
+    public PermissionDto(Integer id, String name, String description,
+                         Integer resourceId, String resourceName, Integer actionId, String actionName,
+                         LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.resourceId = resourceId;
+        this.resourceName = resourceName;
+        this.actionId = actionId;
+        this.actionName = actionName;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
     
     public static PermissionDto fromEntity(Permission permission) {
         PermissionDto dto = new PermissionDto();
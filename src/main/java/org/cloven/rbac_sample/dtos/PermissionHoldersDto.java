@@ -0,0 +1,19 @@
+package org.cloven.rbac_sample.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class PermissionHoldersDto {
+    private String resourceName;
+    private String actionName;
+    private long totalUsers;
+    private List<UserResponseDto> users;
+    // Id of the last user on this page; pass it as "after" to fetch the next page. Null on the last page.
+    private Integer nextCursor;
+}
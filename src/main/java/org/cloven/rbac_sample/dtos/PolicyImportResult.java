@@ -0,0 +1,22 @@
+package org.cloven.rbac_sample.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+import java.util.Map;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class PolicyImportResult {
+    private long records;
+    // Created rows per record type; records matching an existing row are skipped
+    private Map<String, Long> created;
+    private long skipped;
+    private long failed;
+    // The first errors, as "record N: message"
+    private List<String> errors;
+    private long elapsedMs;
+}
@@ -0,0 +1,53 @@
+package org.cloven.rbac_sample.dtos;
+
+import com.fasterxml.jackson.annotation.JsonSubTypes;
+import com.fasterxml.jackson.annotation.JsonTypeInfo;
+import com.fasterxml.jackson.annotation.JsonTypeName;
+
+/**
+ * One line of an NDJSON export. Records refer to each other by name (permissions by
+ * RESOURCE:ACTION, users by email) rather than id, so an export can be imported into another
+ * database. Records are written in dependency order: resources, actions, permissions, roles,
+ * role grants, users and finally additional user roles.
+ */
+@JsonTypeInfo(use = JsonTypeInfo.Id.NAME, property = "type")
+@JsonSubTypes({
+    @JsonSubTypes.Type(PolicyRecord.ResourceRecord.class),
+    @JsonSubTypes.Type(PolicyRecord.ActionRecord.class),
+    @JsonSubTypes.Type(PolicyRecord.PermissionRecord.class),
+    @JsonSubTypes.Type(PolicyRecord.RoleRecord.class),
+    @JsonSubTypes.Type(PolicyRecord.RolePermissionRecord.class),
+    @JsonSubTypes.Type(PolicyRecord.UserRecord.class),
+    @JsonSubTypes.Type(PolicyRecord.UserRoleRecord.class)
+})
+public sealed interface PolicyRecord {
+
+    @JsonTypeName("resource")
+    record ResourceRecord(String name, String description) implements PolicyRecord {
+    }
+
+    @JsonTypeName("action")
+    record ActionRecord(String name, String description) implements PolicyRecord {
+    }
+
+    @JsonTypeName("permission")
+    record PermissionRecord(String resource, String action, String description) implements PolicyRecord {
+    }
+
+    @JsonTypeName("role")
+    record RoleRecord(String name, String description) implements PolicyRecord {
+    }
+
+    @JsonTypeName("rolePermission")
+    record RolePermissionRecord(String role, String permission) implements PolicyRecord {
+    }
+
+    // The password is the stored BCrypt hash, never the plain text
+    @JsonTypeName("user")
+    record UserRecord(String email, String fullName, String password, String role) implements PolicyRecord {
+    }
+
+    @JsonTypeName("userRole")
+    record UserRoleRecord(String email, String role) implements PolicyRecord {
+    }
+}
@@ -0,0 +1,29 @@
+package org.cloven.rbac_sample.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class PolicyRollbackResult {
+    private long rolledBackFrom;
+    private long rolledBackTo;
+    private long revision;
+    // True if the target snapshot was still in memory, false if the change log was replayed
+    private boolean fromSnapshot;
+    private long elapsedMs;
+    private List<GrantChange> changes;
+
+    @Getter
+    @Setter
+    @Accessors(chain = true)
+    public static class GrantChange {
+        private Integer roleId;
+        private Integer permissionId;
+        private boolean granted;
+    }
+}
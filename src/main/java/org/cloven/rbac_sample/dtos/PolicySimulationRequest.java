@@ -0,0 +1,38 @@
+package org.cloven.rbac_sample.dtos;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+@Getter
+@Setter
+public class PolicySimulationRequest {
+    @NotEmpty(message = "At least one change is required")
+    @Valid
+    private List<ProposedChange> changes;
+
+    // Maximum number of affected users listed individually in the result
+    private int maxUsers = 100;
+
+    @Getter
+    @Setter
+    public static class ProposedChange {
+        @NotNull(message = "Role id is required")
+        private Integer roleId;
+
+        @NotNull(message = "Permission id is required")
+        private Integer permissionId;
+
+        @NotNull(message = "Change type is required")
+        private ChangeType type;
+    }
+
+    public enum ChangeType {
+        GRANT,
+        REVOKE
+    }
+}
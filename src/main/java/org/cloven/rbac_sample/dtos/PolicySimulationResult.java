@@ -0,0 +1,37 @@
+package org.cloven.rbac_sample.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class PolicySimulationResult {
+    private long usersEvaluated;
+    private long usersAffected;
+    private long elapsedMs;
+    private List<PermissionImpact> permissions;
+    private List<UserImpact> users;
+
+    @Getter
+    @Setter
+    @Accessors(chain = true)
+    public static class PermissionImpact {
+        private String permission;
+        private long usersLosing;
+        private long usersGaining;
+    }
+
+    @Getter
+    @Setter
+    @Accessors(chain = true)
+    public static class UserImpact {
+        private Integer userId;
+        private List<Integer> roleIds;
+        private List<String> lostPermissions;
+        private List<String> gainedPermissions;
+    }
+}
@@ -21,5 +21,5 @@ public class RegisterUserDto {
     @Size(min = 6, message = "Password must be at least 6 characters")
     private String password;
     
-    private RoleEnum role = RoleEnum.USER; // Default role is USER
+    private String role = RoleEnum.USER.name(); // Default role is USER
 }
\ No newline at end of file
@@ -1,16 +1,18 @@
 package org.cloven.rbac_sample.dtos;
 
 import jakarta.validation.constraints.NotBlank;
-import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
-import org.cloven.rbac_sample.models.RoleEnum;
 
 @Getter
 @Setter
 public class RoleDto {
-    @NotNull(message = "Role name is required")
-    private RoleEnum name;
+    @NotBlank(message = "Role name is required")
+    @Size(max = 64, message = "Role name must be at most 64 characters")
+    @Pattern(regexp = "[A-Z][A-Z0-9_]*", message = "Role name must be upper case letters, digits and underscores")
+    private String name;
     
     @NotBlank(message = "Description is required")
     private String description;
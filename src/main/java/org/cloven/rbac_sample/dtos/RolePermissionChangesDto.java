@@ -0,0 +1,20 @@
+package org.cloven.rbac_sample.dtos;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.List;
+
+/**
+ * Grants and revocations across roles, in the same form as a policy simulation, so simulated
+ * changes can be applied as they are.
+ */
+@Getter
+@Setter
+public class RolePermissionChangesDto {
+    @NotEmpty(message = "At least one change is required")
+    @Valid
+    private List<PolicySimulationRequest.ProposedChange> changes;
+}
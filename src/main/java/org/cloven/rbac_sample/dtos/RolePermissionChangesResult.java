@@ -0,0 +1,18 @@
+package org.cloven.rbac_sample.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class RolePermissionChangesResult {
+    private int granted;
+    private int revoked;
+    // Grants already held and revocations of grants not held
+    private int unchanged;
+    // Policy revision of the last change, or null if nothing changed
+    private Long revision;
+    private long elapsedMs;
+}
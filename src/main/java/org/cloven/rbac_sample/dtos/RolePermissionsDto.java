@@ -0,0 +1,19 @@
+package org.cloven.rbac_sample.dtos;
+
+import jakarta.validation.constraints.NotNull;
+import lombok.Getter;
+import lombok.Setter;
+
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Permission ids to grant to and revoke from one role.
+ */
+@Getter
+@Setter
+public class RolePermissionsDto {
+    private Set<@NotNull Integer> grant = new HashSet<>();
+
+    private Set<@NotNull Integer> revoke = new HashSet<>();
+}
@@ -20,11 +20,23 @@ public class RoleResponseDto {
     
     public RoleResponseDto() {
     }
+
+    /**
+     * Used by the repository projections; the permissions are read separately.
+     */
+    public RoleResponseDto(Integer id, String name, String description,
+                           LocalDateTime createdAt, LocalDateTime updatedAt) {
+        this.id = id;
+        this.name = name;
+        this.description = description;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+    }
     
     public static RoleResponseDto fromEntity(Role role) {
         RoleResponseDto dto = new RoleResponseDto();
         dto.setId(role.getId());
-        dto.setName(role.getName().toString());
+        dto.setName(role.getName());
         dto.setDescription(role.getDescription());
         
         // Convert Date to LocalDateTime
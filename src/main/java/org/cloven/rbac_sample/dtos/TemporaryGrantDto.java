@@ -0,0 +1,18 @@
+package org.cloven.rbac_sample.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+
+import java.time.Duration;
+import java.time.Instant;
+
+/**
+ * How long a temporary grant lasts: either a duration such as {@code PT4H} or an absolute
+ * {@code expiresAt} instant, but not both.
+ */
+@Getter
+@Setter
+public class TemporaryGrantDto {
+    private Duration duration;
+    private Instant expiresAt;
+}
@@ -0,0 +1,29 @@
+package org.cloven.rbac_sample.dtos;
+
+import jakarta.validation.constraints.Email;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Getter;
+import lombok.Setter;
+
+@Getter
+@Setter
+public class TenantDto {
+    @NotBlank(message = "Id is required")
+    @Pattern(regexp = "[a-z0-9][a-z0-9-]{0,63}", message = "Id must be lowercase letters, digits and dashes")
+    private String id;
+
+    @NotBlank(message = "Name is required")
+    private String name;
+
+    @NotBlank(message = "Admin email is required")
+    @Email(message = "Admin email should be valid")
+    private String adminEmail;
+
+    @NotBlank(message = "Admin password is required")
+    @Size(min = 6, message = "Admin password must be at least 6 characters")
+    private String adminPassword;
+
+    private String adminFullName = "Admin User";
+}
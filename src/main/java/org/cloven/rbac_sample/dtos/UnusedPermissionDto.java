@@ -0,0 +1,18 @@
+package org.cloven.rbac_sample.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class UnusedPermissionDto {
+    private Integer id;
+    private String name;
+    private String description;
+    // Roles that still grant the permission, candidates for pruning it
+    private List<String> roles;
+}
@@ -4,7 +4,6 @@ import jakarta.validation.constraints.Email;
 import jakarta.validation.constraints.Size;
 import lombok.Getter;
 import lombok.Setter;
-import org.cloven.rbac_sample.models.RoleEnum;
 
 @Getter
 @Setter
@@ -17,5 +16,5 @@ public class UpdateUserDto {
     @Size(min = 6, message = "Password must be at least 6 characters")
     private String password;
     
-    private RoleEnum role;
+    private String role;
 } 
\ No newline at end of file
@@ -0,0 +1,31 @@
+package org.cloven.rbac_sample.dtos;
+
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+
+import java.util.List;
+
+@Getter
+@Setter
+@Accessors(chain = true)
+public class UserImportResult {
+    private long rows;
+    private long created;
+    // Rows whose email is already taken, so importing the same file again creates nothing
+    private long skipped;
+    private long failed;
+    // The first rejected rows, with the reason
+    private List<RowError> errors;
+    private long elapsedMs;
+
+    @Getter
+    @Setter
+    @Accessors(chain = true)
+    public static class RowError {
+        // Position of the user in the file, counting from 1 and not counting a CSV header
+        private long row;
+        private String email;
+        private String message;
+    }
+}
@@ -5,6 +5,9 @@ import org.cloven.rbac_sample.models.User;
 
 import java.time.LocalDateTime;
 import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.stream.Collectors;
 
 public class UserResponseDto {
     private Integer id;
@@ -12,11 +15,31 @@ public class UserResponseDto {
     private String fullName;
     private String roleName;
     private Integer roleId;
+    private List<String> additionalRoles = new ArrayList<>();
     private LocalDateTime createdAt;
     private LocalDateTime updatedAt;
+    private LocalDateTime lastLoginAt;
+    private LocalDateTime lastSeenAt;
     
     public UserResponseDto() {
     }
+
+    /**
+     * Used by the repository projections; the additional roles are read separately.
+     */
+    public UserResponseDto(Integer id, String email, String fullName, String roleName, Integer roleId,
+                           LocalDateTime createdAt, LocalDateTime updatedAt,
+                           LocalDateTime lastLoginAt, LocalDateTime lastSeenAt) {
+        this.id = id;
+        this.email = email;
+        this.fullName = fullName;
+        this.roleName = roleName;
+        this.roleId = roleId;
+        this.createdAt = createdAt;
+        this.updatedAt = updatedAt;
+        this.lastLoginAt = lastLoginAt;
+        this.lastSeenAt = lastSeenAt;
+    }
     
     public static UserResponseDto fromEntity(User user) {
         UserResponseDto dto = new UserResponseDto();
@@ -26,9 +49,13 @@ public class UserResponseDto {
         
         // Handle role information
         if (user.getRole() != null) {
-            dto.setRoleName(user.getRole().getName().toString());
+            dto.setRoleName(user.getRole().getName());
             dto.setRoleId(user.getRole().getId());
         }
+        dto.setAdditionalRoles(user.getAdditionalRoles().stream()
+                .map(Role::getName)
+                .sorted()
+                .collect(Collectors.toList()));
         
         // Convert Date to LocalDateTime
         if (user.getCreatedAt() != null) {
@@ -39,6 +66,14 @@ public class UserResponseDto {
             dto.setUpdatedAt(user.getUpdatedAt().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime());
         }
         
+        if (user.getLastLoginAt() != null) {
+            dto.setLastLoginAt(user.getLastLoginAt().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime());
+        }
+
+        if (user.getLastSeenAt() != null) {
+            dto.setLastSeenAt(user.getLastSeenAt().toInstant().atZone(ZoneId.systemDefault()).toLocalDateTime());
+        }
+        
         return dto;
     }
     
@@ -84,6 +119,14 @@ public class UserResponseDto {
         this.roleId = roleId;
     }
     
+    public List<String> getAdditionalRoles() {
+        return additionalRoles;
+    }
+    
+    public void setAdditionalRoles(List<String> additionalRoles) {
+        this.additionalRoles = additionalRoles;
+    }
+    
     public LocalDateTime getCreatedAt() {
         return createdAt;
     }
@@ -99,4 +142,20 @@ public class UserResponseDto {
     public void setUpdatedAt(LocalDateTime updatedAt) {
         this.updatedAt = updatedAt;
     }
-} 
\ No newline at end of file
+    
+    public LocalDateTime getLastLoginAt() {
+        return lastLoginAt;
+    }
+    
+    public void setLastLoginAt(LocalDateTime lastLoginAt) {
+        this.lastLoginAt = lastLoginAt;
+    }
+    
+    public LocalDateTime getLastSeenAt() {
+        return lastSeenAt;
+    }
+    
+    public void setLastSeenAt(LocalDateTime lastSeenAt) {
+        this.lastSeenAt = lastSeenAt;
+    }
+}
@@ -0,0 +1,124 @@
+package org.cloven.rbac_sample.limiter;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Concurrency limit that adapts to measured latency with a gradient. Once per sample window the
+ * window's mean latency is compared with a baseline that tracks the lowest recent latency: while
+ * latency stays within the tolerance of the baseline the limit grows by a queue allowance of
+ * sqrt(limit); beyond it the limit shrinks in proportion, by at most half per window. Windows in
+ * which fewer than half of the slots were used say nothing about capacity and leave the limit
+ * alone.
+ *
+ * Publishes rbac.limiter.limit, rbac.limiter.in-flight and rbac.limiter.rejected.
+ */
+@Component
+public class AdaptiveConcurrencyLimit {
+    private static final double BASELINE_SMOOTHING = 0.02;
+
+    private final int minLimit;
+    private final int maxLimit;
+    private final double tolerance;
+    private final double smoothing;
+    private final long windowNanos;
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final Counter rejected;
+
+    private volatile double limit;
+
+    // Guarded by this
+    private double baselineNanos;
+    private long windowStart = System.nanoTime();
+    private long windowSamples;
+    private long windowLatencyNanos;
+    private int windowMaxInFlight;
+
+    public AdaptiveConcurrencyLimit(
+            @Value("${app.limiter.initial-limit:50}") int initialLimit,
+            @Value("${app.limiter.min-limit:8}") int minLimit,
+            @Value("${app.limiter.max-limit:200}") int maxLimit,
+            @Value("${app.limiter.latency-tolerance:2.0}") double tolerance,
+            @Value("${app.limiter.smoothing:0.2}") double smoothing,
+            @Value("${app.limiter.window-ms:250}") long windowMs,
+            MeterRegistry meterRegistry) {
+        this.minLimit = minLimit;
+        this.maxLimit = maxLimit;
+        this.tolerance = tolerance;
+        this.smoothing = smoothing;
+        this.windowNanos = TimeUnit.MILLISECONDS.toNanos(windowMs);
+        this.limit = Math.max(minLimit, Math.min(maxLimit, initialLimit));
+        Gauge.builder("rbac.limiter.limit", this, AdaptiveConcurrencyLimit::getLimit)
+                .description("Current adaptive concurrency limit").register(meterRegistry);
+        Gauge.builder("rbac.limiter.in-flight", inFlight, AtomicInteger::get)
+                .description("Requests inside the limit").register(meterRegistry);
+        this.rejected = Counter.builder("rbac.limiter.rejected")
+                .description("Requests shed with 503").register(meterRegistry);
+    }
+
+    /**
+     * Admits a request if the in-flight count is below the limit. An admitted request must be
+     * ended with {@link #release}.
+     */
+    public boolean tryAcquire() {
+        int current = inFlight.incrementAndGet();
+        if (current > limit) {
+            inFlight.decrementAndGet();
+            rejected.increment();
+            return false;
+        }
+        return true;
+    }
+
+    /**
+     * Ends an admitted request and feeds its latency into the limit.
+     */
+    public void release(long latencyNanos) {
+        int current = inFlight.getAndDecrement();
+        long now = System.nanoTime();
+        synchronized (this) {
+            windowSamples++;
+            windowLatencyNanos += latencyNanos;
+            windowMaxInFlight = Math.max(windowMaxInFlight, current);
+            if (now - windowStart >= windowNanos) {
+                update();
+                windowStart = now;
+                windowSamples = 0;
+                windowLatencyNanos = 0;
+                windowMaxInFlight = 0;
+            }
+        }
+    }
+
+    public int getLimit() {
+        return (int) limit;
+    }
+
+    private void update() {
+        double latency = (double) windowLatencyNanos / windowSamples;
+        if (baselineNanos == 0) {
+            baselineNanos = latency;
+            return;
+        }
+        // Follow a drop in latency at once and a rise only slowly, so the baseline stays close to
+        // the latency without queueing but still adapts when the work itself gets slower
+        baselineNanos = latency < baselineNanos
+                ? latency
+                : baselineNanos * (1 - BASELINE_SMOOTHING) + latency * BASELINE_SMOOTHING;
+
+        double current = limit;
+        if (windowMaxInFlight < current / 2) {
+            return;
+        }
+        double gradient = Math.max(0.5, Math.min(1.0, tolerance * baselineNanos / latency));
+        double target = current * gradient + (gradient == 1.0 ? Math.sqrt(current) : 0);
+        double next = current * (1 - smoothing) + target * smoothing;
+        limit = Math.max(minLimit, Math.min(maxLimit, next));
+    }
+}
@@ -0,0 +1,68 @@
+package org.cloven.rbac_sample.limiter;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.cloven.rbac_sample.responses.ErrorResponse;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Sheds load before any token parsing or database work: requests beyond the
+ * {@link AdaptiveConcurrencyLimit} get an immediate 503 instead of queueing for a request thread
+ * and slowing everyone down. Health probes are never shed.
+ */
+@Component
+public class ConcurrencyLimitFilter extends OncePerRequestFilter {
+    @Autowired
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Value("${app.limiter.enabled:true}")
+    private boolean enabled;
+
+    @Override
+    protected boolean shouldNotFilter(HttpServletRequest request) {
+        return !enabled || request.getServletPath().startsWith("/actuator/health");
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
+            throws ServletException, IOException {
+        if (!concurrencyLimit.tryAcquire()) {
+            reject(request, response);
+            return;
+        }
+        long start = System.nanoTime();
+        try {
+            filterChain.doFilter(request, response);
+        } finally {
+            concurrencyLimit.release(System.nanoTime() - start);
+        }
+    }
+
+    private void reject(HttpServletRequest request, HttpServletResponse response) throws IOException {
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setStatus(HttpServletResponse.SC_SERVICE_UNAVAILABLE);
+        response.setHeader(HttpHeaders.RETRY_AFTER, "1");
+
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpServletResponse.SC_SERVICE_UNAVAILABLE,
+                "Service Unavailable",
+                "Server is overloaded, please retry",
+                request.getServletPath()
+        );
+
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+}
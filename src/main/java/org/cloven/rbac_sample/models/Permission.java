@@ -4,7 +4,12 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
+import org.cloven.rbac_sample.caching.ReferenceCache;
+import org.cloven.rbac_sample.tenancy.TenantScoped;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.TenantId;
 import org.hibernate.annotations.UpdateTimestamp;
 import com.fasterxml.jackson.annotation.JsonBackReference; // Add import
 
@@ -13,24 +18,37 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ReferenceCache.PERMISSIONS)
+@NamedEntityGraph(name = Permission.WITH_NAMES,
+        attributeNodes = {@NamedAttributeNode("resource"), @NamedAttributeNode("action")})
 @Table(name = "permissions", uniqueConstraints = {
     @UniqueConstraint(columnNames = {"resource_id", "action_id"})
+}, indexes = {
+    @Index(name = "idx_permissions_tenant_created_at", columnList = "tenant_id, created_at, id"),
+    @Index(name = "idx_permissions_action", columnList = "action_id")
 })
 @Getter
 @Setter
 @Accessors(chain = true)
-public class Permission {
-    
+public class Permission implements TenantScoped {
+    // The resource and action, which make up the name
+    public static final String WITH_NAMES = "Permission.withNames";
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     @Column(nullable = false)
     private Integer id;
+
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, updatable = false, length = 64)
+    private String tenantId;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "resource_id", nullable = false)
     private Resource resource;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "action_id", nullable = false)
     private Action action;
     
@@ -0,0 +1,46 @@
+package org.cloven.rbac_sample.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.cloven.rbac_sample.tenancy.TenantScoped;
+import org.hibernate.annotations.TenantId;
+
+import java.time.LocalDate;
+
+/**
+ * Daily rollup of how often a role's grant of a permission decided a permission check. Rows are
+ * written by the usage counters in batches; ids are plain columns so the rollup outlives the
+ * roles and permissions it mentions.
+ */
+@Entity
+@Table(name = "permission_usage",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"tenant_id", "role_id", "permission_id", "usage_date"}),
+        indexes = @Index(name = "idx_permission_usage_permission_date", columnList = "tenant_id, permission_id, usage_date"))
+@Getter
+@Setter
+@Accessors(chain = true)
+public class PermissionUsage implements TenantScoped {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(nullable = false)
+    private Long id;
+
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, updatable = false, length = 64)
+    private String tenantId;
+
+    @Column(name = "role_id", nullable = false)
+    private Integer roleId;
+
+    @Column(name = "permission_id", nullable = false)
+    private Integer permissionId;
+
+    @Column(name = "usage_date", nullable = false)
+    private LocalDate usageDate;
+
+    @Column(nullable = false)
+    private long uses;
+}
@@ -0,0 +1,51 @@
+package org.cloven.rbac_sample.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.cloven.rbac_sample.tenancy.TenantScoped;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.TenantId;
+
+import java.util.Date;
+
+/**
+ * One permission granted to, or revoked from, a role. The ids of these rows number the policy
+ * revisions: the policy at revision N is the result of every change up to and including N, so the
+ * table is a compact diff log rather than a series of full copies. Ids are plain columns so the
+ * log outlives the roles and permissions it mentions.
+ */
+@Entity
+@Table(name = "policy_changes")
+@Getter
+@Setter
+@Accessors(chain = true)
+public class PolicyChange implements TenantScoped {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(nullable = false)
+    private Long id;
+
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, updatable = false, length = 64)
+    private String tenantId;
+
+    @Column(name = "role_id", nullable = false)
+    private Integer roleId;
+
+    @Column(name = "permission_id", nullable = false)
+    private Integer permissionId;
+
+    @Column(nullable = false)
+    private boolean granted;
+
+    // Set on the compensating changes written by a rollback to that revision
+    @Column(name = "rollback_to")
+    private Long rollbackTo;
+
+    @CreationTimestamp
+    @Column(updatable = false, name = "created_at")
+    private Date createdAt;
+}
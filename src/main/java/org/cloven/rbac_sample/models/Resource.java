@@ -4,7 +4,12 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
+import org.cloven.rbac_sample.caching.ReferenceCache;
+import org.cloven.rbac_sample.tenancy.TenantScoped;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.TenantId;
 import org.hibernate.annotations.UpdateTimestamp;
 import com.fasterxml.jackson.annotation.JsonIgnore; // Add import
 
@@ -13,18 +18,25 @@ import java.util.HashSet;
 import java.util.Set;
 
 @Entity
-@Table(name = "resources")
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ReferenceCache.RESOURCES)
+@Table(name = "resources", uniqueConstraints = @UniqueConstraint(columnNames = {"tenant_id", "name"}),
+        indexes = @Index(name = "idx_resources_tenant_created_at", columnList = "tenant_id, created_at, id"))
 @Getter
 @Setter
 @Accessors(chain = true)
-public class Resource {
+public class Resource implements TenantScoped {
     
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     @Column(nullable = false)
     private Integer id;
+
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, updatable = false, length = 64)
+    private String tenantId;
     
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String name;
     
     private String description;
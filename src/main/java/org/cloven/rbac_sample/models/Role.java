@@ -4,7 +4,12 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
+import org.cloven.rbac_sample.caching.ReferenceCache;
+import org.cloven.rbac_sample.tenancy.TenantScoped;
+import org.hibernate.annotations.Cache;
+import org.hibernate.annotations.CacheConcurrencyStrategy;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.TenantId;
 import org.hibernate.annotations.UpdateTimestamp;
 import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonManagedReference; // Add import
@@ -13,20 +18,31 @@ import java.util.Date;
 import java.util.HashSet;
 import java.util.Set;
 
-@Table(name = "roles")
+@NamedEntityGraph(name = Role.WITH_PERMISSIONS,
+        attributeNodes = @NamedAttributeNode(value = "permissions", subgraph = "names"),
+        subgraphs = @NamedSubgraph(name = "names", attributeNodes = {@NamedAttributeNode("resource"), @NamedAttributeNode("action")}))
+@Table(name = "roles", uniqueConstraints = @UniqueConstraint(columnNames = {"tenant_id", "name"}),
+        indexes = @Index(name = "idx_roles_tenant_created_at", columnList = "tenant_id, created_at, id"))
 @Entity
+@Cacheable
+@Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ReferenceCache.ROLES)
 @Getter
 @Setter
 @Accessors(chain = true)
-public class Role {
+public class Role implements TenantScoped {
+    public static final String WITH_PERMISSIONS = "Role.withPermissions";
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     @Column(nullable = false)
     private Integer id;
 
-    @Column(unique = true, nullable = false)
-    @Enumerated(EnumType.STRING)
-    private RoleEnum name;
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, updatable = false, length = 64)
+    private String tenantId;
+
+    @Column(nullable = false, length = 64)
+    private String name;
 
     @Column(nullable = false)
     private String description;
@@ -43,7 +59,8 @@ public class Role {
     @OneToMany(mappedBy = "role")
     private Set<User> users = new HashSet<>();
     
-    @ManyToMany(fetch = FetchType.EAGER)
+    @ManyToMany
+    @Cache(usage = CacheConcurrencyStrategy.READ_WRITE, region = ReferenceCache.ROLE_PERMISSIONS)
     @JoinTable(
         name = "role_permissions",
         joinColumns = @JoinColumn(name = "role_id"),
@@ -1,5 +1,8 @@
 package org.cloven.rbac_sample.models;
 
+/**
+ * Built-in roles seeded at startup. Further roles can be created at runtime with any name.
+ */
 public enum RoleEnum {
     ADMIN,
     MODERATOR,
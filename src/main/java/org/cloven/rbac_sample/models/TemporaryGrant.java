@@ -0,0 +1,56 @@
+package org.cloven.rbac_sample.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.cloven.rbac_sample.tenancy.TenantScoped;
+import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.TenantId;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * A role given to a user, or a permission given to a role, until a point in time. The grant
+ * itself lives in the usual assignment tables; this row only records when to take it back.
+ * Ids are kept as plain columns so an expiry never depends on the referenced rows still existing.
+ */
+@Entity
+@Table(name = "temporary_grants", indexes = @Index(name = "idx_temporary_grants_expires_at", columnList = "expires_at"))
+@Getter
+@Setter
+@Accessors(chain = true)
+public class TemporaryGrant implements TenantScoped {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.AUTO)
+    @Column(nullable = false)
+    private Integer id;
+
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, updatable = false, length = 64)
+    private String tenantId;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private TemporaryGrantType type;
+
+    // Set for ROLE_TO_USER grants
+    @Column(name = "user_id")
+    private Integer userId;
+
+    @Column(name = "role_id", nullable = false)
+    private Integer roleId;
+
+    // Set for PERMISSION_TO_ROLE grants
+    @Column(name = "permission_id")
+    private Integer permissionId;
+
+    @Column(name = "expires_at", nullable = false)
+    private Instant expiresAt;
+
+    @CreationTimestamp
+    @Column(updatable = false, name = "created_at")
+    private Date createdAt;
+}
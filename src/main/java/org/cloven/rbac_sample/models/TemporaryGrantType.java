@@ -0,0 +1,6 @@
+package org.cloven.rbac_sample.models;
+
+public enum TemporaryGrantType {
+    ROLE_TO_USER,
+    PERMISSION_TO_ROLE
+}
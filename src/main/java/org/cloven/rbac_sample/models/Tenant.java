@@ -0,0 +1,32 @@
+package org.cloven.rbac_sample.models;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import lombok.Setter;
+import lombok.experimental.Accessors;
+import org.hibernate.annotations.CreationTimestamp;
+
+import java.util.Date;
+
+/**
+ * A customer organisation. Its id is the partition key stored in the tenant_id column of every
+ * tenant-scoped table and carried in the tenant claim of its users' tokens.
+ */
+@Entity
+@Table(name = "tenants")
+@Getter
+@Setter
+@Accessors(chain = true)
+public class Tenant {
+
+    @Id
+    @Column(nullable = false, length = 64)
+    private String id;
+
+    @Column(nullable = false)
+    private String name;
+
+    @CreationTimestamp
+    @Column(updatable = false, name = "created_at")
+    private Date createdAt;
+}
@@ -4,7 +4,9 @@ import jakarta.persistence.*;
 import lombok.Getter;
 import lombok.Setter;
 import lombok.experimental.Accessors;
+import org.cloven.rbac_sample.tenancy.TenantScoped;
 import org.hibernate.annotations.CreationTimestamp;
+import org.hibernate.annotations.TenantId;
 import org.hibernate.annotations.UpdateTimestamp;
 import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.authority.SimpleGrantedAuthority;
@@ -14,29 +16,65 @@ import java.util.*;
 import java.util.stream.Collectors;
 
 @Entity
-@Table(name = "users")
+@NamedEntityGraph(name = User.WITH_ROLES, attributeNodes = {
+        @NamedAttributeNode("role"),
+        @NamedAttributeNode("additionalRoles")
+})
+@NamedEntityGraph(name = User.WITH_AUTHORITIES, attributeNodes = {
+        @NamedAttributeNode(value = "role", subgraph = "permissions"),
+        @NamedAttributeNode(value = "additionalRoles", subgraph = "permissions")
+}, subgraphs = {
+        @NamedSubgraph(name = "permissions", attributeNodes = @NamedAttributeNode(value = "permissions", subgraph = "names")),
+        @NamedSubgraph(name = "names", attributeNodes = {@NamedAttributeNode("resource"), @NamedAttributeNode("action")})
+})
+@Table(name = "users",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"tenant_id", "email"}),
+        indexes = {
+                @Index(name = "idx_users_tenant_last_seen_at", columnList = "tenant_id, last_seen_at"),
+                // Keyset pages of the user list, one per sort and filter
+                @Index(name = "idx_users_tenant_full_name", columnList = "tenant_id, full_name, id"),
+                @Index(name = "idx_users_tenant_created_at", columnList = "tenant_id, created_at, id"),
+                @Index(name = "idx_users_tenant_role", columnList = "tenant_id, role_id, id")
+        })
 @Getter
 @Setter
 @Accessors(chain = true)
-public class User implements UserDetails {
-    
+public class User implements UserDetails, TenantScoped {
+    // The roles, enough for listing users
+    public static final String WITH_ROLES = "User.withRoles";
+    // The roles down to the names of their permissions, as needed to build the granted authorities
+    public static final String WITH_AUTHORITIES = "User.withAuthorities";
+
     @Id
     @GeneratedValue(strategy = GenerationType.AUTO)
     @Column(nullable = false)
     private Integer id;
+
+    @TenantId
+    @Column(name = "tenant_id", nullable = false, updatable = false, length = 64)
+    private String tenantId;
     
-    @Column(nullable = false)
+    @Column(name = "full_name", nullable = false)
     private String fullName;
     
-    @Column(nullable = false, unique = true)
+    @Column(nullable = false)
     private String email;
     
     @Column(nullable = false)
     private String password;
     
-    @ManyToOne(fetch = FetchType.EAGER)
+    @ManyToOne(fetch = FetchType.LAZY)
     @JoinColumn(name = "role_id", nullable = false)
     private Role role;
+
+    // Roles held on top of the primary role; the user's permissions are the union of all of them
+    @ManyToMany
+    @JoinTable(
+        name = "user_roles",
+        joinColumns = @JoinColumn(name = "user_id"),
+        inverseJoinColumns = @JoinColumn(name = "role_id")
+    )
+    private Set<Role> additionalRoles = new HashSet<>();
     
     @CreationTimestamp
     @Column(updatable = false, name = "created_at")
@@ -45,18 +83,38 @@ public class User implements UserDetails {
     @UpdateTimestamp
     @Column(name = "updated_at")
     private Date updatedAt;
+
+    // Written in the background by ActivityTracker, never through the entity
+    @Column(name = "last_login_at", insertable = false, updatable = false)
+    private Date lastLoginAt;
+
+    @Column(name = "last_seen_at", insertable = false, updatable = false)
+    private Date lastSeenAt;
     
+    /**
+     * Returns the primary role together with the additional roles.
+     */
+    public Set<Role> effectiveRoles() {
+        Set<Role> roles = new HashSet<>(additionalRoles);
+        if (role != null) {
+            roles.add(role);
+        }
+        return roles;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         Set<GrantedAuthority> authorities = new HashSet<>();
         
-        // Add role as an authority
-        authorities.add(new SimpleGrantedAuthority("ROLE_" + role.getName().name()));
-        
-        // Add all permissions as authorities
-        authorities.addAll(role.getPermissions().stream()
-                .map(permission -> new SimpleGrantedAuthority(permission.getName()))
-                .collect(Collectors.toSet()));
+        for (Role held : effectiveRoles()) {
+            // Add role as an authority
+            authorities.add(new SimpleGrantedAuthority("ROLE_" + held.getName()));
+
+            // Add all permissions as authorities
+            authorities.addAll(held.getPermissions().stream()
+                    .map(permission -> new SimpleGrantedAuthority(permission.getName()))
+                    .collect(Collectors.toSet()));
+        }
         
         return authorities;
     }
@@ -0,0 +1,37 @@
+package org.cloven.rbac_sample.paging;
+
+import org.springframework.data.jpa.domain.Specification;
+
+import java.time.Instant;
+import java.util.Date;
+
+/**
+ * Filters shared by the list endpoints. Each returns null when the parameter is absent, which
+ * {@link Specification#where} and {@link Specification#and} skip, so only the filters actually
+ * requested reach the SQL.
+ */
+public final class Filters {
+    private static final char ESCAPE = '\\';
+
+    private Filters() {
+    }
+
+    /**
+     * Case-sensitive prefix match, which an index on the attribute can serve as a range scan.
+     */
+    public static <T> Specification<T> startsWith(String attribute, String prefix) {
+        if (prefix == null || prefix.isEmpty()) {
+            return null;
+        }
+        String pattern = prefix.replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+        return (root, query, builder) -> builder.like(root.get(attribute), pattern, ESCAPE);
+    }
+
+    public static <T> Specification<T> createdAfter(Instant after) {
+        if (after == null) {
+            return null;
+        }
+        Date date = Date.from(after);
+        return (root, query, builder) -> builder.greaterThan(root.get("createdAt"), date);
+    }
+}
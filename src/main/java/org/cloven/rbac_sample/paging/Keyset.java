@@ -0,0 +1,152 @@
+package org.cloven.rbac_sample.paging;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.Expression;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.cloven.rbac_sample.dtos.PageDto;
+import org.springframework.beans.BeanWrapper;
+import org.springframework.beans.BeanWrapperImpl;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.query.QueryUtils;
+
+import java.util.Collection;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BiFunction;
+import java.util.function.Function;
+
+/**
+ * Keyset pagination for the list endpoints. A page continues from the sort keys of the last row
+ * of the previous one instead of skipping an offset, and no total is counted, so with an index on
+ * the tenant and the sort keys every page costs the same however deep it is.
+ *
+ * For a sort on (name, id) the condition is {@code name >= ? and (name > ? or id > ?)} rather than
+ * the equivalent chain of ORs: its first term bounds the index range, so the scan starts at the
+ * cursor instead of at the first row.
+ *
+ * {@link #pageOfRows} selects DTOs instead of entities, for read paths that only copy columns.
+ */
+public final class Keyset {
+
+    private Keyset() {
+    }
+
+    /**
+     * Fetches one page.
+     *
+     * @param sortable the properties the request may sort by
+     * @param fetch    to-one associations fetched with the rows; collections would make Hibernate
+     *                 apply the limit in memory, so they are left to batch fetching
+     */
+    public static <T, R> PageDto<R> page(
+            JpaSpecificationExecutor<T> repository,
+            Specification<T> filter,
+            KeysetRequest request,
+            Set<String> sortable,
+            Collection<String> fetch,
+            Function<? super T, R> mapper) {
+        Sort sort = request.resolveSort(sortable);
+        Specification<T> specification = Specification.where(filter)
+                .and(after(sort, KeysetCursor.decode(request.after(), sort)));
+        // One row more than asked tells whether there is a next page
+        List<T> rows = repository.findBy(specification, query -> query
+                .sortBy(sort)
+                .limit(request.size() + 1)
+                .project(fetch)
+                .all());
+
+        return pageOf(sort, request, rows, mapper);
+    }
+
+    private static <T, R> PageDto<R> pageOf(Sort sort, KeysetRequest request, List<T> rows,
+            Function<? super T, R> mapper) {
+        String nextCursor = null;
+        if (rows.size() > request.size()) {
+            rows = rows.subList(0, request.size());
+            nextCursor = KeysetCursor.encode(sort, keysOf(sort, rows.get(rows.size() - 1)));
+        }
+        return new PageDto<R>()
+                .setItems(rows.stream().<R>map(mapper).toList())
+                .setNextCursor(nextCursor);
+    }
+
+    /**
+     * Fetches one page of rows selected straight into DTOs, so no entity is loaded. The DTOs
+     * must have getters for the sort properties.
+     *
+     * @param row builds the DTO selection from the root of the query
+     */
+    public static <T, R> PageDto<R> pageOfRows(
+            EntityManager entityManager,
+            Class<T> type,
+            Specification<T> filter,
+            KeysetRequest request,
+            Set<String> sortable,
+            BiFunction<Root<T>, CriteriaBuilder, Selection<R>> row) {
+        Sort sort = request.resolveSort(sortable);
+        Specification<T> specification = Specification.where(filter)
+                .and(after(sort, KeysetCursor.decode(request.after(), sort)));
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Object> query = builder.createQuery();
+        Root<T> root = query.from(type);
+        Predicate predicate = specification.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(row.apply(root, builder)).orderBy(QueryUtils.toOrders(sort, root, builder));
+        @SuppressWarnings("unchecked")
+        List<R> rows = (List<R>) entityManager.createQuery(query)
+                .setMaxResults(request.size() + 1)
+                .getResultList();
+        return pageOf(sort, request, rows, Function.identity());
+    }
+
+    private static Map<String, Object> keysOf(Sort sort, Object row) {
+        BeanWrapper wrapper = new BeanWrapperImpl(row);
+        Map<String, Object> keys = new LinkedHashMap<>();
+        sort.forEach(order -> keys.put(order.getProperty(), wrapper.getPropertyValue(order.getProperty())));
+        return keys;
+    }
+
+    private static <T> Specification<T> after(Sort sort, Map<String, Object> keys) {
+        if (keys.isEmpty()) {
+            return null;
+        }
+        List<Sort.Order> orders = sort.toList();
+        return (root, query, builder) -> {
+            // Built from the last key, the id, outwards: k >= v and (k > v or <rest>)
+            Predicate predicate = null;
+            for (int i = orders.size() - 1; i >= 0; i--) {
+                Sort.Order order = orders.get(i);
+                Expression<Comparable<Object>> key = root.get(order.getProperty());
+                Comparable<Object> value = comparable(keys.get(order.getProperty()));
+                Predicate beyond = order.isAscending()
+                        ? builder.greaterThan(key, value)
+                        : builder.lessThan(key, value);
+                predicate = predicate == null ? beyond : builder.and(notBefore(builder, order, key, value),
+                        builder.or(beyond, predicate));
+            }
+            return predicate;
+        };
+    }
+
+    private static Predicate notBefore(CriteriaBuilder builder, Sort.Order order,
+            Expression<Comparable<Object>> key, Comparable<Object> value) {
+        return order.isAscending()
+                ? builder.greaterThanOrEqualTo(key, value)
+                : builder.lessThanOrEqualTo(key, value);
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Comparable<Object> comparable(Object value) {
+        return (Comparable<Object>) value;
+    }
+}
@@ -0,0 +1,101 @@
+package org.cloven.rbac_sample.paging;
+
+import org.cloven.rbac_sample.exceptions.InvalidRequestException;
+import org.springframework.data.domain.Sort;
+
+import java.net.URLDecoder;
+import java.net.URLEncoder;
+import java.sql.Timestamp;
+import java.time.DateTimeException;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.util.Base64;
+import java.util.Date;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.StringJoiner;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+
+/**
+ * Opaque cursors for keyset pagination. A cursor holds the sort keys of the last row of a page,
+ * each tagged with its property and direction, so a cursor made for one sort is rejected by
+ * another instead of silently skipping rows. Timestamps keep their full precision; a key rounded
+ * to milliseconds would return the boundary row again.
+ */
+final class KeysetCursor {
+
+    private KeysetCursor() {
+    }
+
+    static String encode(Sort sort, Map<String, Object> keys) {
+        StringJoiner cursor = new StringJoiner("&");
+        for (Sort.Order order : sort) {
+            cursor.add(URLEncoder.encode(tag(order), UTF_8) + "="
+                    + URLEncoder.encode(encodeValue(keys.get(order.getProperty())), UTF_8));
+        }
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(cursor.toString().getBytes(UTF_8));
+    }
+
+    /**
+     * Returns the sort keys held by the cursor, or an empty map for the first page.
+     */
+    static Map<String, Object> decode(String cursor, Sort sort) {
+        if (cursor == null || cursor.isBlank()) {
+            return Map.of();
+        }
+        try {
+            String[] pairs = new String(Base64.getUrlDecoder().decode(cursor), UTF_8).split("&");
+            Map<String, Object> keys = new LinkedHashMap<>();
+            int index = 0;
+            for (Sort.Order order : sort) {
+                String[] pair = index < pairs.length ? pairs[index++].split("=", 2) : new String[0];
+                if (pair.length != 2 || !URLDecoder.decode(pair[0], UTF_8).equals(tag(order))) {
+                    throw new InvalidRequestException("The cursor was made for another sort order");
+                }
+                keys.put(order.getProperty(), decodeValue(URLDecoder.decode(pair[1], UTF_8)));
+            }
+            if (index != pairs.length) {
+                throw new InvalidRequestException("The cursor was made for another sort order");
+            }
+            return keys;
+        } catch (IllegalArgumentException | DateTimeException e) {
+            throw new InvalidRequestException("Malformed cursor");
+        }
+    }
+
+    private static String tag(Sort.Order order) {
+        return (order.isDescending() ? "-" : "") + order.getProperty();
+    }
+
+    private static String encodeValue(Object value) {
+        if (value instanceof Integer number) {
+            return "i" + number;
+        }
+        if (value instanceof String text) {
+            return "s" + text;
+        }
+        if (value instanceof Date date) {
+            // Timestamp.toInstant() keeps the nanoseconds
+            return "t" + date.toInstant();
+        }
+        if (value instanceof LocalDateTime dateTime) {
+            // Read from a timestamp column by a projection; maps back to the same Timestamp
+            return "t" + Timestamp.valueOf(dateTime).toInstant();
+        }
+        throw new IllegalStateException("Unsupported sort key: " + value);
+    }
+
+    private static Object decodeValue(String value) {
+        if (value.isEmpty()) {
+            throw new IllegalArgumentException("Empty sort key");
+        }
+        String body = value.substring(1);
+        return switch (value.charAt(0)) {
+            case 'i' -> Integer.valueOf(body);
+            case 's' -> body;
+            case 't' -> Timestamp.from(Instant.parse(body));
+            default -> throw new IllegalArgumentException("Unknown sort key type");
+        };
+    }
+}
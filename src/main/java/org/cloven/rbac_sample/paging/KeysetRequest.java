@@ -0,0 +1,41 @@
+package org.cloven.rbac_sample.paging;
+
+import org.cloven.rbac_sample.exceptions.InvalidRequestException;
+import org.springframework.data.domain.Sort;
+
+import java.util.Set;
+import java.util.TreeSet;
+
+/**
+ * One page of a list endpoint: the sort, the cursor returned with the previous page, if any,
+ * and the page size.
+ *
+ * @param sort  a property name, prefixed with "-" to sort descending; null sorts by id
+ * @param after the nextCursor of the previous page
+ */
+public record KeysetRequest(String sort, String after, int size) {
+    public static final int DEFAULT_SIZE = 50;
+    public static final int MAX_SIZE = 1000;
+
+    public KeysetRequest {
+        size = Math.max(1, Math.min(size, MAX_SIZE));
+    }
+
+    /**
+     * Resolves the requested sort against the properties the endpoint can sort by. Every sort
+     * ends with the id, so rows with equal keys still have a stable order.
+     */
+    Sort resolveSort(Set<String> sortable) {
+        if (sort == null || sort.isBlank()) {
+            return Sort.by(Sort.Order.asc("id"));
+        }
+        boolean descending = sort.startsWith("-");
+        String property = descending ? sort.substring(1) : sort;
+        if (!sortable.contains(property)) {
+            throw new InvalidRequestException("Cannot sort by '" + property + "', use one of " + new TreeSet<>(sortable));
+        }
+        Sort.Direction direction = descending ? Sort.Direction.DESC : Sort.Direction.ASC;
+        Sort resolved = Sort.by(direction, property);
+        return property.equals("id") ? resolved : resolved.and(Sort.by(direction, "id"));
+    }
+}
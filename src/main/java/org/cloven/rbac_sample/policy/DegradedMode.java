@@ -0,0 +1,99 @@
+package org.cloven.rbac_sample.policy;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.TimeGauge;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Instant;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Tracks whether the authorization path is working from data the database has recently
+ * confirmed. Background revalidation of the permission index and the {@code PrincipalCache}
+ * report each database round trip here; while they fail, cached principals and the last
+ * known policy snapshot keep being served, for at most {@code app.degraded.max-staleness-ms}.
+ *
+ * Published as the rbac.degraded and rbac.staleness gauges and in the health endpoint.
+ */
+@Component
+public class DegradedMode {
+    private final long maxStalenessMs;
+    private final Counter failures;
+    private final Counter staleServed;
+    private final AtomicInteger consecutiveFailures = new AtomicInteger();
+    private volatile long lastSuccess = System.currentTimeMillis();
+    private volatile String lastError;
+
+    public DegradedMode(MeterRegistry meterRegistry, @Value("${app.degraded.max-staleness-ms:300000}") long maxStalenessMs) {
+        this.maxStalenessMs = maxStalenessMs;
+        this.failures = Counter.builder("rbac.revalidation.failures")
+                .description("Database round trips of the authorization caches that failed")
+                .register(meterRegistry);
+        this.staleServed = Counter.builder("rbac.stale.served")
+                .description("Principals served from cache while revalidation was failing")
+                .register(meterRegistry);
+        Gauge.builder("rbac.degraded", this, mode -> mode.isDegraded() ? 1 : 0)
+                .description("1 while authorization is served from unconfirmed cached data")
+                .register(meterRegistry);
+        TimeGauge.builder("rbac.staleness", this, TimeUnit.MILLISECONDS, DegradedMode::stalenessMs)
+                .description("Time since the database last confirmed the cached authorization data")
+                .register(meterRegistry);
+    }
+
+    public void recordSuccess() {
+        lastSuccess = System.currentTimeMillis();
+        consecutiveFailures.set(0);
+        lastError = null;
+    }
+
+    public void recordFailure(Exception e) {
+        consecutiveFailures.incrementAndGet();
+        lastError = e.getClass().getSimpleName() + ": " + e.getMessage();
+        failures.increment();
+    }
+
+    public void recordStaleServed() {
+        if (isDegraded()) {
+            staleServed.increment();
+        }
+    }
+
+    public boolean isDegraded() {
+        return consecutiveFailures.get() > 0;
+    }
+
+    /**
+     * Returns how long the cached data has gone unconfirmed, or 0 while revalidation succeeds.
+     */
+    public long stalenessMs() {
+        return isDegraded() ? System.currentTimeMillis() - lastSuccess : 0L;
+    }
+
+    public boolean isWithinStalenessWindow() {
+        return stalenessMs() <= maxStalenessMs;
+    }
+
+    public long getMaxStalenessMs() {
+        return maxStalenessMs;
+    }
+
+    public Instant getLastSuccess() {
+        return Instant.ofEpochMilli(lastSuccess);
+    }
+
+    public int getConsecutiveFailures() {
+        return consecutiveFailures.get();
+    }
+
+    public String getLastError() {
+        return lastError;
+    }
+
+    public double getStaleServedCount() {
+        return staleServed.count();
+    }
+}
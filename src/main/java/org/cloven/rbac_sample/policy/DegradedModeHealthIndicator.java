@@ -0,0 +1,45 @@
+package org.cloven.rbac_sample.policy;
+
+import org.springframework.boot.actuate.health.Health;
+import org.springframework.boot.actuate.health.HealthIndicator;
+import org.springframework.boot.actuate.health.Status;
+import org.springframework.stereotype.Component;
+
+/**
+ * Reports DEGRADED while authorization is served from cached data the database could not
+ * confirm, and DOWN once that data is older than the staleness window.
+ */
+@Component
+public class DegradedModeHealthIndicator implements HealthIndicator {
+    public static final Status DEGRADED = new Status("DEGRADED", "Serving cached authorization data");
+
+    private final DegradedMode degradedMode;
+    private final PermissionIndex permissionIndex;
+
+    public DegradedModeHealthIndicator(DegradedMode degradedMode, PermissionIndex permissionIndex) {
+        this.degradedMode = degradedMode;
+        this.permissionIndex = permissionIndex;
+    }
+
+    @Override
+    public Health health() {
+        Health.Builder builder;
+        if (!degradedMode.isDegraded()) {
+            builder = Health.up();
+        } else if (degradedMode.isWithinStalenessWindow()) {
+            builder = Health.status(DEGRADED);
+        } else {
+            builder = Health.down();
+        }
+        builder.withDetail("lastConfirmed", degradedMode.getLastSuccess())
+                .withDetail("stalenessMs", degradedMode.stalenessMs())
+                .withDetail("maxStalenessMs", degradedMode.getMaxStalenessMs())
+                .withDetail("consecutiveFailures", degradedMode.getConsecutiveFailures())
+                .withDetail("staleServed", (long) degradedMode.getStaleServedCount())
+                .withDetail("cachedTenants", permissionIndex.cachedTenantCount());
+        if (degradedMode.getLastError() != null) {
+            builder.withDetail("lastError", degradedMode.getLastError());
+        }
+        return builder.build();
+    }
+}
@@ -0,0 +1,77 @@
+package org.cloven.rbac_sample.policy;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.cloven.rbac_sample.dtos.EffectivePermissionsDto;
+import org.cloven.rbac_sample.models.User;
+import org.springframework.stereotype.Component;
+
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Per role combination precomputed view of the effective permission set, already serialized to JSON.
+ *
+ * An entry is built the first time a combination is requested and reused until the policy version
+ * of one of its roles in the {@link PermissionIndex} moves on. Entries are kept on the combination
+ * itself, so they are dropped together with the tenant's index. The ETag combines the role ids, the
+ * policy version and the time this node started: versions never repeat while the node runs, also
+ * across rebuilds and evictions of the index, but restart from zero on every boot.
+ */
+@Component
+public class EffectivePermissionsCache {
+    private final PermissionIndex permissionIndex;
+    private final ObjectMapper objectMapper;
+    private final long epoch = System.currentTimeMillis();
+
+    public EffectivePermissionsCache(PermissionIndex permissionIndex, ObjectMapper objectMapper) {
+        this.permissionIndex = permissionIndex;
+        this.objectMapper = objectMapper;
+    }
+
+    public Entry forUser(User user) {
+        RoleCombination combination = permissionIndex.combinationOf(user);
+        long version = permissionIndex.versionOf(combination);
+        Entry entry = combination.cachedEffectivePermissions();
+        if (entry == null || entry.version != version) {
+            entry = build(combination, version);
+            combination.cacheEffectivePermissions(entry);
+        }
+        return entry;
+    }
+
+    private Entry build(RoleCombination combination, long version) {
+        List<Integer> roleIds = Arrays.stream(combination.roleIds()).boxed().toList();
+        EffectivePermissionsDto dto = new EffectivePermissionsDto()
+                .setRoleIds(roleIds)
+                .setRoleNames(roleIds.stream().map(permissionIndex.policy()::roleName).toList())
+                .setPolicyVersion(version)
+                .setPermissions(permissionIndex.permissionNamesOf(combination));
+        try {
+            String etag = "\"" + combination.key() + "-" + epoch + "-" + version + "\"";
+            return new Entry(version, etag, objectMapper.writeValueAsBytes(dto));
+        } catch (JsonProcessingException e) {
+            throw new IllegalStateException("Could not serialize permissions of roles " + combination.key(), e);
+        }
+    }
+
+    public static final class Entry {
+        private final long version;
+        private final String etag;
+        private final byte[] body;
+
+        private Entry(long version, String etag, byte[] body) {
+            this.version = version;
+            this.etag = etag;
+            this.body = body;
+        }
+
+        public String getEtag() {
+            return etag;
+        }
+
+        public byte[] getBody() {
+            return body;
+        }
+    }
+}
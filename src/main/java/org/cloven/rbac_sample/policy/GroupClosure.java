@@ -0,0 +1,190 @@
+package org.cloven.rbac_sample.policy;
+
+import java.util.*;
+
+/**
+ * Flattened view of nested groups: for every group, the set of groups it belongs to directly or
+ * through its parents, and the roles those groups grant.
+ *
+ * A change only recomputes the closure of the groups below the changed one, and every mutator
+ * returns the ids of the users whose roles may have changed, so the caller can refresh exactly
+ * those users. Not thread-safe; the {@link PermissionIndex} calls it under its own lock.
+ */
+final class GroupClosure {
+    private static final int[] NONE = new int[0];
+
+    private final Map<Integer, Set<Integer>> parents = new HashMap<>();
+    private final Map<Integer, Set<Integer>> children = new HashMap<>();
+    private final Map<Integer, Set<Integer>> directRoles = new HashMap<>();
+    private final Map<Integer, Set<Integer>> members = new HashMap<>();
+    private final Map<Integer, Set<Integer>> groupsOfUser = new HashMap<>();
+
+    // Roles of the group and all its ancestors, sorted; shared by every member of the group
+    private final Map<Integer, int[]> effectiveRoles = new HashMap<>();
+
+    void clear() {
+        parents.clear();
+        children.clear();
+        directRoles.clear();
+        members.clear();
+        groupsOfUser.clear();
+        effectiveRoles.clear();
+    }
+
+    void addGroup(int groupId) {
+        effectiveRoles.putIfAbsent(groupId, NONE);
+    }
+
+    Set<Integer> removeGroup(int groupId) {
+        Set<Integer> below = descendants(groupId);
+        below.remove(groupId);
+        for (Integer parent : new ArrayList<>(parents.getOrDefault(groupId, Set.of()))) {
+            unlink(parent, groupId);
+        }
+        for (Integer child : new ArrayList<>(children.getOrDefault(groupId, Set.of()))) {
+            unlink(groupId, child);
+        }
+        Set<Integer> affected = new HashSet<>(members.getOrDefault(groupId, Set.of()));
+        for (Integer userId : affected) {
+            groupsOfUser.get(userId).remove(groupId);
+        }
+        members.remove(groupId);
+        directRoles.remove(groupId);
+        effectiveRoles.remove(groupId);
+        affected.addAll(recompute(below));
+        return affected;
+    }
+
+    /**
+     * Returns true if {@code groupId} is {@code ancestorId} or one of its direct or nested subgroups.
+     */
+    boolean contains(int ancestorId, int groupId) {
+        return descendants(ancestorId).contains(groupId);
+    }
+
+    Set<Integer> addSubgroup(int parentId, int childId) {
+        addGroup(parentId);
+        addGroup(childId);
+        parents.computeIfAbsent(childId, id -> new HashSet<>()).add(parentId);
+        children.computeIfAbsent(parentId, id -> new HashSet<>()).add(childId);
+        return recompute(descendants(childId));
+    }
+
+    Set<Integer> removeSubgroup(int parentId, int childId) {
+        unlink(parentId, childId);
+        return recompute(descendants(childId));
+    }
+
+    Set<Integer> grantRole(int groupId, int roleId) {
+        addGroup(groupId);
+        directRoles.computeIfAbsent(groupId, id -> new HashSet<>()).add(roleId);
+        return recompute(descendants(groupId));
+    }
+
+    Set<Integer> revokeRole(int groupId, int roleId) {
+        Set<Integer> roles = directRoles.get(groupId);
+        if (roles == null || !roles.remove(roleId)) {
+            return Set.of();
+        }
+        return recompute(descendants(groupId));
+    }
+
+    Set<Integer> removeRole(int roleId) {
+        Set<Integer> affected = new HashSet<>();
+        for (Integer groupId : new ArrayList<>(directRoles.keySet())) {
+            affected.addAll(revokeRole(groupId, roleId));
+        }
+        return affected;
+    }
+
+    void addMember(int groupId, int userId) {
+        addGroup(groupId);
+        members.computeIfAbsent(groupId, id -> new HashSet<>()).add(userId);
+        groupsOfUser.computeIfAbsent(userId, id -> new HashSet<>()).add(groupId);
+    }
+
+    void removeMember(int groupId, int userId) {
+        Set<Integer> groupMembers = members.get(groupId);
+        if (groupMembers != null) {
+            groupMembers.remove(userId);
+        }
+        Set<Integer> groups = groupsOfUser.get(userId);
+        if (groups != null) {
+            groups.remove(groupId);
+        }
+    }
+
+    void removeUser(int userId) {
+        Set<Integer> groups = groupsOfUser.remove(userId);
+        if (groups != null) {
+            for (Integer groupId : groups) {
+                members.get(groupId).remove(userId);
+            }
+        }
+    }
+
+    /**
+     * Adds the roles a user gets through group membership to the given set.
+     */
+    void collectRoles(int userId, Set<Integer> roleIds) {
+        for (Integer groupId : groupsOfUser.getOrDefault(userId, Set.of())) {
+            for (int roleId : effectiveRoles.getOrDefault(groupId, NONE)) {
+                roleIds.add(roleId);
+            }
+        }
+    }
+
+    int groupCount() {
+        return effectiveRoles.size();
+    }
+
+    private void unlink(int parentId, int childId) {
+        Set<Integer> up = parents.get(childId);
+        if (up != null) {
+            up.remove(parentId);
+        }
+        Set<Integer> down = children.get(parentId);
+        if (down != null) {
+            down.remove(childId);
+        }
+    }
+
+    /**
+     * Returns the group and everything nested below it.
+     */
+    private Set<Integer> descendants(int groupId) {
+        Set<Integer> seen = new HashSet<>();
+        Deque<Integer> pending = new ArrayDeque<>();
+        pending.push(groupId);
+        while (!pending.isEmpty()) {
+            Integer current = pending.pop();
+            if (seen.add(current)) {
+                children.getOrDefault(current, Set.of()).forEach(pending::push);
+            }
+        }
+        return seen;
+    }
+
+    /**
+     * Recomputes the effective roles of the given groups and returns their direct members.
+     */
+    private Set<Integer> recompute(Set<Integer> groupIds) {
+        Set<Integer> affected = new HashSet<>();
+        for (Integer groupId : groupIds) {
+            Set<Integer> roles = new TreeSet<>();
+            Set<Integer> seen = new HashSet<>();
+            Deque<Integer> pending = new ArrayDeque<>();
+            pending.push(groupId);
+            while (!pending.isEmpty()) {
+                Integer current = pending.pop();
+                if (seen.add(current)) {
+                    roles.addAll(directRoles.getOrDefault(current, Set.of()));
+                    parents.getOrDefault(current, Set.of()).forEach(pending::push);
+                }
+            }
+            effectiveRoles.put(groupId, roles.stream().mapToInt(Integer::intValue).toArray());
+            affected.addAll(members.getOrDefault(groupId, Set.of()));
+        }
+        return affected;
+    }
+}
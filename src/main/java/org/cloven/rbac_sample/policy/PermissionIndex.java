@@ -0,0 +1,756 @@
+package org.cloven.rbac_sample.policy;
+
+import org.cloven.rbac_sample.models.Permission;
+import org.cloven.rbac_sample.models.Role;
+import org.cloven.rbac_sample.models.User;
+import org.cloven.rbac_sample.repositories.GroupRepository;
+import org.cloven.rbac_sample.repositories.PermissionRepository;
+import org.cloven.rbac_sample.repositories.PolicyChangeRepository;
+import org.cloven.rbac_sample.repositories.RoleRepository;
+import org.cloven.rbac_sample.repositories.UserRepository;
+import org.cloven.rbac_sample.routing.RoutingContext;
+import org.cloven.rbac_sample.tenancy.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.security.core.GrantedAuthority;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * In-memory view of the policy used on the decision path, plus an inverted index answering
+ * "who can perform ACTION on RESOURCE" without touching the users table.
+ *
+ * Roles and permissions live in an immutable {@link PolicySnapshot} behind a volatile reference,
+ * so decisions never lock. Each user belongs to exactly one interned {@link RoleCombination},
+ * which holds the sorted ids of its users and the union of its roles' permissions. A user's roles
+ * are their own roles plus those granted to their groups, taken from the {@link GroupClosure}, so
+ * no group hierarchy is walked at check time. Everything is built
+ * once per tenant and then kept current by the services, which report every
+ * role, permission and user change. Updates are applied after the surrounding transaction
+ * commits so that a rolled back change never reaches the index.
+ *
+ * The index is kept per tenant and built the first time a tenant is used. Only the most recently
+ * used tenants stay in memory (app.tenancy.max-cached-tenants); an evicted tenant is simply
+ * rebuilt from the database on its next request, so one node can serve many tenants with a
+ * bounded footprint. Role and user ids are unique across tenants, so derived caches keyed by
+ * them never collide.
+ *
+ * Every change stamps the affected roles with the new snapshot version, which callers use to
+ * tell whether something they derived from a role is still current. Versions never repeat within
+ * a process: an index that is rebuilt, or built again after its tenant was evicted, continues
+ * from the highest version any dropped index reached, so a version seen before always stands for
+ * the same content. The snapshots of the most
+ * recent persisted policy revisions are kept as well; they share all untouched structure with the
+ * live one, so a rollback to any of them is a diff of a few bit sets.
+ */
+@Component
+public class PermissionIndex {
+    private static final Logger logger = LoggerFactory.getLogger(PermissionIndex.class);
+    private static final int HISTORY_SIZE = 64;
+
+    private final RoleRepository roleRepository;
+    private final PermissionRepository permissionRepository;
+    private final UserRepository userRepository;
+    private final GroupRepository groupRepository;
+    private final PolicyChangeRepository policyChangeRepository;
+    private final PermissionUsageCounters usageCounters;
+    private final int maxTenants;
+
+    private final Map<String, TenantState> tenants = new ConcurrentHashMap<>();
+    // Highest snapshot version of the indexes dropped so far
+    private final AtomicLong retiredVersion = new AtomicLong();
+
+    public PermissionIndex(
+            RoleRepository roleRepository,
+            PermissionRepository permissionRepository,
+            UserRepository userRepository,
+            GroupRepository groupRepository,
+            PolicyChangeRepository policyChangeRepository,
+            PermissionUsageCounters usageCounters,
+            @Value("${app.tenancy.max-cached-tenants:256}") int maxTenants) {
+        this.roleRepository = roleRepository;
+        this.permissionRepository = permissionRepository;
+        this.userRepository = userRepository;
+        this.groupRepository = groupRepository;
+        this.policyChangeRepository = policyChangeRepository;
+        this.usageCounters = usageCounters;
+        this.maxTenants = Math.max(maxTenants, 1);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void warmUp() {
+        TenantContext.runAs(TenantContext.DEFAULT_TENANT, this::state);
+    }
+
+    /**
+     * Rebuilds the current tenant's index from the database. Readers keep using the current index
+     * until the new one is complete, so a slow database never stalls decisions; updates wait for
+     * the swap and are then applied to the new index.
+     */
+    public void rebuild() {
+        String tenantId = TenantContext.get();
+        TenantState current = tenants.get(tenantId);
+        if (current == null) {
+            state();
+            return;
+        }
+        synchronized (current) {
+            retire(current);
+            TenantState rebuilt = new TenantState();
+            build(rebuilt);
+            rebuilt.lastAccess = current.lastAccess;
+            tenants.replace(tenantId, current, rebuilt);
+        }
+    }
+
+    /**
+     * Drops a tenant's index; it is rebuilt on next use.
+     */
+    public void evict(String tenantId) {
+        TenantState evicted = tenants.remove(tenantId);
+        if (evicted != null) {
+            synchronized (evicted) {
+                retire(evicted);
+            }
+        }
+    }
+
+    public int cachedTenantCount() {
+        return tenants.size();
+    }
+
+    public Set<String> cachedTenants() {
+        return Set.copyOf(tenants.keySet());
+    }
+
+    /**
+     * Returns the latest policy revision a loaded tenant's index reflects, or null if the tenant
+     * is not loaded.
+     */
+    public Long latestRevision(String tenantId) {
+        TenantState state = tenants.get(tenantId);
+        if (state == null || !state.ready) {
+            return null;
+        }
+        synchronized (state) {
+            return state.history.isEmpty() ? null : state.history.lastKey();
+        }
+    }
+
+    /**
+     * Returns how long ago a loaded tenant's index was built from the database, or null if the
+     * tenant is not loaded.
+     */
+    public Long millisSinceBuilt(String tenantId) {
+        TenantState state = tenants.get(tenantId);
+        if (state == null || !state.ready) {
+            return null;
+        }
+        return TimeUnit.NANOSECONDS.toMillis(System.nanoTime() - state.builtAt);
+    }
+
+    public PolicySnapshot policy() {
+        return state().policy;
+    }
+
+    /**
+     * Decides whether a user may perform an action on a resource. Returns null if the user is not
+     * indexed, so the caller can fall back to the database.
+     */
+    public Boolean isPermitted(Integer userId, String resourceName, String actionName) {
+        TenantState state = state();
+        RoleCombination combination = state.userCombinations.get(userId);
+        if (combination == null) {
+            return null;
+        }
+        PolicySnapshot current = state.policy;
+        int slot = current.permissionSlot(key(resourceName, actionName));
+        if (slot < 0 || !combination.permissions(current).get(slot)) {
+            return false;
+        }
+        // Credit every role of the user that grants the permission
+        String tenantId = TenantContext.get();
+        int permissionId = current.permissionIdAt(slot);
+        for (int roleId : combination.roleIds()) {
+            if (current.isGranted(roleId, slot)) {
+                usageCounters.record(tenantId, roleId, permissionId);
+            }
+        }
+        return true;
+    }
+
+    /**
+     * Returns the role combination of an indexed user, or null if the user is not indexed.
+     */
+    public RoleCombination combinationOf(Integer userId) {
+        return state().userCombinations.get(userId);
+    }
+
+    /**
+     * Returns the role combination of a user, interning it if no indexed user holds it yet.
+     */
+    public RoleCombination combinationOf(User user) {
+        TenantState state = state();
+        RoleCombination combination = state.userCombinations.get(user.getId());
+        return combination != null ? combination : intern(state, roleIdsOf(user));
+    }
+
+    /**
+     * Returns the granted authorities of a role combination: ROLE_NAME for every role followed by
+     * the names of the permissions in the union. The list is built once per combination version
+     * and shared by all its users.
+     */
+    public List<GrantedAuthority> authoritiesOf(RoleCombination combination) {
+        PolicySnapshot current = state().policy;
+        long version = combination.versionIn(current);
+        List<GrantedAuthority> cached = combination.cachedAuthorities(version);
+        if (cached == null) {
+            List<GrantedAuthority> list = new ArrayList<>();
+            for (int roleId : combination.roleIds()) {
+                list.add(new SimpleGrantedAuthority("ROLE_" + current.roleName(roleId)));
+            }
+            permissionNamesOf(combination).forEach(name -> list.add(new SimpleGrantedAuthority(name)));
+            cached = List.copyOf(list);
+            combination.cacheAuthorities(version, cached);
+        }
+        return cached;
+    }
+
+    public List<String> permissionNamesOf(RoleCombination combination) {
+        PolicySnapshot current = state().policy;
+        List<String> names = new ArrayList<>();
+        combination.permissions(current).stream().forEach(slot -> names.add(current.permissionKeyAt(slot)));
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Returns the policy version at which any role of the combination last changed.
+     */
+    public long versionOf(RoleCombination combination) {
+        return combination.versionIn(state().policy);
+    }
+
+    /**
+     * Returns the ids of users holding the permission, in ascending order, starting after the given cursor.
+     */
+    public List<Integer> findHolders(String resourceName, String actionName, Integer afterUserId, int limit) {
+        List<Integer> page = new ArrayList<>(Math.min(limit, 1024));
+        Iterator<Integer> holders = holders(resourceName, actionName, afterUserId);
+        while (page.size() < limit && holders.hasNext()) {
+            page.add(holders.next());
+        }
+        return page;
+    }
+
+    public long countHolders(String resourceName, String actionName) {
+        long count = 0;
+        for (RoleCombination combination : combinationsHolding(state(), resourceName, actionName)) {
+            count += combination.users().size();
+        }
+        return count;
+    }
+
+    /**
+     * Iterates over the ids of all users holding the permission in ascending order. Each user is in
+     * exactly one role combination, so merging their member sets never yields duplicates.
+     */
+    public Iterator<Integer> holders(String resourceName, String actionName, Integer afterUserId) {
+        List<Iterator<Integer>> sources = new ArrayList<>();
+        for (RoleCombination combination : combinationsHolding(state(), resourceName, actionName)) {
+            NavigableSet<Integer> users = combination.users();
+            sources.add((afterUserId == null ? users : users.tailSet(afterUserId, false)).iterator());
+        }
+        return new MergingIterator(sources);
+    }
+
+    /**
+     * Takes a consistent copy of the user to role combination assignments.
+     */
+    public UserAssignments userAssignments() {
+        TenantState state = state();
+        synchronized (state) {
+            int[] userIds = new int[state.userCombinations.size()];
+            RoleCombination[] assigned = new RoleCombination[userIds.length];
+            int i = 0;
+            for (Map.Entry<Integer, RoleCombination> entry : state.userCombinations.entrySet()) {
+                userIds[i] = entry.getKey();
+                assigned[i] = entry.getValue();
+                i++;
+            }
+            return new UserAssignments(userIds, assigned);
+        }
+    }
+
+    // --- Incremental updates, applied once the current transaction commits ---
+
+    /**
+     * Called when a role is granted a permission. {@code revision} is the id of the persisted
+     * policy change, or null if the role already held the permission.
+     */
+    public void onPermissionGranted(Integer roleId, Integer permissionId, Long revision) {
+        onPermissionsChanged(List.of(new PolicySnapshot.Change(roleId, permissionId, true)), revision);
+    }
+
+    public void onPermissionRevoked(Integer roleId, Integer permissionId, Long revision) {
+        onPermissionsChanged(List.of(new PolicySnapshot.Change(roleId, permissionId, false)), revision);
+    }
+
+    /**
+     * Applies several grant changes as one new snapshot, so readers see all of them or none.
+     * {@code revision} is the id of the last persisted change among them.
+     */
+    public void onPermissionsChanged(List<PolicySnapshot.Change> changes, Long revision) {
+        List<PolicySnapshot.Change> applied = List.copyOf(changes);
+        afterCommit(state -> {
+            state.policy = state.policy.withChanges(applied);
+            if (revision != null) {
+                remember(state, revision, state.policy);
+            }
+        });
+    }
+
+    /**
+     * Returns the grant changes that take the live policy back to its state at a revision, or null
+     * if that revision's snapshot is no longer kept in memory.
+     */
+    public List<PolicySnapshot.Change> changesToRevision(long revision) {
+        TenantState state = state();
+        synchronized (state) {
+            PolicySnapshot target = state.history.get(revision);
+            return target != null ? state.policy.changesTo(target) : null;
+        }
+    }
+
+    public void onPermissionCreated(Permission permission) {
+        Integer permissionId = permission.getId();
+        String key = permission.getName();
+        afterCommit(state -> state.policy = state.policy.withPermission(permissionId, key));
+    }
+
+    public void onRoleSaved(Role role) {
+        Integer roleId = role.getId();
+        String name = role.getName();
+        afterCommit(state -> state.policy = state.policy.withRole(roleId, name));
+    }
+
+    public void onRoleDeleted(Integer roleId) {
+        afterCommit(state -> {
+            state.policy = state.policy.withoutRole(roleId);
+            Set<Integer> affected = state.groups.removeRole(roleId);
+            for (Map.Entry<Integer, Set<Integer>> entry : state.userRoles.entrySet()) {
+                if (entry.getValue().remove(roleId)) {
+                    affected.add(entry.getKey());
+                }
+            }
+            refreshUsers(state, affected);
+        });
+    }
+
+    /**
+     * Called when permissions are deleted or renamed through their resource or action. These
+     * changes are rare and cascade, so the role/permission part of the index is reloaded.
+     */
+    public void onPolicyStructureChanged() {
+        afterCommit(this::reloadPolicy);
+    }
+
+    public void onUserSaved(User user) {
+        Integer userId = user.getId();
+        Set<Integer> roleIds = roleIdsOf(user);
+        afterCommit(state -> {
+            state.userRoles.put(userId, roleIds);
+            refreshUser(state, userId);
+        });
+    }
+
+    public void onUserDeleted(Integer userId) {
+        afterCommit(state -> {
+            state.userRoles.remove(userId);
+            state.groups.removeUser(userId);
+            removeUser(state, userId);
+        });
+    }
+
+    public void onGroupCreated(Integer groupId) {
+        afterCommit(state -> state.groups.addGroup(groupId));
+    }
+
+    public void onGroupDeleted(Integer groupId) {
+        afterCommit(state -> refreshUsers(state, state.groups.removeGroup(groupId)));
+    }
+
+    public void onSubgroupAdded(Integer parentId, Integer childId) {
+        afterCommit(state -> refreshUsers(state, state.groups.addSubgroup(parentId, childId)));
+    }
+
+    public void onSubgroupRemoved(Integer parentId, Integer childId) {
+        afterCommit(state -> refreshUsers(state, state.groups.removeSubgroup(parentId, childId)));
+    }
+
+    public void onGroupRoleGranted(Integer groupId, Integer roleId) {
+        afterCommit(state -> refreshUsers(state, state.groups.grantRole(groupId, roleId)));
+    }
+
+    public void onGroupRoleRevoked(Integer groupId, Integer roleId) {
+        afterCommit(state -> refreshUsers(state, state.groups.revokeRole(groupId, roleId)));
+    }
+
+    public void onGroupMembersAdded(Integer groupId, Collection<Integer> userIds) {
+        List<Integer> added = List.copyOf(userIds);
+        afterCommit(state -> {
+            for (Integer userId : added) {
+                state.groups.addMember(groupId, userId);
+            }
+            refreshUsers(state, added);
+        });
+    }
+
+    public void onGroupMemberRemoved(Integer groupId, Integer userId) {
+        afterCommit(state -> {
+            state.groups.removeMember(groupId, userId);
+            refreshUser(state, userId);
+        });
+    }
+
+    /**
+     * Returns true if adding {@code childId} below {@code parentId} would make a group its own subgroup.
+     */
+    public boolean wouldCreateCycle(Integer parentId, Integer childId) {
+        TenantState state = state();
+        synchronized (state) {
+            return state.groups.contains(childId, parentId);
+        }
+    }
+
+    /**
+     * Returns the current tenant's index, building it on first use. Lookups of a loaded tenant
+     * only touch a concurrent map and a volatile field; a reader arriving while the tenant is
+     * being built waits for the build instead of seeing a partial index.
+     */
+    private TenantState state() {
+        String tenantId = TenantContext.get();
+        TenantState state = tenants.get(tenantId);
+        if (state == null) {
+            state = load(tenantId);
+        } else if (!state.ready) {
+            synchronized (state) {
+                // The loading thread holds the lock until the build is done
+            }
+        }
+        state.lastAccess = System.nanoTime();
+        return state;
+    }
+
+    private TenantState load(String tenantId) {
+        TenantState created = new TenantState();
+        synchronized (created) {
+            TenantState existing = tenants.putIfAbsent(tenantId, created);
+            if (existing != null) {
+                synchronized (existing) {
+                    return existing;
+                }
+            }
+            try {
+                build(created);
+            } catch (RuntimeException e) {
+                tenants.remove(tenantId, created);
+                throw e;
+            }
+        }
+        evictLeastRecentlyUsed(tenantId);
+        return created;
+    }
+
+    /**
+     * Keeps at most {@code maxTenants} indexes in memory by dropping the one used least recently.
+     * A scan over the loaded tenants is cheap next to the build that triggered it.
+     */
+    private void evictLeastRecentlyUsed(String keep) {
+        while (tenants.size() > maxTenants) {
+            Map.Entry<String, TenantState> oldest = null;
+            for (Map.Entry<String, TenantState> entry : tenants.entrySet()) {
+                if (!entry.getKey().equals(keep) && entry.getValue().ready
+                        && (oldest == null || entry.getValue().lastAccess < oldest.getValue().lastAccess)) {
+                    oldest = entry;
+                }
+            }
+            if (oldest == null) {
+                return;
+            }
+            if (tenants.remove(oldest.getKey(), oldest.getValue())) {
+                synchronized (oldest.getValue()) {
+                    retire(oldest.getValue());
+                }
+                logger.info("Evicted permission index of tenant {}", oldest.getKey());
+            }
+        }
+    }
+
+    /**
+     * Records the version a dropped index reached. Called holding the index's lock, so no update
+     * can move it on afterwards.
+     */
+    private void retire(TenantState state) {
+        retiredVersion.accumulateAndGet(state.policy.version(), Math::max);
+    }
+
+    private void build(TenantState state) {
+        // The index must reflect every commit, which a read replica may not have applied yet
+        RoutingContext.runOnPrimary(() -> buildFromDatabase(state));
+    }
+
+    private void buildFromDatabase(TenantState state) {
+        long start = System.currentTimeMillis();
+        state.builtAt = System.nanoTime();
+        reloadPolicy(state);
+        state.history.clear();
+        Long revision = policyChangeRepository.findLatestRevision();
+        state.history.put(revision != null ? revision : 0L, state.policy);
+
+        state.userRoles.clear();
+        for (UserRepository.UserRoleAssignment assignment : userRepository.findAllRoleAssignments()) {
+            state.userRoles.computeIfAbsent(assignment.getId(), id -> new HashSet<>()).add(assignment.getRoleId());
+        }
+        for (UserRepository.UserRoleAssignment assignment : userRepository.findAllAdditionalRoleAssignments()) {
+            state.userRoles.computeIfAbsent(assignment.getId(), id -> new HashSet<>()).add(assignment.getRoleId());
+        }
+
+        state.groups.clear();
+        groupRepository.findAll().forEach(group -> state.groups.addGroup(group.getId()));
+        for (GroupRepository.GroupEdge edge : groupRepository.findAllEdges()) {
+            state.groups.addSubgroup(edge.getParentId(), edge.getChildId());
+        }
+        for (GroupRepository.GroupRoleAssignment assignment : groupRepository.findAllRoleAssignments()) {
+            state.groups.grantRole(assignment.getGroupId(), assignment.getRoleId());
+        }
+        for (GroupRepository.GroupMembership membership : groupRepository.findAllMemberships()) {
+            state.groups.addMember(membership.getGroupId(), membership.getUserId());
+        }
+
+        state.combinations.clear();
+        state.userCombinations.clear();
+        state.userRoles.keySet().forEach(userId -> refreshUser(state, userId));
+
+        state.ready = true;
+        logger.info("Permission index of tenant {} built in {} ms: {} permissions, {} roles, {} groups, {} users, {} role combinations",
+                TenantContext.get(), System.currentTimeMillis() - start, state.policy.permissionCount(),
+                state.policy.roleCount(), state.groups.groupCount(), state.userCombinations.size(),
+                state.combinations.size());
+    }
+
+    private static void remember(TenantState state, long revision, PolicySnapshot snapshot) {
+        NavigableMap<Long, PolicySnapshot> history = state.history;
+        if (!history.isEmpty() && history.lastKey() > revision) {
+            // Transactions committed out of revision order, so the later snapshots miss this
+            // change; drop them and let a rollback to those revisions replay the change log
+            history.tailMap(revision, true).clear();
+            return;
+        }
+        history.put(revision, snapshot);
+        while (history.size() > HISTORY_SIZE) {
+            history.pollFirstEntry();
+        }
+    }
+
+    private void reloadPolicy(TenantState state) {
+        PolicySnapshot.Builder builder = PolicySnapshot.builder(
+                Math.max(state.policy.version(), retiredVersion.get()) + 1);
+        for (PermissionRepository.PermissionKey permission : permissionRepository.findAllKeys()) {
+            builder.putPermission(permission.getId(), key(permission.getResource(), permission.getAction()));
+        }
+        for (RoleRepository.RoleName role : roleRepository.findAllNames()) {
+            builder.putRole(role.getId(), role.getName());
+        }
+        for (RoleRepository.RolePermissionIds grant : roleRepository.findAllGrantIds()) {
+            builder.setGrant(grant.getRoleId(), grant.getPermissionId(), true);
+        }
+        state.policy = builder.build();
+    }
+
+    private static List<RoleCombination> combinationsHolding(TenantState state, String resourceName, String actionName) {
+        PolicySnapshot current = state.policy;
+        int slot = current.permissionSlot(key(resourceName, actionName));
+        if (slot < 0) {
+            return Collections.emptyList();
+        }
+        List<RoleCombination> holding = new ArrayList<>();
+        for (RoleCombination combination : state.combinations.values()) {
+            if (combination.permissions(current).get(slot)) {
+                holding.add(combination);
+            }
+        }
+        return holding;
+    }
+
+    private static RoleCombination intern(TenantState state, Set<Integer> roleIds) {
+        List<Integer> key = roleIds.stream().sorted().toList();
+        return state.combinations.computeIfAbsent(key,
+                ids -> new RoleCombination(ids.stream().mapToInt(Integer::intValue).toArray()));
+    }
+
+    private static Set<Integer> roleIdsOf(User user) {
+        Set<Integer> roleIds = new HashSet<>();
+        user.effectiveRoles().forEach(role -> roleIds.add(role.getId()));
+        return roleIds;
+    }
+
+    private static void refreshUsers(TenantState state, Collection<Integer> userIds) {
+        userIds.forEach(userId -> refreshUser(state, userId));
+    }
+
+    /**
+     * Moves a user to the combination of their own roles and the roles of their groups.
+     */
+    private static void refreshUser(TenantState state, Integer userId) {
+        Set<Integer> direct = state.userRoles.get(userId);
+        if (direct == null) {
+            return;
+        }
+        Set<Integer> roleIds = new HashSet<>(direct);
+        state.groups.collectRoles(userId, roleIds);
+        RoleCombination current = state.userCombinations.get(userId);
+        if (current != null && current.roleIds().length == roleIds.size()
+                && Arrays.stream(current.roleIds()).allMatch(roleIds::contains)) {
+            return;
+        }
+        removeUser(state, userId);
+        addUser(state, userId, roleIds);
+    }
+
+    private static void addUser(TenantState state, Integer userId, Set<Integer> roleIds) {
+        RoleCombination combination = intern(state, roleIds);
+        combination.users().add(userId);
+        state.userCombinations.put(userId, combination);
+    }
+
+    private static void removeUser(TenantState state, Integer userId) {
+        RoleCombination previous = state.userCombinations.remove(userId);
+        if (previous != null) {
+            previous.users().remove(userId);
+            if (previous.users().isEmpty()) {
+                state.combinations.remove(Arrays.stream(previous.roleIds()).boxed().toList(), previous);
+            }
+        }
+    }
+
+    /**
+     * Runs an update on the index of the tenant that made the change once its transaction
+     * commits. A tenant that is not loaded then needs no update: its index is built from the
+     * committed data when it is next used.
+     */
+    private void afterCommit(Consumer<TenantState> update) {
+        String tenantId = TenantContext.get();
+        Runnable guarded = () -> {
+            TenantState state = tenants.get(tenantId);
+            while (state != null) {
+                synchronized (state) {
+                    // A rebuild may have replaced the state while this update waited for it
+                    if (tenants.get(tenantId) == state) {
+                        TenantState current = state;
+                        RoutingContext.runOnPrimary(() -> update.accept(current));
+                        return;
+                    }
+                }
+                state = tenants.get(tenantId);
+            }
+        };
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    guarded.run();
+                }
+            });
+        } else {
+            guarded.run();
+        }
+    }
+
+    private static String key(String resourceName, String actionName) {
+        return resourceName + ":" + actionName;
+    }
+
+    /**
+     * Everything the index knows about one tenant. The maps and the closure are guarded by the
+     * state itself; the snapshot and the combination maps are also read without locking.
+     */
+    private static final class TenantState {
+        private volatile PolicySnapshot policy = PolicySnapshot.empty();
+        private final Map<List<Integer>, RoleCombination> combinations = new ConcurrentHashMap<>();
+        private final Map<Integer, RoleCombination> userCombinations = new ConcurrentHashMap<>();
+        // Roles held directly (primary and additional)
+        private final Map<Integer, Set<Integer>> userRoles = new HashMap<>();
+        private final GroupClosure groups = new GroupClosure();
+        // Snapshot after each recent policy revision
+        private final NavigableMap<Long, PolicySnapshot> history = new TreeMap<>();
+        private volatile boolean ready = false;
+        private volatile long lastAccess = System.nanoTime();
+        // Start of the last build from the database
+        private volatile long builtAt = System.nanoTime();
+    }
+
+    /**
+     * Flat copy of which user has which role combination, index-aligned.
+     */
+    public record UserAssignments(int[] userIds, RoleCombination[] combinations) {
+        public int size() {
+            return userIds.length;
+        }
+    }
+
+    /**
+     * K-way merge over ascending iterators; the number of sources is the number of roles holding
+     * one permission, so a linear scan for the minimum is cheaper than a heap.
+     */
+    private static final class MergingIterator implements Iterator<Integer> {
+        private final List<Iterator<Integer>> sources;
+        private final Integer[] heads;
+
+        private MergingIterator(List<Iterator<Integer>> sources) {
+            this.sources = sources;
+            this.heads = new Integer[sources.size()];
+            for (int i = 0; i < heads.length; i++) {
+                heads[i] = sources.get(i).hasNext() ? sources.get(i).next() : null;
+            }
+        }
+
+        @Override
+        public boolean hasNext() {
+            for (Integer head : heads) {
+                if (head != null) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+        @Override
+        public Integer next() {
+            int min = -1;
+            for (int i = 0; i < heads.length; i++) {
+                if (heads[i] != null && (min < 0 || heads[i] < heads[min])) {
+                    min = i;
+                }
+            }
+            if (min < 0) {
+                throw new NoSuchElementException();
+            }
+            Integer result = heads[min];
+            Iterator<Integer> source = sources.get(min);
+            heads[min] = source.hasNext() ? source.next() : null;
+            return result;
+        }
+    }
+}
@@ -0,0 +1,160 @@
+package org.cloven.rbac_sample.policy;
+
+import jakarta.annotation.PreDestroy;
+import org.cloven.rbac_sample.models.PermissionUsage;
+import org.cloven.rbac_sample.repositories.PermissionUsageRepository;
+import org.cloven.rbac_sample.tenancy.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.sql.Date;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Counts how often each role's grant of a permission decides a permission check, and adds the
+ * counts to the daily rollup in permission_usage in the background.
+ *
+ * Counters are {@link LongAdder}s keyed by the role and permission ids packed into a long, so an
+ * increment is a lock-free map lookup plus a write to a cell of its own thread, and concurrent
+ * checks of the same grant never contend. Ids rather than policy slots are used because slots are
+ * recycled when roles and permissions are deleted. A flush takes each counter's value while
+ * resetting it and writes a tenant's counts in one transaction, giving them back if it fails;
+ * shutdown flushes what is left.
+ */
+@Component
+public class PermissionUsageCounters {
+    private static final Logger logger = LoggerFactory.getLogger(PermissionUsageCounters.class);
+    private static final int BATCH_SIZE = 500;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final TransactionTemplate transactionTemplate;
+    private final PermissionUsageRepository permissionUsageRepository;
+    private final long flushIntervalMs;
+    private final Map<String, Map<Long, LongAdder>> tenants = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "permission-usage-flush");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PermissionUsageCounters(
+            JdbcTemplate jdbcTemplate,
+            PlatformTransactionManager transactionManager,
+            PermissionUsageRepository permissionUsageRepository,
+            @Value("${app.usage.flush-interval-ms:60000}") long flushIntervalMs) {
+        this.jdbcTemplate = jdbcTemplate;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // Never join a caller's transaction, whose session belongs to the caller's tenant
+        this.transactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.permissionUsageRepository = permissionUsageRepository;
+        this.flushIntervalMs = flushIntervalMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::flush, flushIntervalMs, flushIntervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+        try {
+            scheduler.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        flush();
+    }
+
+    public void record(String tenantId, int roleId, int permissionId) {
+        Map<Long, LongAdder> counters = tenants.get(tenantId);
+        if (counters == null) {
+            counters = tenants.computeIfAbsent(tenantId, id -> new ConcurrentHashMap<>());
+        }
+        long key = ((long) roleId << 32) | (permissionId & 0xFFFFFFFFL);
+        LongAdder counter = counters.get(key);
+        if (counter == null) {
+            counter = counters.computeIfAbsent(key, k -> new LongAdder());
+        }
+        counter.increment();
+    }
+
+    /**
+     * Adds all counts collected so far to today's rollup rows. Called before queries that read
+     * the rollup.
+     */
+    public synchronized void flush() {
+        LocalDate today = LocalDate.now(ZoneOffset.UTC);
+        tenants.forEach((tenantId, counters) -> {
+            List<Use> uses = new ArrayList<>();
+            counters.forEach((key, counter) -> {
+                long count = counter.sumThenReset();
+                if (count > 0) {
+                    uses.add(new Use((int) (key >>> 32), (int) (long) key, count, counter));
+                }
+            });
+            if (uses.isEmpty()) {
+                return;
+            }
+            try {
+                // All or nothing, so a failed write can be retried without counting twice
+                TenantContext.runAs(tenantId, () -> transactionTemplate.executeWithoutResult(
+                        status -> write(tenantId, today, uses)));
+            } catch (RuntimeException e) {
+                uses.forEach(use -> use.counter().add(use.count()));
+                logger.warn("Could not write permission usage of tenant {}, keeping it for the next attempt: {}",
+                        tenantId, e.getMessage());
+            }
+        });
+    }
+
+    private void write(String tenantId, LocalDate today, List<Use> uses) {
+        Date date = Date.valueOf(today);
+        int[][] updated = jdbcTemplate.batchUpdate("update permission_usage set uses = uses + ? "
+                        + "where tenant_id = ? and role_id = ? and permission_id = ? and usage_date = ?",
+                uses, BATCH_SIZE, (statement, use) -> {
+                    statement.setLong(1, use.count());
+                    statement.setString(2, tenantId);
+                    statement.setInt(3, use.roleId());
+                    statement.setInt(4, use.permissionId());
+                    statement.setDate(5, date);
+                });
+
+        // The first uses of a grant on a day create its row
+        List<PermissionUsage> created = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : updated) {
+            for (int count : batch) {
+                Use use = uses.get(index++);
+                if (count == 0) {
+                    created.add(new PermissionUsage()
+                            .setRoleId(use.roleId())
+                            .setPermissionId(use.permissionId())
+                            .setUsageDate(today)
+                            .setUses(use.count()));
+                }
+            }
+        }
+        permissionUsageRepository.saveAll(created);
+    }
+
+    private record Use(int roleId, int permissionId, long count, LongAdder counter) {
+    }
+}
@@ -0,0 +1,87 @@
+package org.cloven.rbac_sample.policy;
+
+import jakarta.annotation.PreDestroy;
+import org.cloven.rbac_sample.repositories.PolicyChangeRepository;
+import org.cloven.rbac_sample.tenancy.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Confirms in the background that every loaded tenant's permission index is current. Changes
+ * made through this node reach the index directly; this catches grant changes committed by other
+ * nodes, which show up as a newer revision in the policy change log, and rebuilds the tenant.
+ * Other nodes' changes to users' roles, groups, temporary grants and roles leave no revision, so
+ * an index is also rebuilt once it is older than {@code app.degraded.index-max-age-ms}, which
+ * bounds how long such a change goes unseen here.
+ * Decisions never wait for it: while the database is unreachable they keep using the last
+ * snapshot, and {@link DegradedMode} reports how stale it is.
+ */
+@Component
+public class PolicyRevalidator {
+    private static final Logger logger = LoggerFactory.getLogger(PolicyRevalidator.class);
+
+    private final PermissionIndex permissionIndex;
+    private final PolicyChangeRepository policyChangeRepository;
+    private final DegradedMode degradedMode;
+    private final long intervalMs;
+    private final long maxIndexAgeMs;
+    private final ScheduledExecutorService scheduler = Executors.newSingleThreadScheduledExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "policy-revalidation");
+        thread.setDaemon(true);
+        return thread;
+    });
+
+    public PolicyRevalidator(
+            PermissionIndex permissionIndex,
+            PolicyChangeRepository policyChangeRepository,
+            DegradedMode degradedMode,
+            @Value("${app.degraded.revalidate-interval-ms:30000}") long intervalMs,
+            @Value("${app.degraded.index-max-age-ms:300000}") long maxIndexAgeMs) {
+        this.permissionIndex = permissionIndex;
+        this.policyChangeRepository = policyChangeRepository;
+        this.degradedMode = degradedMode;
+        this.intervalMs = intervalMs;
+        this.maxIndexAgeMs = maxIndexAgeMs;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void start() {
+        scheduler.scheduleWithFixedDelay(this::revalidate, intervalMs, intervalMs, TimeUnit.MILLISECONDS);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        scheduler.shutdownNow();
+    }
+
+    void revalidate() {
+        for (String tenantId : permissionIndex.cachedTenants()) {
+            try {
+                TenantContext.runAs(tenantId, () -> {
+                    Long latest = policyChangeRepository.findLatestRevision();
+                    Long indexed = permissionIndex.latestRevision(tenantId);
+                    Long age = permissionIndex.millisSinceBuilt(tenantId);
+                    if (latest != null && indexed != null && latest > indexed) {
+                        logger.info("Policy of tenant {} moved to revision {} elsewhere; rebuilding", tenantId, latest);
+                        permissionIndex.rebuild();
+                    } else if (age != null && age >= maxIndexAgeMs) {
+                        logger.debug("Permission index of tenant {} is {} ms old; rebuilding", tenantId, age);
+                        permissionIndex.rebuild();
+                    }
+                });
+                degradedMode.recordSuccess();
+            } catch (RuntimeException e) {
+                degradedMode.recordFailure(e);
+                logger.warn("Could not revalidate the policy of tenant {}: {}", tenantId, e.getMessage());
+            }
+        }
+    }
+}
@@ -0,0 +1,449 @@
+package org.cloven.rbac_sample.policy;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, versioned copy of the policy: roles, permissions and which role holds which
+ * permission.
+ *
+ * Roles and permissions are given dense integer slots, recycled when they are deleted, so the
+ * grants of a role are a bit set over permission slots and a decision is two hash lookups and a
+ * bit test regardless of how many roles and permissions exist.
+ *
+ * Snapshots are copy-on-write: every {@code with...} method returns a new snapshot that shares
+ * the bit sets of all roles it did not touch with this one, and the role and permission tables
+ * unless it added or removed a role or permission. Grant changes therefore only copy two arrays
+ * indexed by role slot, which makes it cheap to keep a history of recent versions.
+ */
+public final class PolicySnapshot {
+    private static final BitSet EMPTY = new BitSet();
+    private static final int FREE = -1;
+
+    private final long version;
+
+    private final Map<Integer, Integer> roleSlots;
+    private final int[] roleIds;
+    private final String[] roleNames;
+    private final long[] roleVersions;
+    private final BitSet[] grants;
+
+    private final Map<Integer, Integer> permissionSlots;
+    private final Map<String, Integer> permissionSlotsByKey;
+    private final int[] permissionIds;
+    private final String[] permissionKeys;
+
+    private PolicySnapshot(Builder builder) {
+        this.version = builder.version;
+        this.roleSlots = builder.rolesCopied ? Collections.unmodifiableMap(builder.roleSlots) : builder.roleSlots;
+        this.roleIds = builder.roleIds;
+        this.roleNames = builder.roleNames;
+        this.roleVersions = builder.roleVersions;
+        this.grants = builder.grants;
+        this.permissionSlots = builder.permissionsCopied
+                ? Collections.unmodifiableMap(builder.permissionSlots)
+                : builder.permissionSlots;
+        this.permissionSlotsByKey = builder.permissionsCopied
+                ? Collections.unmodifiableMap(builder.permissionSlotsByKey)
+                : builder.permissionSlotsByKey;
+        this.permissionIds = builder.permissionIds;
+        this.permissionKeys = builder.permissionKeys;
+    }
+
+    public static PolicySnapshot empty() {
+        return new Builder(null, 0).build();
+    }
+
+    // --- Decisions and lookups ---
+
+    public boolean isPermitted(int roleId, String permissionKey) {
+        Integer role = roleSlots.get(roleId);
+        Integer permission = permissionSlotsByKey.get(permissionKey);
+        return role != null && permission != null && grants[role].get(permission);
+    }
+
+    public boolean isPermitted(int roleId, int permissionId) {
+        Integer role = roleSlots.get(roleId);
+        Integer permission = permissionSlots.get(permissionId);
+        return role != null && permission != null && grants[role].get(permission);
+    }
+
+    /**
+     * Returns the permission slots granted to a role. Callers must not modify the returned set.
+     */
+    public BitSet permissionsOf(int roleId) {
+        Integer role = roleSlots.get(roleId);
+        return role != null ? grants[role] : EMPTY;
+    }
+
+    public List<String> permissionNamesOf(int roleId) {
+        List<String> names = new ArrayList<>();
+        permissionsOf(roleId).stream().forEach(slot -> names.add(permissionKeys[slot]));
+        Collections.sort(names);
+        return names;
+    }
+
+    /**
+     * Returns the ids of the roles holding a permission, scanning one bit per role.
+     */
+    public List<Integer> rolesHolding(String permissionKey) {
+        Integer permission = permissionSlotsByKey.get(permissionKey);
+        if (permission == null) {
+            return Collections.emptyList();
+        }
+        List<Integer> roles = new ArrayList<>();
+        for (int slot = 0; slot < roleIds.length; slot++) {
+            if (roleIds[slot] != FREE && grants[slot].get(permission)) {
+                roles.add(roleIds[slot]);
+            }
+        }
+        return roles;
+    }
+
+    /**
+     * Tells whether a role holds the permission in the given slot.
+     */
+    public boolean isGranted(int roleId, int permissionSlot) {
+        Integer role = roleSlots.get(roleId);
+        return role != null && grants[role].get(permissionSlot);
+    }
+
+    public int permissionIdAt(int slot) {
+        return slot < permissionIds.length ? permissionIds[slot] : FREE;
+    }
+
+    public String permissionKeyAt(int slot) {
+        return slot < permissionKeys.length ? permissionKeys[slot] : null;
+    }
+
+    public int permissionSlot(int permissionId) {
+        return permissionSlots.getOrDefault(permissionId, FREE);
+    }
+
+    public int permissionSlot(String permissionKey) {
+        return permissionSlotsByKey.getOrDefault(permissionKey, FREE);
+    }
+
+    public boolean hasRole(int roleId) {
+        return roleSlots.containsKey(roleId);
+    }
+
+    public boolean hasPermission(int permissionId) {
+        return permissionSlots.containsKey(permissionId);
+    }
+
+    public String roleName(int roleId) {
+        Integer role = roleSlots.get(roleId);
+        return role != null ? roleNames[role] : null;
+    }
+
+    /**
+     * Returns the snapshot version at which the role or its grants last changed.
+     */
+    public long roleVersion(int roleId) {
+        Integer role = roleSlots.get(roleId);
+        return role != null ? roleVersions[role] : 0L;
+    }
+
+    public long version() {
+        return version;
+    }
+
+    public int roleCount() {
+        return roleSlots.size();
+    }
+
+    public int permissionCount() {
+        return permissionSlots.size();
+    }
+
+    // --- Copy-on-write updates ---
+
+    public PolicySnapshot withRole(int roleId, String name) {
+        Builder builder = new Builder(this, version + 1);
+        builder.putRole(roleId, name);
+        return builder.build();
+    }
+
+    public PolicySnapshot withoutRole(int roleId) {
+        Builder builder = new Builder(this, version + 1);
+        builder.removeRole(roleId);
+        return builder.build();
+    }
+
+    public PolicySnapshot withPermission(int permissionId, String key) {
+        Builder builder = new Builder(this, version + 1);
+        builder.putPermission(permissionId, key);
+        return builder.build();
+    }
+
+    public PolicySnapshot withoutPermission(int permissionId) {
+        Builder builder = new Builder(this, version + 1);
+        builder.removePermission(permissionId);
+        return builder.build();
+    }
+
+    public PolicySnapshot withGrant(int roleId, int permissionId, boolean granted) {
+        return withChanges(List.of(new Change(roleId, permissionId, granted)));
+    }
+
+    public PolicySnapshot withChanges(List<Change> changes) {
+        Builder builder = new Builder(this, version + 1);
+        for (Change change : changes) {
+            builder.setGrant(change.roleId(), change.permissionId(), change.granted());
+        }
+        return builder.build();
+    }
+
+    /**
+     * Returns the grant changes that turn this snapshot into {@code target}, for the roles and
+     * permissions present in both. A role missing from the target did not exist yet, so all of its
+     * grants are revoked. Roles whose bit set is shared with the target are skipped without
+     * looking at their bits.
+     */
+    public List<Change> changesTo(PolicySnapshot target) {
+        List<Change> changes = new ArrayList<>();
+        boolean sameLayout = permissionIds == target.permissionIds;
+        for (int slot = 0; slot < roleIds.length; slot++) {
+            int roleId = roleIds[slot];
+            if (roleId == FREE) {
+                continue;
+            }
+            BitSet from = grants[slot];
+            Integer targetSlot = target.roleSlots.get(roleId);
+            if (targetSlot == null) {
+                from.stream().forEach(permission ->
+                        changes.add(new Change(roleId, permissionIds[permission], false)));
+                continue;
+            }
+            if (from == target.grants[targetSlot]) {
+                continue;
+            }
+            BitSet to = target.grants[targetSlot];
+            if (sameLayout) {
+                BitSet differing = (BitSet) from.clone();
+                differing.xor(to);
+                differing.stream().forEach(permission ->
+                        changes.add(new Change(roleId, permissionIds[permission], to.get(permission))));
+            } else {
+                for (Map.Entry<Integer, Integer> entry : permissionSlots.entrySet()) {
+                    Integer targetPermission = target.permissionSlots.get(entry.getKey());
+                    if (targetPermission != null && from.get(entry.getValue()) != to.get(targetPermission)) {
+                        changes.add(new Change(roleId, entry.getKey(), to.get(targetPermission)));
+                    }
+                }
+            }
+        }
+        return changes;
+    }
+
+    public static Builder builder(long version) {
+        return new Builder(null, version);
+    }
+
+    /**
+     * A permission granted to, or revoked from, a role.
+     */
+    public record Change(int roleId, int permissionId, boolean granted) {
+    }
+
+    /**
+     * Mutable working copy. The role and permission tables are copied on their first change and
+     * bit sets only when a role's grants change.
+     */
+    public static final class Builder {
+        private final long version;
+        private Map<Integer, Integer> roleSlots;
+        private int[] roleIds;
+        private String[] roleNames;
+        private long[] roleVersions;
+        private BitSet[] grants;
+        private Map<Integer, Integer> permissionSlots;
+        private Map<String, Integer> permissionSlotsByKey;
+        private int[] permissionIds;
+        private String[] permissionKeys;
+        private boolean[] copied;
+        private boolean rolesCopied;
+        private boolean permissionsCopied;
+        // Lowest slots that may be free, so bulk loads do not rescan the filled prefix
+        private int roleFreeHint;
+        private int permissionFreeHint;
+
+        private Builder(PolicySnapshot base, long version) {
+            this.version = version;
+            if (base == null) {
+                roleSlots = new HashMap<>();
+                roleIds = new int[0];
+                roleNames = new String[0];
+                roleVersions = new long[0];
+                grants = new BitSet[0];
+                permissionSlots = new HashMap<>();
+                permissionSlotsByKey = new HashMap<>();
+                permissionIds = new int[0];
+                permissionKeys = new String[0];
+                rolesCopied = true;
+                permissionsCopied = true;
+            } else {
+                roleSlots = base.roleSlots;
+                roleIds = base.roleIds;
+                roleNames = base.roleNames;
+                roleVersions = base.roleVersions.clone();
+                grants = base.grants.clone();
+                permissionSlots = base.permissionSlots;
+                permissionSlotsByKey = base.permissionSlotsByKey;
+                permissionIds = base.permissionIds;
+                permissionKeys = base.permissionKeys;
+            }
+            copied = new boolean[grants.length];
+        }
+
+        public Builder putRole(int roleId, String name) {
+            copyRoles();
+            Integer slot = roleSlots.get(roleId);
+            if (slot == null) {
+                slot = freeSlot(roleIds, roleFreeHint);
+                roleFreeHint = slot + 1;
+                if (slot == roleIds.length) {
+                    int size = Math.max(8, roleIds.length * 2);
+                    roleIds = grow(roleIds, size);
+                    roleNames = Arrays.copyOf(roleNames, size);
+                    roleVersions = Arrays.copyOf(roleVersions, size);
+                    grants = Arrays.copyOf(grants, size);
+                    copied = Arrays.copyOf(copied, size);
+                }
+                roleSlots.put(roleId, slot);
+                roleIds[slot] = roleId;
+                grants[slot] = new BitSet();
+                copied[slot] = true;
+            }
+            roleNames[slot] = name;
+            roleVersions[slot] = version;
+            return this;
+        }
+
+        public Builder removeRole(int roleId) {
+            copyRoles();
+            Integer slot = roleSlots.remove(roleId);
+            if (slot != null) {
+                roleIds[slot] = FREE;
+                roleNames[slot] = null;
+                roleVersions[slot] = 0L;
+                grants[slot] = EMPTY;
+                copied[slot] = false;
+                roleFreeHint = Math.min(roleFreeHint, slot);
+            }
+            return this;
+        }
+
+        public Builder putPermission(int permissionId, String key) {
+            copyPermissions();
+            Integer slot = permissionSlots.get(permissionId);
+            if (slot == null) {
+                slot = freeSlot(permissionIds, permissionFreeHint);
+                permissionFreeHint = slot + 1;
+                if (slot == permissionIds.length) {
+                    int size = Math.max(8, permissionIds.length * 2);
+                    permissionIds = grow(permissionIds, size);
+                    permissionKeys = Arrays.copyOf(permissionKeys, size);
+                }
+                permissionSlots.put(permissionId, slot);
+                permissionIds[slot] = permissionId;
+            } else {
+                permissionSlotsByKey.remove(permissionKeys[slot]);
+                touchRolesHolding(slot);
+            }
+            permissionKeys[slot] = key;
+            permissionSlotsByKey.put(key, slot);
+            return this;
+        }
+
+        public Builder removePermission(int permissionId) {
+            copyPermissions();
+            Integer slot = permissionSlots.remove(permissionId);
+            if (slot != null) {
+                // Clear the bit everywhere before the slot can be handed to another permission
+                for (int role = 0; role < roleIds.length; role++) {
+                    if (roleIds[role] != FREE && grants[role].get(slot)) {
+                        writableGrants(role).clear(slot);
+                        roleVersions[role] = version;
+                    }
+                }
+                permissionSlotsByKey.remove(permissionKeys[slot]);
+                permissionIds[slot] = FREE;
+                permissionKeys[slot] = null;
+                permissionFreeHint = Math.min(permissionFreeHint, slot);
+            }
+            return this;
+        }
+
+        public Builder setGrant(int roleId, int permissionId, boolean granted) {
+            Integer role = roleSlots.get(roleId);
+            Integer permission = permissionSlots.get(permissionId);
+            if (role == null || permission == null || grants[role].get(permission) == granted) {
+                return this;
+            }
+            writableGrants(role).set(permission, granted);
+            roleVersions[role] = version;
+            return this;
+        }
+
+        public PolicySnapshot build() {
+            return new PolicySnapshot(this);
+        }
+
+        private void copyRoles() {
+            if (!rolesCopied) {
+                roleSlots = new HashMap<>(roleSlots);
+                roleIds = roleIds.clone();
+                roleNames = roleNames.clone();
+                rolesCopied = true;
+            }
+        }
+
+        private void copyPermissions() {
+            if (!permissionsCopied) {
+                permissionSlots = new HashMap<>(permissionSlots);
+                permissionSlotsByKey = new HashMap<>(permissionSlotsByKey);
+                permissionIds = permissionIds.clone();
+                permissionKeys = permissionKeys.clone();
+                permissionsCopied = true;
+            }
+        }
+
+        private void touchRolesHolding(int permissionSlot) {
+            for (int role = 0; role < roleIds.length; role++) {
+                if (roleIds[role] != FREE && grants[role].get(permissionSlot)) {
+                    roleVersions[role] = version;
+                }
+            }
+        }
+
+        private BitSet writableGrants(int roleSlot) {
+            if (!copied[roleSlot]) {
+                grants[roleSlot] = (BitSet) grants[roleSlot].clone();
+                copied[roleSlot] = true;
+            }
+            return grants[roleSlot];
+        }
+
+        private static int freeSlot(int[] ids, int from) {
+            for (int slot = from; slot < ids.length; slot++) {
+                if (ids[slot] == FREE) {
+                    return slot;
+                }
+            }
+            return ids.length;
+        }
+
+        private static int[] grow(int[] ids, int size) {
+            int[] grown = Arrays.copyOf(ids, size);
+            Arrays.fill(grown, ids.length, size, FREE);
+            return grown;
+        }
+    }
+}
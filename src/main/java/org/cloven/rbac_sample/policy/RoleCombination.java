@@ -0,0 +1,126 @@
+package org.cloven.rbac_sample.policy;
+
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.List;
+import java.util.NavigableSet;
+import java.util.concurrent.ConcurrentSkipListSet;
+
+/**
+ * A distinct set of roles held together by at least one user. Combinations are interned by the
+ * {@link PermissionIndex}, so every user with the same roles shares one instance, one member set
+ * and one precomputed union of the roles' permissions.
+ *
+ * The union is rebuilt lazily, and only when one of the member roles changed since it was last
+ * computed. A single role combination uses the role's own bit set, so users with one role pay
+ * nothing for multi-role support.
+ */
+public final class RoleCombination {
+    private final int[] roleIds;
+    private final NavigableSet<Integer> users = new ConcurrentSkipListSet<>();
+    private volatile Union union;
+    private volatile Authorities authorities;
+    private volatile EffectivePermissionsCache.Entry effectivePermissions;
+
+    RoleCombination(int[] roleIds) {
+        this.roleIds = roleIds;
+    }
+
+    /**
+     * Returns the role ids, ascending. Callers must not modify the returned array.
+     */
+    public int[] roleIds() {
+        return roleIds;
+    }
+
+    /**
+     * Stable key of the combination, e.g. {@code 1+3}.
+     */
+    public String key() {
+        StringBuilder key = new StringBuilder();
+        for (int roleId : roleIds) {
+            if (key.length() > 0) {
+                key.append('+');
+            }
+            key.append(roleId);
+        }
+        return key.toString();
+    }
+
+    /**
+     * Computes the union of the member roles' permissions in any snapshot, without caching.
+     * Callers must not modify the returned set.
+     */
+    public BitSet unionIn(PolicySnapshot policy) {
+        if (roleIds.length == 1) {
+            return policy.permissionsOf(roleIds[0]);
+        }
+        BitSet permissions = new BitSet();
+        for (int roleId : roleIds) {
+            permissions.or(policy.permissionsOf(roleId));
+        }
+        return permissions;
+    }
+
+    /**
+     * Returns the latest version at which any member role changed in the snapshot.
+     */
+    public long versionIn(PolicySnapshot policy) {
+        long version = 0L;
+        for (int roleId : roleIds) {
+            version = Math.max(version, policy.roleVersion(roleId));
+        }
+        return version;
+    }
+
+    NavigableSet<Integer> users() {
+        return users;
+    }
+
+    /**
+     * Returns the union for the live snapshot, recomputing it only if a member role changed.
+     */
+    BitSet permissions(PolicySnapshot policy) {
+        Union current = union;
+        if (current != null && current.policyVersion == policy.version()) {
+            return current.permissions;
+        }
+        long version = versionIn(policy);
+        BitSet permissions = current != null && current.version == version && roleIds.length > 1
+                ? current.permissions
+                : unionIn(policy);
+        current = new Union(policy.version(), version, permissions);
+        union = current;
+        return current.permissions;
+    }
+
+    List<GrantedAuthority> cachedAuthorities(long version) {
+        Authorities current = authorities;
+        return current != null && current.version == version ? current.authorities : null;
+    }
+
+    void cacheAuthorities(long version, List<GrantedAuthority> list) {
+        authorities = new Authorities(version, list);
+    }
+
+    EffectivePermissionsCache.Entry cachedEffectivePermissions() {
+        return effectivePermissions;
+    }
+
+    void cacheEffectivePermissions(EffectivePermissionsCache.Entry entry) {
+        effectivePermissions = entry;
+    }
+
+    @Override
+    public String toString() {
+        return "RoleCombination" + Arrays.toString(roleIds);
+    }
+
+    private record Union(long policyVersion, long version, BitSet permissions) {
+    }
+
+    private record Authorities(long version, List<GrantedAuthority> authorities) {
+    }
+}
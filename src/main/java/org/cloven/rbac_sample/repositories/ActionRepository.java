@@ -1,13 +1,31 @@
 package org.cloven.rbac_sample.repositories;
 
+import jakarta.persistence.QueryHint;
+import org.cloven.rbac_sample.caching.ReferenceCache;
 import org.cloven.rbac_sample.models.Action;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
 import org.springframework.stereotype.Repository;
 
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface ActionRepository extends CrudRepository<Action, Integer> {
+public interface ActionRepository extends CrudRepository<Action, Integer>, JpaSpecificationExecutor<Action> {
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ReferenceCache.LOOKUPS)
+    })
     Optional<Action> findByName(String name);
     boolean existsByName(String name);
-} 
\ No newline at end of file
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<ActionRow> streamAllByOrderByIdAsc();
+
+    interface ActionRow {
+        String getName();
+        String getDescription();
+    }
+}
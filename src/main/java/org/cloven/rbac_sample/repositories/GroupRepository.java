@@ -0,0 +1,79 @@
+package org.cloven.rbac_sample.repositories;
+
+import jakarta.persistence.QueryHint;
+import org.cloven.rbac_sample.models.Group;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface GroupRepository extends JpaRepository<Group, Integer> {
+    Optional<Group> findByName(String name);
+    boolean existsByName(String name);
+
+    @Query(value = "select user_id from group_members where group_id = :groupId", nativeQuery = true)
+    List<Integer> findMemberIds(@Param("groupId") Integer groupId);
+
+    @Query(value = "select count(*) from group_members where group_id = :groupId", nativeQuery = true)
+    long countMembers(@Param("groupId") Integer groupId);
+
+    // Native writes name the table they change; otherwise Hibernate clears the whole second-level cache
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "group_members"))
+    @Query(value = "delete from group_members where group_id = :groupId and user_id = :userId", nativeQuery = true)
+    int removeMember(@Param("groupId") Integer groupId, @Param("userId") Integer userId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "group_members"))
+    @Query(value = "delete from group_members where user_id = :userId", nativeQuery = true)
+    int removeUserFromAllGroups(@Param("userId") Integer userId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "group_subgroups"))
+    @Query(value = "delete from group_subgroups where child_id = :groupId", nativeQuery = true)
+    int detachFromParents(@Param("groupId") Integer groupId);
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "group_roles"))
+    @Query(value = "delete from group_roles where role_id = :roleId", nativeQuery = true)
+    int removeRoleFromAllGroups(@Param("roleId") Integer roleId);
+
+    // Roles granted to the user's groups and to every group enclosing them
+    @Query(value = "with recursive enclosing(group_id) as ("
+            + "select group_id from group_members where user_id = :userId "
+            + "union select s.parent_id from group_subgroups s join enclosing e on s.child_id = e.group_id) "
+            + "select distinct r.role_id from group_roles r join enclosing e on r.group_id = e.group_id",
+            nativeQuery = true)
+    List<Integer> findInheritedRoleIds(@Param("userId") Integer userId);
+
+    @Query("select g.id as parentId, s.id as childId from Group g join g.subgroups s")
+    List<GroupEdge> findAllEdges();
+
+    @Query("select g.id as groupId, r.id as roleId from Group g join g.roles r")
+    List<GroupRoleAssignment> findAllRoleAssignments();
+
+    @Query("select g.id as groupId, m.id as userId from Group g join g.members m")
+    List<GroupMembership> findAllMemberships();
+
+    interface GroupEdge {
+        Integer getParentId();
+        Integer getChildId();
+    }
+
+    interface GroupRoleAssignment {
+        Integer getGroupId();
+        Integer getRoleId();
+    }
+
+    interface GroupMembership {
+        Integer getGroupId();
+        Integer getUserId();
+    }
+}
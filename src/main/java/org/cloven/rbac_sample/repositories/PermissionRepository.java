@@ -1,15 +1,87 @@
 package org.cloven.rbac_sample.repositories;
 
+import jakarta.persistence.QueryHint;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Path;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.cloven.rbac_sample.dtos.PermissionDto;
 import org.cloven.rbac_sample.models.Action;
 import org.cloven.rbac_sample.models.Permission;
 import org.cloven.rbac_sample.models.Resource;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface PermissionRepository extends CrudRepository<Permission, Integer> {
+public interface PermissionRepository extends CrudRepository<Permission, Integer>, JpaSpecificationExecutor<Permission> {
+    @Override
+    @EntityGraph(Permission.WITH_NAMES)
+    Iterable<Permission> findAll();
+
+    @Override
+    @EntityGraph(Permission.WITH_NAMES)
+    Optional<Permission> findById(Integer id);
+
     Optional<Permission> findByResourceAndAction(Resource resource, Action action);
     boolean existsByResourceAndAction(Resource resource, Action action);
-} 
\ No newline at end of file
+
+    // The subquery is served by the (tenant_id, permission_id, usage_date) index of the rollup
+    @EntityGraph(Permission.WITH_NAMES)
+    @Query("select p from Permission p where p.createdAt < :createdBefore and not exists "
+            + "(select u.id from PermissionUsage u where u.permissionId = p.id and u.usageDate >= :since) "
+            + "order by p.id")
+    List<Permission> findUnusedSince(@Param("since") LocalDate since, @Param("createdBefore") Date createdBefore);
+
+    @Query("select p.id from Permission p where p.id in :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    @Query("select p.id as id, p.resource.name as resource, p.action.name as action from Permission p")
+    List<PermissionKey> findAllKeys();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select p.resource.name as resource, p.action.name as action, p.description as description "
+            + "from Permission p order by p.id")
+    Stream<PermissionRow> streamAllForExport();
+
+    /**
+     * The columns of a {@link PermissionDto} for criteria queries.
+     */
+    static Selection<PermissionDto> dtoOf(Root<Permission> permission, CriteriaBuilder builder) {
+        // Implicit joins, which the resource and action name filters share
+        Path<Resource> resource = permission.get("resource");
+        Path<Action> action = permission.get("action");
+        return builder.construct(PermissionDto.class,
+                permission.get("id"),
+                builder.concat(builder.concat(resource.get("name"), ":"), action.get("name")),
+                permission.get("description"),
+                resource.get("id"), resource.get("name"), action.get("id"), action.get("name"),
+                permission.get("createdAt").as(LocalDateTime.class),
+                permission.get("updatedAt").as(LocalDateTime.class));
+    }
+
+    interface PermissionKey {
+        Integer getId();
+        String getResource();
+        String getAction();
+    }
+
+    interface PermissionRow {
+        String getResource();
+        String getAction();
+        String getDescription();
+    }
+}
@@ -0,0 +1,9 @@
+package org.cloven.rbac_sample.repositories;
+
+import org.cloven.rbac_sample.models.PermissionUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface PermissionUsageRepository extends JpaRepository<PermissionUsage, Long> {
+}
@@ -0,0 +1,19 @@
+package org.cloven.rbac_sample.repositories;
+
+import org.cloven.rbac_sample.models.PolicyChange;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PolicyChangeRepository extends JpaRepository<PolicyChange, Long> {
+    @Query("select max(c.id) from PolicyChange c")
+    Long findLatestRevision();
+
+    List<PolicyChange> findByIdGreaterThanOrderByIdAsc(Long revision);
+
+    List<PolicyChange> findAllByOrderByIdDesc(Pageable pageable);
+}
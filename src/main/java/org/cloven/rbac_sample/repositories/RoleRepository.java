@@ -1,13 +1,116 @@
 package org.cloven.rbac_sample.repositories;
 
+import jakarta.persistence.QueryHint;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.cloven.rbac_sample.caching.ReferenceCache;
+import org.cloven.rbac_sample.dtos.PermissionDto;
+import org.cloven.rbac_sample.dtos.RoleResponseDto;
 import org.cloven.rbac_sample.models.Role;
-import org.cloven.rbac_sample.models.RoleEnum;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface RoleRepository extends CrudRepository<Role, Integer> {
-    Optional<Role> findByName(RoleEnum name);
-}
\ No newline at end of file
+public interface RoleRepository extends CrudRepository<Role, Integer>, JpaSpecificationExecutor<Role> {
+    @Override
+    @EntityGraph(Role.WITH_PERMISSIONS)
+    Iterable<Role> findAll();
+
+    @Override
+    @EntityGraph(Role.WITH_PERMISSIONS)
+    Optional<Role> findById(Integer id);
+
+    @Override
+    @EntityGraph(Role.WITH_PERMISSIONS)
+    Iterable<Role> findAllById(Iterable<Integer> ids);
+
+    @EntityGraph(Role.WITH_PERMISSIONS)
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ReferenceCache.LOOKUPS)
+    })
+    Optional<Role> findByName(String name);
+
+    @QueryHints({
+            @QueryHint(name = HibernateHints.HINT_CACHEABLE, value = "true"),
+            @QueryHint(name = HibernateHints.HINT_CACHE_REGION, value = ReferenceCache.LOOKUPS)
+    })
+    @Query("select r.id from Role r where r.name = :name")
+    Optional<Integer> findIdByName(@Param("name") String name);
+
+    @Query("select r.id from Role r where r.id in :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    @Query("select r.id as id, r.name as name from Role r")
+    List<RoleName> findAllNames();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    Stream<RoleRow> streamAllByOrderByIdAsc();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select r.name as role, p.resource.name as resource, p.action.name as action "
+            + "from Role r join r.permissions p order by r.id, p.id")
+    Stream<RolePermissionRow> streamAllGrantsForExport();
+
+    @Query("select r.id as roleId, p.id as permissionId from Role r join r.permissions p")
+    List<RolePermissionIds> findAllGrantIds();
+
+    @Query("select new org.cloven.rbac_sample.repositories.RoleRepository$GrantedPermission(r.id, p.id, "
+            + "concat(res.name, ':', act.name), p.description, res.id, res.name, act.id, act.name, "
+            + "cast(p.createdAt as LocalDateTime), cast(p.updatedAt as LocalDateTime)) "
+            + "from Role r join r.permissions p join p.resource res join p.action act where r.id in :ids")
+    List<GrantedPermission> findGrantedPermissionsByRoleIdIn(@Param("ids") Collection<Integer> ids);
+
+    /**
+     * The columns of a {@link RoleResponseDto} for criteria queries; the permissions are read
+     * separately.
+     */
+    static Selection<RoleResponseDto> responseOf(Root<Role> role, CriteriaBuilder builder) {
+        return builder.construct(RoleResponseDto.class,
+                role.get("id"), role.get("name"), role.get("description"),
+                role.get("createdAt").as(LocalDateTime.class), role.get("updatedAt").as(LocalDateTime.class));
+    }
+
+    record GrantedPermission(Integer roleId, PermissionDto permission) {
+        public GrantedPermission(Integer roleId, Integer id, String name, String description,
+                                 Integer resourceId, String resourceName, Integer actionId, String actionName,
+                                 LocalDateTime createdAt, LocalDateTime updatedAt) {
+            this(roleId, new PermissionDto(id, name, description, resourceId, resourceName, actionId, actionName,
+                    createdAt, updatedAt));
+        }
+    }
+
+    interface RoleName {
+        Integer getId();
+        String getName();
+    }
+
+    interface RoleRow {
+        String getName();
+        String getDescription();
+    }
+
+    interface RolePermissionRow {
+        String getRole();
+        String getResource();
+        String getAction();
+    }
+
+    interface RolePermissionIds {
+        Integer getRoleId();
+        Integer getPermissionId();
+    }
+}
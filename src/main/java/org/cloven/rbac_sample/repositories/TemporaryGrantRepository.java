@@ -0,0 +1,31 @@
+package org.cloven.rbac_sample.repositories;
+
+import org.cloven.rbac_sample.models.TemporaryGrant;
+import org.cloven.rbac_sample.models.TemporaryGrantType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface TemporaryGrantRepository extends JpaRepository<TemporaryGrant, Integer> {
+    List<TemporaryGrant> findAllByOrderByExpiresAtAsc();
+
+    Optional<TemporaryGrant> findByTypeAndUserIdAndRoleId(TemporaryGrantType type, Integer userId, Integer roleId);
+
+    Optional<TemporaryGrant> findByTypeAndRoleIdAndPermissionId(TemporaryGrantType type, Integer roleId, Integer permissionId);
+
+    @Modifying
+    @Query("delete from TemporaryGrant g where g.type = org.cloven.rbac_sample.models.TemporaryGrantType.ROLE_TO_USER "
+            + "and g.userId = :userId and g.roleId = :roleId")
+    int deleteUserRoleGrant(@Param("userId") Integer userId, @Param("roleId") Integer roleId);
+
+    @Modifying
+    @Query("delete from TemporaryGrant g where g.type = org.cloven.rbac_sample.models.TemporaryGrantType.PERMISSION_TO_ROLE "
+            + "and g.roleId = :roleId and g.permissionId = :permissionId")
+    int deleteRolePermissionGrant(@Param("roleId") Integer roleId, @Param("permissionId") Integer permissionId);
+}
@@ -0,0 +1,9 @@
+package org.cloven.rbac_sample.repositories;
+
+import org.cloven.rbac_sample.models.Tenant;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface TenantRepository extends JpaRepository<Tenant, String> {
+}
@@ -1,13 +1,135 @@
 package org.cloven.rbac_sample.repositories;
 
+import jakarta.persistence.QueryHint;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.JoinType;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import org.cloven.rbac_sample.dtos.UserResponseDto;
+import org.cloven.rbac_sample.models.Role;
 import org.cloven.rbac_sample.models.User;
+import org.hibernate.jpa.HibernateHints;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Date;
+import java.util.List;
 import java.util.Optional;
+import java.util.stream.Stream;
 
 @Repository
-public interface UserRepository extends JpaRepository<User, Integer> {
+public interface UserRepository extends JpaRepository<User, Integer>, JpaSpecificationExecutor<User> {
+    // Timestamps are read as LocalDateTime by the driver instead of converted per row through the system zone
+    String USER_RESPONSE_COLUMNS = "u.id, u.email, u.fullName, r.name, r.id, "
+            + "cast(u.createdAt as LocalDateTime), cast(u.updatedAt as LocalDateTime), "
+            + "cast(u.lastLoginAt as LocalDateTime), cast(u.lastSeenAt as LocalDateTime)";
+
+    @Override
+    @EntityGraph(User.WITH_ROLES)
+    List<User> findAll();
+
+    @Override
+    @EntityGraph(User.WITH_ROLES)
+    Optional<User> findById(Integer id);
+
+    @Override
+    @EntityGraph(User.WITH_ROLES)
+    List<User> findAllById(Iterable<Integer> ids);
+
+    // Loaded to authenticate, so the principal can answer getAuthorities() on its own
+    @EntityGraph(User.WITH_AUTHORITIES)
     Optional<User> findByEmail(String email);
+
+    @EntityGraph(User.WITH_AUTHORITIES)
+    List<User> findAllByEmailIn(Collection<String> emails);
+
+    @EntityGraph(User.WITH_AUTHORITIES)
+    Optional<User> findWithAuthoritiesById(Integer id);
+
     boolean existsByEmail(String email);
-}
\ No newline at end of file
+
+    // Both served by the (tenant_id, last_seen_at) index
+    @EntityGraph(User.WITH_ROLES)
+    List<User> findByLastSeenAtBeforeOrderByLastSeenAtAsc(Date since);
+
+    @EntityGraph(User.WITH_ROLES)
+    List<User> findByLastSeenAtIsNullAndCreatedAtBefore(Date since);
+
+    @Query("select u.id from User u where u.id in :ids")
+    List<Integer> findExistingIds(@Param("ids") Collection<Integer> ids);
+
+    @Query("select u.id as id, u.role.id as roleId from User u")
+    List<UserRoleAssignment> findAllRoleAssignments();
+
+    @Query("select u.id as id, r.id as roleId from User u join u.additionalRoles r")
+    List<UserRoleAssignment> findAllAdditionalRoleAssignments();
+
+    @Modifying
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_NATIVE_SPACES, value = "user_roles"))
+    @Query(value = "delete from user_roles where role_id = :roleId", nativeQuery = true)
+    int removeAdditionalRole(@Param("roleId") Integer roleId);
+
+    @Query("select u.email from User u where u.email in :emails")
+    List<String> findExistingEmails(@Param("emails") Collection<String> emails);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select new org.cloven.rbac_sample.dtos.UserResponseDto(" + USER_RESPONSE_COLUMNS + ") "
+            + "from User u left join u.role r order by u.id")
+    Stream<UserResponseDto> streamResponsesByOrderById();
+
+    @Query("select u.id as userId, r.name as name from User u join u.additionalRoles r "
+            + "where u.id in :ids order by r.name")
+    List<AdditionalRoleName> findAdditionalRoleNamesByUserIdIn(@Param("ids") Collection<Integer> ids);
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.email as email, u.fullName as fullName, u.password as password, u.role.name as role "
+            + "from User u order by u.id")
+    Stream<UserRow> streamAllForExport();
+
+    @QueryHints(@QueryHint(name = HibernateHints.HINT_FETCH_SIZE, value = "1000"))
+    @Query("select u.email as email, r.name as role from User u join u.additionalRoles r order by u.id, r.id")
+    Stream<UserRoleRow> streamAdditionalRolesForExport();
+
+    /**
+     * The columns of a {@link UserResponseDto} for criteria queries; the additional roles are read
+     * separately.
+     */
+    static Selection<UserResponseDto> responseOf(Root<User> user, CriteriaBuilder builder) {
+        Join<User, Role> role = user.join("role", JoinType.LEFT);
+        return builder.construct(UserResponseDto.class,
+                user.get("id"), user.get("email"), user.get("fullName"), role.get("name"), role.get("id"),
+                user.get("createdAt").as(LocalDateTime.class), user.get("updatedAt").as(LocalDateTime.class),
+                user.get("lastLoginAt").as(LocalDateTime.class), user.get("lastSeenAt").as(LocalDateTime.class));
+    }
+
+    interface AdditionalRoleName {
+        Integer getUserId();
+        String getName();
+    }
+
+    interface UserRoleAssignment {
+        Integer getId();
+        Integer getRoleId();
+    }
+
+    interface UserRow {
+        String getEmail();
+        String getFullName();
+        String getPassword();
+        String getRole();
+    }
+
+    interface UserRoleRow {
+        String getEmail();
+        String getRole();
+    }
+}
@@ -1,7 +1,6 @@
 package org.cloven.rbac_sample.responses;
 
 import lombok.Data;
-import org.cloven.rbac_sample.models.RoleEnum;
 
 @Data
 public class JwtResponse {
@@ -11,9 +10,9 @@ public class JwtResponse {
     private Integer id;
     private String fullName;
     private String email;
-    private RoleEnum role;
+    private String role;
 
-    public JwtResponse(String token, String refreshToken, Integer id, String fullName, String email, RoleEnum role) {
+    public JwtResponse(String token, String refreshToken, Integer id, String fullName, String email, String role) {
         this.token = token;
         this.refreshToken = refreshToken;
         this.id = id;
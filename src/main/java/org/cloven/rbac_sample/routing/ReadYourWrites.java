@@ -0,0 +1,88 @@
+package org.cloven.rbac_sample.routing;
+
+import org.cloven.rbac_sample.tenancy.TenantContext;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.authentication.AnonymousAuthenticationToken;
+import org.springframework.security.core.Authentication;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Remembers which clients committed a write recently, so that their reads go to the primary
+ * until the replicas have applied it; {@code app.datasource.read-your-writes-ms} must exceed
+ * the replication lag. A client is the signed-in user of a request, or the remote address of a
+ * request before sign-in, so a registration is followed by a sign-in that finds the user.
+ * Work outside a request has no client and reads wherever its transaction goes.
+ */
+@Component
+public class ReadYourWrites {
+    private final long windowMs;
+    private final int maxClients;
+    private final Map<String, Long> lastWrites = new ConcurrentHashMap<>();
+
+    public ReadYourWrites(
+            @Value("${app.datasource.read-your-writes-ms:5000}") long windowMs,
+            @Value("${app.datasource.read-your-writes-clients:100000}") int maxClients) {
+        this.windowMs = windowMs;
+        this.maxClients = maxClients;
+    }
+
+    /**
+     * Whether the current client committed a write within the window.
+     */
+    public boolean isHeld() {
+        String client = currentClient();
+        Long writtenAt = client != null ? lastWrites.get(client) : null;
+        if (writtenAt == null) {
+            return false;
+        }
+        if (System.currentTimeMillis() - writtenAt < windowMs) {
+            return true;
+        }
+        lastWrites.remove(client, writtenAt);
+        return false;
+    }
+
+    /**
+     * Called when the current transaction may write; the client is held once it commits.
+     */
+    public void onWriteTransaction() {
+        String client = currentClient();
+        if (client == null || !TransactionSynchronizationManager.isSynchronizationActive()) {
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                recordWrite(client);
+            }
+        });
+    }
+
+    private void recordWrite(String client) {
+        if (lastWrites.size() >= maxClients) {
+            long expired = System.currentTimeMillis() - windowMs;
+            lastWrites.values().removeIf(writtenAt -> writtenAt <= expired);
+        }
+        lastWrites.put(client, System.currentTimeMillis());
+    }
+
+    private static String currentClient() {
+        Authentication authentication = SecurityContextHolder.getContext().getAuthentication();
+        if (authentication != null && authentication.isAuthenticated()
+                && !(authentication instanceof AnonymousAuthenticationToken)) {
+            return TenantContext.get() + "/" + authentication.getName();
+        }
+        if (RequestContextHolder.getRequestAttributes() instanceof ServletRequestAttributes request) {
+            return TenantContext.get() + "@" + request.getRequest().getRemoteAddr();
+        }
+        return null;
+    }
+}
@@ -0,0 +1,142 @@
+package org.cloven.rbac_sample.routing;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.jdbc.datasource.AbstractDataSource;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import javax.sql.DataSource;
+import java.io.Closeable;
+import java.io.IOException;
+import java.sql.Connection;
+import java.sql.SQLException;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Sends the work of read-only transactions to the read replicas, round robin, and everything
+ * else to the primary: read-write transactions, statements outside a transaction, reads pinned
+ * with {@link RoutingContext}, and reads of a client that committed a write within the
+ * {@link ReadYourWrites} window. A replica that cannot hand out a connection is skipped for the
+ * primary.
+ *
+ * The target is chosen when a connection is requested, so this must sit behind a
+ * {@code LazyConnectionDataSourceProxy}: transaction managers ask for the connection before they
+ * mark the transaction read-only, and the proxy defers that until the first statement.
+ *
+ * Each connection handed out is counted in rbac.datasource.connections by target and reason;
+ * rbac.datasource.replica.share is the part of them that left the primary.
+ */
+public class ReplicaRoutingDataSource extends AbstractDataSource implements Closeable {
+    private static final Logger logger = LoggerFactory.getLogger(ReplicaRoutingDataSource.class);
+
+    private final DataSource primary;
+    private final List<DataSource> replicas;
+    private final ReadYourWrites readYourWrites;
+    private final AtomicInteger next = new AtomicInteger();
+    private final Map<Reason, Counter> connections = new EnumMap<>(Reason.class);
+
+    public ReplicaRoutingDataSource(DataSource primary, List<DataSource> replicas, ReadYourWrites readYourWrites,
+                                    MeterRegistry meterRegistry) {
+        this.primary = primary;
+        this.replicas = List.copyOf(replicas);
+        this.readYourWrites = readYourWrites;
+        for (Reason reason : Reason.values()) {
+            connections.put(reason, Counter.builder("rbac.datasource.connections")
+                    .description("Connections handed out, by the database that served them and why")
+                    .tag("target", reason == Reason.READ_ONLY ? "replica" : "primary")
+                    .tag("reason", reason.tag)
+                    .register(meterRegistry));
+        }
+        Gauge.builder("rbac.datasource.replica.share", this, ReplicaRoutingDataSource::replicaShare)
+                .description("Part of all connections that the read replicas served")
+                .register(meterRegistry);
+    }
+
+    @Override
+    public Connection getConnection() throws SQLException {
+        return route(DataSource::getConnection);
+    }
+
+    @Override
+    public Connection getConnection(String username, String password) throws SQLException {
+        return route(dataSource -> dataSource.getConnection(username, password));
+    }
+
+    private Connection route(ConnectionSource source) throws SQLException {
+        if (!TransactionSynchronizationManager.isActualTransactionActive()) {
+            return fromPrimary(source, Reason.NO_TRANSACTION);
+        }
+        if (!TransactionSynchronizationManager.isCurrentTransactionReadOnly()) {
+            readYourWrites.onWriteTransaction();
+            return fromPrimary(source, Reason.READ_WRITE);
+        }
+        if (replicas.isEmpty()) {
+            return fromPrimary(source, Reason.NO_REPLICA);
+        }
+        if (RoutingContext.isPinnedToPrimary()) {
+            return fromPrimary(source, Reason.PINNED);
+        }
+        if (readYourWrites.isHeld()) {
+            return fromPrimary(source, Reason.READ_YOUR_WRITES);
+        }
+        int replica = Math.floorMod(next.getAndIncrement(), replicas.size());
+        try {
+            Connection connection = source.get(replicas.get(replica));
+            connections.get(Reason.READ_ONLY).increment();
+            return connection;
+        } catch (SQLException e) {
+            logger.warn("Read replica {} unavailable, reading from the primary: {}", replica, e.getMessage());
+            return fromPrimary(source, Reason.REPLICA_FAILED);
+        }
+    }
+
+    private Connection fromPrimary(ConnectionSource source, Reason reason) throws SQLException {
+        Connection connection = source.get(primary);
+        connections.get(reason).increment();
+        return connection;
+    }
+
+    private double replicaShare() {
+        double total = connections.values().stream().mapToDouble(Counter::count).sum();
+        return total == 0 ? Double.NaN : connections.get(Reason.READ_ONLY).count() / total;
+    }
+
+    /**
+     * Closes the replica pools; the primary pool is a bean of its own.
+     */
+    @Override
+    public void close() throws IOException {
+        for (DataSource replica : replicas) {
+            if (replica instanceof Closeable closeable) {
+                closeable.close();
+            }
+        }
+    }
+
+    private enum Reason {
+        READ_ONLY("read-only"),
+        READ_WRITE("read-write"),
+        NO_TRANSACTION("no-transaction"),
+        NO_REPLICA("no-replica"),
+        PINNED("pinned"),
+        READ_YOUR_WRITES("read-your-writes"),
+        REPLICA_FAILED("replica-failed");
+
+        private final String tag;
+
+        Reason(String tag) {
+            this.tag = tag;
+        }
+    }
+
+    @FunctionalInterface
+    private interface ConnectionSource {
+        Connection get(DataSource dataSource) throws SQLException;
+    }
+}
@@ -0,0 +1,43 @@
+package org.cloven.rbac_sample.routing;
+
+import java.util.function.Supplier;
+
+/**
+ * Whether the current thread's reads must go to the primary even in read-only transactions.
+ * State built from the database and kept in memory pins its reads with {@link #callOnPrimary},
+ * since a replica may not have applied the commit that triggered the rebuild yet.
+ */
+public final class RoutingContext {
+    private static final ThreadLocal<Boolean> ON_PRIMARY = new ThreadLocal<>();
+
+    private RoutingContext() {
+    }
+
+    public static boolean isPinnedToPrimary() {
+        return Boolean.TRUE.equals(ON_PRIMARY.get());
+    }
+
+    /**
+     * Runs a task with all its reads on the primary and restores the previous routing afterwards.
+     */
+    public static <T> T callOnPrimary(Supplier<T> task) {
+        Boolean previous = ON_PRIMARY.get();
+        ON_PRIMARY.set(Boolean.TRUE);
+        try {
+            return task.get();
+        } finally {
+            if (previous != null) {
+                ON_PRIMARY.set(previous);
+            } else {
+                ON_PRIMARY.remove();
+            }
+        }
+    }
+
+    public static void runOnPrimary(Runnable task) {
+        callOnPrimary(() -> {
+            task.run();
+            return null;
+        });
+    }
+}
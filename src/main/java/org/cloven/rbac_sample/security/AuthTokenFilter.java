@@ -1,23 +1,33 @@
 package org.cloven.rbac_sample.security;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.servlet.FilterChain;
 import jakarta.servlet.ServletException;
 import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
+import org.cloven.rbac_sample.activity.ActivityTracker;
+import org.cloven.rbac_sample.models.User;
+import org.cloven.rbac_sample.policy.PermissionIndex;
+import org.cloven.rbac_sample.policy.RoleCombination;
+import org.cloven.rbac_sample.responses.ErrorResponse;
 import org.cloven.rbac_sample.services.JwtService;
+import org.cloven.rbac_sample.services.TenantService;
+import org.cloven.rbac_sample.tenancy.TenantContext;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.GrantedAuthority;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.security.core.userdetails.UserDetails;
-import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.web.authentication.WebAuthenticationDetailsSource;
 import org.springframework.stereotype.Component;
 import org.springframework.util.StringUtils;
 import org.springframework.web.filter.OncePerRequestFilter;
 
 import java.io.IOException;
+import java.util.Collection;
 
 @Component
 public class AuthTokenFilter extends OncePerRequestFilter {
@@ -25,38 +35,103 @@ public class AuthTokenFilter extends OncePerRequestFilter {
     private JwtService jwtService;
 
     @Autowired
-    private UserDetailsService userDetailsService;
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private PermissionIndex permissionIndex;
+
+    @Autowired
+    private TenantService tenantService;
+
+    @Autowired
+    private ObjectMapper objectMapper;
+
+    @Autowired
+    private ActivityTracker activityTracker;
+
+    public static final String TENANT_HEADER = "X-Tenant-ID";
 
     private static final Logger logger = LoggerFactory.getLogger(AuthTokenFilter.class);
 
     @Override
     protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain filterChain)
             throws ServletException, IOException {
+        String jwt = parseJwt(request);
+        boolean validJwt = jwt != null && jwtService.validateToken(jwt);
+        // A signed-in user always works in the tenant of their token; the header only selects the
+        // tenant for sign-in and registration
+        String tenantId = validJwt ? jwtService.extractTenant(jwt) : request.getHeader(TENANT_HEADER);
+        if (tenantId != null && !tenantService.isKnownTenant(tenantId)) {
+            rejectTenant(request, response, tenantId);
+            return;
+        }
+
+        TenantContext.set(tenantId);
         try {
-            String jwt = parseJwt(request);
-            if (jwt != null && jwtService.validateToken(jwt)) {
+            authenticate(request, validJwt ? jwt : null);
+            filterChain.doFilter(request, response);
+        } finally {
+            TenantContext.clear();
+        }
+    }
+
+    private void authenticate(HttpServletRequest request, String jwt) {
+        try {
+            if (jwt != null) {
                 String username = jwtService.extractUsername(jwt);
                 
                 if (username != null && SecurityContextHolder.getContext().getAuthentication() == null) {
-                    UserDetails userDetails = userDetailsService.loadUserByUsername(username);
+                    UserDetails userDetails = principalCache.load(username);
                     
                     if (jwtService.isTokenValid(jwt, userDetails)) {
                         UsernamePasswordAuthenticationToken authentication =
                                 new UsernamePasswordAuthenticationToken(
                                         userDetails,
                                         null,
-                                        userDetails.getAuthorities());
+                                        authoritiesOf(userDetails));
                         authentication.setDetails(new WebAuthenticationDetailsSource().buildDetails(request));
                         
                         SecurityContextHolder.getContext().setAuthentication(authentication);
+                        if (userDetails instanceof User user) {
+                            activityTracker.recordSeen(user);
+                        }
                     }
                 }
             }
         } catch (Exception e) {
             logger.error("Cannot set user authentication: {}", e.getMessage());
         }
+    }
+
+    private void rejectTenant(HttpServletRequest request, HttpServletResponse response, String tenantId)
+            throws IOException {
+        logger.warn("Rejected request for unknown tenant: {}", tenantId);
+
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.setStatus(HttpServletResponse.SC_BAD_REQUEST);
 
-        filterChain.doFilter(request, response);
+        ErrorResponse errorResponse = new ErrorResponse(
+                HttpServletResponse.SC_BAD_REQUEST,
+                "Bad Request",
+                "Unknown tenant: " + tenantId,
+                request.getServletPath()
+        );
+
+        objectMapper.writeValue(response.getOutputStream(), errorResponse);
+    }
+
+    /**
+     * Takes the authorities of our own users from the permission index, where they are built once
+     * per role combination and version, instead of mapping the role's permissions on every request.
+     */
+    private Collection<? extends GrantedAuthority> authoritiesOf(UserDetails userDetails) {
+        if (userDetails instanceof User user) {
+            RoleCombination combination = permissionIndex.combinationOf(user.getId());
+            if (combination != null) {
+                return permissionIndex.authoritiesOf(combination);
+            }
+        }
+        return userDetails.getAuthorities();
     }
 
     private String parseJwt(HttpServletRequest request) {
@@ -0,0 +1,188 @@
+package org.cloven.rbac_sample.security;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import org.cloven.rbac_sample.models.User;
+import org.cloven.rbac_sample.policy.DegradedMode;
+import org.cloven.rbac_sample.tenancy.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.Iterator;
+import java.util.Map;
+import java.util.concurrent.*;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Stale-while-revalidate cache of the principals behind JWTs, so authenticating a request does
+ * not need the database.
+ *
+ * A principal younger than {@code app.degraded.principal-refresh-ms} is served as is. An older
+ * one is still served, and reloaded in the background; if the reload fails the cached copy keeps
+ * being served until it is {@code app.degraded.max-staleness-ms} old, after which the request has
+ * to load it and fails with the database. Only a principal not seen before waits for the database.
+ * Authorities do not come from here but from the {@link org.cloven.rbac_sample.policy.PermissionIndex},
+ * so role and permission changes apply at once.
+ */
+@Component
+public class PrincipalCache {
+    private static final Logger logger = LoggerFactory.getLogger(PrincipalCache.class);
+
+    private final UserDetailsService userDetailsService;
+    private final DegradedMode degradedMode;
+    private final long refreshAfterMs;
+    private final long maxStalenessMs;
+    private final int maxSize;
+    private final Map<Key, Entry> entries = new ConcurrentHashMap<>();
+    private final Counter fresh;
+    private final Counter stale;
+    private final Counter misses;
+    private final ExecutorService revalidator = new ThreadPoolExecutor(1, 2, 30, TimeUnit.SECONDS,
+            new LinkedBlockingQueue<>(1024), runnable -> {
+                Thread thread = new Thread(runnable, "principal-revalidation");
+                thread.setDaemon(true);
+                return thread;
+            });
+
+    public PrincipalCache(
+            UserDetailsService userDetailsService,
+            DegradedMode degradedMode,
+            MeterRegistry meterRegistry,
+            @Value("${app.degraded.principal-refresh-ms:30000}") long refreshAfterMs,
+            @Value("${app.degraded.max-staleness-ms:300000}") long maxStalenessMs,
+            @Value("${app.degraded.principal-cache-size:10000}") int maxSize) {
+        this.userDetailsService = userDetailsService;
+        this.degradedMode = degradedMode;
+        this.refreshAfterMs = refreshAfterMs;
+        this.maxStalenessMs = maxStalenessMs;
+        this.maxSize = maxSize;
+        this.fresh = requests(meterRegistry, "fresh");
+        this.stale = requests(meterRegistry, "stale");
+        this.misses = requests(meterRegistry, "miss");
+        Gauge.builder("rbac.principal.cache.size", entries, Map::size).register(meterRegistry);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        revalidator.shutdownNow();
+    }
+
+    public UserDetails load(String username) {
+        Key key = new Key(TenantContext.get(), username);
+        Entry entry = entries.get(key);
+        if (entry != null) {
+            long age = System.currentTimeMillis() - entry.loadedAt;
+            if (age < refreshAfterMs) {
+                fresh.increment();
+                return entry.principal;
+            }
+            if (age <= maxStalenessMs) {
+                stale.increment();
+                degradedMode.recordStaleServed();
+                revalidate(key, entry);
+                return entry.principal;
+            }
+            entries.remove(key, entry);
+        }
+
+        misses.increment();
+        UserDetails principal = fetch(username);
+        put(key, new Entry(principal));
+        return principal;
+    }
+
+    /**
+     * Drops a user's cached principal, e.g. after the user was deleted or renamed. Inside a
+     * transaction this waits for the commit, as the permission index does: evicted earlier, a
+     * concurrent request could load the row not yet changed and cache it again.
+     */
+    public void evictUser(Integer userId) {
+        Runnable evict = () -> entries.values()
+                .removeIf(entry -> entry.principal instanceof User user && userId.equals(user.getId()));
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    evict.run();
+                }
+            });
+        } else {
+            evict.run();
+        }
+    }
+
+    private void revalidate(Key key, Entry entry) {
+        if (!entry.refreshing.compareAndSet(false, true)) {
+            return;
+        }
+        try {
+            revalidator.execute(() -> TenantContext.runAs(key.tenantId(), () -> {
+                try {
+                    entries.replace(key, entry, new Entry(fetch(key.username())));
+                } catch (UsernameNotFoundException e) {
+                    entries.remove(key, entry);
+                } catch (RuntimeException e) {
+                    logger.warn("Could not revalidate principal {}: {}", key.username(), e.getMessage());
+                    entry.refreshing.set(false);
+                }
+            }));
+        } catch (RejectedExecutionException e) {
+            entry.refreshing.set(false);
+        }
+    }
+
+    private UserDetails fetch(String username) {
+        try {
+            UserDetails principal = userDetailsService.loadUserByUsername(username);
+            degradedMode.recordSuccess();
+            return principal;
+        } catch (UsernameNotFoundException e) {
+            degradedMode.recordSuccess();
+            throw e;
+        } catch (RuntimeException e) {
+            degradedMode.recordFailure(e);
+            throw e;
+        }
+    }
+
+    private void put(Key key, Entry entry) {
+        if (entries.size() >= maxSize) {
+            // Approximate bound: drop whatever the map yields first
+            Iterator<Key> keys = entries.keySet().iterator();
+            if (keys.hasNext()) {
+                keys.next();
+                keys.remove();
+            }
+        }
+        entries.put(key, entry);
+    }
+
+    private static Counter requests(MeterRegistry meterRegistry, String result) {
+        return Counter.builder("rbac.principal.cache.requests")
+                .description("Principal lookups by whether they were served fresh, stale or loaded")
+                .tag("result", result)
+                .register(meterRegistry);
+    }
+
+    private record Key(String tenantId, String username) {
+    }
+
+    private static final class Entry {
+        private final UserDetails principal;
+        private final long loadedAt = System.currentTimeMillis();
+        private final AtomicBoolean refreshing = new AtomicBoolean();
+
+        private Entry(UserDetails principal) {
+            this.principal = principal;
+        }
+    }
+}
@@ -1,6 +1,7 @@
 package org.cloven.rbac_sample.security;
 
 import org.cloven.rbac_sample.models.User;
+import org.cloven.rbac_sample.tenancy.TenantContext;
 import org.springframework.security.core.Authentication;
 import org.springframework.security.core.context.SecurityContextHolder;
 import org.springframework.stereotype.Component;
@@ -22,4 +23,8 @@ public class UserSecurity {
         User user = (User) principal;
         return user.getId().equals(userId);
     }
+
+    public boolean isDefaultTenant() {
+        return TenantContext.DEFAULT_TENANT.equals(TenantContext.get());
+    }
 } 
\ No newline at end of file
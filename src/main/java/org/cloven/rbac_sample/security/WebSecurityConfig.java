@@ -1,5 +1,6 @@
 package org.cloven.rbac_sample.security;
 
+import org.cloven.rbac_sample.limiter.ConcurrencyLimitFilter;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
@@ -28,6 +29,9 @@ public class WebSecurityConfig {
     
     @Autowired
     private AuthTokenFilter authTokenFilter;
+
+    @Autowired
+    private ConcurrencyLimitFilter concurrencyLimitFilter;
     
     // Define AuthenticationManager bean
     @Bean
@@ -63,6 +67,10 @@ public class WebSecurityConfig {
                         // Test endpoints and errors
                         .requestMatchers(new AntPathRequestMatcher("/api/test/**")).permitAll()
                         .requestMatchers(new AntPathRequestMatcher("/error")).permitAll()
+
+                        // Health probes; metrics and other actuator endpoints are for admins
+                        .requestMatchers(new AntPathRequestMatcher("/actuator/health/**")).permitAll()
+                        .requestMatchers(new AntPathRequestMatcher("/actuator/**")).hasRole("ADMIN")
                         
                         // Secure all other endpoints
                         .anyRequest().authenticated()
@@ -70,6 +78,8 @@ public class WebSecurityConfig {
                 .sessionManagement(session -> session
                         .sessionCreationPolicy(SessionCreationPolicy.STATELESS)
                 )
+                // Shed excess load before the token is parsed
+                .addFilterBefore(concurrencyLimitFilter, UsernamePasswordAuthenticationFilter.class)
                 .addFilterBefore(authTokenFilter, UsernamePasswordAuthenticationFilter.class)
                 .cors(cors -> cors.configurationSource(corsConfigurationSource()))
                 // Allow frames for H2 console
@@ -83,7 +93,8 @@ public class WebSecurityConfig {
 
         configuration.setAllowedOrigins(List.of("http://localhost:8005", "http://localhost:5173", "http://localhost:5174"));
         configuration.setAllowedMethods(List.of("GET", "POST", "PUT", "DELETE"));
-        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type"));
+        configuration.setAllowedHeaders(List.of("Authorization", "Content-Type", "If-None-Match", AuthTokenFilter.TENANT_HEADER));
+        configuration.setExposedHeaders(List.of("ETag"));
 
         UrlBasedCorsConfigurationSource source = new UrlBasedCorsConfigurationSource();
         source.registerCorsConfiguration("/**", configuration);
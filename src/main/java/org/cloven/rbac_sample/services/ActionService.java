@@ -1,30 +1,47 @@
 package org.cloven.rbac_sample.services;
 
 import org.cloven.rbac_sample.dtos.ActionDto;
+import org.cloven.rbac_sample.dtos.PageDto;
 import org.cloven.rbac_sample.exceptions.ResourceAlreadyExistsException;
 import org.cloven.rbac_sample.exceptions.ResourceNotFoundException;
 import org.cloven.rbac_sample.models.Action;
+import org.cloven.rbac_sample.paging.Filters;
+import org.cloven.rbac_sample.paging.Keyset;
+import org.cloven.rbac_sample.paging.KeysetRequest;
+import org.cloven.rbac_sample.policy.PermissionIndex;
 import org.cloven.rbac_sample.repositories.ActionRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
+import java.time.Instant;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
 public class ActionService {
+    private static final Set<String> ACTION_SORTS = Set.of("id", "name", "createdAt");
+
     private final ActionRepository actionRepository;
+    private final PermissionIndex permissionIndex;
 
     @Autowired
-    public ActionService(ActionRepository actionRepository) {
+    public ActionService(ActionRepository actionRepository, PermissionIndex permissionIndex) {
         this.actionRepository = actionRepository;
+        this.permissionIndex = permissionIndex;
     }
 
-    public List<Action> getAllActions() {
-        List<Action> actions = new ArrayList<>();
-        actionRepository.findAll().forEach(actions::add);
-        return actions;
+    /**
+     * One page of the actions, optionally only those whose name starts with a prefix or created
+     * after a point in time.
+     */
+    @Transactional(readOnly = true)
+    public PageDto<Action> getActions(String namePrefix, Instant createdAfter, KeysetRequest page) {
+        Specification<Action> filter = Specification.where(Filters.<Action>startsWith("name", namePrefix))
+                .and(Filters.createdAfter(createdAfter));
+        return Keyset.page(actionRepository, filter, page, ACTION_SORTS, List.of(), Function.identity());
     }
 
     public Action getActionById(Integer id) {
@@ -61,6 +78,8 @@ public class ActionService {
                 throw new ResourceAlreadyExistsException("Action already exists with name: " + actionDto.getName());
             }
             action.setName(actionDto.getName());
+            // Permission names are derived from the action name
+            permissionIndex.onPolicyStructureChanged();
         }
         
         if (actionDto.getDescription() != null) {
@@ -76,5 +95,6 @@ public class ActionService {
             throw new ResourceNotFoundException("Action not found with id: " + id);
         }
         actionRepository.deleteById(id);
+        permissionIndex.onPolicyStructureChanged();
     }
 } 
\ No newline at end of file
@@ -8,8 +8,10 @@ import org.cloven.rbac_sample.dtos.RefreshTokenResponse; // Added import
 import org.cloven.rbac_sample.models.Role;
 import org.cloven.rbac_sample.models.RoleEnum;
 import org.cloven.rbac_sample.models.User;
+import org.cloven.rbac_sample.policy.PermissionIndex;
 import org.cloven.rbac_sample.repositories.RoleRepository;
 import org.cloven.rbac_sample.repositories.UserRepository;
+import org.cloven.rbac_sample.tenancy.TenantContext;
 import org.springframework.security.authentication.AuthenticationManager;
 import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.core.userdetails.UserDetails; // Added import
@@ -28,24 +30,27 @@ public class AuthenticationService {
     private final AuthenticationManager authenticationManager;
     private final RoleRepository roleRepository;
     private final JwtService jwtService; // Added JwtService dependency
+    private final PermissionIndex permissionIndex;
 
     public AuthenticationService(
             UserRepository userRepository,
             AuthenticationManager authenticationManager,
             PasswordEncoder passwordEncoder,
             RoleRepository roleRepository,
-            JwtService jwtService) { // Added JwtService to constructor
+            JwtService jwtService, // Added JwtService to constructor
+            PermissionIndex permissionIndex) {
         this.authenticationManager = authenticationManager;
         this.userRepository = userRepository;
         this.passwordEncoder = passwordEncoder;
         this.roleRepository = roleRepository;
         this.jwtService = jwtService; // Initialize JwtService
+        this.permissionIndex = permissionIndex;
     }
 
     @Transactional
     public User signup(RegisterUserDto input) {
 
-        Optional<Role> optionalRole = roleRepository.findByName(RoleEnum.USER);
+        Optional<Role> optionalRole = roleRepository.findByName(RoleEnum.USER.name());
 
         if (optionalRole.isEmpty()) {
             throw new RuntimeException("Default user role not found. Database may not be properly initialized");
@@ -56,7 +61,9 @@ public class AuthenticationService {
                 .setEmail(input.getEmail())
                 .setPassword(passwordEncoder.encode(input.getPassword()))
                 .setRole(optionalRole.get());
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        permissionIndex.onUserSaved(savedUser);
+        return savedUser;
     }
 
    public User authenticate(LoginUserDto input) {
@@ -73,6 +80,11 @@ public class AuthenticationService {
 
     public RefreshTokenResponse refreshToken(RefreshTokenRequest request) {
         String refreshToken = request.getRefreshToken();
+        // The refresh endpoint is public, so the tenant comes from the token rather than the request
+        return TenantContext.callAs(jwtService.extractTenant(refreshToken), () -> refreshToken(refreshToken));
+    }
+
+    private RefreshTokenResponse refreshToken(String refreshToken) {
         String username = jwtService.extractUsername(refreshToken);
 
         User user = userRepository.findByEmail(username)
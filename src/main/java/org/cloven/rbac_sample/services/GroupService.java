@@ -0,0 +1,197 @@
+package org.cloven.rbac_sample.services;
+
+import org.cloven.rbac_sample.dtos.GroupDto;
+import org.cloven.rbac_sample.dtos.GroupResponseDto;
+import org.cloven.rbac_sample.exceptions.InvalidRequestException;
+import org.cloven.rbac_sample.exceptions.ResourceAlreadyExistsException;
+import org.cloven.rbac_sample.exceptions.ResourceNotFoundException;
+import org.cloven.rbac_sample.models.Group;
+import org.cloven.rbac_sample.models.Role;
+import org.cloven.rbac_sample.policy.PermissionIndex;
+import org.cloven.rbac_sample.repositories.GroupRepository;
+import org.cloven.rbac_sample.repositories.RoleRepository;
+import org.cloven.rbac_sample.repositories.UserRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.*;
+
+@Service
+public class GroupService {
+    private static final int MEMBER_BATCH_SIZE = 500;
+
+    private final GroupRepository groupRepository;
+    private final RoleRepository roleRepository;
+    private final UserRepository userRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PermissionIndex permissionIndex;
+
+    @Autowired
+    public GroupService(
+            GroupRepository groupRepository,
+            RoleRepository roleRepository,
+            UserRepository userRepository,
+            JdbcTemplate jdbcTemplate,
+            PermissionIndex permissionIndex) {
+        this.groupRepository = groupRepository;
+        this.roleRepository = roleRepository;
+        this.userRepository = userRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.permissionIndex = permissionIndex;
+    }
+
+    @Transactional(readOnly = true)
+    public List<GroupResponseDto> getAllGroups() {
+        List<GroupResponseDto> groups = new ArrayList<>();
+        groupRepository.findAll().forEach(group ->
+                groups.add(GroupResponseDto.fromEntity(group, groupRepository.countMembers(group.getId()))));
+        return groups;
+    }
+
+    @Transactional(readOnly = true)
+    public GroupResponseDto getGroup(Integer id) {
+        Group group = getGroupById(id);
+        return GroupResponseDto.fromEntity(group, groupRepository.countMembers(id));
+    }
+
+    @Transactional(readOnly = true)
+    public List<Integer> getMemberIds(Integer id) {
+        getGroupById(id);
+        List<Integer> memberIds = new ArrayList<>(groupRepository.findMemberIds(id));
+        Collections.sort(memberIds);
+        return memberIds;
+    }
+
+    @Transactional
+    public GroupResponseDto createGroup(GroupDto groupDto) {
+        if (groupRepository.existsByName(groupDto.getName())) {
+            throw new ResourceAlreadyExistsException("Group already exists with name: " + groupDto.getName());
+        }
+
+        Group group = new Group()
+                .setName(groupDto.getName())
+                .setDescription(groupDto.getDescription());
+
+        Group savedGroup = groupRepository.saveAndFlush(group);
+        permissionIndex.onGroupCreated(savedGroup.getId());
+        return GroupResponseDto.fromEntity(savedGroup, 0);
+    }
+
+    @Transactional
+    public GroupResponseDto updateGroup(Integer id, GroupDto groupDto) {
+        Group group = getGroupById(id);
+
+        if (groupDto.getName() != null && !group.getName().equals(groupDto.getName())) {
+            if (groupRepository.existsByName(groupDto.getName())) {
+                throw new ResourceAlreadyExistsException("Group already exists with name: " + groupDto.getName());
+            }
+            group.setName(groupDto.getName());
+        }
+
+        if (groupDto.getDescription() != null) {
+            group.setDescription(groupDto.getDescription());
+        }
+
+        return GroupResponseDto.fromEntity(groupRepository.save(group), groupRepository.countMembers(id));
+    }
+
+    @Transactional
+    public void deleteGroup(Integer id) {
+        if (!groupRepository.existsById(id)) {
+            throw new ResourceNotFoundException("Group not found with id: " + id);
+        }
+        groupRepository.detachFromParents(id);
+        groupRepository.deleteById(id);
+        permissionIndex.onGroupDeleted(id);
+    }
+
+    @Transactional
+    public GroupResponseDto addSubgroup(Integer parentId, Integer childId) {
+        Group parent = getGroupById(parentId);
+        Group child = getGroupById(childId);
+        if (permissionIndex.wouldCreateCycle(parentId, childId)) {
+            throw new InvalidRequestException("Group " + childId + " already contains group " + parentId);
+        }
+
+        parent.getSubgroups().add(child);
+        groupRepository.save(parent);
+        permissionIndex.onSubgroupAdded(parentId, childId);
+        return GroupResponseDto.fromEntity(parent, groupRepository.countMembers(parentId));
+    }
+
+    @Transactional
+    public GroupResponseDto removeSubgroup(Integer parentId, Integer childId) {
+        Group parent = getGroupById(parentId);
+
+        if (parent.getSubgroups().removeIf(group -> group.getId().equals(childId))) {
+            groupRepository.save(parent);
+            permissionIndex.onSubgroupRemoved(parentId, childId);
+        }
+        return GroupResponseDto.fromEntity(parent, groupRepository.countMembers(parentId));
+    }
+
+    @Transactional
+    public GroupResponseDto assignRoleToGroup(Integer groupId, Integer roleId) {
+        Group group = getGroupById(groupId);
+        Role role = roleRepository.findById(roleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Role not found with id: " + roleId));
+
+        group.getRoles().add(role);
+        groupRepository.save(group);
+        permissionIndex.onGroupRoleGranted(groupId, roleId);
+        return GroupResponseDto.fromEntity(group, groupRepository.countMembers(groupId));
+    }
+
+    @Transactional
+    public GroupResponseDto revokeRoleFromGroup(Integer groupId, Integer roleId) {
+        Group group = getGroupById(groupId);
+
+        if (group.getRoles().removeIf(role -> role.getId().equals(roleId))) {
+            groupRepository.save(group);
+            permissionIndex.onGroupRoleRevoked(groupId, roleId);
+        }
+        return GroupResponseDto.fromEntity(group, groupRepository.countMembers(groupId));
+    }
+
+    /**
+     * Adds users to a group with batched inserts into the membership table, without loading the
+     * users or the group's current members as entities. Users already in the group are skipped.
+     */
+    @Transactional
+    public GroupResponseDto addMembers(Integer groupId, List<Integer> userIds) {
+        Group group = getGroupById(groupId);
+
+        Set<Integer> requested = new LinkedHashSet<>(userIds);
+        Set<Integer> existing = new HashSet<>(userRepository.findExistingIds(requested));
+        List<Integer> missing = requested.stream().filter(id -> !existing.contains(id)).limit(10).toList();
+        if (!missing.isEmpty()) {
+            throw new ResourceNotFoundException("Users not found with ids: " + missing);
+        }
+
+        requested.removeAll(groupRepository.findMemberIds(groupId));
+        List<Integer> added = new ArrayList<>(requested);
+        jdbcTemplate.batchUpdate("insert into group_members (group_id, user_id) values (?, ?)", added,
+                MEMBER_BATCH_SIZE, (statement, userId) -> {
+                    statement.setInt(1, groupId);
+                    statement.setInt(2, userId);
+                });
+        permissionIndex.onGroupMembersAdded(groupId, added);
+        return GroupResponseDto.fromEntity(group, groupRepository.countMembers(groupId));
+    }
+
+    @Transactional
+    public void removeMember(Integer groupId, Integer userId) {
+        getGroupById(groupId);
+        if (groupRepository.removeMember(groupId, userId) == 0) {
+            throw new ResourceNotFoundException("User " + userId + " is not a member of group " + groupId);
+        }
+        permissionIndex.onGroupMemberRemoved(groupId, userId);
+    }
+
+    private Group getGroupById(Integer id) {
+        return groupRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Group not found with id: " + id));
+    }
+}
@@ -5,6 +5,8 @@ import io.jsonwebtoken.Jwts;
 import io.jsonwebtoken.SignatureAlgorithm;
 import io.jsonwebtoken.io.Decoders;
 import io.jsonwebtoken.security.Keys;
+import org.cloven.rbac_sample.models.User;
+import org.cloven.rbac_sample.tenancy.TenantContext;
 import org.slf4j.Logger; // Added import
 import org.slf4j.LoggerFactory; // Added import
 import org.springframework.beans.factory.annotation.Value;
@@ -23,6 +25,7 @@ import java.util.stream.Collectors; // Added import
 @Service
 public class JwtService {
     private static final Logger logger = LoggerFactory.getLogger(JwtService.class); // Added logger
+    private static final String TENANT_CLAIM = "tenant";
 
     @Value("${app.jwt.secret}")
     private String secretKey;
@@ -37,6 +40,15 @@ public class JwtService {
         return extractClaim(token, Claims::getSubject);
     }
 
+    /**
+     * Returns the tenant a token was issued for. Tokens issued before tenancy carry no claim and
+     * belong to the default tenant.
+     */
+    public String extractTenant(String token) {
+        String tenantId = extractClaim(token, claims -> claims.get(TENANT_CLAIM, String.class));
+        return tenantId != null ? tenantId : TenantContext.DEFAULT_TENANT;
+    }
+
     public <T> T extractClaim(String token, Function<Claims, T> claimsResolver) {
         final Claims claims = extractAllClaims(token);
         return claimsResolver.apply(claims);
@@ -57,6 +69,7 @@ public class JwtService {
         // Create extra claims map and add roles
         Map<String, Object> extraClaims = new HashMap<>();
         extraClaims.put("roles", roles);
+        extraClaims.put(TENANT_CLAIM, tenantOf(userDetails));
 
         return generateToken(extraClaims, userDetails);
     }
@@ -79,6 +92,7 @@ public class JwtService {
     public String generateRefreshToken(UserDetails userDetails) {
         // Refresh tokens usually only need the subject (username)
         return Jwts.builder()
+                .claim(TENANT_CLAIM, tenantOf(userDetails))
                 .setSubject(userDetails.getUsername())
                 .setIssuedAt(new Date(System.currentTimeMillis()))
                 .setExpiration(new Date(System.currentTimeMillis() + jwtRefreshExpiration)) // Use refresh expiration
@@ -87,6 +101,13 @@ public class JwtService {
     }
     // --- End Refresh Token Generation ---
 
+    private static String tenantOf(UserDetails userDetails) {
+        if (userDetails instanceof User user && user.getTenantId() != null) {
+            return user.getTenantId();
+        }
+        return TenantContext.get();
+    }
+
     public boolean isTokenValid(String token, UserDetails userDetails) {
         final String username = extractUsername(token);
         return (username.equals(userDetails.getUsername())) && !isTokenExpired(token);
@@ -1,35 +1,85 @@
 package org.cloven.rbac_sample.services;
 
+import jakarta.persistence.EntityManager;
+import org.cloven.rbac_sample.dtos.PageDto;
 import org.cloven.rbac_sample.dtos.PermissionDto;
+import org.cloven.rbac_sample.dtos.UnusedPermissionDto;
+import org.cloven.rbac_sample.exceptions.InvalidRequestException;
 import org.cloven.rbac_sample.exceptions.ResourceAlreadyExistsException;
 import org.cloven.rbac_sample.exceptions.ResourceNotFoundException;
 import org.cloven.rbac_sample.models.Action;
 import org.cloven.rbac_sample.models.Permission;
 import org.cloven.rbac_sample.models.Resource;
+import org.cloven.rbac_sample.paging.Filters;
+import org.cloven.rbac_sample.paging.Keyset;
+import org.cloven.rbac_sample.paging.KeysetRequest;
+import org.cloven.rbac_sample.policy.PermissionIndex;
+import org.cloven.rbac_sample.policy.PermissionUsageCounters;
+import org.cloven.rbac_sample.policy.PolicySnapshot;
 import org.cloven.rbac_sample.repositories.ActionRepository;
 import org.cloven.rbac_sample.repositories.PermissionRepository;
 import org.cloven.rbac_sample.repositories.ResourceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
+import java.time.LocalDate;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
+import java.util.Date;
 import java.util.List;
+import java.util.Set;
 
 @Service
 public class PermissionService {
+    private static final int MAX_USAGE_DAYS = 3650;
+    private static final Set<String> PERMISSION_SORTS = Set.of("id", "createdAt");
+
     private final PermissionRepository permissionRepository;
     private final ResourceRepository resourceRepository;
     private final ActionRepository actionRepository;
+    private final PermissionIndex permissionIndex;
+    private final PermissionUsageCounters usageCounters;
+    private final EntityManager entityManager;
 
     @Autowired
     public PermissionService(
             PermissionRepository permissionRepository,
             ResourceRepository resourceRepository,
-            ActionRepository actionRepository) {
+            ActionRepository actionRepository,
+            PermissionIndex permissionIndex,
+            PermissionUsageCounters usageCounters,
+            EntityManager entityManager) {
         this.permissionRepository = permissionRepository;
         this.resourceRepository = resourceRepository;
         this.actionRepository = actionRepository;
+        this.permissionIndex = permissionIndex;
+        this.usageCounters = usageCounters;
+        this.entityManager = entityManager;
+    }
+
+    /**
+     * One page of the permissions, optionally only those on a resource, for an action, or created
+     * after a point in time, read straight into DTOs.
+     */
+    @Transactional(readOnly = true)
+    public PageDto<PermissionDto> getPermissions(
+            String resourceName, String actionName, Instant createdAfter, KeysetRequest page) {
+        Specification<Permission> filter = Specification.where(Filters.<Permission>createdAfter(createdAfter))
+                .and(nameOf("resource", resourceName))
+                .and(nameOf("action", actionName));
+        return Keyset.pageOfRows(entityManager, Permission.class, filter, page, PERMISSION_SORTS,
+                PermissionRepository::dtoOf);
+    }
+
+    private static Specification<Permission> nameOf(String association, String name) {
+        if (name == null || name.isBlank()) {
+            return null;
+        }
+        return (root, query, builder) -> builder.equal(root.get(association).get("name"), name);
     }
 
     public List<Permission> getAllPermissions() {
@@ -38,13 +88,44 @@ public class PermissionService {
         return permissions;
     }
 
+    /**
+     * Returns the permissions that decided no permission check in the last {@code days} days,
+     * together with the roles still granting them. Permissions created during the period are left
+     * out, since they have not had the whole period to be used.
+     */
+    public List<UnusedPermissionDto> getUnusedPermissions(int days) {
+        if (days < 1 || days > MAX_USAGE_DAYS) {
+            throw new InvalidRequestException("days must be between 1 and " + MAX_USAGE_DAYS);
+        }
+        usageCounters.flush();
+        LocalDate since = LocalDate.now(ZoneOffset.UTC).minusDays(days);
+        Date createdBefore = Date.from(Instant.now().minus(days, ChronoUnit.DAYS));
+
+        PolicySnapshot policy = permissionIndex.policy();
+        return permissionRepository.findUnusedSince(since, createdBefore).stream()
+                .map(permission -> new UnusedPermissionDto()
+                        .setId(permission.getId())
+                        .setName(permission.getName())
+                        .setDescription(permission.getDescription())
+                        .setRoles(policy.rolesHolding(permission.getName()).stream()
+                                .map(policy::roleName)
+                                .sorted()
+                                .toList()))
+                .toList();
+    }
+
+    @Transactional(readOnly = true)
+    public PermissionDto getPermission(Integer id) {
+        return PermissionDto.fromEntity(getPermissionById(id));
+    }
+
     public Permission getPermissionById(Integer id) {
         return permissionRepository.findById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Permission not found with id: " + id));
     }
 
     @Transactional
-    public Permission createPermission(PermissionDto permissionDto) {
+    public PermissionDto createPermission(PermissionDto permissionDto) {
         Resource resource = resourceRepository.findByName(permissionDto.getResourceName())
                 .orElseThrow(() -> new ResourceNotFoundException("Resource not found with name: " + permissionDto.getResourceName()));
         
@@ -62,7 +143,9 @@ public class PermissionService {
                 .setAction(action)
                 .setDescription(permissionDto.getDescription());
         
-        return permissionRepository.save(permission);
+        Permission savedPermission = permissionRepository.save(permission);
+        permissionIndex.onPermissionCreated(savedPermission);
+        return PermissionDto.fromEntity(savedPermission);
     }
 
     @Transactional
@@ -71,13 +154,14 @@ public class PermissionService {
             throw new ResourceNotFoundException("Permission not found with id: " + id);
         }
         permissionRepository.deleteById(id);
+        permissionIndex.onPolicyStructureChanged();
     }
 
     @Transactional
-    public Permission updatePermissionDescription(Integer id, String description) {
+    public PermissionDto updatePermissionDescription(Integer id, String description) {
         Permission permission = getPermissionById(id); // Reuse existing method to find or throw exception
         permission.setDescription(description);
-        return permissionRepository.save(permission);
+        return PermissionDto.fromEntity(permissionRepository.save(permission));
     }
 
 } 
\ No newline at end of file
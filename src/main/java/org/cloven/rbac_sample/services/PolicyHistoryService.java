@@ -0,0 +1,145 @@
+package org.cloven.rbac_sample.services;
+
+import org.cloven.rbac_sample.caching.ReferenceCache;
+import org.cloven.rbac_sample.dtos.PolicyRollbackResult;
+import org.cloven.rbac_sample.exceptions.ResourceNotFoundException;
+import org.cloven.rbac_sample.models.PolicyChange;
+import org.cloven.rbac_sample.policy.PermissionIndex;
+import org.cloven.rbac_sample.policy.PolicySnapshot;
+import org.cloven.rbac_sample.repositories.PolicyChangeRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Lists policy revisions and rolls the role/permission grants back to an earlier one.
+ *
+ * A rollback diffs the live snapshot against the snapshot kept for the target revision, or, once
+ * that has aged out of memory, replays the change log: the state of a grant at the target is the
+ * opposite of the first change made to it afterwards. The difference is written as one
+ * compensating transaction, itself logged as new revisions, and reaches the index as a single
+ * snapshot swap after commit. Roles and permissions deleted since the target stay deleted;
+ * roles created since keep existing but lose all their permissions.
+ */
+@Service
+public class PolicyHistoryService {
+    private static final int BATCH_SIZE = 500;
+
+    private final PolicyChangeRepository policyChangeRepository;
+    private final JdbcTemplate jdbcTemplate;
+    private final PermissionIndex permissionIndex;
+    private final ReferenceCache referenceCache;
+
+    @Autowired
+    public PolicyHistoryService(
+            PolicyChangeRepository policyChangeRepository,
+            JdbcTemplate jdbcTemplate,
+            PermissionIndex permissionIndex,
+            ReferenceCache referenceCache) {
+        this.policyChangeRepository = policyChangeRepository;
+        this.jdbcTemplate = jdbcTemplate;
+        this.permissionIndex = permissionIndex;
+        this.referenceCache = referenceCache;
+    }
+
+    @Transactional(readOnly = true)
+    public List<PolicyChange> getRecentChanges(int size) {
+        return policyChangeRepository.findAllByOrderByIdDesc(PageRequest.of(0, size));
+    }
+
+    @Transactional
+    public PolicyRollbackResult rollbackTo(long revision) {
+        long start = System.currentTimeMillis();
+        Long latest = policyChangeRepository.findLatestRevision();
+        long head = latest != null ? latest : 0L;
+        if (revision < 0 || revision > head) {
+            throw new ResourceNotFoundException("Policy revision not found: " + revision);
+        }
+
+        List<PolicySnapshot.Change> changes = permissionIndex.changesToRevision(revision);
+        boolean fromSnapshot = changes != null;
+        if (changes == null) {
+            changes = replayChangesSince(revision);
+        }
+
+        long newRevision = head;
+        if (!changes.isEmpty()) {
+            apply(changes);
+            List<PolicyChange> compensating = new ArrayList<>();
+            for (PolicySnapshot.Change change : changes) {
+                compensating.add(new PolicyChange()
+                        .setRoleId(change.roleId())
+                        .setPermissionId(change.permissionId())
+                        .setGranted(change.granted())
+                        .setRollbackTo(revision));
+            }
+            List<PolicyChange> saved = policyChangeRepository.saveAll(compensating);
+            newRevision = saved.get(saved.size() - 1).getId();
+            permissionIndex.onPermissionsChanged(changes, newRevision);
+        }
+
+        List<PolicyRollbackResult.GrantChange> applied = changes.stream()
+                .map(change -> new PolicyRollbackResult.GrantChange()
+                        .setRoleId(change.roleId())
+                        .setPermissionId(change.permissionId())
+                        .setGranted(change.granted()))
+                .toList();
+        return new PolicyRollbackResult()
+                .setRolledBackFrom(head)
+                .setRolledBackTo(revision)
+                .setRevision(newRevision)
+                .setFromSnapshot(fromSnapshot)
+                .setElapsedMs(System.currentTimeMillis() - start)
+                .setChanges(applied);
+    }
+
+    private List<PolicySnapshot.Change> replayChangesSince(long revision) {
+        // Only effective changes are logged, so before its first later change a grant had the opposite state
+        Map<List<Integer>, Boolean> targetStates = new LinkedHashMap<>();
+        for (PolicyChange change : policyChangeRepository.findByIdGreaterThanOrderByIdAsc(revision)) {
+            targetStates.putIfAbsent(List.of(change.getRoleId(), change.getPermissionId()), !change.isGranted());
+        }
+
+        PolicySnapshot current = permissionIndex.policy();
+        List<PolicySnapshot.Change> changes = new ArrayList<>();
+        targetStates.forEach((grant, granted) -> {
+            int roleId = grant.get(0);
+            int permissionId = grant.get(1);
+            if (current.hasRole(roleId) && current.hasPermission(permissionId)
+                    && current.isPermitted(roleId, permissionId) != granted) {
+                changes.add(new PolicySnapshot.Change(roleId, permissionId, granted));
+            }
+        });
+        return changes;
+    }
+
+    private void apply(List<PolicySnapshot.Change> changes) {
+        List<PolicySnapshot.Change> grants = changes.stream().filter(PolicySnapshot.Change::granted).toList();
+        List<PolicySnapshot.Change> revocations = changes.stream().filter(change -> !change.granted()).toList();
+        jdbcTemplate.batchUpdate("insert into role_permissions (role_id, permission_id) values (?, ?)",
+                grants, BATCH_SIZE, (statement, change) -> {
+                    statement.setInt(1, change.roleId());
+                    statement.setInt(2, change.permissionId());
+                });
+        jdbcTemplate.batchUpdate("delete from role_permissions where role_id = ? and permission_id = ?",
+                revocations, BATCH_SIZE, (statement, change) -> {
+                    statement.setInt(1, change.roleId());
+                    statement.setInt(2, change.permissionId());
+                });
+        referenceCache.evictGrants();
+        // As with a manual change, the rolled back state is permanent
+        jdbcTemplate.batchUpdate("delete from temporary_grants where type = 'PERMISSION_TO_ROLE' "
+                        + "and role_id = ? and permission_id = ?",
+                changes, BATCH_SIZE, (statement, change) -> {
+                    statement.setInt(1, change.roleId());
+                    statement.setInt(2, change.permissionId());
+                });
+    }
+}
@@ -0,0 +1,203 @@
+package org.cloven.rbac_sample.services;
+
+import org.cloven.rbac_sample.dtos.PolicySimulationRequest;
+import org.cloven.rbac_sample.dtos.PolicySimulationResult;
+import org.cloven.rbac_sample.exceptions.ResourceNotFoundException;
+import org.cloven.rbac_sample.policy.PermissionIndex;
+import org.cloven.rbac_sample.policy.PolicySnapshot;
+import org.cloven.rbac_sample.policy.RoleCombination;
+import org.cloven.rbac_sample.repositories.PermissionRepository;
+import org.cloven.rbac_sample.repositories.RoleRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.RecursiveTask;
+import java.util.stream.Collectors;
+
+/**
+ * Computes what a set of proposed grants and revocations would change for every user,
+ * without touching the database.
+ *
+ * The proposed changes are applied to a copy-on-write {@link PolicySnapshot}; roles left
+ * untouched share their permission sets with the current snapshot. Users are grouped by their
+ * interned role combination, so the difference is computed once per combination. The user range is
+ * split across the common fork/join pool.
+ */
+@Service
+public class PolicySimulationService {
+    // Users evaluated per fork/join leaf task
+    private static final int LEAF_SIZE = 16_384;
+
+    private final PermissionIndex permissionIndex;
+    private final RoleRepository roleRepository;
+    private final PermissionRepository permissionRepository;
+
+    @Autowired
+    public PolicySimulationService(
+            PermissionIndex permissionIndex,
+            RoleRepository roleRepository,
+            PermissionRepository permissionRepository) {
+        this.permissionIndex = permissionIndex;
+        this.roleRepository = roleRepository;
+        this.permissionRepository = permissionRepository;
+    }
+
+    public PolicySimulationResult simulate(PolicySimulationRequest request) {
+        long start = System.currentTimeMillis();
+        List<PolicySnapshot.Change> changes = new ArrayList<>();
+        for (PolicySimulationRequest.ProposedChange change : request.getChanges()) {
+            if (!roleRepository.existsById(change.getRoleId())) {
+                throw new ResourceNotFoundException("Role not found with id: " + change.getRoleId());
+            }
+            if (!permissionRepository.existsById(change.getPermissionId())) {
+                throw new ResourceNotFoundException("Permission not found with id: " + change.getPermissionId());
+            }
+            changes.add(new PolicySnapshot.Change(change.getRoleId(), change.getPermissionId(),
+                    change.getType() == PolicySimulationRequest.ChangeType.GRANT));
+        }
+
+        PolicySnapshot before = permissionIndex.policy();
+        PolicySnapshot after = before.withChanges(changes);
+        PermissionIndex.UserAssignments assignments = permissionIndex.userAssignments();
+
+        DiffTask task = new DiffTask(before, after, assignments, new ConcurrentHashMap<>(), 0, assignments.size(),
+                Math.max(0, request.getMaxUsers()));
+        Partial total = ForkJoinPool.commonPool().invoke(task);
+
+        List<PolicySimulationResult.PermissionImpact> permissions = new ArrayList<>();
+        Set<Integer> touched = new TreeSet<>(total.losing.keySet());
+        touched.addAll(total.gaining.keySet());
+        for (Integer slot : touched) {
+            permissions.add(new PolicySimulationResult.PermissionImpact()
+                    .setPermission(before.permissionKeyAt(slot))
+                    .setUsersLosing(total.losing.getOrDefault(slot, 0L))
+                    .setUsersGaining(total.gaining.getOrDefault(slot, 0L)));
+        }
+
+        List<PolicySimulationResult.UserImpact> users = total.sample.stream()
+                .sorted(Comparator.comparing(PolicySimulationResult.UserImpact::getUserId))
+                .collect(Collectors.toList());
+
+        return new PolicySimulationResult()
+                .setUsersEvaluated(assignments.size())
+                .setUsersAffected(total.affected)
+                .setPermissions(permissions)
+                .setUsers(users)
+                .setElapsedMs(System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Permissions lost and gained by one role combination, computed once and shared by all its users.
+     */
+    private final class RoleDiff {
+        private final BitSet lost;
+        private final BitSet gained;
+        private final List<String> lostNames = new ArrayList<>();
+        private final List<String> gainedNames = new ArrayList<>();
+
+        private RoleDiff(PolicySnapshot snapshot, BitSet before, BitSet after) {
+            lost = (BitSet) before.clone();
+            lost.andNot(after);
+            gained = (BitSet) after.clone();
+            gained.andNot(before);
+            lost.stream().mapToObj(snapshot::permissionKeyAt).filter(Objects::nonNull).forEach(lostNames::add);
+            gained.stream().mapToObj(snapshot::permissionKeyAt).filter(Objects::nonNull).forEach(gainedNames::add);
+        }
+
+        private boolean isEmpty() {
+            return lost.isEmpty() && gained.isEmpty();
+        }
+    }
+
+    private static final class Partial {
+        private long affected;
+        private final Map<Integer, Long> losing = new HashMap<>();
+        private final Map<Integer, Long> gaining = new HashMap<>();
+        private final List<PolicySimulationResult.UserImpact> sample = new ArrayList<>();
+
+        private void merge(Partial other, int sampleLimit) {
+            affected += other.affected;
+            other.losing.forEach((id, count) -> losing.merge(id, count, Long::sum));
+            other.gaining.forEach((id, count) -> gaining.merge(id, count, Long::sum));
+            for (PolicySimulationResult.UserImpact impact : other.sample) {
+                if (sample.size() >= sampleLimit) {
+                    break;
+                }
+                sample.add(impact);
+            }
+        }
+    }
+
+    private final class DiffTask extends RecursiveTask<Partial> {
+        private final PolicySnapshot before;
+        private final PolicySnapshot after;
+        private final PermissionIndex.UserAssignments assignments;
+        private final Map<RoleCombination, RoleDiff> diffs;
+        private final int from;
+        private final int to;
+        private final int sampleLimit;
+
+        private DiffTask(PolicySnapshot before, PolicySnapshot after, PermissionIndex.UserAssignments assignments,
+                         Map<RoleCombination, RoleDiff> diffs, int from, int to, int sampleLimit) {
+            this.before = before;
+            this.after = after;
+            this.assignments = assignments;
+            this.diffs = diffs;
+            this.from = from;
+            this.to = to;
+            this.sampleLimit = sampleLimit;
+        }
+
+        @Override
+        protected Partial compute() {
+            if (to - from > LEAF_SIZE) {
+                int middle = (from + to) >>> 1;
+                DiffTask left = new DiffTask(before, after, assignments, diffs, from, middle, sampleLimit);
+                left.fork();
+                Partial right = new DiffTask(before, after, assignments, diffs, middle, to, sampleLimit).compute();
+                Partial result = left.join();
+                result.merge(right, sampleLimit);
+                return result;
+            }
+
+            Partial partial = new Partial();
+            // Per-combination counts for this range, folded into the per-permission-slot totals at the end
+            Map<RoleCombination, Long> affectedByCombination = new HashMap<>();
+            for (int i = from; i < to; i++) {
+                RoleCombination combination = assignments.combinations()[i];
+                RoleDiff diff = diffs.computeIfAbsent(combination, this::diffOf);
+                if (diff.isEmpty()) {
+                    continue;
+                }
+                partial.affected++;
+                affectedByCombination.merge(combination, 1L, Long::sum);
+                if (partial.sample.size() < sampleLimit) {
+                    partial.sample.add(new PolicySimulationResult.UserImpact()
+                            .setUserId(assignments.userIds()[i])
+                            .setRoleIds(Arrays.stream(combination.roleIds()).boxed().toList())
+                            .setLostPermissions(diff.lostNames)
+                            .setGainedPermissions(diff.gainedNames));
+                }
+            }
+            affectedByCombination.forEach((combination, count) -> {
+                RoleDiff diff = diffs.get(combination);
+                diff.lost.stream().forEach(id -> partial.losing.merge(id, count, Long::sum));
+                diff.gained.stream().forEach(id -> partial.gaining.merge(id, count, Long::sum));
+            });
+            return partial;
+        }
+
+        private RoleDiff diffOf(RoleCombination combination) {
+            BitSet oldPermissions = combination.unionIn(before);
+            BitSet newPermissions = combination.unionIn(after);
+            if (oldPermissions == newPermissions) {
+                // Untouched single roles share their set between the two snapshots
+                return new RoleDiff(before, new BitSet(), new BitSet());
+            }
+            return new RoleDiff(before, oldPermissions, newPermissions);
+        }
+    }
+}
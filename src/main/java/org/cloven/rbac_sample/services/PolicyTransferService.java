@@ -0,0 +1,447 @@
+package org.cloven.rbac_sample.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.persistence.EntityManager;
+import org.cloven.rbac_sample.caching.ReferenceCache;
+import org.cloven.rbac_sample.dtos.PolicyImportResult;
+import org.cloven.rbac_sample.dtos.PolicyRecord;
+import org.cloven.rbac_sample.models.*;
+import org.cloven.rbac_sample.policy.PermissionIndex;
+import org.cloven.rbac_sample.repositories.*;
+import org.cloven.rbac_sample.tenancy.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.*;
+import java.util.function.Function;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Exports and imports the whole policy and user base as NDJSON, one {@link PolicyRecord} per line.
+ *
+ * Export reads every table through a forward-only JPA stream of projections with a JDBC fetch
+ * size, so no entity is loaded and nothing accumulates in the persistence context, and writes
+ * each record to the response as soon as it is read. Import parses the body incrementally and
+ * commits every {@value #CHUNK_SIZE} records in their own transaction with batched inserts. Only
+ * name to id lookups for resources, actions, permissions and roles are kept across chunks, so
+ * memory use depends on the size of the policy, not on the number of users.
+ *
+ * Records matching an existing row by name, email or assignment are skipped, which makes an
+ * import safe to re-run after a partial failure.
+ */
+@Service
+public class PolicyTransferService {
+    private static final Logger logger = LoggerFactory.getLogger(PolicyTransferService.class);
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_ERRORS = 100;
+    private static final Pattern ROLE_NAME = Pattern.compile("[A-Z][A-Z0-9_]{0,63}");
+    private static final Pattern BCRYPT_HASH = Pattern.compile("\\$2[aby]?\\$\\d{2}\\$[./A-Za-z0-9]{53}");
+
+    private final ResourceRepository resourceRepository;
+    private final ActionRepository actionRepository;
+    private final PermissionRepository permissionRepository;
+    private final RoleRepository roleRepository;
+    private final UserRepository userRepository;
+    private final PolicyChangeRepository policyChangeRepository;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final ObjectMapper objectMapper;
+    private final PermissionIndex permissionIndex;
+    private final ReferenceCache referenceCache;
+    private final TransactionTemplate transactionTemplate;
+
+    @Autowired
+    public PolicyTransferService(
+            ResourceRepository resourceRepository,
+            ActionRepository actionRepository,
+            PermissionRepository permissionRepository,
+            RoleRepository roleRepository,
+            UserRepository userRepository,
+            PolicyChangeRepository policyChangeRepository,
+            EntityManager entityManager,
+            JdbcTemplate jdbcTemplate,
+            ObjectMapper objectMapper,
+            PermissionIndex permissionIndex,
+            ReferenceCache referenceCache,
+            PlatformTransactionManager transactionManager) {
+        this.resourceRepository = resourceRepository;
+        this.actionRepository = actionRepository;
+        this.permissionRepository = permissionRepository;
+        this.roleRepository = roleRepository;
+        this.userRepository = userRepository;
+        this.policyChangeRepository = policyChangeRepository;
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.objectMapper = objectMapper;
+        this.permissionIndex = permissionIndex;
+        this.referenceCache = referenceCache;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @Transactional(readOnly = true)
+    public void exportTo(OutputStream outputStream) throws IOException {
+        OutputStream out = new BufferedOutputStream(outputStream, 64 * 1024);
+        ObjectWriter writer = objectMapper.writerFor(PolicyRecord.class);
+        long records = 0;
+        records += write(out, writer, resourceRepository.streamAllByOrderByIdAsc(),
+                row -> new PolicyRecord.ResourceRecord(row.getName(), row.getDescription()));
+        records += write(out, writer, actionRepository.streamAllByOrderByIdAsc(),
+                row -> new PolicyRecord.ActionRecord(row.getName(), row.getDescription()));
+        records += write(out, writer, permissionRepository.streamAllForExport(),
+                row -> new PolicyRecord.PermissionRecord(row.getResource(), row.getAction(), row.getDescription()));
+        records += write(out, writer, roleRepository.streamAllByOrderByIdAsc(),
+                row -> new PolicyRecord.RoleRecord(row.getName(), row.getDescription()));
+        records += write(out, writer, roleRepository.streamAllGrantsForExport(),
+                row -> new PolicyRecord.RolePermissionRecord(row.getRole(), row.getResource() + ":" + row.getAction()));
+        records += write(out, writer, userRepository.streamAllForExport(),
+                row -> new PolicyRecord.UserRecord(row.getEmail(), row.getFullName(), row.getPassword(), row.getRole()));
+        records += write(out, writer, userRepository.streamAdditionalRolesForExport(),
+                row -> new PolicyRecord.UserRoleRecord(row.getEmail(), row.getRole()));
+        out.flush();
+        logger.info("Exported {} policy records", records);
+    }
+
+    public PolicyImportResult importFrom(InputStream inputStream) throws IOException {
+        long start = System.currentTimeMillis();
+        ImportContext context = new ImportContext();
+        load(context);
+
+        try (MappingIterator<PolicyRecord> records = objectMapper.readerFor(PolicyRecord.class).readValues(inputStream)) {
+            List<Line<PolicyRecord>> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (true) {
+                PolicyRecord record;
+                try {
+                    if (!records.hasNextValue()) {
+                        break;
+                    }
+                    record = records.nextValue();
+                } catch (JsonProcessingException e) {
+                    // The stream cannot be resynchronised reliably, so stop after what was read so far
+                    context.fail(context.records + 1, "unreadable record, import stopped: " + e.getOriginalMessage());
+                    break;
+                }
+                chunk.add(new Line<>(++context.records, record));
+                if (chunk.size() == CHUNK_SIZE) {
+                    importChunk(context, chunk);
+                    chunk.clear();
+                }
+            }
+            importChunk(context, chunk);
+        } finally {
+            if (context.changed) {
+                permissionIndex.rebuild();
+            }
+        }
+
+        logger.info("Imported {} policy records: created {}, skipped {}, failed {}",
+                context.records, context.created, context.skipped, context.failed);
+        return new PolicyImportResult()
+                .setRecords(context.records)
+                .setCreated(context.created)
+                .setSkipped(context.skipped)
+                .setFailed(context.failed)
+                .setErrors(context.errors)
+                .setElapsedMs(System.currentTimeMillis() - start);
+    }
+
+    private <T> long write(OutputStream out, ObjectWriter writer, Stream<T> rows,
+                           Function<T, PolicyRecord> toRecord) throws IOException {
+        long count = 0;
+        try (rows) {
+            Iterator<T> iterator = rows.iterator();
+            while (iterator.hasNext()) {
+                out.write(writer.writeValueAsBytes(toRecord.apply(iterator.next())));
+                out.write('\n');
+                count++;
+            }
+        }
+        return count;
+    }
+
+    private void load(ImportContext context) {
+        transactionTemplate.executeWithoutResult(status -> {
+            context.resourceIds.clear();
+            context.actionIds.clear();
+            context.permissionIds.clear();
+            context.roleIds.clear();
+            context.grants.clear();
+            resourceRepository.findAll().forEach(resource -> context.resourceIds.put(resource.getName(), resource.getId()));
+            actionRepository.findAll().forEach(action -> context.actionIds.put(action.getName(), action.getId()));
+            permissionRepository.findAllKeys().forEach(permission -> context.permissionIds.put(
+                    permission.getResource() + ":" + permission.getAction(), permission.getId()));
+            roleRepository.findAllNames().forEach(role -> context.roleIds.put(role.getName(), role.getId()));
+            roleRepository.findAllGrantIds().forEach(grant -> context.grants.add(grantKey(grant.getRoleId(), grant.getPermissionId())));
+        });
+    }
+
+    private void importChunk(ImportContext context, List<Line<PolicyRecord>> chunk) {
+        if (chunk.isEmpty()) {
+            return;
+        }
+        ImportContext.Counts before = context.counts();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                // Dependency order, so a chunk may reference rows created earlier in the same chunk
+                linesOf(chunk, PolicyRecord.ResourceRecord.class).forEach(line -> importResource(context, line));
+                linesOf(chunk, PolicyRecord.ActionRecord.class).forEach(line -> importAction(context, line));
+                linesOf(chunk, PolicyRecord.PermissionRecord.class).forEach(line -> importPermission(context, line));
+                linesOf(chunk, PolicyRecord.RoleRecord.class).forEach(line -> importRole(context, line));
+                importGrants(context, linesOf(chunk, PolicyRecord.RolePermissionRecord.class));
+                importUsers(context, linesOf(chunk, PolicyRecord.UserRecord.class));
+                importUserRoles(context, linesOf(chunk, PolicyRecord.UserRoleRecord.class));
+            });
+            context.changed = true;
+        } catch (RuntimeException e) {
+            logger.warn("Could not import policy records {} to {}", chunk.get(0).number(), chunk.get(chunk.size() - 1).number(), e);
+            context.restore(before);
+            context.failed += chunk.size();
+            context.error("records " + chunk.get(0).number() + " to " + chunk.get(chunk.size() - 1).number()
+                    + " rolled back: " + e.getMessage());
+            // Lookups may now name rows that were rolled back
+            load(context);
+        }
+    }
+
+    private void importResource(ImportContext context, Line<PolicyRecord.ResourceRecord> line) {
+        PolicyRecord.ResourceRecord record = line.record();
+        if (isBlank(record.name())) {
+            context.fail(line.number(), "resource name is required");
+        } else if (context.resourceIds.containsKey(record.name())) {
+            context.skipped++;
+        } else {
+            Resource resource = resourceRepository.save(new Resource()
+                    .setName(record.name())
+                    .setDescription(record.description()));
+            context.resourceIds.put(resource.getName(), resource.getId());
+            context.created("resource", 1);
+        }
+    }
+
+    private void importAction(ImportContext context, Line<PolicyRecord.ActionRecord> line) {
+        PolicyRecord.ActionRecord record = line.record();
+        if (isBlank(record.name())) {
+            context.fail(line.number(), "action name is required");
+        } else if (context.actionIds.containsKey(record.name())) {
+            context.skipped++;
+        } else {
+            Action action = actionRepository.save(new Action()
+                    .setName(record.name())
+                    .setDescription(record.description()));
+            context.actionIds.put(action.getName(), action.getId());
+            context.created("action", 1);
+        }
+    }
+
+    private void importPermission(ImportContext context, Line<PolicyRecord.PermissionRecord> line) {
+        PolicyRecord.PermissionRecord record = line.record();
+        Integer resourceId = context.resourceIds.get(record.resource());
+        Integer actionId = context.actionIds.get(record.action());
+        if (resourceId == null || actionId == null) {
+            context.fail(line.number(), "unknown resource or action: " + record.resource() + ":" + record.action());
+        } else if (context.permissionIds.containsKey(record.resource() + ":" + record.action())) {
+            context.skipped++;
+        } else {
+            Permission permission = permissionRepository.save(new Permission()
+                    .setResource(entityManager.getReference(Resource.class, resourceId))
+                    .setAction(entityManager.getReference(Action.class, actionId))
+                    .setDescription(record.description()));
+            context.permissionIds.put(record.resource() + ":" + record.action(), permission.getId());
+            context.created("permission", 1);
+        }
+    }
+
+    private void importRole(ImportContext context, Line<PolicyRecord.RoleRecord> line) {
+        PolicyRecord.RoleRecord record = line.record();
+        if (record.name() == null || !ROLE_NAME.matcher(record.name()).matches()) {
+            context.fail(line.number(), "invalid role name: " + record.name());
+        } else if (context.roleIds.containsKey(record.name())) {
+            context.skipped++;
+        } else {
+            Role role = roleRepository.save(new Role()
+                    .setName(record.name())
+                    .setDescription(record.description() != null ? record.description() : ""));
+            context.roleIds.put(role.getName(), role.getId());
+            context.created("role", 1);
+        }
+    }
+
+    private void importGrants(ImportContext context, List<Line<PolicyRecord.RolePermissionRecord>> lines) {
+        List<PolicyChange> changes = new ArrayList<>();
+        for (Line<PolicyRecord.RolePermissionRecord> line : lines) {
+            Integer roleId = context.roleIds.get(line.record().role());
+            Integer permissionId = context.permissionIds.get(line.record().permission());
+            if (roleId == null || permissionId == null) {
+                context.fail(line.number(), "unknown role or permission: " + line.record().role() + " " + line.record().permission());
+            } else if (!context.grants.add(grantKey(roleId, permissionId))) {
+                context.skipped++;
+            } else {
+                changes.add(new PolicyChange().setRoleId(roleId).setPermissionId(permissionId).setGranted(true));
+            }
+        }
+        if (changes.isEmpty()) {
+            return;
+        }
+        // Roles and permissions created in this chunk must reach the database before the join rows
+        entityManager.flush();
+        jdbcTemplate.batchUpdate("insert into role_permissions (role_id, permission_id) values (?, ?)",
+                changes, CHUNK_SIZE, (statement, change) -> {
+                    statement.setInt(1, change.getRoleId());
+                    statement.setInt(2, change.getPermissionId());
+                });
+        referenceCache.evictGrants();
+        // Logged like any other grant, so the import can be rolled back as a policy revision
+        policyChangeRepository.saveAll(changes);
+        context.created("rolePermission", changes.size());
+    }
+
+    private void importUsers(ImportContext context, List<Line<PolicyRecord.UserRecord>> lines) {
+        Map<String, Line<PolicyRecord.UserRecord>> valid = new LinkedHashMap<>();
+        for (Line<PolicyRecord.UserRecord> line : lines) {
+            PolicyRecord.UserRecord record = line.record();
+            if (isBlank(record.email()) || isBlank(record.fullName())) {
+                context.fail(line.number(), "email and fullName are required");
+            } else if (record.password() == null || !BCRYPT_HASH.matcher(record.password()).matches()) {
+                context.fail(line.number(), "password must be a BCrypt hash");
+            } else if (!context.roleIds.containsKey(record.role())) {
+                context.fail(line.number(), "unknown role: " + record.role());
+            } else if (valid.putIfAbsent(record.email(), line) != null) {
+                context.skipped++;
+            }
+        }
+        if (valid.isEmpty()) {
+            return;
+        }
+
+        Set<String> existing = new HashSet<>(userRepository.findExistingEmails(valid.keySet()));
+        List<User> users = new ArrayList<>();
+        for (Line<PolicyRecord.UserRecord> line : valid.values()) {
+            PolicyRecord.UserRecord record = line.record();
+            if (existing.contains(record.email())) {
+                context.skipped++;
+                continue;
+            }
+            users.add(new User()
+                    .setEmail(record.email())
+                    .setFullName(record.fullName())
+                    .setPassword(record.password())
+                    .setRole(entityManager.getReference(Role.class, context.roleIds.get(record.role()))));
+        }
+        // Inserted in JDBC batches; flushed so that additional roles in this chunk can refer to them
+        userRepository.saveAll(users);
+        userRepository.flush();
+        context.created("user", users.size());
+    }
+
+    private void importUserRoles(ImportContext context, List<Line<PolicyRecord.UserRoleRecord>> lines) {
+        List<Line<PolicyRecord.UserRoleRecord>> valid = new ArrayList<>();
+        for (Line<PolicyRecord.UserRoleRecord> line : lines) {
+            if (isBlank(line.record().email()) || !context.roleIds.containsKey(line.record().role())) {
+                context.fail(line.number(), "unknown user or role: " + line.record().email() + " " + line.record().role());
+            } else {
+                valid.add(line);
+            }
+        }
+        // Users that do not exist, and roles they already hold, insert nothing and count as skipped.
+        // Native SQL bypasses the tenant filter, so the user lookup names the tenant itself
+        String tenantId = TenantContext.get();
+        int[][] counts = jdbcTemplate.batchUpdate(
+                "insert into user_roles (user_id, role_id) select u.id, ? from users u where u.tenant_id = ? "
+                        + "and u.email = ? and u.role_id <> ? and not exists "
+                        + "(select 1 from user_roles ur where ur.user_id = u.id and ur.role_id = ?)",
+                valid, CHUNK_SIZE, (statement, line) -> {
+                    int roleId = context.roleIds.get(line.record().role());
+                    statement.setInt(1, roleId);
+                    statement.setString(2, tenantId);
+                    statement.setString(3, line.record().email());
+                    statement.setInt(4, roleId);
+                    statement.setInt(5, roleId);
+                });
+        long inserted = Arrays.stream(counts).flatMapToInt(Arrays::stream).filter(count -> count != 0).count();
+        context.created("userRole", inserted);
+        context.skipped += valid.size() - inserted;
+    }
+
+    @SuppressWarnings("unchecked")
+    private static <T extends PolicyRecord> List<Line<T>> linesOf(List<Line<PolicyRecord>> chunk, Class<T> type) {
+        List<Line<T>> lines = new ArrayList<>();
+        for (Line<PolicyRecord> line : chunk) {
+            if (type.isInstance(line.record())) {
+                lines.add((Line<T>) line);
+            }
+        }
+        return lines;
+    }
+
+    private static long grantKey(int roleId, int permissionId) {
+        return ((long) roleId << 32) | (permissionId & 0xffffffffL);
+    }
+
+    private static boolean isBlank(String value) {
+        return value == null || value.isBlank();
+    }
+
+    private record Line<T extends PolicyRecord>(long number, T record) {
+    }
+
+    /**
+     * Lookups and counters carried from one chunk to the next.
+     */
+    private static final class ImportContext {
+        private final Map<String, Integer> resourceIds = new HashMap<>();
+        private final Map<String, Integer> actionIds = new HashMap<>();
+        private final Map<String, Integer> permissionIds = new HashMap<>();
+        private final Map<String, Integer> roleIds = new HashMap<>();
+        private final Set<Long> grants = new HashSet<>();
+        private final Map<String, Long> created = new LinkedHashMap<>();
+        private final List<String> errors = new ArrayList<>();
+        private long records;
+        private long skipped;
+        private long failed;
+        private boolean changed;
+
+        private void created(String type, long count) {
+            if (count > 0) {
+                created.merge(type, count, Long::sum);
+            }
+        }
+
+        private void fail(long number, String message) {
+            failed++;
+            error("record " + number + ": " + message);
+        }
+
+        private void error(String message) {
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(message);
+            }
+        }
+
+        private Counts counts() {
+            return new Counts(new LinkedHashMap<>(created), skipped, failed);
+        }
+
+        private void restore(Counts counts) {
+            created.clear();
+            created.putAll(counts.created());
+            skipped = counts.skipped();
+            failed = counts.failed();
+        }
+
+        private record Counts(Map<String, Long> created, long skipped, long failed) {
+        }
+    }
+}
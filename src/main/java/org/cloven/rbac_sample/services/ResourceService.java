@@ -1,30 +1,47 @@
 package org.cloven.rbac_sample.services;
 
 import org.cloven.rbac_sample.dtos.ResourceDto;
+import org.cloven.rbac_sample.dtos.PageDto;
 import org.cloven.rbac_sample.exceptions.ResourceAlreadyExistsException;
 import org.cloven.rbac_sample.exceptions.ResourceNotFoundException;
 import org.cloven.rbac_sample.models.Resource;
+import org.cloven.rbac_sample.paging.Filters;
+import org.cloven.rbac_sample.paging.Keyset;
+import org.cloven.rbac_sample.paging.KeysetRequest;
+import org.cloven.rbac_sample.policy.PermissionIndex;
 import org.cloven.rbac_sample.repositories.ResourceRepository;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
-import java.util.ArrayList;
+import java.time.Instant;
 import java.util.List;
+import java.util.Set;
+import java.util.function.Function;
 
 @Service
 public class ResourceService {
+    private static final Set<String> RESOURCE_SORTS = Set.of("id", "name", "createdAt");
+
     private final ResourceRepository resourceRepository;
+    private final PermissionIndex permissionIndex;
 
     @Autowired
-    public ResourceService(ResourceRepository resourceRepository) {
+    public ResourceService(ResourceRepository resourceRepository, PermissionIndex permissionIndex) {
         this.resourceRepository = resourceRepository;
+        this.permissionIndex = permissionIndex;
     }
 
-    public List<Resource> getAllResources() {
-        List<Resource> resources = new ArrayList<>();
-        resourceRepository.findAll().forEach(resources::add);
-        return resources;
+    /**
+     * One page of the resources, optionally only those whose name starts with a prefix or created
+     * after a point in time.
+     */
+    @Transactional(readOnly = true)
+    public PageDto<Resource> getResources(String namePrefix, Instant createdAfter, KeysetRequest page) {
+        Specification<Resource> filter = Specification.where(Filters.<Resource>startsWith("name", namePrefix))
+                .and(Filters.createdAfter(createdAfter));
+        return Keyset.page(resourceRepository, filter, page, RESOURCE_SORTS, List.of(), Function.identity());
     }
 
     public Resource getResourceById(Integer id) {
@@ -61,6 +78,8 @@ public class ResourceService {
                 throw new ResourceAlreadyExistsException("Resource already exists with name: " + resourceDto.getName());
             }
             resource.setName(resourceDto.getName());
+            // Permission names are derived from the resource name
+            permissionIndex.onPolicyStructureChanged();
         }
         
         if (resourceDto.getDescription() != null) {
@@ -76,5 +95,6 @@ public class ResourceService {
             throw new ResourceNotFoundException("Resource not found with id: " + id);
         }
         resourceRepository.deleteById(id);
+        permissionIndex.onPolicyStructureChanged();
     }
 } 
\ No newline at end of file
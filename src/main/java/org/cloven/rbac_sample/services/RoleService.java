@@ -1,50 +1,146 @@
 package org.cloven.rbac_sample.services;
 
+import jakarta.persistence.EntityManager;
+import org.cloven.rbac_sample.batching.RepositoryLoaders;
+import org.cloven.rbac_sample.caching.ReferenceCache;
+import org.cloven.rbac_sample.dtos.PageDto;
+import org.cloven.rbac_sample.dtos.PolicySimulationRequest;
 import org.cloven.rbac_sample.dtos.RoleDto;
+import org.cloven.rbac_sample.dtos.RolePermissionChangesDto;
+import org.cloven.rbac_sample.dtos.RolePermissionChangesResult;
+import org.cloven.rbac_sample.dtos.RolePermissionsDto;
+import org.cloven.rbac_sample.dtos.RoleResponseDto;
+import org.cloven.rbac_sample.exceptions.InvalidRequestException;
 import org.cloven.rbac_sample.exceptions.ResourceAlreadyExistsException;
 import org.cloven.rbac_sample.exceptions.ResourceNotFoundException;
 import org.cloven.rbac_sample.models.Permission;
+import org.cloven.rbac_sample.models.PolicyChange;
 import org.cloven.rbac_sample.models.Role;
-import org.cloven.rbac_sample.models.RoleEnum;
+import org.cloven.rbac_sample.paging.Filters;
+import org.cloven.rbac_sample.paging.Keyset;
+import org.cloven.rbac_sample.paging.KeysetRequest;
+import org.cloven.rbac_sample.policy.PermissionIndex;
+import org.cloven.rbac_sample.policy.PolicySnapshot;
+import org.cloven.rbac_sample.repositories.GroupRepository;
 import org.cloven.rbac_sample.repositories.PermissionRepository;
+import org.cloven.rbac_sample.repositories.PolicyChangeRepository;
 import org.cloven.rbac_sample.repositories.RoleRepository;
+import org.cloven.rbac_sample.repositories.TemporaryGrantRepository;
+import org.cloven.rbac_sample.repositories.UserRepository;
+import org.hibernate.dialect.PostgreSQLDialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DuplicateKeyException;
+import org.springframework.data.jpa.domain.Specification;
+import org.springframework.jdbc.core.JdbcTemplate;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
 
 @Service
 public class RoleService {
+    private static final Set<String> ROLE_SORTS = Set.of("id", "name", "createdAt");
+    private static final int MAX_PERMISSION_CHANGES = 10_000;
+    private static final int BATCH_SIZE = 500;
+
     private final RoleRepository roleRepository;
     private final PermissionRepository permissionRepository;
+    private final UserRepository userRepository;
+    private final GroupRepository groupRepository;
+    private final TemporaryGrantRepository temporaryGrantRepository;
+    private final PolicyChangeRepository policyChangeRepository;
+    private final PermissionIndex permissionIndex;
+    private final RepositoryLoaders repositoryLoaders;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final ReferenceCache referenceCache;
+    private final boolean postgres;
 
     @Autowired
-    public RoleService(RoleRepository roleRepository, PermissionRepository permissionRepository) {
+    public RoleService(
+            RoleRepository roleRepository,
+            PermissionRepository permissionRepository,
+            UserRepository userRepository,
+            GroupRepository groupRepository,
+            TemporaryGrantRepository temporaryGrantRepository,
+            PolicyChangeRepository policyChangeRepository,
+            PermissionIndex permissionIndex,
+            RepositoryLoaders repositoryLoaders,
+            EntityManager entityManager,
+            JdbcTemplate jdbcTemplate,
+            ReferenceCache referenceCache) {
         this.roleRepository = roleRepository;
         this.permissionRepository = permissionRepository;
+        this.userRepository = userRepository;
+        this.groupRepository = groupRepository;
+        this.temporaryGrantRepository = temporaryGrantRepository;
+        this.policyChangeRepository = policyChangeRepository;
+        this.permissionIndex = permissionIndex;
+        this.repositoryLoaders = repositoryLoaders;
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.referenceCache = referenceCache;
+        this.postgres = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect() instanceof PostgreSQLDialect;
     }
 
-    public List<Role> getAllRoles() {
-        List<Role> roles = new ArrayList<>();
-        roleRepository.findAll().forEach(roles::add);
+    /**
+     * One page of the roles, optionally only those whose name starts with a prefix or created after
+     * a point in time. The roles, their grants and the granted permissions are read for the whole
+     * page with one query each, straight into DTOs.
+     */
+    @Transactional(readOnly = true)
+    public PageDto<RoleResponseDto> getRoles(String namePrefix, Instant createdAfter, KeysetRequest page) {
+        Specification<Role> filter = Specification.where(Filters.<Role>startsWith("name", namePrefix))
+                .and(Filters.createdAfter(createdAfter));
+        PageDto<RoleResponseDto> roles = Keyset.pageOfRows(entityManager, Role.class, filter, page, ROLE_SORTS,
+                RoleRepository::responseOf);
+        addPermissions(roles.getItems());
         return roles;
     }
 
+    private void addPermissions(List<RoleResponseDto> roles) {
+        if (roles.isEmpty()) {
+            return;
+        }
+        Map<Integer, RoleResponseDto> rolesById = new HashMap<>();
+        for (RoleResponseDto role : roles) {
+            role.setPermissions(new HashSet<>());
+            rolesById.put(role.getId(), role);
+        }
+        roleRepository.findGrantedPermissionsByRoleIdIn(rolesById.keySet()).forEach(grant ->
+                rolesById.get(grant.roleId()).getPermissions().add(grant.permission()));
+    }
+
+    @Transactional(readOnly = true)
+    public RoleResponseDto getRole(Integer id) {
+        return RoleResponseDto.fromEntity(getRoleById(id));
+    }
+
     public Role getRoleById(Integer id) {
-        return roleRepository.findById(id)
+        return repositoryLoaders.roleById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("Role not found with id: " + id));
     }
 
-    public Role getRoleByName(RoleEnum name) {
+    public Role getRoleByName(String name) {
         return roleRepository.findByName(name)
                 .orElseThrow(() -> new ResourceNotFoundException("Role not found with name: " + name));
     }
 
     @Transactional
-    public Role createRole(RoleDto roleDto) {
+    public RoleResponseDto createRole(RoleDto roleDto) {
         // Check if role with same name already exists
         if (roleRepository.findByName(roleDto.getName()).isPresent()) {
             throw new ResourceAlreadyExistsException("Role already exists with name: " + roleDto.getName());
@@ -54,26 +150,30 @@ public class RoleService {
                 .setName(roleDto.getName())
                 .setDescription(roleDto.getDescription());
 
-        return roleRepository.save(role);
+        Role savedRole = roleRepository.save(role);
+        permissionIndex.onRoleSaved(savedRole);
+        return RoleResponseDto.fromEntity(savedRole);
     }
 
     @Transactional
-    public Role updateRole(Integer id, RoleDto roleDto) {
-        Role role = getRoleById(id);
+    public RoleResponseDto updateRole(Integer id, RoleDto roleDto) {
+        Role role = roleRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Role not found with id: " + id));
 
-        if (roleDto.getName() != null && role.getName() != roleDto.getName()) {
+        if (roleDto.getName() != null && !role.getName().equals(roleDto.getName())) {
             // Check if role with new name already exists
             if (roleRepository.findByName(roleDto.getName()).isPresent()) {
                 throw new ResourceAlreadyExistsException("Role already exists with name: " + roleDto.getName());
             }
             role.setName(roleDto.getName());
+            permissionIndex.onRoleSaved(role);
         }
 
         if (roleDto.getDescription() != null) {
             role.setDescription(roleDto.getDescription());
         }
 
-        return roleRepository.save(role);
+        return RoleResponseDto.fromEntity(roleRepository.save(role));
     }
 
     @Transactional
@@ -81,28 +181,207 @@ public class RoleService {
         if (!roleRepository.existsById(id)) {
             throw new ResourceNotFoundException("Role not found with id: " + id);
         }
+        userRepository.removeAdditionalRole(id);
+        groupRepository.removeRoleFromAllGroups(id);
         roleRepository.deleteById(id);
+        permissionIndex.onRoleDeleted(id);
     }
 
     @Transactional
-    public Role assignPermissionToRole(Integer roleId, Integer permissionId) {
-        Role role = getRoleById(roleId);
+    public RoleResponseDto assignPermissionToRole(Integer roleId, Integer permissionId) {
+        Role role = roleRepository.findById(roleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Role not found with id: " + roleId));
         
         Permission permission = permissionRepository.findById(permissionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Permission not found with id: " + permissionId));
         
+        Long revision = holds(role, permissionId) ? null : recordChange(roleId, permissionId, true);
         role.addPermission(permission);
-        return roleRepository.save(role);
+        // A permanent assignment supersedes a temporary one
+        temporaryGrantRepository.deleteRolePermissionGrant(roleId, permissionId);
+        Role savedRole = roleRepository.save(role);
+        permissionIndex.onPermissionGranted(roleId, permissionId, revision);
+        return RoleResponseDto.fromEntity(savedRole);
     }
 
     @Transactional
-    public Role revokePermissionFromRole(Integer roleId, Integer permissionId) {
-        Role role = getRoleById(roleId);
+    public RoleResponseDto revokePermissionFromRole(Integer roleId, Integer permissionId) {
+        Role role = roleRepository.findById(roleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Role not found with id: " + roleId));
         
         Permission permission = permissionRepository.findById(permissionId)
                 .orElseThrow(() -> new ResourceNotFoundException("Permission not found with id: " + permissionId));
         
+        Long revision = holds(role, permissionId) ? recordChange(roleId, permissionId, false) : null;
         role.removePermission(permission);
-        return roleRepository.save(role);
+        temporaryGrantRepository.deleteRolePermissionGrant(roleId, permissionId);
+        Role savedRole = roleRepository.save(role);
+        permissionIndex.onPermissionRevoked(roleId, permissionId, revision);
+        return RoleResponseDto.fromEntity(savedRole);
+    }
+
+    /**
+     * Grants permissions to and revokes permissions from one role in bulk, as
+     * {@link #changePermissions(RolePermissionChangesDto)} does.
+     */
+    @Transactional
+    public RolePermissionChangesResult changePermissions(Integer roleId, RolePermissionsDto permissions) {
+        List<PolicySnapshot.Change> changes = new ArrayList<>();
+        permissions.getGrant().forEach(permissionId -> changes.add(new PolicySnapshot.Change(roleId, permissionId, true)));
+        permissions.getRevoke().forEach(permissionId -> changes.add(new PolicySnapshot.Change(roleId, permissionId, false)));
+        return applyChanges(changes);
+    }
+
+    /**
+     * Applies grants and revocations across roles with one batched insert (on PostgreSQL) and one
+     * batched delete on role_permissions, without loading any role or permission. Granting a permission a role
+     * already holds inserts nothing and revoking one it does not hold deletes nothing; only the
+     * grants that changed are logged as policy revisions and reach the permission index, in one
+     * snapshot swap. As with a single change, a temporary grant of the same permission ends.
+     */
+    @Transactional
+    public RolePermissionChangesResult changePermissions(RolePermissionChangesDto request) {
+        List<PolicySnapshot.Change> changes = request.getChanges().stream()
+                .map(change -> new PolicySnapshot.Change(change.getRoleId(), change.getPermissionId(),
+                        change.getType() == PolicySimulationRequest.ChangeType.GRANT))
+                .toList();
+        return applyChanges(changes);
+    }
+
+    private RolePermissionChangesResult applyChanges(List<PolicySnapshot.Change> requested) {
+        long start = System.currentTimeMillis();
+        if (requested.size() > MAX_PERMISSION_CHANGES) {
+            throw new InvalidRequestException("At most " + MAX_PERMISSION_CHANGES + " changes are allowed at once");
+        }
+        Map<List<Integer>, PolicySnapshot.Change> byGrant = new LinkedHashMap<>();
+        for (PolicySnapshot.Change change : requested) {
+            PolicySnapshot.Change previous = byGrant.putIfAbsent(List.of(change.roleId(), change.permissionId()), change);
+            if (previous != null && previous.granted() != change.granted()) {
+                throw new InvalidRequestException("Permission " + change.permissionId()
+                        + " is both granted to and revoked from role " + change.roleId());
+            }
+        }
+        Collection<PolicySnapshot.Change> changes = byGrant.values();
+        requireExisting(changes);
+
+        List<PolicySnapshot.Change> grants = changes.stream().filter(PolicySnapshot.Change::granted).toList();
+        List<PolicySnapshot.Change> revocations = changes.stream().filter(change -> !change.granted()).toList();
+        List<PolicySnapshot.Change> applied = insertGrants(grants);
+        applied.addAll(changed(revocations, jdbcTemplate.batchUpdate(
+                "delete from role_permissions where role_id = ? and permission_id = ?",
+                revocations, BATCH_SIZE, (statement, change) -> {
+                    statement.setInt(1, change.roleId());
+                    statement.setInt(2, change.permissionId());
+                })));
+        jdbcTemplate.batchUpdate("delete from temporary_grants where type = 'PERMISSION_TO_ROLE' "
+                        + "and role_id = ? and permission_id = ?",
+                changes, BATCH_SIZE, (statement, change) -> {
+                    statement.setInt(1, change.roleId());
+                    statement.setInt(2, change.permissionId());
+                });
+
+        Long revision = null;
+        if (!applied.isEmpty()) {
+            referenceCache.evictGrants();
+            List<PolicyChange> logged = policyChangeRepository.saveAll(applied.stream()
+                    .map(change -> new PolicyChange()
+                            .setRoleId(change.roleId())
+                            .setPermissionId(change.permissionId())
+                            .setGranted(change.granted()))
+                    .toList());
+            revision = logged.get(logged.size() - 1).getId();
+            permissionIndex.onPermissionsChanged(applied, revision);
+        }
+        int granted = (int) applied.stream().filter(PolicySnapshot.Change::granted).count();
+        return new RolePermissionChangesResult()
+                .setGranted(granted)
+                .setRevoked(applied.size() - granted)
+                .setUnchanged(changes.size() - applied.size())
+                .setRevision(revision)
+                .setElapsedMs(System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Inserts the grants a role does not hold yet and returns those. A concurrent change may insert
+     * the same grant between the check and the insert, which must leave it unchanged rather than
+     * fail the whole request: PostgreSQL skips it in one batch with on conflict, while H2 inserts
+     * grant by grant and takes a duplicate key as already granted, as it only rolls back the failed
+     * statement and not the transaction.
+     */
+    private List<PolicySnapshot.Change> insertGrants(List<PolicySnapshot.Change> grants) {
+        if (postgres) {
+            return changed(grants, jdbcTemplate.batchUpdate(
+                    "insert into role_permissions (role_id, permission_id) values (?, ?) on conflict do nothing",
+                    grants, BATCH_SIZE, (statement, change) -> {
+                        statement.setInt(1, change.roleId());
+                        statement.setInt(2, change.permissionId());
+                    }));
+        }
+        List<PolicySnapshot.Change> inserted = new ArrayList<>();
+        for (PolicySnapshot.Change change : grants) {
+            try {
+                if (jdbcTemplate.update("insert into role_permissions (role_id, permission_id) select ?, ? "
+                                + "where not exists (select 1 from role_permissions where role_id = ? and permission_id = ?)",
+                        change.roleId(), change.permissionId(), change.roleId(), change.permissionId()) != 0) {
+                    inserted.add(change);
+                }
+            } catch (DuplicateKeyException e) {
+                // Granted by a concurrent change since
+            }
+        }
+        return inserted;
+    }
+
+    /**
+     * Checks with one query each that the roles and permissions exist in the current tenant, which
+     * the JDBC statements, bypassing the tenant filter, rely on.
+     */
+    private void requireExisting(Collection<PolicySnapshot.Change> changes) {
+        if (changes.isEmpty()) {
+            return;
+        }
+        Set<Integer> roleIds = changes.stream().map(PolicySnapshot.Change::roleId).collect(Collectors.toSet());
+        roleIds.removeAll(roleRepository.findExistingIds(roleIds));
+        if (!roleIds.isEmpty()) {
+            throw new ResourceNotFoundException("Role not found with id: " + Collections.min(roleIds));
+        }
+        Set<Integer> permissionIds = changes.stream().map(PolicySnapshot.Change::permissionId).collect(Collectors.toSet());
+        permissionIds.removeAll(permissionRepository.findExistingIds(permissionIds));
+        if (!permissionIds.isEmpty()) {
+            throw new ResourceNotFoundException("Permission not found with id: " + Collections.min(permissionIds));
+        }
+    }
+
+    /**
+     * The changes whose statement affected a row. A driver that does not report counts (-2) is
+     * taken to have changed it.
+     */
+    private static List<PolicySnapshot.Change> changed(List<PolicySnapshot.Change> changes, int[][] counts) {
+        List<PolicySnapshot.Change> changed = new ArrayList<>();
+        int index = 0;
+        for (int[] batch : counts) {
+            for (int count : batch) {
+                if (count != 0) {
+                    changed.add(changes.get(index));
+                }
+                index++;
+            }
+        }
+        return changed;
+    }
+
+    private static boolean holds(Role role, Integer permissionId) {
+        return role.getPermissions().stream().anyMatch(permission -> permission.getId().equals(permissionId));
+    }
+
+    /**
+     * Appends the change to the policy change log and returns its revision.
+     */
+    private Long recordChange(Integer roleId, Integer permissionId, boolean granted) {
+        PolicyChange change = new PolicyChange()
+                .setRoleId(roleId)
+                .setPermissionId(permissionId)
+                .setGranted(granted);
+        return policyChangeRepository.save(change).getId();
     }
 } 
\ No newline at end of file
@@ -0,0 +1,237 @@
+package org.cloven.rbac_sample.services;
+
+import jakarta.annotation.PreDestroy;
+import org.cloven.rbac_sample.dtos.TemporaryGrantDto;
+import org.cloven.rbac_sample.exceptions.InvalidRequestException;
+import org.cloven.rbac_sample.exceptions.ResourceAlreadyExistsException;
+import org.cloven.rbac_sample.exceptions.ResourceNotFoundException;
+import org.cloven.rbac_sample.models.Role;
+import org.cloven.rbac_sample.models.TemporaryGrant;
+import org.cloven.rbac_sample.models.TemporaryGrantType;
+import org.cloven.rbac_sample.models.Tenant;
+import org.cloven.rbac_sample.models.User;
+import org.cloven.rbac_sample.policy.HashedTimerWheel;
+import org.cloven.rbac_sample.repositories.PermissionRepository;
+import org.cloven.rbac_sample.repositories.RoleRepository;
+import org.cloven.rbac_sample.repositories.TemporaryGrantRepository;
+import org.cloven.rbac_sample.repositories.TenantRepository;
+import org.cloven.rbac_sample.repositories.UserRepository;
+import org.cloven.rbac_sample.tenancy.TenantContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Instant;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+/**
+ * Grants a role to a user, or a permission to a role, until a deadline.
+ *
+ * The grant is applied through the regular {@link UserService}/{@link RoleService} paths and a
+ * {@link TemporaryGrant} row records its deadline. Deadlines are tracked by a hashed timer wheel,
+ * recovered from those rows when the application starts, so nothing ever scans the table on a
+ * schedule. Expiry revokes through the same services, which moves the policy version of the
+ * affected roles and so invalidates cached decisions, authorities and ETags in the same step.
+ * One wheel serves all tenants; each timeout runs its expiry as the tenant of its grant.
+ */
+@Service
+public class TemporaryGrantService {
+    private static final Logger logger = LoggerFactory.getLogger(TemporaryGrantService.class);
+
+    private final TemporaryGrantRepository temporaryGrantRepository;
+    private final UserRepository userRepository;
+    private final RoleRepository roleRepository;
+    private final PermissionRepository permissionRepository;
+    private final UserService userService;
+    private final RoleService roleService;
+    private final TenantRepository tenantRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final ExecutorService expiryExecutor = Executors.newSingleThreadExecutor(runnable -> {
+        Thread thread = new Thread(runnable, "grant-expiry");
+        thread.setDaemon(true);
+        return thread;
+    });
+    private final HashedTimerWheel wheel = new HashedTimerWheel("grant-timer-wheel", 1_000, 512, expiryExecutor);
+    private final Map<Integer, HashedTimerWheel.Timeout> timeouts = new ConcurrentHashMap<>();
+
+    @Autowired
+    public TemporaryGrantService(
+            TemporaryGrantRepository temporaryGrantRepository,
+            UserRepository userRepository,
+            RoleRepository roleRepository,
+            PermissionRepository permissionRepository,
+            UserService userService,
+            RoleService roleService,
+            TenantRepository tenantRepository,
+            PlatformTransactionManager transactionManager) {
+        this.temporaryGrantRepository = temporaryGrantRepository;
+        this.userRepository = userRepository;
+        this.roleRepository = roleRepository;
+        this.permissionRepository = permissionRepository;
+        this.userService = userService;
+        this.roleService = roleService;
+        this.tenantRepository = tenantRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void recover() {
+        int recovered = 0;
+        for (Tenant tenant : tenantRepository.findAll()) {
+            List<TemporaryGrant> grants = TenantContext.callAs(tenant.getId(),
+                    temporaryGrantRepository::findAllByOrderByExpiresAtAsc);
+            grants.forEach(this::schedule);
+            recovered += grants.size();
+        }
+        logger.info("Recovered {} temporary grants", recovered);
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        wheel.close();
+        expiryExecutor.shutdownNow();
+    }
+
+    public List<TemporaryGrant> getActiveGrants() {
+        return temporaryGrantRepository.findAllByOrderByExpiresAtAsc();
+    }
+
+    /**
+     * Gives a user an additional role until the deadline. Granting again extends or shortens the
+     * existing temporary grant; a role the user already holds permanently is rejected.
+     */
+    @Transactional
+    public TemporaryGrant grantRoleToUser(Integer userId, Integer roleId, TemporaryGrantDto grantDto) {
+        Instant expiresAt = deadlineOf(grantDto);
+        TemporaryGrant grant = temporaryGrantRepository
+                .findByTypeAndUserIdAndRoleId(TemporaryGrantType.ROLE_TO_USER, userId, roleId)
+                .orElse(null);
+        if (grant == null) {
+            User user = userService.getUserById(userId);
+            boolean held = user.effectiveRoles().stream().anyMatch(role -> role.getId().equals(roleId));
+            if (held) {
+                throw new ResourceAlreadyExistsException("User " + userId + " already holds role " + roleId);
+            }
+            userService.addRoleToUser(userId, roleId);
+            grant = new TemporaryGrant()
+                    .setType(TemporaryGrantType.ROLE_TO_USER)
+                    .setUserId(userId)
+                    .setRoleId(roleId);
+        }
+        return save(grant.setExpiresAt(expiresAt));
+    }
+
+    /**
+     * Gives a role a permission until the deadline, with the same rules as {@link #grantRoleToUser}.
+     */
+    @Transactional
+    public TemporaryGrant grantPermissionToRole(Integer roleId, Integer permissionId, TemporaryGrantDto grantDto) {
+        Instant expiresAt = deadlineOf(grantDto);
+        TemporaryGrant grant = temporaryGrantRepository
+                .findByTypeAndRoleIdAndPermissionId(TemporaryGrantType.PERMISSION_TO_ROLE, roleId, permissionId)
+                .orElse(null);
+        if (grant == null) {
+            Role role = roleService.getRoleById(roleId);
+            boolean held = role.getPermissions().stream().anyMatch(permission -> permission.getId().equals(permissionId));
+            if (held) {
+                throw new ResourceAlreadyExistsException("Role " + roleId + " already holds permission " + permissionId);
+            }
+            roleService.assignPermissionToRole(roleId, permissionId);
+            grant = new TemporaryGrant()
+                    .setType(TemporaryGrantType.PERMISSION_TO_ROLE)
+                    .setRoleId(roleId)
+                    .setPermissionId(permissionId);
+        }
+        return save(grant.setExpiresAt(expiresAt));
+    }
+
+    /**
+     * Ends a temporary grant now.
+     */
+    @Transactional
+    public void revokeGrant(Integer id) {
+        TemporaryGrant grant = temporaryGrantRepository.findById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("Temporary grant not found with id: " + id));
+        revoke(grant);
+    }
+
+    private TemporaryGrant save(TemporaryGrant grant) {
+        TemporaryGrant saved = temporaryGrantRepository.save(grant);
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                schedule(saved);
+            }
+        });
+        return saved;
+    }
+
+    private void schedule(TemporaryGrant grant) {
+        Integer id = grant.getId();
+        String tenantId = grant.getTenantId();
+        HashedTimerWheel.Timeout previous = timeouts.put(id, wheel.schedule(grant.getExpiresAt(),
+                () -> TenantContext.runAs(tenantId, () -> expire(id))));
+        if (previous != null) {
+            previous.cancel();
+        }
+    }
+
+    private void expire(Integer id) {
+        timeouts.remove(id);
+        try {
+            transactionTemplate.executeWithoutResult(status -> temporaryGrantRepository.findById(id).ifPresent(grant -> {
+                if (grant.getExpiresAt().isAfter(Instant.now())) {
+                    // Extended since this timeout was scheduled
+                    schedule(grant);
+                    return;
+                }
+                revoke(grant);
+                logger.info("Temporary grant {} expired: {} role {} user {} permission {}",
+                        id, grant.getType(), grant.getRoleId(), grant.getUserId(), grant.getPermissionId());
+            }));
+        } catch (RuntimeException e) {
+            logger.error("Could not expire temporary grant {}", id, e);
+        }
+    }
+
+    private void revoke(TemporaryGrant grant) {
+        temporaryGrantRepository.delete(grant);
+        // Skip grants whose user, role or permission has been deleted in the meantime
+        if (grant.getType() == TemporaryGrantType.ROLE_TO_USER) {
+            if (userRepository.existsById(grant.getUserId()) && roleRepository.existsById(grant.getRoleId())) {
+                userService.removeRoleFromUser(grant.getUserId(), grant.getRoleId());
+            }
+        } else if (roleRepository.existsById(grant.getRoleId()) && permissionRepository.existsById(grant.getPermissionId())) {
+            roleService.revokePermissionFromRole(grant.getRoleId(), grant.getPermissionId());
+        }
+        HashedTimerWheel.Timeout timeout = timeouts.remove(grant.getId());
+        if (timeout != null) {
+            timeout.cancel();
+        }
+    }
+
+    private static Instant deadlineOf(TemporaryGrantDto grantDto) {
+        if ((grantDto.getDuration() == null) == (grantDto.getExpiresAt() == null)) {
+            throw new InvalidRequestException("Exactly one of duration and expiresAt is required");
+        }
+        Instant expiresAt = grantDto.getExpiresAt() != null
+                ? grantDto.getExpiresAt()
+                : Instant.now().plus(grantDto.getDuration());
+        if (!expiresAt.isAfter(Instant.now())) {
+            throw new InvalidRequestException("The grant must expire in the future");
+        }
+        return expiresAt;
+    }
+}
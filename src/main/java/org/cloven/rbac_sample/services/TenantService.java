@@ -0,0 +1,71 @@
+package org.cloven.rbac_sample.services;
+
+import org.cloven.rbac_sample.bootstrap.DataLoader;
+import org.cloven.rbac_sample.dtos.TenantDto;
+import org.cloven.rbac_sample.exceptions.ResourceAlreadyExistsException;
+import org.cloven.rbac_sample.models.Tenant;
+import org.cloven.rbac_sample.repositories.TenantRepository;
+import org.cloven.rbac_sample.routing.RoutingContext;
+import org.cloven.rbac_sample.tenancy.TenantContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Creates tenants and tells the request filter which tenant ids exist. Every tenant gets the
+ * same starting data as the default tenant: the built-in roles, resources, actions and
+ * permissions, and one administrator.
+ */
+@Service
+public class TenantService {
+    private final TenantRepository tenantRepository;
+    private final DataLoader dataLoader;
+    private final Set<String> knownTenants = ConcurrentHashMap.newKeySet();
+
+    @Autowired
+    public TenantService(TenantRepository tenantRepository, DataLoader dataLoader) {
+        this.tenantRepository = tenantRepository;
+        this.dataLoader = dataLoader;
+    }
+
+    /**
+     * Returns true if the tenant exists. Tenants are never deleted, so a positive answer is
+     * remembered and only ids not seen before reach the database.
+     */
+    public boolean isKnownTenant(String tenantId) {
+        if (TenantContext.DEFAULT_TENANT.equals(tenantId) || knownTenants.contains(tenantId)) {
+            return true;
+        }
+        // On the primary, so that a tenant is usable as soon as it has been created
+        if (!TenantContext.isValidId(tenantId)
+                || !RoutingContext.callOnPrimary(() -> tenantRepository.existsById(tenantId))) {
+            return false;
+        }
+        knownTenants.add(tenantId);
+        return true;
+    }
+
+    public List<Tenant> getAllTenants() {
+        return tenantRepository.findAll();
+    }
+
+    /**
+     * Registers a tenant and seeds its data. Seeding runs as the new tenant, so everything it
+     * creates is stamped with the new tenant id.
+     */
+    public Tenant createTenant(TenantDto tenantDto) {
+        if (tenantRepository.existsById(tenantDto.getId())) {
+            throw new ResourceAlreadyExistsException("Tenant already exists with id: " + tenantDto.getId());
+        }
+        Tenant tenant = tenantRepository.save(new Tenant()
+                .setId(tenantDto.getId())
+                .setName(tenantDto.getName()));
+        TenantContext.runAs(tenant.getId(), () -> dataLoader.seed(
+                tenantDto.getAdminFullName(), tenantDto.getAdminEmail(), tenantDto.getAdminPassword()));
+        knownTenants.add(tenant.getId());
+        return tenant;
+    }
+}
@@ -0,0 +1,366 @@
+package org.cloven.rbac_sample.services;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.DeserializationFeature;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.dataformat.csv.CsvMapper;
+import com.fasterxml.jackson.dataformat.csv.CsvParser;
+import com.fasterxml.jackson.dataformat.csv.CsvSchema;
+import jakarta.annotation.PreDestroy;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.EntityManagerFactory;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.cloven.rbac_sample.dtos.RegisterUserDto;
+import org.cloven.rbac_sample.dtos.UserImportResult;
+import org.cloven.rbac_sample.models.Role;
+import org.cloven.rbac_sample.models.RoleEnum;
+import org.cloven.rbac_sample.models.User;
+import org.cloven.rbac_sample.policy.PermissionIndex;
+import org.cloven.rbac_sample.repositories.RoleRepository;
+import org.cloven.rbac_sample.tenancy.TenantContext;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.hibernate.engine.spi.SharedSessionContractImplementor;
+import org.hibernate.id.IdentifierGenerator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.NestedExceptionUtils;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.stream.Collectors;
+
+/**
+ * Creates users in bulk from CSV, with a header row naming the columns fullName, email, password
+ * and role, or from NDJSON with one {@link RegisterUserDto} per line. A missing role means USER.
+ *
+ * The body is parsed incrementally, {@value #CHUNK_SIZE} users at a time. Each chunk is validated
+ * as a whole: field constraints and role names per row, then one query for the emails already
+ * taken, so no password is hashed for a user that will be skipped. Its passwords are then hashed
+ * on a bounded pool while the previous chunk is inserted, so the request thread does not wait on
+ * BCrypt. A chunk is inserted in its own transaction, in JDBC batches with ids taken from the
+ * pooled sequence of the entity; a chunk that fails is rolled back and its rows are reported, and
+ * the import goes on with the next one.
+ *
+ * Rows whose email is taken are skipped, also when it is taken between validation and insert,
+ * which makes an import safe to re-run after a partial failure. The emails of the whole file are
+ * remembered to reject duplicates across chunks, as a chunk is validated before the one ahead of
+ * it is inserted.
+ */
+@Service
+public class UserImportService {
+    private static final Logger logger = LoggerFactory.getLogger(UserImportService.class);
+    private static final int CHUNK_SIZE = 1000;
+    private static final int MAX_ERRORS = 1000;
+    private static final String INSERT_USER = "insert into users "
+            + "(id, tenant_id, full_name, email, password, role_id, created_at, updated_at) "
+            + "select ?, ?, ?, ?, ?, ?, ?, ? where not exists (select 1 from users where tenant_id = ? and email = ?)";
+
+    private final RoleRepository roleRepository;
+    private final PasswordEncoder passwordEncoder;
+    private final PermissionIndex permissionIndex;
+    private final EntityManager entityManager;
+    private final JdbcTemplate jdbcTemplate;
+    private final Validator validator;
+    private final ObjectReader ndjsonReader;
+    private final ObjectReader csvReader;
+    private final TransactionTemplate transactionTemplate;
+    private final IdentifierGenerator userIds;
+    private final ExecutorService hashers;
+
+    @Autowired
+    public UserImportService(
+            RoleRepository roleRepository,
+            PasswordEncoder passwordEncoder,
+            PermissionIndex permissionIndex,
+            EntityManager entityManager,
+            EntityManagerFactory entityManagerFactory,
+            JdbcTemplate jdbcTemplate,
+            Validator validator,
+            ObjectMapper objectMapper,
+            PlatformTransactionManager transactionManager,
+            @Value("${app.user-import.hash-threads:4}") int hashThreads) {
+        this.roleRepository = roleRepository;
+        this.passwordEncoder = passwordEncoder;
+        this.permissionIndex = permissionIndex;
+        this.entityManager = entityManager;
+        this.jdbcTemplate = jdbcTemplate;
+        this.validator = validator;
+        this.ndjsonReader = objectMapper.readerFor(RegisterUserDto.class)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.csvReader = new CsvMapper().readerFor(RegisterUserDto.class)
+                .with(CsvSchema.emptySchema().withHeader())
+                .with(CsvParser.Feature.SKIP_EMPTY_LINES)
+                .without(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES);
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        // The generator of the entity, so ids come from the same pooled sequence as users saved
+        // through Hibernate, a block of them per database call
+        this.userIds = (IdentifierGenerator) entityManagerFactory.unwrap(SessionFactoryImplementor.class)
+                .getMappingMetamodel().getEntityDescriptor(User.class).getGenerator();
+        // Room for the chunk being hashed and the next one; beyond that the request thread hashes
+        // itself, which holds back parsing instead of queueing without limit
+        AtomicInteger threads = new AtomicInteger();
+        this.hashers = new ThreadPoolExecutor(hashThreads, hashThreads, 0, TimeUnit.MILLISECONDS,
+                new LinkedBlockingQueue<>(2 * CHUNK_SIZE), runnable -> {
+                    Thread thread = new Thread(runnable, "user-import-hashing-" + threads.incrementAndGet());
+                    thread.setDaemon(true);
+                    return thread;
+                }, new ThreadPoolExecutor.CallerRunsPolicy());
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        hashers.shutdownNow();
+    }
+
+    public UserImportResult importFrom(InputStream inputStream, boolean csv) throws IOException {
+        long start = System.currentTimeMillis();
+        ImportContext context = new ImportContext();
+        roleRepository.findAllNames().forEach(role -> context.roleIds.put(role.getName(), role.getId()));
+
+        Chunk pending = null;
+        try (MappingIterator<RegisterUserDto> users = (csv ? csvReader : ndjsonReader).readValues(inputStream)) {
+            List<Row> rows = new ArrayList<>(CHUNK_SIZE);
+            while (true) {
+                RegisterUserDto user;
+                try {
+                    if (!users.hasNextValue()) {
+                        break;
+                    }
+                    user = users.nextValue();
+                } catch (JsonProcessingException e) {
+                    // The stream cannot be resynchronised reliably, so stop after what was read so far
+                    context.fail(new Row(context.rows + 1, null), "Unreadable row, import stopped: " + e.getOriginalMessage());
+                    break;
+                }
+                rows.add(new Row(++context.rows, user));
+                if (rows.size() == CHUNK_SIZE) {
+                    pending = advance(context, pending, rows);
+                    rows = new ArrayList<>(CHUNK_SIZE);
+                }
+            }
+            pending = advance(context, pending, rows);
+            Chunk last = pending;
+            pending = null;
+            insert(context, last);
+        } finally {
+            cancel(pending);
+        }
+
+        logger.info("Imported {} users: created {}, skipped {}, failed {}",
+                context.rows, context.created, context.skipped, context.failed);
+        return new UserImportResult()
+                .setRows(context.rows)
+                .setCreated(context.created)
+                .setSkipped(context.skipped)
+                .setFailed(context.failed)
+                .setErrors(context.errors)
+                .setElapsedMs(System.currentTimeMillis() - start);
+    }
+
+    /**
+     * Prepares the next chunk, then inserts the pending one while the next is being hashed.
+     */
+    private Chunk advance(ImportContext context, Chunk pending, List<Row> rows) {
+        Chunk next = prepare(context, rows);
+        try {
+            insert(context, pending);
+        } catch (RuntimeException e) {
+            cancel(next);
+            throw e;
+        }
+        return next;
+    }
+
+    private static void cancel(Chunk chunk) {
+        if (chunk != null) {
+            chunk.hashes().forEach(hash -> hash.cancel(false));
+        }
+    }
+
+    /**
+     * Validates a chunk and starts hashing the passwords of the rows to create.
+     */
+    private Chunk prepare(ImportContext context, List<Row> rows) {
+        Map<String, Row> valid = new LinkedHashMap<>();
+        for (Row row : rows) {
+            RegisterUserDto user = row.user();
+            if (user.getRole() == null || user.getRole().isBlank()) {
+                user.setRole(RoleEnum.USER.name());
+            }
+            Set<ConstraintViolation<RegisterUserDto>> violations = validator.validate(user);
+            if (!violations.isEmpty()) {
+                context.fail(row, violations.stream()
+                        .map(ConstraintViolation::getMessage)
+                        .sorted()
+                        .collect(Collectors.joining("; ")));
+                continue;
+            }
+            if (!context.roleIds.containsKey(user.getRole())) {
+                context.fail(row, "Role not found: " + user.getRole());
+                continue;
+            }
+            Long first = context.emails.putIfAbsent(user.getEmail(), row.number());
+            if (first != null) {
+                context.fail(row, "Duplicate of row " + first);
+                continue;
+            }
+            valid.put(user.getEmail(), row);
+        }
+        if (!valid.isEmpty()) {
+            findTakenEmails(valid.keySet()).forEach(email -> {
+                valid.remove(email);
+                context.skipped++;
+            });
+        }
+
+        List<Row> accepted = new ArrayList<>(valid.values());
+        List<Future<String>> hashes = new ArrayList<>(accepted.size());
+        for (Row row : accepted) {
+            String password = row.user().getPassword();
+            hashes.add(hashers.submit(() -> passwordEncoder.encode(password)));
+        }
+        return new Chunk(accepted, hashes);
+    }
+
+    /**
+     * The emails already taken, in one query probing the unique key once per email. An IN list
+     * after the tenant id is not matched against that index by every database, which then scans
+     * all users of the tenant instead. Native SQL bypasses the tenant filter, so the lookup names
+     * the tenant itself.
+     */
+    private List<String> findTakenEmails(Collection<String> emails) {
+        List<Object> args = new ArrayList<>(emails);
+        args.add(TenantContext.get());
+        return jdbcTemplate.queryForList("select v.email from (values "
+                + String.join(", ", Collections.nCopies(emails.size(), "(?)")) + ") v (email) where exists "
+                + "(select 1 from users u where u.tenant_id = ? and u.email = v.email)", String.class, args.toArray());
+    }
+
+    private void insert(ImportContext context, Chunk chunk) {
+        if (chunk == null || chunk.rows().isEmpty()) {
+            return;
+        }
+        // Hashes are awaited before the transaction starts, so it is not held open meanwhile
+        List<Row> rows = new ArrayList<>(chunk.rows().size());
+        List<String> passwords = new ArrayList<>(chunk.rows().size());
+        for (int i = 0; i < chunk.rows().size(); i++) {
+            Row row = chunk.rows().get(i);
+            try {
+                passwords.add(chunk.hashes().get(i).get());
+                rows.add(row);
+            } catch (ExecutionException e) {
+                context.fail(row, "Password could not be hashed: " + e.getCause().getMessage());
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                cancel(chunk);
+                throw new IllegalStateException("Interrupted while hashing passwords", e);
+            }
+        }
+        if (rows.isEmpty()) {
+            return;
+        }
+
+        // Native SQL bypasses the tenant filter, so the rows name the tenant themselves
+        String tenantId = TenantContext.get();
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        try {
+            int created = transactionTemplate.execute(status -> {
+                SharedSessionContractImplementor session = entityManager.unwrap(SharedSessionContractImplementor.class);
+                List<User> users = new ArrayList<>(rows.size());
+                for (int i = 0; i < rows.size(); i++) {
+                    RegisterUserDto user = rows.get(i).user();
+                    users.add(new User()
+                            .setId((Integer) userIds.generate(session, null))
+                            .setFullName(user.getFullName())
+                            .setEmail(user.getEmail())
+                            .setPassword(passwords.get(i))
+                            .setRole(entityManager.getReference(Role.class, context.roleIds.get(user.getRole()))));
+                }
+                int[][] counts = jdbcTemplate.batchUpdate(INSERT_USER, users, CHUNK_SIZE, (statement, user) -> {
+                    statement.setInt(1, user.getId());
+                    statement.setString(2, tenantId);
+                    statement.setString(3, user.getFullName());
+                    statement.setString(4, user.getEmail());
+                    statement.setString(5, user.getPassword());
+                    statement.setInt(6, user.getRole().getId());
+                    statement.setTimestamp(7, now);
+                    statement.setTimestamp(8, now);
+                    statement.setString(9, tenantId);
+                    statement.setString(10, user.getEmail());
+                });
+                int inserted = 0;
+                int index = 0;
+                for (int[] batch : counts) {
+                    for (int count : batch) {
+                        // A user signed up with the email since the chunk was validated inserts nothing
+                        if (count != 0) {
+                            permissionIndex.onUserSaved(users.get(index));
+                            inserted++;
+                        }
+                        index++;
+                    }
+                }
+                return inserted;
+            });
+            context.created += created;
+            context.skipped += rows.size() - created;
+        } catch (RuntimeException e) {
+            logger.warn("Could not import users {} to {}", rows.get(0).number(), rows.get(rows.size() - 1).number(), e);
+            String message = "Rolled back with rows " + rows.get(0).number() + " to " + rows.get(rows.size() - 1).number()
+                    + ": " + NestedExceptionUtils.getMostSpecificCause(e).getMessage();
+            rows.forEach(row -> context.fail(row, message));
+        }
+    }
+
+    private record Row(long number, RegisterUserDto user) {
+    }
+
+    /**
+     * Validated rows of a chunk, with their password hashes in the same order.
+     */
+    private record Chunk(List<Row> rows, List<Future<String>> hashes) {
+    }
+
+    /**
+     * Lookups and counters carried from one chunk to the next.
+     */
+    private static final class ImportContext {
+        private final Map<String, Integer> roleIds = new HashMap<>();
+        // Email to the row it was first seen in
+        private final Map<String, Long> emails = new HashMap<>();
+        private final List<UserImportResult.RowError> errors = new ArrayList<>();
+        private long rows;
+        private long created;
+        private long skipped;
+        private long failed;
+
+        private void fail(Row row, String message) {
+            failed++;
+            if (errors.size() < MAX_ERRORS) {
+                errors.add(new UserImportResult.RowError()
+                        .setRow(row.number())
+                        .setEmail(row.user() != null ? row.user().getEmail() : null)
+                        .setMessage(message));
+            }
+        }
+    }
+}
@@ -1,12 +1,28 @@
 package org.cloven.rbac_sample.services;
 
+import org.cloven.rbac_sample.activity.ActivityTracker;
+import org.cloven.rbac_sample.batching.RepositoryLoaders;
+import org.cloven.rbac_sample.dtos.PageDto;
+import org.cloven.rbac_sample.dtos.PermissionHoldersDto;
 import org.cloven.rbac_sample.dtos.RegisterUserDto;
 import org.cloven.rbac_sample.dtos.UpdateUserDto;
+import org.cloven.rbac_sample.dtos.UserResponseDto;
 import org.cloven.rbac_sample.exceptions.ResourceNotFoundException;
 import org.cloven.rbac_sample.models.*;
+import org.cloven.rbac_sample.paging.Filters;
+import org.cloven.rbac_sample.paging.Keyset;
+import org.cloven.rbac_sample.paging.KeysetRequest;
+import org.cloven.rbac_sample.policy.PermissionIndex;
+import org.cloven.rbac_sample.repositories.GroupRepository;
 import org.cloven.rbac_sample.repositories.RoleRepository;
+import org.cloven.rbac_sample.repositories.TemporaryGrantRepository;
 import org.cloven.rbac_sample.repositories.UserRepository;
+import org.cloven.rbac_sample.security.PrincipalCache;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Subquery;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.security.core.userdetails.UserDetails;
 import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.core.userdetails.UsernameNotFoundException;
@@ -14,50 +30,134 @@ import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
 
+import java.time.Instant;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.Date;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.Set;
 import java.util.stream.Collectors;
 
 @Service
 public class UserService implements UserDetailsService {
+    private static final Set<String> USER_SORTS = Set.of("id", "fullName", "email", "createdAt");
+
     private final UserRepository userRepository;
     private final RoleRepository roleRepository;
+    private final GroupRepository groupRepository;
+    private final TemporaryGrantRepository temporaryGrantRepository;
     private final PasswordEncoder passwordEncoder;
     private final PermissionService permissionService;
+    private final PermissionIndex permissionIndex;
+    private final PrincipalCache principalCache;
+    private final RepositoryLoaders repositoryLoaders;
+    private final ActivityTracker activityTracker;
+    private final EntityManager entityManager;
 
     @Autowired
     public UserService(
             UserRepository userRepository, 
             RoleRepository roleRepository, 
+            GroupRepository groupRepository, 
+            TemporaryGrantRepository temporaryGrantRepository, 
             PasswordEncoder passwordEncoder,
-            PermissionService permissionService) {
+            PermissionService permissionService,
+            PermissionIndex permissionIndex,
+            PrincipalCache principalCache,
+            RepositoryLoaders repositoryLoaders,
+            ActivityTracker activityTracker,
+            EntityManager entityManager) {
         this.userRepository = userRepository;
         this.roleRepository = roleRepository;
+        this.groupRepository = groupRepository;
+        this.temporaryGrantRepository = temporaryGrantRepository;
         this.passwordEncoder = passwordEncoder;
         this.permissionService = permissionService;
+        this.permissionIndex = permissionIndex;
+        this.principalCache = principalCache;
+        this.repositoryLoaders = repositoryLoaders;
+        this.activityTracker = activityTracker;
+        this.entityManager = entityManager;
     }
 
     @Override
     public UserDetails loadUserByUsername(String email) throws UsernameNotFoundException {
-        return userRepository.findByEmail(email)
+        return repositoryLoaders.userByEmail(email)
                 .orElseThrow(() -> new UsernameNotFoundException("User not found with email: " + email));
     }
 
-    public List<User> getAllUsers() {
-        List<User> users = new ArrayList<>();
-        userRepository.findAll().forEach(users::add);
+    /**
+     * One page of the users, optionally only those holding a role (as primary or additional role),
+     * whose full name or email starts with a prefix, or created after a point in time.
+     */
+    @Transactional(readOnly = true)
+    public PageDto<UserResponseDto> getUsers(
+            String roleName, String namePrefix, String emailPrefix, Instant createdAfter, KeysetRequest page) {
+        Specification<User> filter = Specification.where(Filters.<User>startsWith("fullName", namePrefix))
+                .and(Filters.startsWith("email", emailPrefix))
+                .and(Filters.createdAfter(createdAfter));
+        if (roleName != null && !roleName.isBlank()) {
+            Optional<Integer> roleId = roleRepository.findIdByName(roleName);
+            if (roleId.isEmpty()) {
+                return new PageDto<UserResponseDto>().setItems(List.of());
+            }
+            filter = filter.and(holdingRole(roleId.get()));
+        }
+        PageDto<UserResponseDto> users = Keyset.pageOfRows(entityManager, User.class, filter, page, USER_SORTS,
+                UserRepository::responseOf);
+        addAdditionalRoles(users.getItems());
+        return users;
+    }
+
+    /**
+     * Fills in the additional role names of users read by a projection, with one query.
+     */
+    public List<UserResponseDto> addAdditionalRoles(List<UserResponseDto> users) {
+        if (users.isEmpty()) {
+            return users;
+        }
+        Map<Integer, UserResponseDto> byId = new HashMap<>();
+        users.forEach(user -> byId.put(user.getId(), user));
+        userRepository.findAdditionalRoleNamesByUserIdIn(byId.keySet())
+                .forEach(role -> byId.get(role.getUserId()).getAdditionalRoles().add(role.getName()));
+        return users;
+    }
+
+    private static Specification<User> holdingRole(Integer roleId) {
+        return (root, query, builder) -> {
+            Subquery<Integer> additional = query.subquery(Integer.class);
+            Root<User> holder = additional.from(User.class);
+            additional.select(holder.get("id")).where(
+                    builder.equal(holder.get("id"), root.get("id")),
+                    builder.equal(holder.join("additionalRoles").get("id"), roleId));
+            return builder.or(builder.equal(root.get("role").get("id"), roleId), builder.exists(additional));
+        };
+    }
+
+    /**
+     * Users not seen on any request since the given time: first those created before it who have
+     * never been seen, then the others, least recently seen first. Activity still held in memory
+     * is written first, so users active in the last few seconds are not reported.
+     */
+    public List<User> getInactiveUsers(Instant since) {
+        activityTracker.flush();
+        Date cutoff = Date.from(since);
+        List<User> users = new ArrayList<>(userRepository.findByLastSeenAtIsNullAndCreatedAtBefore(cutoff));
+        users.addAll(userRepository.findByLastSeenAtBeforeOrderByLastSeenAtAsc(cutoff));
         return users;
     }
 
     public User getUserById(Integer id) {
-        return userRepository.findById(id)
+        return repositoryLoaders.userById(id)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
     }
 
     public User getUserByEmail(String email) {
-        return userRepository.findByEmail(email)
+        return repositoryLoaders.userByEmail(email)
                 .orElseThrow(() -> new ResourceNotFoundException("User not found with email: " + email));
     }
 
@@ -74,12 +174,16 @@ public class UserService implements UserDetailsService {
                 .setPassword(passwordEncoder.encode(registerUserDto.getPassword()))
                 .setRole(role);
 
-        return userRepository.save(user);
+        User savedUser = userRepository.save(user);
+        permissionIndex.onUserSaved(savedUser);
+        return savedUser;
     }
 
     @Transactional
     public User updateUser(Integer id, UpdateUserDto updateUserDto) {
-        User user = getUserById(id);
+        // The updated user is returned whole, authorities included
+        User user = userRepository.findWithAuthoritiesById(id)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + id));
 
         if (updateUserDto.getFullName() != null) {
             user.setFullName(updateUserDto.getFullName());
@@ -97,8 +201,10 @@ public class UserService implements UserDetailsService {
             Role role = roleRepository.findByName(updateUserDto.getRole())
                     .orElseThrow(() -> new ResourceNotFoundException("Role not found: " + updateUserDto.getRole()));
             user.setRole(role);
+            permissionIndex.onUserSaved(user);
         }
 
+        principalCache.evictUser(id);
         return userRepository.save(user);
     }
 
@@ -107,16 +213,83 @@ public class UserService implements UserDetailsService {
         if (!userRepository.existsById(id)) {
             throw new ResourceNotFoundException("User not found with id: " + id);
         }
+        groupRepository.removeUserFromAllGroups(id);
         userRepository.deleteById(id);
+        permissionIndex.onUserDeleted(id);
+        principalCache.evictUser(id);
+    }
+
+    @Transactional
+    public User addRoleToUser(Integer userId, Integer roleId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+        Role role = roleRepository.findById(roleId)
+                .orElseThrow(() -> new ResourceNotFoundException("Role not found with id: " + roleId));
+
+        user.getAdditionalRoles().add(role);
+        // A permanent assignment supersedes a temporary one
+        temporaryGrantRepository.deleteUserRoleGrant(userId, roleId);
+        User savedUser = userRepository.save(user);
+        permissionIndex.onUserSaved(savedUser);
+        return savedUser;
+    }
+
+    @Transactional
+    public User removeRoleFromUser(Integer userId, Integer roleId) {
+        User user = userRepository.findById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+        if (!roleRepository.existsById(roleId)) {
+            throw new ResourceNotFoundException("Role not found with id: " + roleId);
+        }
+
+        user.getAdditionalRoles().removeIf(role -> role.getId().equals(roleId));
+        temporaryGrantRepository.deleteUserRoleGrant(userId, roleId);
+        User savedUser = userRepository.save(user);
+        permissionIndex.onUserSaved(savedUser);
+        return savedUser;
+    }
+
+    /**
+     * Pages through the users able to perform an action on a resource using the permission index,
+     * so only the users on the requested page are loaded.
+     */
+    public PermissionHoldersDto getUsersWithPermission(String resourceName, String actionName, Integer after, int size) {
+        List<Integer> userIds = permissionIndex.findHolders(resourceName, actionName, after, size);
+
+        List<UserResponseDto> users = userRepository.findAllById(userIds).stream()
+                .sorted(Comparator.comparing(User::getId))
+                .map(UserResponseDto::fromEntity)
+                .collect(Collectors.toList());
+
+        return new PermissionHoldersDto()
+                .setResourceName(resourceName)
+                .setActionName(actionName)
+                .setTotalUsers(permissionIndex.countHolders(resourceName, actionName))
+                .setUsers(users)
+                .setNextCursor(userIds.size() == size ? userIds.get(userIds.size() - 1) : null);
+    }
+
+    public Iterator<Integer> streamUserIdsWithPermission(String resourceName, String actionName) {
+        return permissionIndex.holders(resourceName, actionName, null);
     }
 
     public boolean checkUserPermission(Integer userId, String resourceName, String actionName) {
-        User user = getUserById(userId);
-        Role role = user.getRole();
-        
-        Set<Permission> permissions = role.getPermissions();
-        
-        return permissions.stream()
+        Boolean permitted = permissionIndex.isPermitted(userId, resourceName, actionName);
+        if (permitted != null) {
+            return permitted;
+        }
+
+        User user = userRepository.findWithAuthoritiesById(userId)
+                .orElseThrow(() -> new ResourceNotFoundException("User not found with id: " + userId));
+
+        // The same roles the index would use: the user's own and those of their groups
+        Set<Role> roles = user.effectiveRoles();
+        List<Integer> inherited = groupRepository.findInheritedRoleIds(userId);
+        if (!inherited.isEmpty()) {
+            roleRepository.findAllById(inherited).forEach(roles::add);
+        }
+        return roles.stream()
+                .flatMap(role -> role.getPermissions().stream())
                 .anyMatch(permission -> 
                         permission.getResource().getName().equals(resourceName) && 
                         permission.getAction().getName().equals(actionName));
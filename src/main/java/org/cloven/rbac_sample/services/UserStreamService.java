@@ -0,0 +1,84 @@
+package org.cloven.rbac_sample.services;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import org.cloven.rbac_sample.dtos.UserResponseDto;
+import org.cloven.rbac_sample.repositories.UserRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.stream.Stream;
+
+/**
+ * Writes every user to a response without building the list first. Users are read straight into
+ * DTOs through a forward-only JPA stream, so no entity is loaded, and handled {@value #CHUNK_SIZE}
+ * at a time: the chunk's additional roles are read with one query, each user is written with a
+ * Jackson generator and the output is flushed. Memory use is bounded by the chunk, not by the
+ * number of users, and the first users reach the client while the rest are still being read.
+ */
+@Service
+public class UserStreamService {
+    private static final Logger logger = LoggerFactory.getLogger(UserStreamService.class);
+    private static final int CHUNK_SIZE = 500;
+
+    private final UserRepository userRepository;
+    private final UserService userService;
+    private final ObjectMapper objectMapper;
+
+    @Autowired
+    public UserStreamService(UserRepository userRepository, UserService userService, ObjectMapper objectMapper) {
+        this.userRepository = userRepository;
+        this.userService = userService;
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Writes the users ordered by id, either as newline-delimited JSON or as one JSON array.
+     */
+    @Transactional(readOnly = true)
+    public void writeUsers(OutputStream outputStream, boolean ndjson) throws IOException {
+        // Flushing is done per chunk, not after every user
+        ObjectWriter writer = objectMapper.writerFor(UserResponseDto.class)
+                .without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+        long count = 0;
+        try (Stream<UserResponseDto> users = userRepository.streamResponsesByOrderById();
+             JsonGenerator generator = objectMapper.getFactory().createGenerator(outputStream)) {
+            generator.disable(JsonGenerator.Feature.AUTO_CLOSE_TARGET);
+            // Users are separated by the array's commas or by the newline ending each line, not by spaces
+            generator.setRootValueSeparator(null);
+            if (!ndjson) {
+                generator.writeStartArray();
+            }
+            Iterator<UserResponseDto> iterator = users.iterator();
+            List<UserResponseDto> chunk = new ArrayList<>(CHUNK_SIZE);
+            while (iterator.hasNext()) {
+                chunk.add(iterator.next());
+                if (chunk.size() == CHUNK_SIZE || !iterator.hasNext()) {
+                    for (UserResponseDto user : userService.addAdditionalRoles(chunk)) {
+                        writer.writeValue(generator, user);
+                        if (ndjson) {
+                            generator.writeRaw('\n');
+                        }
+                    }
+                    count += chunk.size();
+                    chunk.clear();
+                    generator.flush();
+                }
+            }
+            if (!ndjson) {
+                generator.writeEndArray();
+            }
+        }
+        logger.info("Streamed {} users", count);
+    }
+}
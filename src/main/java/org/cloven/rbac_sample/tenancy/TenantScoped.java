@@ -0,0 +1,8 @@
+package org.cloven.rbac_sample.tenancy;
+
+/**
+ * An entity that belongs to one tenant, recorded in its {@code @TenantId} column.
+ */
+public interface TenantScoped {
+    String getTenantId();
+}
@@ -0,0 +1,29 @@
+package org.cloven.rbac_sample.tenancy;
+
+import jakarta.persistence.EntityManager;
+import org.springframework.data.jpa.repository.support.JpaEntityInformation;
+import org.springframework.data.jpa.repository.support.SimpleJpaRepository;
+
+import java.util.Optional;
+
+/**
+ * Base class of all repositories. Hibernate restricts queries on tenant-scoped entities to the
+ * current tenant, but a lookup by primary key goes straight to the row, so this checks the
+ * tenant of the entity found. Ids come from a single sequence and never repeat across tenants,
+ * so another tenant's row simply reads as missing. {@code deleteById} goes through the same check.
+ */
+public class TenantScopedRepository<T, ID> extends SimpleJpaRepository<T, ID> {
+
+    public TenantScopedRepository(JpaEntityInformation<T, ?> entityInformation, EntityManager entityManager) {
+        super(entityInformation, entityManager);
+    }
+
+    @Override
+    public Optional<T> findById(ID id) {
+        return super.findById(id).filter(TenantScopedRepository::isVisible);
+    }
+
+    private static boolean isVisible(Object entity) {
+        return !(entity instanceof TenantScoped scoped) || TenantContext.get().equals(scoped.getTenantId());
+    }
+}
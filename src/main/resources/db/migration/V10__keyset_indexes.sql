@@ -0,0 +1,10 @@
+-- Keyset pages of the list endpoints, one index per sort and filter
+
+create index if not exists idx_actions_tenant_created_at on actions (tenant_id, created_at, id);
+create index if not exists idx_resources_tenant_created_at on resources (tenant_id, created_at, id);
+create index if not exists idx_permissions_tenant_created_at on permissions (tenant_id, created_at, id);
+create index if not exists idx_permissions_action on permissions (action_id);
+create index if not exists idx_roles_tenant_created_at on roles (tenant_id, created_at, id);
+create index if not exists idx_users_tenant_full_name on users (tenant_id, full_name, id);
+create index if not exists idx_users_tenant_created_at on users (tenant_id, created_at, id);
+create index if not exists idx_users_tenant_role on users (tenant_id, role_id, id);
@@ -0,0 +1,29 @@
+-- Indexes for the lookups that no key serves. PostgreSQL indexes a primary key or unique
+-- constraint, but not a foreign key, so the join tables were only reachable from their first
+-- key column; each now has the reverse index too, holding both columns so the lookup reads the
+-- index alone.
+
+-- Permissions of a role: loaded with every role, and read by grants and revocations
+create index idx_role_permissions_role on role_permissions (role_id, permission_id);
+
+-- Additional roles of a user: loaded with every authenticated user
+create index idx_user_roles_user on user_roles (user_id, role_id);
+
+-- Groups of a user, and the groups granting a role; both removed when the user or role is deleted
+create index idx_group_members_user on group_members (user_id, group_id);
+create index idx_group_roles_role on group_roles (role_id, group_id);
+
+-- Subgroups of a group, walked when resolving group roles
+create index idx_group_subgroups_parent on group_subgroups (parent_id, child_id);
+
+-- Users holding a role, checked by the foreign key when a role is deleted. Lookups within a
+-- tenant use idx_users_tenant_role instead
+create index idx_users_role on users (role_id);
+
+-- Temporary grants replaced or removed with the grant they expire, by user and role or by
+-- role and permission
+create index idx_temporary_grants_user_role on temporary_grants (user_id, role_id);
+create index idx_temporary_grants_role_permission on temporary_grants (role_id, permission_id);
+
+-- Latest revision of the policy, and the changes after a revision, within a tenant
+create index idx_policy_changes_tenant on policy_changes (tenant_id, id);
@@ -0,0 +1,71 @@
+-- The schema as Hibernate created it with ddl-auto=update before migrations were introduced, for
+-- H2 and PostgreSQL alike. Databases created that way are baselined at this version, so it must
+-- not change. Their unique and check constraints on single columns were created inline and named
+-- by the database, so later migrations cannot refer to them by name.
+
+create sequence actions_seq start with 1 increment by 50;
+create sequence permissions_seq start with 1 increment by 50;
+create sequence resources_seq start with 1 increment by 50;
+create sequence roles_seq start with 1 increment by 50;
+create sequence users_seq start with 1 increment by 50;
+
+create table actions (
+    id integer not null,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    description varchar(255),
+    name varchar(255) not null unique,
+    primary key (id)
+);
+
+create table permissions (
+    action_id integer not null,
+    id integer not null,
+    resource_id integer not null,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    description varchar(255),
+    primary key (id),
+    constraint UK41x5tkylpxm2j0k49k43i289o unique (resource_id, action_id)
+);
+
+create table resources (
+    id integer not null,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    description varchar(255),
+    name varchar(255) not null unique,
+    primary key (id)
+);
+
+create table role_permissions (
+    permission_id integer not null,
+    role_id integer not null,
+    primary key (permission_id, role_id)
+);
+
+create table roles (
+    id integer not null,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    description varchar(255) not null,
+    name varchar(255) not null unique check (name in ('ADMIN','MODERATOR','USER')),
+    primary key (id)
+);
+
+create table users (
+    id integer not null,
+    role_id integer not null,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    email varchar(255) not null unique,
+    full_name varchar(255) not null,
+    password varchar(255) not null,
+    primary key (id)
+);
+
+alter table permissions add constraint FKql5yu3r5kbeww3liqu42u6r84 foreign key (action_id) references actions;
+alter table permissions add constraint FKio77ost2pn4qdd6hly0clvca6 foreign key (resource_id) references resources;
+alter table role_permissions add constraint FKegdk29eiy7mdtefy5c7eirr6e foreign key (permission_id) references permissions;
+alter table role_permissions add constraint FKn5fotdgk8d1xvo8nav9uv3muc foreign key (role_id) references roles;
+alter table users add constraint FKp56c1712k691lhsyewcssf40f foreign key (role_id) references roles;
@@ -0,0 +1,13 @@
+-- Roles may have any name. roles.name held a RoleEnum constant, checked against the built-in
+-- names by a constraint the database named. Replacing the column drops that check together with
+-- the column's unique constraint, which is added again under a name of its own.
+
+-- Added by ddl-auto on databases that already had tenants, and again by V7
+alter table roles drop constraint if exists UKsuwu1b9alcy0oj4j3g6apo8a4;
+
+alter table roles add column role_name varchar(64);
+update roles set role_name = name;
+alter table roles drop column name;
+alter table roles rename column role_name to name;
+alter table roles alter column name set not null;
+alter table roles add constraint uk_roles_name unique (name);
@@ -0,0 +1,10 @@
+-- Roles a user holds on top of the primary one. Tables and indexes from here on may already exist
+-- where ddl-auto created them before the database was baselined.
+
+create table if not exists user_roles (
+    role_id integer not null,
+    user_id integer not null,
+    primary key (role_id, user_id),
+    constraint FKh8ciramu9cc9q3qcqiv4ue8a6 foreign key (role_id) references roles,
+    constraint FKhfh9dx7w3ubf1co1vdev94g3f foreign key (user_id) references users
+);
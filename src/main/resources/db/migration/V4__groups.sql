@@ -0,0 +1,37 @@
+-- Nested user groups, their members and the roles they grant
+
+create sequence if not exists user_groups_seq start with 1 increment by 50;
+
+create table if not exists user_groups (
+    id integer not null,
+    created_at timestamp(6),
+    updated_at timestamp(6),
+    description varchar(255),
+    name varchar(255) not null,
+    primary key (id),
+    constraint uk_user_groups_name unique (name)
+);
+
+create table if not exists group_members (
+    group_id integer not null,
+    user_id integer not null,
+    primary key (group_id, user_id),
+    constraint FKdak9rix2b3s3lmv7ftnooi346 foreign key (group_id) references user_groups,
+    constraint FKnr9qg33qt2ovmv29g4vc3gtdx foreign key (user_id) references users
+);
+
+create table if not exists group_roles (
+    group_id integer not null,
+    role_id integer not null,
+    primary key (group_id, role_id),
+    constraint FKdsbso5wh9tsx1cgl58g733f2n foreign key (group_id) references user_groups,
+    constraint FKdn71ntrtc8bboifjflu9amu1g foreign key (role_id) references roles
+);
+
+create table if not exists group_subgroups (
+    child_id integer not null,
+    parent_id integer not null,
+    primary key (child_id, parent_id),
+    constraint FKtkkcn7b1amq8d7mepko3d39cf foreign key (child_id) references user_groups,
+    constraint FKbekcsop7u929cls2lqc7qx2hf foreign key (parent_id) references user_groups
+);
@@ -0,0 +1,16 @@
+-- Grants of a role to a user, or of a permission to a role, that expire
+
+create sequence if not exists temporary_grants_seq start with 1 increment by 50;
+
+create table if not exists temporary_grants (
+    id integer not null,
+    permission_id integer,
+    role_id integer not null,
+    user_id integer,
+    created_at timestamp(6),
+    expires_at timestamp(6) with time zone not null,
+    type varchar(255) not null check (type in ('ROLE_TO_USER','PERMISSION_TO_ROLE')),
+    primary key (id)
+);
+
+create index if not exists idx_temporary_grants_expires_at on temporary_grants (expires_at);
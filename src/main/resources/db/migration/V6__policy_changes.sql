@@ -0,0 +1,13 @@
+-- The log of permission grants and revocations that policy revisions are numbered by
+
+create sequence if not exists policy_changes_seq start with 1 increment by 50;
+
+create table if not exists policy_changes (
+    granted boolean not null,
+    permission_id integer not null,
+    role_id integer not null,
+    created_at timestamp(6),
+    id bigint not null,
+    rollback_to bigint,
+    primary key (id)
+);
@@ -0,0 +1,83 @@
+-- Every tenant-scoped row belongs to a tenant, and names and emails are unique per tenant. The
+-- rows that exist already belong to the default tenant.
+
+create table if not exists tenants (
+    created_at timestamp(6),
+    id varchar(64) not null,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+insert into tenants (created_at, id, name)
+select current_timestamp, 'default', 'Default' where not exists (select 1 from tenants where id = 'default');
+
+alter table actions add column if not exists tenant_id varchar(64);
+update actions set tenant_id = 'default' where tenant_id is null;
+alter table actions alter column tenant_id set not null;
+
+alter table resources add column if not exists tenant_id varchar(64);
+update resources set tenant_id = 'default' where tenant_id is null;
+alter table resources alter column tenant_id set not null;
+
+alter table permissions add column if not exists tenant_id varchar(64);
+update permissions set tenant_id = 'default' where tenant_id is null;
+alter table permissions alter column tenant_id set not null;
+
+alter table roles add column if not exists tenant_id varchar(64);
+update roles set tenant_id = 'default' where tenant_id is null;
+alter table roles alter column tenant_id set not null;
+
+alter table users add column if not exists tenant_id varchar(64);
+update users set tenant_id = 'default' where tenant_id is null;
+alter table users alter column tenant_id set not null;
+
+alter table user_groups add column if not exists tenant_id varchar(64);
+update user_groups set tenant_id = 'default' where tenant_id is null;
+alter table user_groups alter column tenant_id set not null;
+
+alter table temporary_grants add column if not exists tenant_id varchar(64);
+update temporary_grants set tenant_id = 'default' where tenant_id is null;
+alter table temporary_grants alter column tenant_id set not null;
+
+alter table policy_changes add column if not exists tenant_id varchar(64);
+update policy_changes set tenant_id = 'default' where tenant_id is null;
+alter table policy_changes alter column tenant_id set not null;
+
+-- The unique constraints on names and emails alone were named by the database, so these columns
+-- are replaced, which drops them. The per-tenant constraints are dropped first where ddl-auto
+-- added them already, as a column in a constraint over several columns cannot be dropped in H2.
+
+alter table actions drop constraint if exists UKiot9ralfqipbvj2doeyummpml;
+alter table actions add column new_name varchar(255);
+update actions set new_name = name;
+alter table actions drop column name;
+alter table actions rename column new_name to name;
+alter table actions alter column name set not null;
+alter table actions add constraint UKiot9ralfqipbvj2doeyummpml unique (tenant_id, name);
+
+alter table resources drop constraint if exists UK3d2l2vykv3y9soy93a6vairuj;
+alter table resources add column new_name varchar(255);
+update resources set new_name = name;
+alter table resources drop column name;
+alter table resources rename column new_name to name;
+alter table resources alter column name set not null;
+alter table resources add constraint UK3d2l2vykv3y9soy93a6vairuj unique (tenant_id, name);
+
+alter table users drop constraint if exists UKdms6tsnbugy9927cn4kwci01a;
+alter table users add column new_email varchar(255);
+update users set new_email = email;
+alter table users drop column email;
+alter table users rename column new_email to email;
+alter table users alter column email set not null;
+alter table users add constraint UKdms6tsnbugy9927cn4kwci01a unique (tenant_id, email);
+
+alter table user_groups drop constraint if exists UKaijc9iicrudd7qjkfp8ur0c1s;
+alter table user_groups add column new_name varchar(255);
+update user_groups set new_name = name;
+alter table user_groups drop column name;
+alter table user_groups rename column new_name to name;
+alter table user_groups alter column name set not null;
+alter table user_groups add constraint UKaijc9iicrudd7qjkfp8ur0c1s unique (tenant_id, name);
+
+alter table roles drop constraint uk_roles_name;
+alter table roles add constraint UKsuwu1b9alcy0oj4j3g6apo8a4 unique (tenant_id, name);
@@ -0,0 +1,6 @@
+-- Last sign-in and last request of each user, written in batches in the background
+
+alter table users add column if not exists last_login_at timestamp(6);
+alter table users add column if not exists last_seen_at timestamp(6);
+
+create index if not exists idx_users_tenant_last_seen_at on users (tenant_id, last_seen_at);
@@ -0,0 +1,16 @@
+-- Daily counts of the permission checks each permission decided for each role
+
+create sequence if not exists permission_usage_seq start with 1 increment by 50;
+
+create table if not exists permission_usage (
+    permission_id integer not null,
+    role_id integer not null,
+    usage_date date not null,
+    id bigint not null,
+    uses bigint not null,
+    tenant_id varchar(64) not null,
+    primary key (id),
+    constraint UKk2u447nma5ae7npk1d1lntsq9 unique (tenant_id, role_id, permission_id, usage_date)
+);
+
+create index if not exists idx_permission_usage_permission_date on permission_usage (tenant_id, permission_id, usage_date);
@@ -0,0 +1,28 @@
+package org.cloven.rbac_sample;
+
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.context.annotation.Import;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * A test against the whole application on the in-memory database of the dev profile. The test
+ * classes carrying it share one application context and database, so each creates the rows it
+ * asserts on under names of its own and leaves the seeded data as it found it.
+ *
+ * The web environment is a real server: the mock one cannot resolve the circular dependency
+ * between the security configuration and the tenant service. {@link TestData} creates the rows.
+ */
+@Target(ElementType.TYPE)
+@Retention(RetentionPolicy.RUNTIME)
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "logging.level.org.springframework.security=INFO",
+        "logging.level.org.cloven.rbac_sample=INFO",
+        "spring.jpa.show-sql=false"
+})
+@Import(TestData.class)
+public @interface IntegrationTest {
+}
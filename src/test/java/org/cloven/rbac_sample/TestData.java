@@ -0,0 +1,92 @@
+package org.cloven.rbac_sample;
+
+import org.cloven.rbac_sample.dtos.ActionDto;
+import org.cloven.rbac_sample.dtos.PermissionDto;
+import org.cloven.rbac_sample.dtos.RegisterUserDto;
+import org.cloven.rbac_sample.dtos.ResourceDto;
+import org.cloven.rbac_sample.dtos.RoleDto;
+import org.cloven.rbac_sample.repositories.ActionRepository;
+import org.cloven.rbac_sample.repositories.ResourceRepository;
+import org.cloven.rbac_sample.services.ActionService;
+import org.cloven.rbac_sample.services.PermissionService;
+import org.cloven.rbac_sample.services.ResourceService;
+import org.cloven.rbac_sample.services.RoleService;
+import org.cloven.rbac_sample.services.UserService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.TestComponent;
+
+/**
+ * Creates the rows an integration test works on through the services, as the API would, so the
+ * permission index sees every one of them.
+ */
+@TestComponent
+public class TestData {
+    public static final String PASSWORD = "secret1";
+
+    @Autowired
+    private ResourceService resourceService;
+
+    @Autowired
+    private ResourceRepository resourceRepository;
+
+    @Autowired
+    private ActionService actionService;
+
+    @Autowired
+    private ActionRepository actionRepository;
+
+    @Autowired
+    private PermissionService permissionService;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private UserService userService;
+
+    /**
+     * Creates the permission, and its resource and action unless they exist, and returns its id.
+     */
+    public int permission(String resourceName, String actionName) {
+        if (!resourceRepository.existsByName(resourceName)) {
+            ResourceDto resource = new ResourceDto();
+            resource.setName(resourceName);
+            resourceService.createResource(resource);
+        }
+        if (!actionRepository.existsByName(actionName)) {
+            ActionDto action = new ActionDto();
+            action.setName(actionName);
+            actionService.createAction(action);
+        }
+        PermissionDto permission = new PermissionDto();
+        permission.setResourceName(resourceName);
+        permission.setActionName(actionName);
+        return permissionService.createPermission(permission).getId();
+    }
+
+    /**
+     * Creates a role holding the given permissions and returns its id.
+     */
+    public int role(String name, int... permissionIds) {
+        RoleDto role = new RoleDto();
+        role.setName(name);
+        role.setDescription(name);
+        int roleId = roleService.createRole(role).getId();
+        for (int permissionId : permissionIds) {
+            roleService.assignPermissionToRole(roleId, permissionId);
+        }
+        return roleId;
+    }
+
+    /**
+     * Creates a user with {@link #PASSWORD} and returns its id.
+     */
+    public int user(String email, String roleName) {
+        RegisterUserDto user = new RegisterUserDto();
+        user.setFullName(email);
+        user.setEmail(email);
+        user.setPassword(PASSWORD);
+        user.setRole(roleName);
+        return userService.createUser(user).getId();
+    }
+}
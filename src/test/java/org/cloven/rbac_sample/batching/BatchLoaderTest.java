@@ -0,0 +1,184 @@
+package org.cloven.rbac_sample.batching;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.cloven.rbac_sample.tenancy.TenantContext;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Queue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BatchLoaderTest {
+    private static final int MAX_BATCH_SIZE = 8;
+    // Long enough for the lookups started together to join one batch
+    private static final long WINDOW_MICROS = 20_000;
+
+    private final MeterRegistry meterRegistry = new SimpleMeterRegistry();
+    // The tenant and keys of every query the loader issued
+    private final Queue<Query> issued = new ConcurrentLinkedQueue<>();
+    private final ExecutorService callers = Executors.newFixedThreadPool(16);
+
+    @AfterEach
+    void stopCallers() throws InterruptedException {
+        callers.shutdownNow();
+        callers.awaitTermination(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void concurrentLookupsGetWhatSingleLookupsWould() throws Exception {
+        BatchLoader<Integer, String> loader = loader(true);
+        List<String> tenants = List.of(TenantContext.DEFAULT_TENANT, "other");
+
+        List<Callable<Optional<String>>> lookups = new ArrayList<>();
+        List<Optional<String>> expected = new ArrayList<>();
+        for (int i = 0; i < 200; i++) {
+            String tenantId = tenants.get(i % 2);
+            // Keys repeat within and across tenants, and a fifth of them are missing
+            int key = i % 40;
+            lookups.add(() -> TenantContext.callAs(tenantId, () -> loader.load(key)));
+            expected.add(value(tenantId, key));
+        }
+
+        assertEquals(expected, runTogether(lookups));
+        assertEquals(200, meterRegistry.get("rbac.batch.lookups").counter().count());
+        assertEquals(issued.size(), meterRegistry.get("rbac.batch.queries").counter().count());
+        assertTrue(issued.size() < 200, "lookups were not batched");
+        for (Query query : issued) {
+            assertTrue(query.keys().size() <= MAX_BATCH_SIZE, "batch of " + query.keys().size());
+            assertEquals(query.keys().size(), new HashSet<>(query.keys()).size(), "keys repeated in a batch");
+        }
+    }
+
+    @Test
+    void aFailedQueryFailsEveryLookupOfItsBatch() throws Exception {
+        AtomicBoolean down = new AtomicBoolean(true);
+        BatchLoader<Integer, String> loader = new BatchLoader<>("failing",
+                keys -> down.get() ? fail() : Map.of(),
+                key -> down.get() ? fail() : Optional.empty(),
+                true, MAX_BATCH_SIZE, WINDOW_MICROS, meterRegistry);
+
+        List<Callable<Optional<String>>> lookups = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int key = i;
+            lookups.add(() -> loader.load(key));
+        }
+        for (Future<Optional<String>> result : startTogether(lookups)) {
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(IllegalStateException.class, failure.getCause());
+        }
+
+        // Nothing is left in flight for later lookups to join
+        down.set(false);
+        assertEquals(Optional.empty(), loader.load(1));
+    }
+
+    @Test
+    void anErrorInTheQueryFailsEveryLookupInsteadOfLeavingThemWaiting() throws Exception {
+        BatchLoader<Integer, String> loader = new BatchLoader<>("erroring",
+                keys -> {
+                    throw new AssertionError("query broke");
+                },
+                key -> {
+                    throw new AssertionError("query broke");
+                },
+                true, MAX_BATCH_SIZE, WINDOW_MICROS, meterRegistry);
+
+        List<Callable<Optional<String>>> lookups = new ArrayList<>();
+        for (int i = 0; i < 20; i++) {
+            int key = i;
+            lookups.add(() -> loader.load(key));
+        }
+        for (Future<Optional<String>> result : startTogether(lookups)) {
+            ExecutionException failure = assertThrows(ExecutionException.class, () -> result.get(10, TimeUnit.SECONDS));
+            assertInstanceOf(AssertionError.class, failure.getCause());
+        }
+    }
+
+    @Test
+    void lookupsInsideATransactionOrWhenDisabledQueryDirectly() {
+        BatchLoader<Integer, String> disabled = loader(false);
+        assertEquals(value(TenantContext.DEFAULT_TENANT, 3), disabled.load(3));
+        assertEquals(Optional.empty(), disabled.load(5));
+
+        BatchLoader<Integer, String> enabled = loader(true);
+        TransactionSynchronizationManager.setActualTransactionActive(true);
+        try {
+            assertEquals(value(TenantContext.DEFAULT_TENANT, 4), enabled.load(4));
+        } finally {
+            TransactionSynchronizationManager.setActualTransactionActive(false);
+        }
+        assertEquals(List.of(new Query(TenantContext.DEFAULT_TENANT, List.of(3)),
+                new Query(TenantContext.DEFAULT_TENANT, List.of(5)),
+                new Query(TenantContext.DEFAULT_TENANT, List.of(4))), new ArrayList<>(issued));
+    }
+
+    private BatchLoader<Integer, String> loader(boolean enabled) {
+        return new BatchLoader<>("test",
+                keys -> {
+                    issued.add(new Query(TenantContext.get(), List.copyOf(keys)));
+                    Map<Integer, String> found = new HashMap<>();
+                    keys.forEach(key -> value(TenantContext.get(), key).ifPresent(value -> found.put(key, value)));
+                    return found;
+                },
+                key -> {
+                    issued.add(new Query(TenantContext.get(), List.of(key)));
+                    return value(TenantContext.get(), key);
+                },
+                enabled, MAX_BATCH_SIZE, WINDOW_MICROS, meterRegistry);
+    }
+
+    private static <T> T fail() {
+        throw new IllegalStateException("database down");
+    }
+
+    // The row of a key in a tenant, missing for multiples of five
+    private static Optional<String> value(String tenantId, int key) {
+        return key % 5 == 0 ? Optional.empty() : Optional.of(tenantId + ":" + key);
+    }
+
+    private <T> List<T> runTogether(Collection<Callable<T>> tasks) throws Exception {
+        List<T> results = new ArrayList<>();
+        for (Future<T> result : startTogether(tasks)) {
+            results.add(result.get(10, TimeUnit.SECONDS));
+        }
+        return results;
+    }
+
+    private <T> List<Future<T>> startTogether(Collection<Callable<T>> tasks) {
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<T>> results = new ArrayList<>();
+        for (Callable<T> task : tasks) {
+            results.add(callers.submit(() -> {
+                start.await();
+                return task.call();
+            }));
+        }
+        start.countDown();
+        return results;
+    }
+
+    private record Query(String tenantId, List<Integer> keys) {
+    }
+}
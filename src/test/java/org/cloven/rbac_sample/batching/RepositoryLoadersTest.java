@@ -0,0 +1,90 @@
+package org.cloven.rbac_sample.batching;
+
+import org.cloven.rbac_sample.IntegrationTest;
+import org.cloven.rbac_sample.TestData;
+import org.cloven.rbac_sample.models.Role;
+import org.cloven.rbac_sample.models.User;
+import org.cloven.rbac_sample.repositories.RoleRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Looks up users and roles from many threads at once, so the lookups are batched, and checks each
+ * one gets the row it asked for, or nothing for keys that do not exist.
+ */
+@IntegrationTest
+class RepositoryLoadersTest {
+    private static final int USERS = 30;
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private RepositoryLoaders repositoryLoaders;
+
+    @Autowired
+    private RoleRepository roleRepository;
+
+    @Test
+    void concurrentLookupsReturnTheRowsAskedFor() throws Exception {
+        List<Integer> userIds = new ArrayList<>();
+        for (int i = 0; i < USERS; i++) {
+            userIds.add(testData.user("batched" + i + "@example.com", "USER"));
+        }
+        List<Integer> roleIds = roleRepository.findAllNames().stream().map(RoleRepository.RoleName::getId).toList();
+
+        List<Callable<Object>> lookups = new ArrayList<>();
+        List<Object> expected = new ArrayList<>();
+        for (int round = 0; round < 3; round++) {
+            for (int i = 0; i < USERS; i++) {
+                String email = "batched" + i + "@example.com";
+                Integer userId = userIds.get(i);
+                lookups.add(() -> repositoryLoaders.userByEmail(email).map(User::getId));
+                expected.add(Optional.of(userId));
+                lookups.add(() -> repositoryLoaders.userById(userId).map(User::getEmail));
+                expected.add(Optional.of(email));
+            }
+            for (Integer roleId : roleIds) {
+                lookups.add(() -> repositoryLoaders.roleById(roleId).map(Role::getId));
+                expected.add(Optional.of(roleId));
+            }
+            lookups.add(() -> repositoryLoaders.userByEmail("batched.missing@example.com"));
+            expected.add(Optional.empty());
+            lookups.add(() -> repositoryLoaders.userById(-1));
+            expected.add(Optional.empty());
+            lookups.add(() -> repositoryLoaders.roleById(-1));
+            expected.add(Optional.empty());
+        }
+
+        ExecutorService callers = Executors.newFixedThreadPool(16);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<Object>> results = new ArrayList<>();
+            for (Callable<Object> lookup : lookups) {
+                results.add(callers.submit(() -> {
+                    start.await();
+                    return lookup.call();
+                }));
+            }
+            start.countDown();
+            for (int i = 0; i < results.size(); i++) {
+                assertEquals(expected.get(i), results.get(i).get(10, TimeUnit.SECONDS), "lookup " + i);
+            }
+        } finally {
+            callers.shutdownNow();
+            callers.awaitTermination(5, TimeUnit.SECONDS);
+        }
+    }
+}
@@ -0,0 +1,107 @@
+package org.cloven.rbac_sample.bulkhead;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.cloven.rbac_sample.IntegrationTest;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Takes every slot of the admin read bulkhead, as long-running requests would, and checks that
+ * further admin reads are turned away with 429 once their wait runs out, while a request waiting
+ * in the queue gets a slot that is freed in time and other endpoint classes are not held up.
+ */
+@IntegrationTest
+class BulkheadTest {
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    @Autowired
+    private BulkheadRegistry bulkheadRegistry;
+
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @Value("${app.bulkhead.admin-read.max-concurrent}")
+    private int maxConcurrent;
+
+    private HttpHeaders headers;
+    private int held;
+
+    @BeforeEach
+    void signIn() {
+        JsonNode signIn = restTemplate.postForObject("/api/auth/signin",
+                Map.of("email", "admin@example.com", "password", "admin123"), JsonNode.class);
+        headers = new HttpHeaders();
+        headers.setBearerAuth(signIn.get("token").asText());
+    }
+
+    @AfterEach
+    void releaseHeldSlots() {
+        for (; held > 0; held--) {
+            bulkheadRegistry.exit(EndpointClass.ADMIN_READ);
+        }
+    }
+
+    @Test
+    void requestsToAFullBulkheadAreRejected() {
+        fillAdminReads();
+
+        ResponseEntity<JsonNode> rejected = get("/api/roles");
+        assertEquals(HttpStatus.TOO_MANY_REQUESTS, rejected.getStatusCode());
+        assertEquals(String.valueOf(bulkheadRegistry.retryAfterSeconds(EndpointClass.ADMIN_READ)),
+                rejected.getHeaders().getFirst(HttpHeaders.RETRY_AFTER));
+        assertEquals("Too many concurrent admin-read requests", rejected.getBody().get("message").asText());
+
+        // Decisions have a bulkhead of their own
+        assertEquals(HttpStatus.OK, get("/api/me/permissions").getStatusCode());
+
+        releaseHeldSlots();
+        assertEquals(HttpStatus.OK, get("/api/roles").getStatusCode());
+    }
+
+    @Test
+    void queuedRequestsGetASlotFreedBeforeTheirWaitRunsOut() throws Exception {
+        fillAdminReads();
+
+        CompletableFuture<ResponseEntity<JsonNode>> queued = CompletableFuture.supplyAsync(() -> get("/api/roles"));
+        while (queuedAdminReads() == 0) {
+            assertFalse(queued.isDone(), "admin read was not queued");
+            Thread.sleep(10);
+        }
+        bulkheadRegistry.exit(EndpointClass.ADMIN_READ);
+        held--;
+        assertEquals(HttpStatus.OK, queued.get(10, TimeUnit.SECONDS).getStatusCode());
+    }
+
+    // Holds every slot, as if that many admin reads were in progress
+    private void fillAdminReads() {
+        for (; held < maxConcurrent; held++) {
+            bulkheadRegistry.tryEnter(EndpointClass.ADMIN_READ);
+        }
+    }
+
+    private double queuedAdminReads() {
+        return meterRegistry.get("rbac.bulkhead.queued").tag("class", EndpointClass.ADMIN_READ.key()).gauge().value();
+    }
+
+    private ResponseEntity<JsonNode> get(String path) {
+        return restTemplate.exchange(path, HttpMethod.GET, new HttpEntity<>(headers), JsonNode.class);
+    }
+}
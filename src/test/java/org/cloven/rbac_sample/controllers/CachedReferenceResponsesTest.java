@@ -0,0 +1,86 @@
+package org.cloven.rbac_sample.controllers;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import org.cloven.rbac_sample.IntegrationTest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.web.client.TestRestTemplate;
+import org.springframework.http.HttpEntity;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Roles and permissions served from the second-level cache come without their associations, so
+ * the endpoints returning them must build their responses while those can still be loaded. Each
+ * is called twice, the second time hitting the cache.
+ */
+@IntegrationTest
+class CachedReferenceResponsesTest {
+    @Autowired
+    private TestRestTemplate restTemplate;
+
+    private HttpHeaders headers;
+
+    @BeforeEach
+    void signIn() {
+        JsonNode signIn = restTemplate.postForObject("/api/auth/signin",
+                Map.of("email", "admin@example.com", "password", "admin123"), JsonNode.class);
+        headers = new HttpHeaders();
+        headers.setBearerAuth(signIn.get("token").asText());
+    }
+
+    @Test
+    void rolesAndGrantsAreReturnedWithTheirPermissions() {
+        int roleId = call(HttpMethod.POST, "/api/roles",
+                Map.of("name", "CACHED_RESPONSES", "description", "Cached responses"), HttpStatus.CREATED)
+                .get("id").asInt();
+        int permissionId = call(HttpMethod.GET, "/api/permissions?resource=USER&action=READ", null, HttpStatus.OK)
+                .get("items").get(0).get("id").asInt();
+
+        for (int i = 0; i < 2; i++) {
+            assertEquals(List.of("USER:READ"), permissionNames(call(HttpMethod.POST,
+                    "/api/roles/" + roleId + "/permissions/" + permissionId, null, HttpStatus.OK)));
+            assertEquals(List.of("USER:READ"), permissionNames(call(HttpMethod.GET,
+                    "/api/roles/" + roleId, null, HttpStatus.OK)));
+            assertEquals("USER", call(HttpMethod.GET, "/api/permissions/" + permissionId, null, HttpStatus.OK)
+                    .get("resourceName").asText());
+        }
+        for (int i = 0; i < 2; i++) {
+            assertEquals(List.of(), permissionNames(call(HttpMethod.DELETE,
+                    "/api/roles/" + roleId + "/permissions/" + permissionId, null, HttpStatus.OK)));
+        }
+        call(HttpMethod.DELETE, "/api/roles/" + roleId, null, HttpStatus.OK);
+    }
+
+    @Test
+    void usersAreReturnedWithTheirRole() {
+        for (int i = 0; i < 2; i++) {
+            JsonNode user = call(HttpMethod.POST, "/api/users", Map.of("fullName", "Cached " + i,
+                    "email", "cached" + i + "@example.com", "password", "secret" + i), HttpStatus.CREATED);
+            call(HttpMethod.PUT, "/api/users/" + user.get("id").asInt(), Map.of("fullName", "Renamed " + i),
+                    HttpStatus.OK);
+        }
+    }
+
+    private JsonNode call(HttpMethod method, String path, Object body, HttpStatus expected) {
+        ResponseEntity<JsonNode> response = restTemplate.exchange(path, method, new HttpEntity<>(body, headers),
+                JsonNode.class);
+        assertEquals(expected, response.getStatusCode(), () -> method + " " + path + ": " + response.getBody());
+        return response.getBody();
+    }
+
+    private static List<String> permissionNames(JsonNode role) {
+        List<String> names = new ArrayList<>();
+        role.get("permissions").forEach(permission -> names.add(permission.get("name").asText()));
+        return names;
+    }
+}
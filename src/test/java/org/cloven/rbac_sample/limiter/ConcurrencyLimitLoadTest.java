@@ -0,0 +1,150 @@
+package org.cloven.rbac_sample.limiter;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.web.server.LocalServerPort;
+
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.locks.LockSupport;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Open-loop load on the permission check: the arrival rate rises until the server saturates, then
+ * goes to 1.5 and 2 times the saturation throughput. Goodput counts the checks answered with 200
+ * within the deadline; with load shedding it should hold near saturation instead of collapsing as
+ * queued requests miss their deadline. The client runs in the same JVM, so on a small machine
+ * its own cost limits how far past saturation the result means much.
+ * Run with {@code mvn test -Dtest=ConcurrencyLimitLoadTest -Dbenchmark=true}, and add
+ * {@code -Dapp.limiter.enabled=false} for the comparison without the limiter.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "logging.level.org.springframework.security=INFO",
+        "logging.level.org.cloven.rbac_sample=INFO"
+})
+class ConcurrencyLimitLoadTest {
+    private static final int START_RATE = 100;
+    private static final double RAMP = 1.25;
+    private static final double[] OVERLOAD_FACTORS = {1.5, 2.0};
+    private static final Duration STEP = Duration.ofSeconds(10);
+    private static final Duration DEADLINE = Duration.ofSeconds(1);
+
+    @LocalServerPort
+    private int port;
+
+    @Autowired
+    private AdaptiveConcurrencyLimit concurrencyLimit;
+
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    @Test
+    void goodputStaysStablePastSaturation() throws Exception {
+        String token = signIn();
+        HttpRequest check = HttpRequest.newBuilder(
+                        URI.create(baseUrl() + "/api/users/check-permission?userId=1&resourceName=USER&actionName=READ"))
+                .header("Authorization", "Bearer " + token)
+                .timeout(DEADLINE)
+                .build();
+
+        // Warm up, then raise the rate until the goodput falls behind it
+        for (int i = 0; i < 3; i++) {
+            runStep(check, START_RATE);
+        }
+        List<Double> goodputs = new ArrayList<>();
+        int rate = START_RATE;
+        while (true) {
+            StepResult result = report(rate, runStep(check, rate));
+            goodputs.add(result.goodput());
+            if (result.goodput() < rate * 0.95) {
+                break;
+            }
+            rate = (int) (rate * RAMP);
+        }
+
+        double saturation = goodputs.stream().mapToDouble(Double::doubleValue).max().orElse(0);
+        List<Double> overloaded = new ArrayList<>();
+        for (double factor : OVERLOAD_FACTORS) {
+            int overloadRate = (int) (saturation * factor);
+            overloaded.add(report(overloadRate, runStep(check, overloadRate)).goodput());
+        }
+
+        for (double goodput : overloaded) {
+            assertTrue(goodput >= saturation * 0.7,
+                    "Goodput collapsed past saturation: " + goodput + "/s, saturated at " + saturation + "/s");
+        }
+    }
+
+    private StepResult report(int rate, StepResult result) {
+        System.out.printf("offered %5d/s  goodput %6.1f/s  shed %6d  late or failed %6d  p99 %6.1f ms  limit %d%n",
+                rate, result.goodput(), result.shed(), result.failed(), result.p99Millis(),
+                concurrencyLimit.getLimit());
+        return result;
+    }
+
+    private StepResult runStep(HttpRequest request, int rate) throws Exception {
+        AtomicInteger ok = new AtomicInteger();
+        AtomicInteger shed = new AtomicInteger();
+        AtomicInteger failed = new AtomicInteger();
+        ConcurrentLinkedQueue<Long> latencies = new ConcurrentLinkedQueue<>();
+        List<CompletableFuture<?>> pending = new ArrayList<>();
+
+        long interval = TimeUnit.SECONDS.toNanos(1) / rate;
+        long start = System.nanoTime();
+        long end = start + STEP.toNanos();
+        for (long next = start; next < end; next += interval) {
+            long wait = next - System.nanoTime();
+            if (wait > 0) {
+                LockSupport.parkNanos(wait);
+            }
+            long sent = System.nanoTime();
+            pending.add(client.sendAsync(request, HttpResponse.BodyHandlers.discarding())
+                    .handle((response, error) -> {
+                        if (error == null && response.statusCode() == 200) {
+                            ok.incrementAndGet();
+                            latencies.add(System.nanoTime() - sent);
+                        } else if (error == null && response.statusCode() == 503) {
+                            shed.incrementAndGet();
+                        } else {
+                            failed.incrementAndGet();
+                        }
+                        return null;
+                    }));
+        }
+        CompletableFuture.allOf(pending.toArray(CompletableFuture[]::new)).join();
+
+        long[] sorted = latencies.stream().mapToLong(Long::longValue).sorted().toArray();
+        double p99 = sorted.length == 0 ? 0 : sorted[(int) (sorted.length * 0.99)] / 1e6;
+        return new StepResult(ok.get() / (double) STEP.toSeconds(), shed.get(), failed.get(), p99);
+    }
+
+    private String signIn() throws Exception {
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl() + "/api/auth/signin"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString("{\"email\":\"admin@example.com\",\"password\":\"admin123\"}"))
+                .build();
+        JsonNode body = new ObjectMapper().readTree(client.send(request, HttpResponse.BodyHandlers.ofString()).body());
+        return body.get("token").asText();
+    }
+
+    private String baseUrl() {
+        return "http://localhost:" + port;
+    }
+
+    private record StepResult(double goodput, int shed, int failed, double p99Millis) {
+    }
+}
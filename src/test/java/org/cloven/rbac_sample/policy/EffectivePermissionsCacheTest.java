@@ -0,0 +1,65 @@
+package org.cloven.rbac_sample.policy;
+
+import org.cloven.rbac_sample.IntegrationTest;
+import org.cloven.rbac_sample.TestData;
+import org.cloven.rbac_sample.models.User;
+import org.cloven.rbac_sample.services.RoleService;
+import org.cloven.rbac_sample.services.UserService;
+import org.cloven.rbac_sample.tenancy.TenantContext;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * The ETag of a user's effective permissions changes with every new snapshot, also when the
+ * index is rebuilt or its tenant evicted and built again, so it never stands for two bodies.
+ */
+@IntegrationTest
+class EffectivePermissionsCacheTest {
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private EffectivePermissionsCache effectivePermissionsCache;
+
+    @Autowired
+    private PermissionIndex permissionIndex;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private UserService userService;
+
+    @Test
+    void etagsChangeWhenTheIndexIsRebuiltOrEvicted() {
+        int read = testData.permission("ETAG_REPORT", "READ");
+        int update = testData.permission("ETAG_REPORT", "UPDATE");
+        int delete = testData.permission("ETAG_REPORT", "DELETE");
+        int role = testData.role("ETAG_VIEWER", read);
+        User user = userService.getUserById(testData.user("etag.viewer@example.com", "ETAG_VIEWER"));
+        Set<String> seen = new HashSet<>();
+
+        assertNewEtag(seen, user);
+        permissionIndex.rebuild();
+        assertNewEtag(seen, user);
+        roleService.assignPermissionToRole(role, update);
+        permissionIndex.rebuild();
+        assertNewEtag(seen, user);
+        roleService.assignPermissionToRole(role, delete);
+        permissionIndex.evict(TenantContext.DEFAULT_TENANT);
+        assertNewEtag(seen, user);
+        roleService.revokePermissionFromRole(role, update);
+        assertNewEtag(seen, user);
+    }
+
+    // Every step starts a new snapshot or changes the role, so none may serve an earlier ETag
+    private void assertNewEtag(Set<String> seen, User user) {
+        String etag = effectivePermissionsCache.forUser(user).getEtag();
+        assertTrue(seen.add(etag), "ETag " + etag + " served again");
+    }
+}
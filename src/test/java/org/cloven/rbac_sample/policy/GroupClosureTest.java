@@ -0,0 +1,150 @@
+package org.cloven.rbac_sample.policy;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.Set;
+import java.util.TreeSet;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class GroupClosureTest {
+    private final GroupClosure closure = new GroupClosure();
+
+    @Test
+    void membersGetTheRolesOfEveryEnclosingGroup() {
+        closure.grantRole(1, 100);
+        closure.grantRole(2, 200);
+        closure.addMember(3, 10);
+        closure.addSubgroup(2, 3);
+
+        assertEquals(Set.of(10), closure.addSubgroup(1, 2));
+        assertEquals(Set.of(100, 200), rolesOf(10));
+
+        assertEquals(Set.of(10), closure.removeSubgroup(1, 2));
+        assertEquals(Set.of(200), rolesOf(10));
+
+        assertEquals(Set.of(10), closure.revokeRole(2, 200));
+        assertEquals(Set.of(), rolesOf(10));
+    }
+
+    @Test
+    void rolesReachedThroughTwoPathsStayUntilBothAreRemoved() {
+        closure.grantRole(1, 100);
+        closure.addSubgroup(1, 2);
+        closure.addSubgroup(1, 3);
+        closure.addSubgroup(2, 4);
+        closure.addSubgroup(3, 4);
+        closure.addMember(4, 10);
+
+        closure.removeSubgroup(2, 4);
+        assertEquals(Set.of(100), rolesOf(10));
+        closure.removeSubgroup(3, 4);
+        assertEquals(Set.of(), rolesOf(10));
+    }
+
+    @Test
+    void removedGroupsNoLongerPassOnTheirRoles() {
+        closure.grantRole(1, 100);
+        closure.addSubgroup(1, 2);
+        closure.addMember(2, 10);
+        closure.addMember(1, 11);
+
+        assertEquals(Set.of(10, 11), closure.removeGroup(1));
+        assertEquals(Set.of(), rolesOf(10));
+        assertEquals(Set.of(), rolesOf(11));
+    }
+
+    @Test
+    void containsDetectsTheLinksThatWouldCloseACycle() {
+        closure.addSubgroup(1, 2);
+        closure.addSubgroup(2, 3);
+
+        assertTrue(closure.contains(1, 3));
+        assertTrue(closure.contains(3, 3));
+        assertFalse(closure.contains(3, 1));
+        closure.removeSubgroup(2, 3);
+        assertFalse(closure.contains(1, 3));
+    }
+
+    @Test
+    void matchesARecomputationFromScratchAfterRandomChanges() {
+        Random random = new Random(31);
+        Map<Integer, Set<Integer>> parents = new HashMap<>();
+        Map<Integer, Set<Integer>> roles = new HashMap<>();
+        Map<Integer, Set<Integer>> groupsOfUser = new HashMap<>();
+        int groups = 12;
+        int users = 20;
+        for (int userId = 0; userId < users; userId++) {
+            int groupId = random.nextInt(groups);
+            closure.addMember(groupId, userId);
+            groupsOfUser.computeIfAbsent(userId, id -> new HashSet<>()).add(groupId);
+        }
+
+        for (int step = 0; step < 500; step++) {
+            int first = random.nextInt(groups);
+            int second = random.nextInt(groups);
+            int roleId = 100 + random.nextInt(5);
+            switch (random.nextInt(4)) {
+                case 0 -> {
+                    // The service refuses links that would close a cycle
+                    if (!closure.contains(second, first)) {
+                        closure.addSubgroup(first, second);
+                        parents.computeIfAbsent(second, id -> new HashSet<>()).add(first);
+                    }
+                }
+                case 1 -> {
+                    closure.removeSubgroup(first, second);
+                    parents.getOrDefault(second, new HashSet<>()).remove(first);
+                }
+                case 2 -> {
+                    closure.grantRole(first, roleId);
+                    roles.computeIfAbsent(first, id -> new HashSet<>()).add(roleId);
+                }
+                default -> {
+                    closure.revokeRole(first, roleId);
+                    roles.getOrDefault(first, new HashSet<>()).remove(roleId);
+                }
+            }
+            for (int userId = 0; userId < users; userId++) {
+                Set<Integer> expected = new TreeSet<>();
+                for (Integer groupId : groupsOfUser.get(userId)) {
+                    for (Integer ancestor : ancestors(parents, groupId)) {
+                        expected.addAll(roles.getOrDefault(ancestor, Set.of()));
+                    }
+                }
+                assertEquals(expected, rolesOf(userId), "user " + userId + " after step " + step);
+            }
+        }
+    }
+
+    private Set<Integer> rolesOf(int userId) {
+        Set<Integer> roleIds = new TreeSet<>();
+        closure.collectRoles(userId, roleIds);
+        return roleIds;
+    }
+
+    // The group and every group it is nested in
+    private static List<Integer> ancestors(Map<Integer, Set<Integer>> parents, int groupId) {
+        List<Integer> found = new ArrayList<>();
+        Set<Integer> seen = new HashSet<>();
+        Deque<Integer> pending = new ArrayDeque<>(List.of(groupId));
+        while (!pending.isEmpty()) {
+            Integer current = pending.pop();
+            if (seen.add(current)) {
+                found.add(current);
+                pending.addAll(parents.getOrDefault(current, Set.of()));
+            }
+        }
+        return found;
+    }
+}
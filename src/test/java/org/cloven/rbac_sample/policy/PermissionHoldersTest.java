@@ -0,0 +1,111 @@
+package org.cloven.rbac_sample.policy;
+
+import org.cloven.rbac_sample.IntegrationTest;
+import org.cloven.rbac_sample.TestData;
+import org.cloven.rbac_sample.dtos.PermissionHoldersDto;
+import org.cloven.rbac_sample.dtos.UpdateUserDto;
+import org.cloven.rbac_sample.dtos.UserResponseDto;
+import org.cloven.rbac_sample.services.RoleService;
+import org.cloven.rbac_sample.services.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+
+/**
+ * Changes users, roles and grants through the services and after each change compares the users
+ * the reverse index lists for a permission with the ones the database gives them to.
+ */
+@IntegrationTest
+class PermissionHoldersTest {
+    private static final String RESOURCE = "HOLDERS_DOCUMENT";
+    private static final String ACTION = "HOLDERS_READ";
+    private static final String HOLDERS = "select u.id from users u where u.tenant_id = 'default' and exists ("
+            + "select 1 from role_permissions rp join permissions p on p.id = rp.permission_id "
+            + "join resources r on r.id = p.resource_id join actions a on a.id = p.action_id "
+            + "where r.name = ? and a.name = ? and (rp.role_id = u.role_id "
+            + "or rp.role_id in (select ur.role_id from user_roles ur where ur.user_id = u.id))) "
+            + "order by u.id";
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private PermissionIndex permissionIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void holdersMatchTheDatabaseAfterEveryChange() {
+        int permission = testData.permission(RESOURCE, ACTION);
+        int reader = testData.role("HOLDERS_READER", permission);
+        int other = testData.role("HOLDERS_OTHER");
+        String[] roleNames = {"HOLDERS_READER", "HOLDERS_OTHER", "USER"};
+
+        Random random = new Random(26);
+        List<Integer> users = new ArrayList<>();
+        for (int i = 0; i < 12; i++) {
+            users.add(testData.user("holder" + i + "@example.com", roleNames[random.nextInt(roleNames.length)]));
+        }
+        assertHoldersMatch();
+        assertFalse(holders().isEmpty());
+
+        roleService.assignPermissionToRole(other, permission);
+        assertHoldersMatch();
+
+        for (int i = 0; i < 4; i++) {
+            UpdateUserDto update = new UpdateUserDto();
+            update.setRole(roleNames[random.nextInt(roleNames.length)]);
+            userService.updateUser(users.get(random.nextInt(users.size())), update);
+            assertHoldersMatch();
+        }
+
+        roleService.revokePermissionFromRole(reader, permission);
+        assertHoldersMatch();
+
+        userService.addRoleToUser(users.get(0), other);
+        userService.addRoleToUser(users.get(1), other);
+        assertHoldersMatch();
+
+        roleService.revokePermissionFromRole(other, permission);
+        roleService.assignPermissionToRole(reader, permission);
+        assertHoldersMatch();
+
+        userService.removeRoleFromUser(users.get(0), other);
+        userService.deleteUser(users.get(2));
+        assertHoldersMatch();
+    }
+
+    private void assertHoldersMatch() {
+        List<Integer> expected = holders();
+        assertEquals(expected, permissionIndex.findHolders(RESOURCE, ACTION, null, Integer.MAX_VALUE));
+        assertEquals(expected.size(), permissionIndex.countHolders(RESOURCE, ACTION));
+
+        // The pages of the endpoint, three users each, add up to the same list
+        List<Integer> paged = new ArrayList<>();
+        Integer after = null;
+        do {
+            PermissionHoldersDto page = userService.getUsersWithPermission(RESOURCE, ACTION, after, 3);
+            page.getUsers().stream().map(UserResponseDto::getId).forEach(paged::add);
+            after = page.getNextCursor();
+        } while (after != null);
+        assertEquals(expected, paged);
+    }
+
+    private List<Integer> holders() {
+        return jdbcTemplate.queryForList(HOLDERS, Integer.class, RESOURCE, ACTION);
+    }
+}
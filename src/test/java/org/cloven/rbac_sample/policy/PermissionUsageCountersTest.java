@@ -0,0 +1,98 @@
+package org.cloven.rbac_sample.policy;
+
+import org.cloven.rbac_sample.IntegrationTest;
+import org.cloven.rbac_sample.TestData;
+import org.cloven.rbac_sample.services.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Runs permission checks, some of them concurrently, and checks that the daily rollup credits
+ * every role of the user that grants the permission, and nothing for denied checks.
+ */
+@IntegrationTest
+class PermissionUsageCountersTest {
+    private static final String USES = "select role_id, permission_id, count(*) as grant_rows, sum(uses) as uses "
+            + "from permission_usage where tenant_id = 'default' and role_id in (?, ?) "
+            + "group by role_id, permission_id";
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PermissionUsageCounters usageCounters;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void checksAreCountedPerGrantingRole() throws Exception {
+        int read = testData.permission("USAGE_LEDGER", "READ");
+        int write = testData.permission("USAGE_LEDGER", "WRITE");
+        int reader = testData.role("USAGE_READER", read);
+        int clerk = testData.role("USAGE_CLERK", read, write);
+        int single = testData.user("usage.single@example.com", "USAGE_READER");
+        int both = testData.user("usage.both@example.com", "USAGE_READER");
+        userService.addRoleToUser(both, clerk);
+
+        check(single, "READ", 3, true);
+        check(single, "WRITE", 5, false);
+        check(both, "WRITE", 4, true);
+        ExecutorService checkers = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<?>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(checkers.submit(() -> check(both, "READ", 1000, true)));
+            }
+            for (Future<?> result : results) {
+                result.get(30, TimeUnit.SECONDS);
+            }
+        } finally {
+            checkers.shutdownNow();
+        }
+        usageCounters.flush();
+
+        assertEquals(Map.of(
+                        List.of(reader, read), List.of(1L, 8003L),
+                        List.of(clerk, read), List.of(1L, 8000L),
+                        List.of(clerk, write), List.of(1L, 4L)),
+                uses(reader, clerk));
+
+        // Later flushes add to the day's row of the grant
+        check(single, "READ", 2, true);
+        usageCounters.flush();
+        usageCounters.flush();
+        assertEquals(List.of(1L, 8005L), uses(reader, clerk).get(List.of(reader, read)));
+    }
+
+    private void check(int userId, String action, int times, boolean permitted) {
+        for (int i = 0; i < times; i++) {
+            assertEquals(permitted, userService.checkUserPermission(userId, "USAGE_LEDGER", action));
+        }
+    }
+
+    // Rows and total uses per role and permission
+    private Map<List<Integer>, List<Long>> uses(int firstRole, int secondRole) {
+        Map<List<Integer>, List<Long>> uses = new HashMap<>();
+        jdbcTemplate.query(USES, row -> {
+            uses.put(List.of(row.getInt("role_id"), row.getInt("permission_id")),
+                    List.of(row.getLong("grant_rows"), row.getLong("uses")));
+        }, firstRole, secondRole);
+        return uses;
+    }
+}
@@ -0,0 +1,68 @@
+package org.cloven.rbac_sample.policy;
+
+import org.cloven.rbac_sample.IntegrationTest;
+import org.cloven.rbac_sample.TestData;
+import org.cloven.rbac_sample.repositories.PolicyChangeRepository;
+import org.cloven.rbac_sample.services.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Demotes a user in the database behind the index, as another node would, which leaves no
+ * revision in the change log, and checks that revalidation picks it up once the index is older
+ * than its maximum age.
+ */
+@IntegrationTest
+class PolicyRevalidatorTest {
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private PermissionIndex permissionIndex;
+
+    @Autowired
+    private PolicyChangeRepository policyChangeRepository;
+
+    @Autowired
+    private DegradedMode degradedMode;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void roleChangesMadeElsewhereAreSeenOnceTheIndexIsTooOld() {
+        testData.role("REVALIDATED_EDITOR", testData.permission("REVALIDATED_DRAFT", "UPDATE"));
+        int user = testData.user("revalidated.editor@example.com", "REVALIDATED_EDITOR");
+        permissionIndex.rebuild();
+
+        jdbcTemplate.update("update users set role_id = (select id from roles where tenant_id = 'default' "
+                + "and name = 'USER') where id = ?", user);
+        revalidator(60_000).revalidate();
+        assertTrue(userService.checkUserPermission(user, "REVALIDATED_DRAFT", "UPDATE"));
+
+        revalidator(0).revalidate();
+        assertFalse(userService.checkUserPermission(user, "REVALIDATED_DRAFT", "UPDATE"));
+        assertFalse(authorities(user).contains("ROLE_REVALIDATED_EDITOR"));
+        assertTrue(authorities(user).contains("ROLE_USER"));
+    }
+
+    private PolicyRevalidator revalidator(long maxIndexAgeMs) {
+        return new PolicyRevalidator(permissionIndex, policyChangeRepository, degradedMode, 30_000, maxIndexAgeMs);
+    }
+
+    private List<String> authorities(int userId) {
+        return permissionIndex.authoritiesOf(permissionIndex.combinationOf(userId)).stream()
+                .map(GrantedAuthority::getAuthority)
+                .toList();
+    }
+}
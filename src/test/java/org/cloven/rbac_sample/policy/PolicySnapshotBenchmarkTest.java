@@ -0,0 +1,91 @@
+package org.cloven.rbac_sample.policy;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+
+import java.util.SplittableRandom;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Decision latency and heap footprint of the policy tables at 10k roles and 5k permissions.
+ * Run with {@code mvn test -Dtest=PolicySnapshotBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class PolicySnapshotBenchmarkTest {
+    private static final int ROLES = 10_000;
+    private static final int PERMISSIONS = 5_000;
+    private static final int GRANTS_PER_ROLE = 250;
+    private static final int CHECKS = 5_000_000;
+
+    @Test
+    void decisionsStayConstantTimeAtTenThousandRoles() {
+        long heapBefore = usedHeap();
+        long buildStart = System.nanoTime();
+        SplittableRandom random = new SplittableRandom(42);
+        PolicySnapshot.Builder builder = PolicySnapshot.builder(1);
+        for (int permission = 1; permission <= PERMISSIONS; permission++) {
+            builder.putPermission(permission, "RESOURCE_" + (permission / 5) + ":ACTION_" + (permission % 5));
+        }
+        for (int role = 1; role <= ROLES; role++) {
+            builder.putRole(role, "ROLE_" + role);
+            for (int i = 0; i < GRANTS_PER_ROLE; i++) {
+                builder.setGrant(role, 1 + random.nextInt(PERMISSIONS), true);
+            }
+        }
+        PolicySnapshot policy = builder.build();
+        long buildMs = (System.nanoTime() - buildStart) / 1_000_000;
+        long heapAfter = usedHeap();
+
+        assertEquals(ROLES, policy.roleCount());
+        assertEquals(PERMISSIONS, policy.permissionCount());
+
+        int[] roles = new int[1 << 16];
+        String[] keys = new String[roles.length];
+        int[] permissionIds = new int[roles.length];
+        for (int i = 0; i < roles.length; i++) {
+            roles[i] = 1 + random.nextInt(ROLES);
+            permissionIds[i] = 1 + random.nextInt(PERMISSIONS);
+            keys[i] = policy.permissionKeyAt(policy.permissionSlot(permissionIds[i]));
+        }
+
+        // Warm up, then time decisions by key as the request path makes them
+        int permitted = 0;
+        for (int i = 0; i < CHECKS; i++) {
+            int j = i & (roles.length - 1);
+            if (policy.isPermitted(roles[j], keys[j])) {
+                permitted++;
+            }
+        }
+        long start = System.nanoTime();
+        for (int i = 0; i < CHECKS; i++) {
+            int j = i & (roles.length - 1);
+            if (policy.isPermitted(roles[j], keys[j])) {
+                permitted++;
+            }
+        }
+        double nsPerCheck = (System.nanoTime() - start) / (double) CHECKS;
+
+        start = System.nanoTime();
+        PolicySnapshot next = policy;
+        for (int i = 0; i < 100; i++) {
+            next = next.withGrant(roles[i], permissionIds[i], true);
+        }
+        double usPerUpdate = (System.nanoTime() - start) / 100_000.0;
+        assertTrue(next.isPermitted(roles[0], permissionIds[0]));
+
+        System.out.printf("PolicySnapshot: %d roles x %d permissions, built in %d ms, ~%d MB heap, "
+                        + "%.1f ns/check (%d permitted), %.1f us per copy-on-write grant%n",
+                ROLES, PERMISSIONS, buildMs, (heapAfter - heapBefore) >> 20, nsPerCheck, permitted, usPerUpdate);
+        assertTrue(nsPerCheck < 1_000, "decision took " + nsPerCheck + " ns");
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        for (int i = 0; i < 3; i++) {
+            System.gc();
+        }
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+}
@@ -0,0 +1,90 @@
+package org.cloven.rbac_sample.policy;
+
+import org.cloven.rbac_sample.IntegrationTest;
+import org.cloven.rbac_sample.TestData;
+import org.cloven.rbac_sample.services.RoleService;
+import org.cloven.rbac_sample.services.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.security.core.GrantedAuthority;
+
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Users holding several roles get the union of their permissions, which follows grants to and
+ * revocations from any of the roles and changes to the user's roles.
+ */
+@IntegrationTest
+class RoleCombinationTest {
+    private static final String RESOURCE = "UNION_REPORT";
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PermissionIndex permissionIndex;
+
+    @Test
+    void usersGetTheUnionOfTheirRoles() {
+        int read = testData.permission(RESOURCE, "READ");
+        int update = testData.permission(RESOURCE, "UPDATE");
+        int delete = testData.permission(RESOURCE, "DELETE");
+        int export = testData.permission(RESOURCE, "EXPORT");
+        int reader = testData.role("UNION_READER", read);
+        int editor = testData.role("UNION_EDITOR", update);
+        int owner = testData.role("UNION_OWNER", update, delete);
+
+        // The same three roles, reached from different primary roles
+        int first = testData.user("union.first@example.com", "UNION_READER");
+        userService.addRoleToUser(first, editor);
+        userService.addRoleToUser(first, owner);
+        int second = testData.user("union.second@example.com", "UNION_OWNER");
+        userService.addRoleToUser(second, reader);
+        userService.addRoleToUser(second, editor);
+
+        RoleCombination combination = permissionIndex.combinationOf(first);
+        assertSame(combination, permissionIndex.combinationOf(second));
+        assertTrue(combination.users().containsAll(List.of(first, second)));
+        assertEquals(List.of("UNION_REPORT:DELETE", "UNION_REPORT:READ", "UNION_REPORT:UPDATE"), permissions(first));
+        // Roles in id order, then the permissions by name
+        assertEquals(List.of("ROLE_UNION_READER", "ROLE_UNION_EDITOR", "ROLE_UNION_OWNER",
+                        "UNION_REPORT:DELETE", "UNION_REPORT:READ", "UNION_REPORT:UPDATE"),
+                permissionIndex.authoritiesOf(combination).stream().map(GrantedAuthority::getAuthority).toList());
+        assertFalse(userService.checkUserPermission(first, RESOURCE, "EXPORT"));
+
+        // Still held through the owner role
+        roleService.revokePermissionFromRole(editor, update);
+        assertEquals(List.of("UNION_REPORT:DELETE", "UNION_REPORT:READ", "UNION_REPORT:UPDATE"), permissions(first));
+        assertTrue(userService.checkUserPermission(first, RESOURCE, "UPDATE"));
+
+        roleService.revokePermissionFromRole(owner, update);
+        assertEquals(List.of("UNION_REPORT:DELETE", "UNION_REPORT:READ"), permissions(first));
+        assertFalse(userService.checkUserPermission(second, RESOURCE, "UPDATE"));
+
+        roleService.assignPermissionToRole(editor, export);
+        assertEquals(List.of("UNION_REPORT:DELETE", "UNION_REPORT:EXPORT", "UNION_REPORT:READ"), permissions(second));
+        assertTrue(userService.checkUserPermission(first, RESOURCE, "EXPORT"));
+
+        userService.removeRoleFromUser(first, owner);
+        assertNotSame(permissionIndex.combinationOf(first), permissionIndex.combinationOf(second));
+        assertFalse(combination.users().contains(first));
+        assertEquals(List.of("UNION_REPORT:EXPORT", "UNION_REPORT:READ"), permissions(first));
+        assertEquals(List.of("UNION_REPORT:DELETE", "UNION_REPORT:EXPORT", "UNION_REPORT:READ"), permissions(second));
+    }
+
+    private List<String> permissions(int userId) {
+        return permissionIndex.permissionNamesOf(permissionIndex.combinationOf(userId));
+    }
+}
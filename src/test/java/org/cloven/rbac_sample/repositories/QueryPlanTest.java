@@ -0,0 +1,266 @@
+package org.cloven.rbac_sample.repositories;
+
+import jakarta.persistence.EntityManagerFactory;
+import org.cloven.rbac_sample.dtos.GroupDto;
+import org.cloven.rbac_sample.dtos.TemporaryGrantDto;
+import org.cloven.rbac_sample.models.Action;
+import org.cloven.rbac_sample.models.Group;
+import org.cloven.rbac_sample.models.Resource;
+import org.cloven.rbac_sample.models.TemporaryGrantType;
+import org.cloven.rbac_sample.models.User;
+import org.cloven.rbac_sample.services.GroupService;
+import org.cloven.rbac_sample.services.PolicyTransferService;
+import org.cloven.rbac_sample.services.TemporaryGrantService;
+import org.hibernate.SessionFactory;
+import org.hibernate.resource.jdbc.spi.StatementInspector;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.regex.Pattern;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Every lookup that repositories and the authorization path issue is served by an index. The
+ * lookups run against a seeded database while their SQL is recorded, then each statement is
+ * explained and rejected if H2 plans a table scan for it, or reaches a table through an index
+ * that only H2 has, as PostgreSQL would scan there.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "logging.level.org.springframework.security=INFO",
+        "logging.level.org.cloven.rbac_sample=INFO",
+        "spring.jpa.show-sql=false",
+        "spring.jpa.properties.hibernate.session_factory.statement_inspector="
+                + "org.cloven.rbac_sample.repositories.QueryPlanTest$RecordingInspector"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class QueryPlanTest {
+    private static final int USERS = 2_000;
+    private static final int RESOURCES = 100;
+
+    // Issued through JdbcTemplate, which Hibernate does not see
+    private static final List<String> JDBC_STATEMENTS = List.of(
+            "delete from role_permissions where role_id = ? and permission_id = ?",
+            "insert into role_permissions (role_id, permission_id) select ?, ? where not exists "
+                    + "(select 1 from role_permissions where role_id = ? and permission_id = ?)",
+            "delete from temporary_grants where type = 'PERMISSION_TO_ROLE' and role_id = ? and permission_id = ?",
+            "insert into user_roles (user_id, role_id) select u.id, ? from users u where u.tenant_id = ? "
+                    + "and u.email = ? and u.role_id <> ? and not exists "
+                    + "(select 1 from user_roles ur where ur.user_id = u.id and ur.role_id = ?)",
+            "update users set last_seen_at = ? where id = ? and tenant_id = ? "
+                    + "and (last_seen_at is null or last_seen_at < ?)",
+            "update permission_usage set uses = uses + ? "
+                    + "where tenant_id = ? and role_id = ? and permission_id = ? and usage_date = ?");
+
+    // H2 scans the right side of an outer join whose condition refers to a nested join, even when
+    // it is joined on its primary key, which PostgreSQL looks up by key
+    private static final Pattern PRIMARY_KEY_JOIN = Pattern.compile(
+            "JOIN \"PUBLIC\"\\.\"(\\w+)\" \"(\\w+)\"\\s*/\\* PUBLIC\\.\\1\\.tableScan \\*/\\s*ON \"\\2\"\\.\"ID\" = ");
+
+    @Autowired
+    private PolicyTransferService policyTransferService;
+    @Autowired
+    private GroupService groupService;
+    @Autowired
+    private TemporaryGrantService temporaryGrantService;
+    @Autowired
+    private UserRepository userRepository;
+    @Autowired
+    private RoleRepository roleRepository;
+    @Autowired
+    private PermissionRepository permissionRepository;
+    @Autowired
+    private ResourceRepository resourceRepository;
+    @Autowired
+    private ActionRepository actionRepository;
+    @Autowired
+    private GroupRepository groupRepository;
+    @Autowired
+    private TemporaryGrantRepository temporaryGrantRepository;
+    @Autowired
+    private PolicyChangeRepository policyChangeRepository;
+    @Autowired
+    private TransactionTemplate transactionTemplate;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private EntityManagerFactory entityManagerFactory;
+
+    private Integer userId;
+    private Integer roleId;
+    private Integer groupId;
+
+    @BeforeAll
+    void seed() throws Exception {
+        StringBuilder records = new StringBuilder();
+        for (int i = 0; i < RESOURCES; i++) {
+            records.append("{\"type\":\"resource\",\"name\":\"PLAN").append(i).append("\"}\n")
+                    .append("{\"type\":\"permission\",\"resource\":\"PLAN").append(i).append("\",\"action\":\"READ\"}\n")
+                    .append("{\"type\":\"rolePermission\",\"role\":\"ADMIN\",\"permission\":\"PLAN").append(i)
+                    .append(":READ\"}\n");
+        }
+        for (int i = 0; i < USERS; i++) {
+            records.append("{\"type\":\"user\",\"email\":\"plan").append(i).append("@example.com\",")
+                    .append("\"fullName\":\"Plan User ").append(i).append("\",")
+                    .append("\"password\":\"$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z5tJzU6QG0tYx6cH1P5Q6o1e\",")
+                    .append("\"role\":\"USER\"}\n");
+            if (i % 10 == 0) {
+                records.append("{\"type\":\"userRole\",\"email\":\"plan").append(i)
+                        .append("@example.com\",\"role\":\"ADMIN\"}\n");
+            }
+        }
+        policyTransferService.importFrom(new ByteArrayInputStream(records.toString().getBytes(StandardCharsets.UTF_8)));
+
+        List<Integer> userIds = userRepository.findAll().stream().map(User::getId).toList();
+        userId = userRepository.findByEmail("plan1@example.com").orElseThrow().getId();
+        roleId = roleRepository.findIdByName("ADMIN").orElseThrow();
+        Integer userRoleId = roleRepository.findIdByName("USER").orElseThrow();
+        Integer parentId = groupService.createGroup(group("plan-parent")).getId();
+        groupId = groupService.createGroup(group("plan-child")).getId();
+        groupService.addSubgroup(parentId, groupId);
+        groupService.assignRoleToGroup(groupId, userRoleId);
+        groupService.addMembers(groupId, userIds.subList(0, USERS / 2));
+        TemporaryGrantDto grant = new TemporaryGrantDto();
+        grant.setDuration(Duration.ofDays(1));
+        temporaryGrantService.grantRoleToUser(userRepository.findByEmail("plan2@example.com").orElseThrow().getId(),
+                roleId, grant);
+        jdbcTemplate.execute("analyze");
+    }
+
+    private static GroupDto group(String name) {
+        GroupDto group = new GroupDto();
+        group.setName(name);
+        return group;
+    }
+
+    @Test
+    void lookupsUseIndexes() {
+        // Lookups served from the second-level cache would issue no SQL
+        entityManagerFactory.unwrap(SessionFactory.class).getCache().evictAllRegions();
+        RecordingInspector.STATEMENTS.clear();
+        RecordingInspector.recording = true;
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                exerciseLookups();
+                status.setRollbackOnly();
+            });
+        } finally {
+            RecordingInspector.recording = false;
+        }
+
+        Set<String> statements = new LinkedHashSet<>(RecordingInspector.STATEMENTS);
+        statements.addAll(JDBC_STATEMENTS);
+        Set<String> undeclaredIndexes = undeclaredForeignKeyIndexes();
+        List<String> scans = new ArrayList<>();
+        for (String sql : statements) {
+            String plan = String.join("\n", jdbcTemplate.query(
+                    connection -> connection.prepareStatement("explain " + sql), (row, n) -> row.getString(1)));
+            boolean scanned = PRIMARY_KEY_JOIN.matcher(plan).replaceAll("").contains(".tableScan")
+                    || undeclaredIndexes.stream().anyMatch(index -> plan.contains("PUBLIC." + index + ":"));
+            if (scanned) {
+                scans.add(plan);
+            }
+        }
+        assertTrue(statements.size() > JDBC_STATEMENTS.size(), "No statements were recorded");
+        assertTrue(scans.isEmpty(), "Sequential scans:\n\n" + String.join("\n\n", scans));
+    }
+
+    /**
+     * Indexes that H2 created on its own for a foreign key, where the migrations declare no index
+     * on the same leading columns. PostgreSQL does not index foreign keys, so a lookup that H2
+     * serves through one of these is a sequential scan there.
+     */
+    private Set<String> undeclaredForeignKeyIndexes() {
+        // The table, then the columns in order
+        Map<String, List<String>> keys = new HashMap<>();
+        jdbcTemplate.query("select index_name, table_name, column_name from information_schema.index_columns "
+                + "where table_schema = 'PUBLIC' order by index_name, ordinal_position", (RowCallbackHandler) row -> {
+                    String table = row.getString(2);
+                    keys.computeIfAbsent(row.getString(1), index -> new ArrayList<>(List.of(table))).add(row.getString(3));
+                });
+        List<String> foreignKeys = jdbcTemplate.queryForList("select constraint_name from "
+                + "information_schema.table_constraints where table_schema = 'PUBLIC' "
+                + "and constraint_type = 'FOREIGN KEY'", String.class);
+        Set<String> generated = keys.keySet().stream()
+                .filter(index -> foreignKeys.stream().anyMatch(foreignKey -> index.startsWith(foreignKey + "_INDEX_")))
+                .collect(Collectors.toSet());
+        return generated.stream()
+                .filter(index -> keys.entrySet().stream().noneMatch(declared -> !generated.contains(declared.getKey())
+                        && declared.getValue().size() >= keys.get(index).size()
+                        && declared.getValue().subList(0, keys.get(index).size()).equals(keys.get(index))))
+                .collect(Collectors.toSet());
+    }
+
+    // The reads of signing in, resolving a principal and deciding on a request, and the lookups
+    // and deletes of changing grants, memberships and temporary grants
+    private void exerciseLookups() {
+        List<String> emails = IntStream.range(0, 20).mapToObj(i -> "plan" + i + "@example.com").toList();
+        userRepository.findByEmail("plan1@example.com");
+        userRepository.findAllByEmailIn(emails);
+        userRepository.findWithAuthoritiesById(userId);
+        userRepository.findById(userId);
+        userRepository.existsByEmail("plan1@example.com");
+        userRepository.findExistingEmails(emails);
+        userRepository.findAdditionalRoleNamesByUserIdIn(List.of(userId));
+        userRepository.removeAdditionalRole(roleId);
+
+        roleRepository.findById(roleId);
+        roleRepository.findByName("ADMIN");
+        roleRepository.findIdByName("ADMIN");
+        roleRepository.findGrantedPermissionsByRoleIdIn(List.of(roleId));
+
+        Resource resource = resourceRepository.findByName("USER").orElseThrow();
+        Action action = actionRepository.findByName("READ").orElseThrow();
+        Integer permissionId = permissionRepository.findByResourceAndAction(resource, action).orElseThrow().getId();
+        permissionRepository.existsByResourceAndAction(resource, action);
+
+        Group group = groupRepository.findById(groupId).orElseThrow();
+        group.getSubgroups().size();
+        groupRepository.findByName("plan-child");
+        groupRepository.findMemberIds(groupId);
+        groupRepository.countMembers(groupId);
+        groupRepository.removeMember(groupId, userId);
+        groupRepository.removeUserFromAllGroups(userId);
+        groupRepository.removeRoleFromAllGroups(roleId);
+        groupRepository.detachFromParents(groupId);
+
+        temporaryGrantRepository.findByTypeAndUserIdAndRoleId(TemporaryGrantType.ROLE_TO_USER, userId, roleId);
+        temporaryGrantRepository.findByTypeAndRoleIdAndPermissionId(TemporaryGrantType.PERMISSION_TO_ROLE, roleId, permissionId);
+        temporaryGrantRepository.deleteUserRoleGrant(userId, roleId);
+        temporaryGrantRepository.deleteRolePermissionGrant(roleId, permissionId);
+
+        policyChangeRepository.findByIdGreaterThanOrderByIdAsc(0L);
+        policyChangeRepository.findLatestRevision();
+    }
+
+    public static class RecordingInspector implements StatementInspector {
+        static final List<String> STATEMENTS = new CopyOnWriteArrayList<>();
+        static volatile boolean recording;
+
+        @Override
+        public String inspect(String sql) {
+            if (recording) {
+                STATEMENTS.add(sql);
+            }
+            return sql;
+        }
+    }
+}
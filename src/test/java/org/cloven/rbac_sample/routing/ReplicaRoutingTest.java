@@ -0,0 +1,126 @@
+package org.cloven.rbac_sample.routing;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.cloven.rbac_sample.dtos.GroupDto;
+import org.cloven.rbac_sample.dtos.GroupResponseDto;
+import org.cloven.rbac_sample.services.GroupService;
+import org.flywaydb.core.Flyway;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.datasource.DriverManagerDataSource;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Routing between two local H2 databases, a primary and a replica. Replication is played by
+ * copying the primary into the replica, so anything written since the last copy shows which
+ * database a read went to. The replica starts out with the schema only.
+ */
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "logging.level.org.springframework.security=INFO",
+        "logging.level.org.cloven.rbac_sample=INFO",
+        "spring.jpa.show-sql=false",
+        "spring.datasource.url=" + ReplicaRoutingTest.PRIMARY_URL,
+        "app.datasource.replica-urls=" + ReplicaRoutingTest.REPLICA_URL,
+        "app.datasource.read-your-writes-ms=" + ReplicaRoutingTest.WINDOW_MS
+})
+class ReplicaRoutingTest {
+    static final String PRIMARY_URL = "jdbc:h2:mem:routing-primary;DB_CLOSE_DELAY=-1";
+    static final String REPLICA_URL = "jdbc:h2:mem:routing-replica;DB_CLOSE_DELAY=-1";
+    static final long WINDOW_MS = 1_000;
+
+    static {
+        Flyway.configure().dataSource(REPLICA_URL, "sa", "password").load().migrate();
+    }
+
+    @Autowired
+    private GroupService groupService;
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+    @Autowired
+    private MeterRegistry meterRegistry;
+
+    @BeforeEach
+    void replicate() {
+        JdbcTemplate primary = new JdbcTemplate(new DriverManagerDataSource(PRIMARY_URL, "sa", "password"));
+        JdbcTemplate replica = new JdbcTemplate(new DriverManagerDataSource(REPLICA_URL, "sa", "password"));
+        List<String> script = primary.queryForList("script", String.class);
+        replica.execute("drop all objects");
+        script.forEach(replica::execute);
+    }
+
+    @AfterEach
+    void signOut() {
+        SecurityContextHolder.clearContext();
+    }
+
+    @Test
+    void readOnlyTransactionsGoToTheReplica() {
+        assertEquals("ROUTING-REPLICA", inTransaction(true, this::database));
+        assertEquals("ROUTING-PRIMARY", inTransaction(false, this::database));
+        assertTrue(meterRegistry.get("rbac.datasource.replica.share").gauge().value() > 0);
+        assertTrue(meterRegistry.get("rbac.datasource.connections")
+                .tags("target", "replica", "reason", "read-only").counter().count() > 0);
+    }
+
+    @Test
+    void clientReadsItsOwnWritesUntilTheReplicaCaughtUp() throws InterruptedException {
+        signInAs("writer@example.com");
+        groupService.createGroup(group("routing-written"));
+        assertTrue(sees("routing-written"), "writer reads from the primary");
+
+        signInAs("reader@example.com");
+        assertFalse(sees("routing-written"), "others read from the replica");
+
+        signInAs("writer@example.com");
+        Thread.sleep(WINDOW_MS + 100);
+        assertFalse(sees("routing-written"), "writer is back on the replica");
+        replicate();
+        assertTrue(sees("routing-written"));
+    }
+
+    @Test
+    void pinnedReadsGoToThePrimary() {
+        assertEquals("ROUTING-PRIMARY", RoutingContext.callOnPrimary(() -> inTransaction(true, this::database)));
+    }
+
+    private boolean sees(String groupName) {
+        return groupService.getAllGroups().stream().map(GroupResponseDto::getName).anyMatch(groupName::equals);
+    }
+
+    private String database() {
+        return jdbcTemplate.queryForObject("select database()", String.class);
+    }
+
+    private <T> T inTransaction(boolean readOnly, Supplier<T> work) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(readOnly);
+        return transaction.execute(status -> work.get());
+    }
+
+    private static void signInAs(String username) {
+        SecurityContextHolder.getContext().setAuthentication(
+                new UsernamePasswordAuthenticationToken(username, null, List.of()));
+    }
+
+    private static GroupDto group(String name) {
+        GroupDto group = new GroupDto();
+        group.setName(name);
+        return group;
+    }
+}
@@ -0,0 +1,50 @@
+package org.cloven.rbac_sample.security;
+
+import org.cloven.rbac_sample.IntegrationTest;
+import org.cloven.rbac_sample.TestData;
+import org.cloven.rbac_sample.dtos.UpdateUserDto;
+import org.cloven.rbac_sample.models.User;
+import org.cloven.rbac_sample.services.UserService;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+/**
+ * A user's cached principal is dropped when the change to the user commits, not before: until
+ * then other requests still read the old row and would cache it again.
+ */
+@IntegrationTest
+class PrincipalCacheTest {
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private PrincipalCache principalCache;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void principalsAreEvictedWhenTheChangeCommits() {
+        int userId = testData.user("cached.principal@example.com", "USER");
+        User cached = (User) principalCache.load("cached.principal@example.com");
+
+        UpdateUserDto update = new UpdateUserDto();
+        update.setFullName("Renamed Principal");
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            userService.updateUser(userId, update);
+            // Still the cached copy until the commit
+            assertSame(cached, principalCache.load("cached.principal@example.com"));
+        });
+
+        assertEquals("Renamed Principal",
+                ((User) principalCache.load("cached.principal@example.com")).getFullName());
+    }
+}
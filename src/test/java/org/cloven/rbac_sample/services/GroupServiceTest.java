@@ -0,0 +1,150 @@
+package org.cloven.rbac_sample.services;
+
+import org.cloven.rbac_sample.IntegrationTest;
+import org.cloven.rbac_sample.TestData;
+import org.cloven.rbac_sample.dtos.GroupDto;
+import org.cloven.rbac_sample.exceptions.InvalidRequestException;
+import org.cloven.rbac_sample.policy.PermissionIndex;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.Arrays;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Nests groups through the service and checks the roles their members get against a recursive
+ * query over the group tables, and that links closing a cycle are refused.
+ */
+@IntegrationTest
+class GroupServiceTest {
+    // Primary, additional and group roles of a user
+    private static final String ROLES = "with recursive enclosing(group_id) as ("
+            + "select group_id from group_members where user_id = ? "
+            + "union select s.parent_id from group_subgroups s join enclosing e on s.child_id = e.group_id) "
+            + "select role_id from users where id = ? "
+            + "union select role_id from user_roles where user_id = ? "
+            + "union select r.role_id from group_roles r join enclosing e on r.group_id = e.group_id "
+            + "order by 1";
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private GroupService groupService;
+
+    @Autowired
+    private PermissionIndex permissionIndex;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Autowired
+    private PlatformTransactionManager transactionManager;
+
+    @Test
+    void membersGetTheRolesOfEnclosingGroups() {
+        int permission = testData.permission("GROUPED_LEDGER", "READ");
+        int role = testData.role("GROUPED_AUDITOR", permission);
+        int top = group("GROUPED_TOP");
+        int left = group("GROUPED_LEFT");
+        int right = group("GROUPED_RIGHT");
+        int bottom = group("GROUPED_BOTTOM");
+        int member = testData.user("grouped.member@example.com", "USER");
+        int outsider = testData.user("grouped.outsider@example.com", "USER");
+        groupService.addMembers(bottom, List.of(member));
+
+        groupService.assignRoleToGroup(top, role);
+        groupService.addSubgroup(top, left);
+        groupService.addSubgroup(top, right);
+        groupService.addSubgroup(left, bottom);
+        assertRolesMatch(member, outsider);
+        assertTrue(userService.checkUserPermission(member, "GROUPED_LEDGER", "READ"));
+
+        // Still inside the top group through the right one
+        groupService.addSubgroup(right, bottom);
+        groupService.removeSubgroup(left, bottom);
+        assertRolesMatch(member, outsider);
+        assertTrue(userService.checkUserPermission(member, "GROUPED_LEDGER", "READ"));
+
+        groupService.removeSubgroup(right, bottom);
+        assertRolesMatch(member, outsider);
+        assertFalse(userService.checkUserPermission(member, "GROUPED_LEDGER", "READ"));
+
+        groupService.addSubgroup(left, bottom);
+        groupService.addMembers(left, List.of(outsider));
+        assertRolesMatch(member, outsider);
+        assertTrue(userService.checkUserPermission(outsider, "GROUPED_LEDGER", "READ"));
+
+        groupService.removeMember(left, outsider);
+        groupService.deleteGroup(left);
+        assertRolesMatch(member, outsider);
+        assertFalse(userService.checkUserPermission(member, "GROUPED_LEDGER", "READ"));
+    }
+
+    @Test
+    void linksClosingACycleAreRefused() {
+        int outer = group("CYCLIC_OUTER");
+        int middle = group("CYCLIC_MIDDLE");
+        int inner = group("CYCLIC_INNER");
+        groupService.addSubgroup(outer, middle);
+        groupService.addSubgroup(middle, inner);
+
+        assertThrows(InvalidRequestException.class, () -> groupService.addSubgroup(inner, outer));
+        assertThrows(InvalidRequestException.class, () -> groupService.addSubgroup(middle, outer));
+        assertThrows(InvalidRequestException.class, () -> groupService.addSubgroup(inner, inner));
+        assertEquals(List.of(), groupService.getGroup(inner).getSubgroupIds());
+
+        // Once the path is cut the reverse link is allowed
+        groupService.removeSubgroup(middle, inner);
+        assertEquals(List.of(outer), groupService.addSubgroup(inner, outer).getSubgroupIds());
+    }
+
+    @Test
+    void usersTheIndexDoesNotKnowYetGetTheirGroupRolesToo() {
+        int permission = testData.permission("GROUPED_VAULT", "OPEN");
+        int role = testData.role("GROUPED_OPENER", permission);
+        int outer = group("GROUPED_OUTER");
+        int inner = group("GROUPED_INNER");
+        groupService.addSubgroup(outer, inner);
+        groupService.assignRoleToGroup(outer, role);
+
+        // Until the commit the index has not seen the user, so the check reads the database
+        new TransactionTemplate(transactionManager).executeWithoutResult(status -> {
+            int user = testData.user("grouped.uncommitted@example.com", "USER");
+            groupService.addMembers(inner, List.of(user));
+            assertNull(permissionIndex.combinationOf(user));
+            assertTrue(userService.checkUserPermission(user, "GROUPED_VAULT", "OPEN"));
+            assertFalse(userService.checkUserPermission(user, "GROUPED_VAULT", "CLOSE"));
+        });
+
+        int user = userService.getUserByEmail("grouped.uncommitted@example.com").getId();
+        assertRolesMatch(user);
+        assertTrue(userService.checkUserPermission(user, "GROUPED_VAULT", "OPEN"));
+    }
+
+    private void assertRolesMatch(int... userIds) {
+        for (int userId : userIds) {
+            List<Integer> expected = jdbcTemplate.queryForList(ROLES, Integer.class, userId, userId, userId);
+            List<Integer> indexed = Arrays.stream(permissionIndex.combinationOf(userId).roleIds()).boxed().toList();
+            assertEquals(expected, indexed, "roles of user " + userId);
+        }
+    }
+
+    private int group(String name) {
+        GroupDto group = new GroupDto();
+        group.setName(name);
+        return groupService.createGroup(group).getId();
+    }
+}
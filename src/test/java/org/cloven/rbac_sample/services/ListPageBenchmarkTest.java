@@ -0,0 +1,89 @@
+package org.cloven.rbac_sample.services;
+
+import org.cloven.rbac_sample.dtos.PageDto;
+import org.cloven.rbac_sample.paging.KeysetRequest;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+
+import java.io.ByteArrayInputStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+import java.util.function.Supplier;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Latency and allocation per page of the user, role and permission lists, with 5k users of whom
+ * every tenth holds an additional role. Allocation is counted on the calling thread, which runs
+ * the queries and the mapping to DTOs.
+ * Run with {@code mvn test -Dtest=ListPageBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(webEnvironment = SpringBootTest.WebEnvironment.RANDOM_PORT, properties = {
+        "logging.level.org.springframework.security=INFO",
+        "logging.level.org.cloven.rbac_sample=INFO"
+})
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class ListPageBenchmarkTest {
+    private static final int USERS = 5_000;
+    private static final int WARMUP = 2_000;
+    private static final int ROUNDS = 1_000;
+
+    @Autowired
+    private PolicyTransferService policyTransferService;
+    @Autowired
+    private UserService userService;
+    @Autowired
+    private RoleService roleService;
+    @Autowired
+    private PermissionService permissionService;
+
+    @BeforeAll
+    void importUsers() throws Exception {
+        StringBuilder records = new StringBuilder();
+        for (int i = 0; i < USERS; i++) {
+            records.append("{\"type\":\"user\",\"email\":\"bench").append(i).append("@example.com\",")
+                    .append("\"fullName\":\"Bench User ").append(i).append("\",")
+                    .append("\"password\":\"$2a$10$7EqJtq98hPqEX7fNZaFWoOhi5BWX4Z5tJzU6QG0tYx6cH1P5Q6o1e\",")
+                    .append("\"role\":\"USER\"}\n");
+            if (i % 10 == 0) {
+                records.append("{\"type\":\"userRole\",\"email\":\"bench").append(i)
+                        .append("@example.com\",\"role\":\"ADMIN\"}\n");
+            }
+        }
+        policyTransferService.importFrom(new ByteArrayInputStream(records.toString().getBytes(StandardCharsets.UTF_8)));
+    }
+
+    @Test
+    void listPages() {
+        KeysetRequest page = new KeysetRequest("fullName", null, KeysetRequest.MAX_SIZE);
+        assertEquals(KeysetRequest.MAX_SIZE,
+                measure("users (1000 rows)", () -> userService.getUsers(null, null, null, null, page)).getItems().size());
+        measure("roles", () -> roleService.getRoles(null, null, new KeysetRequest(null, null, KeysetRequest.MAX_SIZE)));
+        measure("permissions", () -> permissionService.getPermissions(null, null, null,
+                new KeysetRequest(null, null, KeysetRequest.MAX_SIZE)));
+    }
+
+    private static PageDto<?> measure(String name, Supplier<PageDto<?>> list) {
+        com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+        long thread = Thread.currentThread().getId();
+        PageDto<?> result = null;
+        for (int i = 0; i < WARMUP; i++) {
+            result = list.get();
+        }
+        long allocatedBefore = threads.getThreadAllocatedBytes(thread);
+        long start = System.nanoTime();
+        for (int i = 0; i < ROUNDS; i++) {
+            result = list.get();
+        }
+        double msPerPage = (System.nanoTime() - start) / 1_000_000.0 / ROUNDS;
+        long kbPerPage = (threads.getThreadAllocatedBytes(thread) - allocatedBefore) / ROUNDS / 1024;
+        System.out.printf("%-20s %4d rows  %7.3f ms/page  %6d KB allocated/page%n",
+                name, result.getItems().size(), msPerPage, kbPerPage);
+        return result;
+    }
+}
@@ -0,0 +1,93 @@
+package org.cloven.rbac_sample.services;
+
+import org.cloven.rbac_sample.IntegrationTest;
+import org.cloven.rbac_sample.dtos.PermissionDto;
+import org.cloven.rbac_sample.dtos.PolicyRollbackResult;
+import org.cloven.rbac_sample.dtos.RoleDto;
+import org.cloven.rbac_sample.models.Permission;
+import org.cloven.rbac_sample.policy.PermissionIndex;
+import org.cloven.rbac_sample.repositories.PolicyChangeRepository;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Rolls back to a revision from the snapshot kept in memory and, after a rebuild has dropped
+ * that snapshot, from the change log. Both must give the same result, including for a role
+ * created after the target revision, which held no permissions then.
+ */
+@IntegrationTest
+class PolicyHistoryServiceTest {
+    @Autowired
+    private PolicyHistoryService policyHistoryService;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private PermissionService permissionService;
+
+    @Autowired
+    private PermissionIndex permissionIndex;
+
+    @Autowired
+    private PolicyChangeRepository policyChangeRepository;
+
+    @ParameterizedTest
+    @ValueSource(booleans = {true, false})
+    void rollbackRestoresGrantsAndEmptiesRolesCreatedSince(boolean fromSnapshot) {
+        List<Permission> permissions = permissionService.getAllPermissions();
+        int first = permissions.get(0).getId();
+        int second = permissions.get(1).getId();
+
+        int existing = createRole("ROLLBACK_EXISTING_" + fromSnapshot);
+        roleService.assignPermissionToRole(existing, first);
+        long target = policyChangeRepository.findLatestRevision();
+
+        int created = createRole("ROLLBACK_CREATED_" + fromSnapshot);
+        roleService.assignPermissionToRole(created, first);
+        roleService.assignPermissionToRole(created, second);
+        roleService.assignPermissionToRole(existing, second);
+        if (!fromSnapshot) {
+            permissionIndex.rebuild();
+        }
+
+        PolicyRollbackResult result = policyHistoryService.rollbackTo(target);
+
+        assertEquals(fromSnapshot, result.isFromSnapshot());
+        assertEquals(Set.of(
+                        List.of(created, first, false),
+                        List.of(created, second, false),
+                        List.of(existing, second, false)),
+                result.getChanges().stream()
+                        .map(change -> List.<Object>of(change.getRoleId(), change.getPermissionId(), change.isGranted()))
+                        .collect(Collectors.toSet()));
+        assertEquals(Set.of(first), permissionIdsOf(existing));
+        assertEquals(Set.of(), permissionIdsOf(created));
+        assertTrue(permissionIndex.policy().isPermitted(existing, first));
+        assertFalse(permissionIndex.policy().isPermitted(existing, second));
+        assertFalse(permissionIndex.policy().isPermitted(created, first));
+        assertFalse(permissionIndex.policy().isPermitted(created, second));
+    }
+
+    private int createRole(String name) {
+        RoleDto role = new RoleDto();
+        role.setName(name);
+        role.setDescription("Rollback test");
+        return roleService.createRole(role).getId();
+    }
+
+    private Set<Integer> permissionIdsOf(int roleId) {
+        return roleService.getRole(roleId).getPermissions().stream()
+                .map(PermissionDto::getId)
+                .collect(Collectors.toSet());
+    }
+}
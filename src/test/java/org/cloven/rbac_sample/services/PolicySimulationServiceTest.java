@@ -0,0 +1,135 @@
+package org.cloven.rbac_sample.services;
+
+import org.cloven.rbac_sample.IntegrationTest;
+import org.cloven.rbac_sample.TestData;
+import org.cloven.rbac_sample.dtos.PolicySimulationRequest;
+import org.cloven.rbac_sample.dtos.PolicySimulationResult;
+import org.cloven.rbac_sample.exceptions.ResourceNotFoundException;
+import org.cloven.rbac_sample.policy.PermissionIndex;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Simulates changes to two roles held alone and together, and checks which users the diff
+ * reports, what they lose and gain, and that nothing was changed.
+ */
+@IntegrationTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class PolicySimulationServiceTest {
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private PolicySimulationService policySimulationService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PermissionIndex permissionIndex;
+
+    private int read;
+    private int update;
+    private int editor;
+    private int viewer;
+    private int editorUser;
+    private int viewerUser;
+    private int bothUser;
+
+    @BeforeAll
+    void createPolicy() {
+        read = testData.permission("SIMULATED_DOCUMENT", "READ");
+        update = testData.permission("SIMULATED_DOCUMENT", "UPDATE");
+        editor = testData.role("SIMULATED_EDITOR", read, update);
+        viewer = testData.role("SIMULATED_VIEWER", read);
+        editorUser = testData.user("simulated.editor@example.com", "SIMULATED_EDITOR");
+        viewerUser = testData.user("simulated.viewer@example.com", "SIMULATED_VIEWER");
+        bothUser = testData.user("simulated.both@example.com", "SIMULATED_VIEWER");
+        userService.addRoleToUser(bothUser, editor);
+    }
+
+    @Test
+    void reportsOnlyUsersWhosePermissionsChange() {
+        // The user holding both roles keeps both permissions through the editor role
+        PolicySimulationResult result = policySimulationService.simulate(request(100,
+                change(viewer, read, PolicySimulationRequest.ChangeType.REVOKE),
+                change(viewer, update, PolicySimulationRequest.ChangeType.GRANT)));
+
+        assertEquals(1, result.getUsersAffected());
+        assertEquals(Map.of("SIMULATED_DOCUMENT:READ", List.of(1L, 0L), "SIMULATED_DOCUMENT:UPDATE", List.of(0L, 1L)),
+                impacts(result));
+        assertEquals(1, result.getUsers().size());
+        PolicySimulationResult.UserImpact impact = result.getUsers().get(0);
+        assertEquals(viewerUser, impact.getUserId());
+        assertEquals(List.of(viewer), impact.getRoleIds());
+        assertEquals(List.of("SIMULATED_DOCUMENT:READ"), impact.getLostPermissions());
+        assertEquals(List.of("SIMULATED_DOCUMENT:UPDATE"), impact.getGainedPermissions());
+
+        assertTrue(userService.checkUserPermission(viewerUser, "SIMULATED_DOCUMENT", "READ"));
+        assertFalse(userService.checkUserPermission(viewerUser, "SIMULATED_DOCUMENT", "UPDATE"));
+        assertTrue(permissionIndex.policy().isPermitted(viewer, read));
+    }
+
+    @Test
+    void countsEveryAffectedUserButListsAtMostMaxUsers() {
+        PolicySimulationResult result = policySimulationService.simulate(request(1,
+                change(editor, update, PolicySimulationRequest.ChangeType.REVOKE)));
+
+        assertEquals(2, result.getUsersAffected());
+        assertEquals(Map.of("SIMULATED_DOCUMENT:UPDATE", List.of(2L, 0L)), impacts(result));
+        assertEquals(1, result.getUsers().size());
+        assertTrue(List.of(editorUser, bothUser).contains(result.getUsers().get(0).getUserId()));
+        assertEquals(List.of("SIMULATED_DOCUMENT:UPDATE"), result.getUsers().get(0).getLostPermissions());
+    }
+
+    @Test
+    void changesThatAreAlreadyInPlaceAffectNobody() {
+        PolicySimulationResult result = policySimulationService.simulate(request(100,
+                change(editor, read, PolicySimulationRequest.ChangeType.GRANT),
+                change(viewer, update, PolicySimulationRequest.ChangeType.REVOKE)));
+
+        assertEquals(0, result.getUsersAffected());
+        assertEquals(Map.of(), impacts(result));
+        assertEquals(List.of(), result.getUsers());
+    }
+
+    @Test
+    void rejectsUnknownRoles() {
+        assertThrows(ResourceNotFoundException.class, () -> policySimulationService.simulate(request(100,
+                change(Integer.MAX_VALUE, read, PolicySimulationRequest.ChangeType.GRANT))));
+    }
+
+    private static PolicySimulationRequest request(int maxUsers, PolicySimulationRequest.ProposedChange... changes) {
+        PolicySimulationRequest request = new PolicySimulationRequest();
+        request.setChanges(List.of(changes));
+        request.setMaxUsers(maxUsers);
+        return request;
+    }
+
+    private static PolicySimulationRequest.ProposedChange change(int roleId, int permissionId,
+                                                                 PolicySimulationRequest.ChangeType type) {
+        PolicySimulationRequest.ProposedChange change = new PolicySimulationRequest.ProposedChange();
+        change.setRoleId(roleId);
+        change.setPermissionId(permissionId);
+        change.setType(type);
+        return change;
+    }
+
+    // Users losing and gaining each permission
+    private static Map<String, List<Long>> impacts(PolicySimulationResult result) {
+        return result.getPermissions().stream().collect(Collectors.toMap(
+                PolicySimulationResult.PermissionImpact::getPermission,
+                impact -> List.of(impact.getUsersLosing(), impact.getUsersGaining())));
+    }
+}
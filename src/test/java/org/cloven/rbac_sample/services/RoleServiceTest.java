@@ -0,0 +1,201 @@
+package org.cloven.rbac_sample.services;
+
+import org.cloven.rbac_sample.IntegrationTest;
+import org.cloven.rbac_sample.TestData;
+import org.cloven.rbac_sample.dtos.PermissionDto;
+import org.cloven.rbac_sample.dtos.PolicySimulationRequest;
+import org.cloven.rbac_sample.dtos.RolePermissionChangesDto;
+import org.cloven.rbac_sample.dtos.RolePermissionChangesResult;
+import org.cloven.rbac_sample.dtos.RolePermissionsDto;
+import org.cloven.rbac_sample.exceptions.InvalidRequestException;
+import org.cloven.rbac_sample.exceptions.ResourceNotFoundException;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Bulk grants and revocations: only the grants that change are applied, logged and indexed, the
+ * rest are reported unchanged, and a request naming a role or permission that does not exist
+ * changes nothing. Concurrent grants of the same permission apply it once and fail none.
+ */
+@IntegrationTest
+class RoleServiceTest {
+    private static final String LOGGED = "select count(*) from policy_changes where role_id = ?";
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    @Test
+    void onlyChangedGrantsAreApplied() {
+        int read = testData.permission("BULK_FILE", "READ");
+        int update = testData.permission("BULK_FILE", "UPDATE");
+        int delete = testData.permission("BULK_FILE", "DELETE");
+        int role = testData.role("BULK_EDITOR", read);
+        int user = testData.user("bulk.editor@example.com", "BULK_EDITOR");
+        int logged = count(LOGGED, role);
+
+        RolePermissionChangesResult result = roleService.changePermissions(role, permissions(Set.of(read, update), Set.of(delete)));
+        assertEquals(List.of(1, 0, 2), counts(result));
+        assertNotNull(result.getRevision());
+        assertEquals(Set.of(read, update), permissionIdsOf(role));
+        assertEquals(logged + 1, count(LOGGED, role));
+        assertTrue(userService.checkUserPermission(user, "BULK_FILE", "UPDATE"));
+
+        result = roleService.changePermissions(role, permissions(Set.of(delete), Set.of(read, update)));
+        assertEquals(List.of(1, 2, 0), counts(result));
+        assertEquals(Set.of(delete), permissionIdsOf(role));
+        assertEquals(logged + 4, count(LOGGED, role));
+        assertFalse(userService.checkUserPermission(user, "BULK_FILE", "READ"));
+        assertTrue(userService.checkUserPermission(user, "BULK_FILE", "DELETE"));
+
+        // Nothing to do, so no revision
+        result = roleService.changePermissions(role, permissions(Set.of(delete), Set.of(read)));
+        assertEquals(List.of(0, 0, 2), counts(result));
+        assertNull(result.getRevision());
+        assertEquals(logged + 4, count(LOGGED, role));
+    }
+
+    @Test
+    void changesAcrossRolesAreAppliedTogether() {
+        int read = testData.permission("BULK_LEDGER", "READ");
+        int update = testData.permission("BULK_LEDGER", "UPDATE");
+        int reader = testData.role("BULK_READER", read);
+        int clerk = testData.role("BULK_CLERK");
+        int user = testData.user("bulk.clerk@example.com", "BULK_CLERK");
+
+        RolePermissionChangesResult result = roleService.changePermissions(changes(
+                change(clerk, read, PolicySimulationRequest.ChangeType.GRANT),
+                change(clerk, update, PolicySimulationRequest.ChangeType.GRANT),
+                // Repeated, counted once
+                change(clerk, update, PolicySimulationRequest.ChangeType.GRANT),
+                change(reader, read, PolicySimulationRequest.ChangeType.REVOKE),
+                change(reader, update, PolicySimulationRequest.ChangeType.REVOKE)));
+        assertEquals(List.of(2, 1, 1), counts(result));
+        assertEquals(Set.of(read, update), permissionIdsOf(clerk));
+        assertEquals(Set.of(), permissionIdsOf(reader));
+        assertTrue(userService.checkUserPermission(user, "BULK_LEDGER", "UPDATE"));
+
+        assertThrows(InvalidRequestException.class, () -> roleService.changePermissions(changes(
+                change(reader, read, PolicySimulationRequest.ChangeType.GRANT),
+                change(reader, read, PolicySimulationRequest.ChangeType.REVOKE))));
+        assertEquals(Set.of(), permissionIdsOf(reader));
+    }
+
+    @Test
+    void unknownRolesAndPermissionsChangeNothing() {
+        int read = testData.permission("BULK_ARCHIVE", "READ");
+        int role = testData.role("BULK_ARCHIVIST");
+        int logged = count(LOGGED, role);
+
+        ResourceNotFoundException missingRole = assertThrows(ResourceNotFoundException.class,
+                () -> roleService.changePermissions(changes(
+                        change(role, read, PolicySimulationRequest.ChangeType.GRANT),
+                        change(-1, read, PolicySimulationRequest.ChangeType.GRANT))));
+        assertEquals("Role not found with id: -1", missingRole.getMessage());
+
+        ResourceNotFoundException missingPermission = assertThrows(ResourceNotFoundException.class,
+                () -> roleService.changePermissions(role, permissions(Set.of(read, -1), Set.of())));
+        assertEquals("Permission not found with id: -1", missingPermission.getMessage());
+
+        assertThrows(ResourceNotFoundException.class,
+                () -> roleService.changePermissions(-1, permissions(Set.of(read), Set.of())));
+        assertEquals(Set.of(), permissionIdsOf(role));
+        assertEquals(logged, count(LOGGED, role));
+    }
+
+    @Test
+    void concurrentGrantsOfTheSamePermissionsAreAppliedOnce() throws Exception {
+        int read = testData.permission("BULK_VAULT", "READ");
+        int update = testData.permission("BULK_VAULT", "UPDATE");
+        int delete = testData.permission("BULK_VAULT", "DELETE");
+        int role = testData.role("BULK_KEEPER");
+        int logged = count(LOGGED, role);
+
+        ExecutorService granters = Executors.newFixedThreadPool(8);
+        try {
+            CountDownLatch start = new CountDownLatch(1);
+            List<Future<RolePermissionChangesResult>> results = new ArrayList<>();
+            for (int i = 0; i < 8; i++) {
+                results.add(granters.submit(() -> {
+                    start.await();
+                    return roleService.changePermissions(role, permissions(Set.of(read, update, delete), Set.of()));
+                }));
+            }
+            start.countDown();
+            int granted = 0;
+            for (Future<RolePermissionChangesResult> result : results) {
+                RolePermissionChangesResult changes = result.get(30, TimeUnit.SECONDS);
+                assertEquals(3, changes.getGranted() + changes.getUnchanged());
+                granted += changes.getGranted();
+            }
+            assertEquals(3, granted);
+        } finally {
+            granters.shutdownNow();
+        }
+        assertEquals(Set.of(read, update, delete), permissionIdsOf(role));
+        assertEquals(logged + 3, count(LOGGED, role));
+    }
+
+    // Granted, revoked and unchanged
+    private static List<Integer> counts(RolePermissionChangesResult result) {
+        return List.of(result.getGranted(), result.getRevoked(), result.getUnchanged());
+    }
+
+    private Set<Integer> permissionIdsOf(int roleId) {
+        return roleService.getRole(roleId).getPermissions().stream()
+                .map(PermissionDto::getId)
+                .collect(Collectors.toSet());
+    }
+
+    private int count(String sql, Object... args) {
+        return jdbcTemplate.queryForObject(sql, Integer.class, args);
+    }
+
+    private static RolePermissionsDto permissions(Set<Integer> grant, Set<Integer> revoke) {
+        RolePermissionsDto permissions = new RolePermissionsDto();
+        permissions.setGrant(grant);
+        permissions.setRevoke(revoke);
+        return permissions;
+    }
+
+    private static RolePermissionChangesDto changes(PolicySimulationRequest.ProposedChange... changes) {
+        RolePermissionChangesDto request = new RolePermissionChangesDto();
+        request.setChanges(List.of(changes));
+        return request;
+    }
+
+    private static PolicySimulationRequest.ProposedChange change(
+            int roleId, int permissionId, PolicySimulationRequest.ChangeType type) {
+        PolicySimulationRequest.ProposedChange change = new PolicySimulationRequest.ProposedChange();
+        change.setRoleId(roleId);
+        change.setPermissionId(permissionId);
+        change.setType(type);
+        return change;
+    }
+}
@@ -0,0 +1,141 @@
+package org.cloven.rbac_sample.services;
+
+import org.cloven.rbac_sample.IntegrationTest;
+import org.cloven.rbac_sample.TestData;
+import org.cloven.rbac_sample.dtos.TemporaryGrantDto;
+import org.cloven.rbac_sample.exceptions.ResourceAlreadyExistsException;
+import org.cloven.rbac_sample.models.TemporaryGrant;
+import org.cloven.rbac_sample.policy.PermissionIndex;
+import org.cloven.rbac_sample.repositories.TemporaryGrantRepository;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.function.BooleanSupplier;
+
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.junit.jupiter.api.Assertions.fail;
+
+/**
+ * Grants roles and permissions for a couple of seconds and waits for the timer wheel, which ticks
+ * once a second, to revoke them.
+ */
+@IntegrationTest
+class TemporaryGrantServiceTest {
+    private static final Duration SHORT = Duration.ofSeconds(2);
+    private static final Duration WAIT = Duration.ofSeconds(15);
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private TemporaryGrantService temporaryGrantService;
+
+    @Autowired
+    private TemporaryGrantRepository temporaryGrantRepository;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private PermissionIndex permissionIndex;
+
+    @Test
+    void temporaryRolesAndPermissionsAreRevokedWhenTheyExpire() {
+        int permission = testData.permission("TEMPORARY_VAULT", "OPEN");
+        int role = testData.role("TEMPORARY_KEYHOLDER");
+        int user = testData.user("temporary.keyholder@example.com", "TEMPORARY_KEYHOLDER");
+        int guest = testData.user("temporary.guest@example.com", "USER");
+
+        TemporaryGrant permissionGrant = temporaryGrantService.grantPermissionToRole(role, permission, lasting(SHORT));
+        TemporaryGrant roleGrant = temporaryGrantService.grantRoleToUser(guest, role, lasting(Duration.ofSeconds(8)));
+        assertTrue(canOpen(user));
+        assertTrue(canOpen(guest));
+
+        await("permission grant expired", () -> !canOpen(user));
+        assertFalse(temporaryGrantRepository.existsById(permissionGrant.getId()));
+        assertTrue(temporaryGrantRepository.existsById(roleGrant.getId()));
+
+        // The role grant outlives the permission grant
+        assertTrue(holdsRole(guest, role));
+        await("role grant expired", () -> !holdsRole(guest, role));
+        assertFalse(temporaryGrantRepository.existsById(roleGrant.getId()));
+    }
+
+    @Test
+    void grantingAgainMovesTheDeadline() throws InterruptedException {
+        int permission = testData.permission("EXTENDED_VAULT", "OPEN");
+        int role = testData.role("EXTENDED_KEYHOLDER");
+        int user = testData.user("extended.keyholder@example.com", "EXTENDED_KEYHOLDER");
+
+        temporaryGrantService.grantPermissionToRole(role, permission, lasting(SHORT));
+        TemporaryGrant extended = temporaryGrantService.grantPermissionToRole(role, permission,
+                lasting(Duration.ofSeconds(6)));
+
+        Thread.sleep(SHORT.plusSeconds(2).toMillis());
+        assertTrue(userService.checkUserPermission(user, "EXTENDED_VAULT", "OPEN"));
+        await("extended grant expired", () -> !userService.checkUserPermission(user, "EXTENDED_VAULT", "OPEN"));
+        assertFalse(temporaryGrantRepository.existsById(extended.getId()));
+    }
+
+    @Test
+    void permanentAssignmentsOutliveTheTemporaryGrant() throws InterruptedException {
+        int role = testData.role("PROMOTED_KEYHOLDER");
+        int user = testData.user("promoted.keyholder@example.com", "USER");
+
+        TemporaryGrant grant = temporaryGrantService.grantRoleToUser(user, role, lasting(SHORT));
+        assertThrows(ResourceAlreadyExistsException.class,
+                () -> temporaryGrantService.grantRoleToUser(testData.user("promoted.holder@example.com",
+                        "PROMOTED_KEYHOLDER"), role, lasting(SHORT)));
+        userService.addRoleToUser(user, role);
+        assertFalse(temporaryGrantRepository.existsById(grant.getId()));
+
+        Thread.sleep(SHORT.plusSeconds(2).toMillis());
+        assertTrue(holdsRole(user, role));
+    }
+
+    @Test
+    void revokedGrantsEndAtOnce() {
+        int permission = testData.permission("REVOKED_VAULT", "OPEN");
+        int role = testData.role("REVOKED_KEYHOLDER");
+        int user = testData.user("revoked.keyholder@example.com", "REVOKED_KEYHOLDER");
+
+        TemporaryGrant grant = temporaryGrantService.grantPermissionToRole(role, permission, lasting(Duration.ofHours(1)));
+        assertTrue(userService.checkUserPermission(user, "REVOKED_VAULT", "OPEN"));
+        temporaryGrantService.revokeGrant(grant.getId());
+        assertFalse(userService.checkUserPermission(user, "REVOKED_VAULT", "OPEN"));
+        assertFalse(temporaryGrantRepository.existsById(grant.getId()));
+    }
+
+    private boolean holdsRole(int userId, int roleId) {
+        return Arrays.stream(permissionIndex.combinationOf(userId).roleIds()).anyMatch(id -> id == roleId);
+    }
+
+    private boolean canOpen(int userId) {
+        return userService.checkUserPermission(userId, "TEMPORARY_VAULT", "OPEN");
+    }
+
+    private static TemporaryGrantDto lasting(Duration duration) {
+        TemporaryGrantDto grant = new TemporaryGrantDto();
+        grant.setDuration(duration);
+        return grant;
+    }
+
+    private static void await(String condition, BooleanSupplier done) {
+        long deadline = System.nanoTime() + WAIT.toNanos();
+        while (!done.getAsBoolean()) {
+            if (System.nanoTime() > deadline) {
+                fail("Timed out waiting until " + condition);
+            }
+            try {
+                Thread.sleep(100);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                fail("Interrupted waiting until " + condition);
+            }
+        }
+    }
+}
@@ -0,0 +1,74 @@
+package org.cloven.rbac_sample.services;
+
+import org.cloven.rbac_sample.dtos.UserImportResult;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.context.SpringBootTest;
+import org.springframework.boot.test.context.TestConfiguration;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Primary;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import java.io.ByteArrayInputStream;
+import java.nio.charset.StandardCharsets;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Throughput of the bulk user import apart from hashing: 50k users from CSV, with a password
+ * encoder that does no work, so the time is spent parsing, validating and inserting.
+ * Run with {@code mvn test -Dtest=UserImportBenchmarkTest -Dbenchmark=true}.
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+@SpringBootTest(properties = {
+        "logging.level.org.springframework.security=INFO",
+        "logging.level.org.cloven.rbac_sample=INFO",
+        "spring.jpa.show-sql=false"
+})
+class UserImportBenchmarkTest {
+    private static final int USERS = 50_000;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Test
+    void importsUsersInBatches() throws Exception {
+        // Warms up the parser, validator and insert path
+        assertEquals(5_000, importUsers("warmup", 5_000).getCreated());
+
+        UserImportResult result = importUsers("bench", USERS);
+        assertEquals(USERS, result.getCreated());
+        System.out.printf("%d users in %d ms, %.0f users/s%n",
+                result.getCreated(), result.getElapsedMs(), result.getCreated() * 1000.0 / result.getElapsedMs());
+    }
+
+    private UserImportResult importUsers(String prefix, int count) throws Exception {
+        StringBuilder csv = new StringBuilder("fullName,email,password,role\n");
+        for (int i = 0; i < count; i++) {
+            csv.append("Bench User ").append(i).append(',')
+                    .append(prefix).append(i).append("@example.com,")
+                    .append("secret").append(i).append(",USER\n");
+        }
+        return userImportService.importFrom(new ByteArrayInputStream(csv.toString().getBytes(StandardCharsets.UTF_8)), true);
+    }
+
+    @TestConfiguration
+    static class PlainPasswords {
+        @Bean
+        @Primary
+        PasswordEncoder plainPasswordEncoder() {
+            return new PasswordEncoder() {
+                @Override
+                public String encode(CharSequence rawPassword) {
+                    return rawPassword.toString();
+                }
+
+                @Override
+                public boolean matches(CharSequence rawPassword, String encodedPassword) {
+                    return rawPassword.toString().equals(encodedPassword);
+                }
+            };
+        }
+    }
+}
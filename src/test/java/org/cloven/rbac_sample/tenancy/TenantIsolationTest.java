@@ -0,0 +1,170 @@
+package org.cloven.rbac_sample.tenancy;
+
+import org.cloven.rbac_sample.IntegrationTest;
+import org.cloven.rbac_sample.TestData;
+import org.cloven.rbac_sample.dtos.GroupDto;
+import org.cloven.rbac_sample.dtos.RolePermissionsDto;
+import org.cloven.rbac_sample.dtos.TenantDto;
+import org.cloven.rbac_sample.dtos.UserImportResult;
+import org.cloven.rbac_sample.exceptions.ResourceNotFoundException;
+import org.cloven.rbac_sample.policy.PermissionIndex;
+import org.cloven.rbac_sample.services.GroupService;
+import org.cloven.rbac_sample.services.RoleService;
+import org.cloven.rbac_sample.services.TenantService;
+import org.cloven.rbac_sample.services.UserImportService;
+import org.cloven.rbac_sample.services.UserService;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.TestInstance;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Set;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+/**
+ * Creates the same permission, role and user in the default tenant and in a second one, and checks
+ * that neither sees the other's rows through the repositories, the permission index or the JDBC
+ * statements that bypass the Hibernate tenant filter.
+ */
+@IntegrationTest
+@TestInstance(TestInstance.Lifecycle.PER_CLASS)
+class TenantIsolationTest {
+    private static final String TENANT = "isolation";
+    private static final String EMAIL = "isolated.keyholder@example.com";
+
+    @Autowired
+    private TestData testData;
+
+    @Autowired
+    private TenantService tenantService;
+
+    @Autowired
+    private UserService userService;
+
+    @Autowired
+    private RoleService roleService;
+
+    @Autowired
+    private GroupService groupService;
+
+    @Autowired
+    private UserImportService userImportService;
+
+    @Autowired
+    private PermissionIndex permissionIndex;
+
+    @Autowired
+    private JdbcTemplate jdbcTemplate;
+
+    private int defaultPermission;
+    private int defaultRole;
+    private int defaultUser;
+    private int tenantPermission;
+    private int tenantRole;
+    private int tenantUser;
+
+    @BeforeAll
+    void createTheSameRowsInBothTenants() {
+        TenantDto tenant = new TenantDto();
+        tenant.setId(TENANT);
+        tenant.setName("Isolation");
+        tenant.setAdminEmail("admin@example.com");
+        tenant.setAdminPassword(TestData.PASSWORD);
+        tenantService.createTenant(tenant);
+
+        defaultPermission = testData.permission("ISOLATED_SAFE", "OPEN");
+        defaultRole = testData.role("ISOLATED_KEYHOLDER", defaultPermission);
+        defaultUser = testData.user(EMAIL, "ISOLATED_KEYHOLDER");
+
+        // The same names in the other tenant, but the role holds no permission there
+        TenantContext.runAs(TENANT, () -> {
+            tenantPermission = testData.permission("ISOLATED_SAFE", "OPEN");
+            tenantRole = testData.role("ISOLATED_KEYHOLDER");
+            tenantUser = testData.user(EMAIL, "ISOLATED_KEYHOLDER");
+        });
+    }
+
+    @Test
+    void readsSeeOnlyTheCurrentTenant() {
+        assertEquals(defaultUser, userService.getUserByEmail(EMAIL).getId());
+        assertEquals(tenantUser, TenantContext.callAs(TENANT, () -> userService.getUserByEmail(EMAIL).getId()));
+
+        assertThrows(ResourceNotFoundException.class, () -> userService.getUserById(tenantUser));
+        assertThrows(ResourceNotFoundException.class, () -> roleService.getRole(tenantRole));
+        TenantContext.runAs(TENANT, () -> {
+            assertThrows(ResourceNotFoundException.class, () -> userService.getUserById(defaultUser));
+            assertEquals(Set.of(), roleService.getRole(tenantRole).getPermissions());
+        });
+    }
+
+    @Test
+    void thePermissionIndexIsKeptPerTenant() {
+        assertTrue(userService.checkUserPermission(defaultUser, "ISOLATED_SAFE", "OPEN"));
+        assertEquals(List.of(defaultUser), permissionIndex.findHolders("ISOLATED_SAFE", "OPEN", null, 10));
+
+        TenantContext.runAs(TENANT, () -> {
+            assertFalse(userService.checkUserPermission(tenantUser, "ISOLATED_SAFE", "OPEN"));
+            assertEquals(0, permissionIndex.countHolders("ISOLATED_SAFE", "OPEN"));
+            assertFalse(permissionIndex.policy().isPermitted(tenantRole, tenantPermission));
+        });
+    }
+
+    @Test
+    void jdbcWritesStayInTheCurrentTenant() {
+        // Taken in both tenants, and in the default tenant only
+        testData.user("isolated.elsewhere@example.com", "USER");
+        String csv = "fullName,email,password,role\n"
+                + "Imported," + EMAIL + "," + TestData.PASSWORD + ",USER\n"
+                + "Imported,isolated.elsewhere@example.com," + TestData.PASSWORD + ",USER\n";
+        UserImportResult imported = TenantContext.callAs(TENANT, () -> importCsv(csv));
+        assertEquals(1, imported.getCreated());
+        assertEquals(1, imported.getSkipped());
+        assertEquals(List.of(TenantContext.DEFAULT_TENANT, TENANT), jdbcTemplate.queryForList(
+                "select tenant_id from users where email = 'isolated.elsewhere@example.com' order by tenant_id",
+                String.class));
+        assertNotEquals(userService.getUserByEmail("isolated.elsewhere@example.com").getId(),
+                TenantContext.callAs(TENANT, () -> userService.getUserByEmail("isolated.elsewhere@example.com").getId()));
+
+        int defaultGroup = group("ISOLATED_GROUP");
+        int tenantGroup = TenantContext.callAs(TENANT, () -> group("ISOLATED_GROUP"));
+        assertThrows(ResourceNotFoundException.class, () -> groupService.addMembers(defaultGroup, List.of(tenantUser)));
+        TenantContext.runAs(TENANT, () -> assertThrows(ResourceNotFoundException.class,
+                () -> groupService.addMembers(tenantGroup, List.of(defaultUser))));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from group_members where group_id in (?, ?)", Integer.class, defaultGroup, tenantGroup));
+
+        RolePermissionsDto grant = new RolePermissionsDto();
+        grant.setGrant(Set.of(defaultPermission));
+        TenantContext.runAs(TENANT, () -> assertThrows(ResourceNotFoundException.class,
+                () -> roleService.changePermissions(tenantRole, grant)));
+        grant.setGrant(Set.of(tenantPermission));
+        assertThrows(ResourceNotFoundException.class, () -> roleService.changePermissions(defaultRole, grant));
+        assertThrows(ResourceNotFoundException.class, () -> roleService.changePermissions(tenantRole, grant));
+        assertEquals(0, jdbcTemplate.queryForObject(
+                "select count(*) from role_permissions where role_id = ?", Integer.class, tenantRole));
+    }
+
+    private int group(String name) {
+        GroupDto group = new GroupDto();
+        group.setName(name);
+        return groupService.createGroup(group).getId();
+    }
+
+    private UserImportResult importCsv(String csv) {
+        try {
+            return userImportService.importFrom(new ByteArrayInputStream(csv.getBytes(StandardCharsets.UTF_8)), true);
+        } catch (IOException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}